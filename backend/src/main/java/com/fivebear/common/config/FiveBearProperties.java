@@ -31,6 +31,11 @@ public class FiveBearProperties {
      */
     private final System system = new System();
 
+    /**
+     * 赔率检查点配置
+     */
+    private final Checkpoint checkpoint = new Checkpoint();
+
     // 手动添加getter方法以解决"never read"警告
     public Jwt getJwt() {
         return jwt;
@@ -44,6 +49,10 @@ public class FiveBearProperties {
         return system;
     }
 
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
     @Data
     public static class Jwt {
         private String secret;
@@ -134,4 +143,20 @@ public class FiveBearProperties {
             this.author = author;
         }
     }
+
+    @Data
+    public static class Checkpoint {
+        // 检查点和增量日志所在目录，相对路径按工作目录解析
+        private String dir = "checkpoint";
+
+        // 手动添加getter方法
+        public String getDir() {
+            return dir;
+        }
+
+        // 手动添加setter方法用于配置注入
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+    }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ public class Bet {
     private boolean isPositive; // 是否包牌
     private double negative; // 盈亏
     private double rebateRate; // 回水率（返点率）
+    private String domain; // 下注站点，入货为来源站点，出货为飞货站点
 
     /**
      * 构造方法
@@ -106,6 +107,14 @@ public class Bet {
         this.rebateRate = rebateRate;
     }
 
+    public String getDomain() {
+        return domain;
+    }
+
+    public void setDomain(String domain) {
+        this.domain = domain;
+    }
+
     /**
      * 计算回水金额（返点金额）
      * @return 回水金额
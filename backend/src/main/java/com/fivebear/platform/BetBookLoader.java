@@ -0,0 +1,331 @@
+package com.fivebear.platform;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+
+/**
+ * 批量加载一整期的入货，生成 BetNumberManager。用于重启后或出报表时重建投注本。
+ * 记录为 (号码, 玩法, 金额, 赔率)。读取线程只负责按行切块，每块交给 ForkJoin 池解析，
+ * 在途的块不超过并行度的两倍，多了读取线程先按顺序合并最早的块，内存占用与文件大小无关；
+ * 并累加到按 NumberIndex 槽位排列的数组里，不查找分组，也不创建对象。
+ * 各块按顺序合并后，11 个玩法并行建成列式分组，列按实际号码数一次分配好。
+ * 合并规则与逐笔 addBet 相同：同一号码的金额和奖金累加，赔率取最早的一条，行按号码首次出现的顺序排列。
+ * 号码非法或格式错误的记录跳过并计数。
+ */
+public class BetBookLoader {
+    private static final Logger logger = Logger.getLogger(BetBookLoader.class.getName());
+
+    // 每块的行数
+    private static final int BATCH_LINES = 1 << 16;
+
+    private final ForkJoinPool pool;
+
+    public BetBookLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BetBookLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 从文本文件加载，每行 "号码,玩法,金额,赔率"（UTF-8），见 load(BufferedReader)
+     */
+    public BetNumberManager load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * 逐行加载，每行 "号码,玩法,金额,赔率"。玩法为空时按号码推断，空行和 # 开头的行忽略
+     */
+    public BetNumberManager load(BufferedReader reader) throws IOException {
+        long start = System.nanoTime();
+        // 在途的块按提交顺序排队，超过上限时先合并最早的一块，读取线程不会把整个文件读进内存
+        int maxInFlight = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<Accumulator>> inFlight = new ArrayDeque<>();
+        Accumulator total = new Accumulator();
+        String[] batch = new String[BATCH_LINES];
+        int count = 0;
+        long firstRecord = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            batch[count++] = line;
+            if (count == BATCH_LINES) {
+                inFlight.add(pool.submit(new ParseTask(batch, count, firstRecord)));
+                firstRecord += count;
+                batch = new String[BATCH_LINES];
+                count = 0;
+                while (inFlight.size() > maxInFlight) {
+                    total.merge(inFlight.poll().join());
+                }
+            }
+        }
+        if (count > 0) {
+            inFlight.add(pool.submit(new ParseTask(batch, count, firstRecord)));
+            firstRecord += count;
+        }
+        // 按块的顺序合并，保证结果与逐行加入一致
+        while (!inFlight.isEmpty()) {
+            total.merge(inFlight.poll().join());
+        }
+        BetNumberManager manager = build(total);
+        logger.info(String.format("已加载投注 %d 行, 跳过 %d 行, %d 个号码, 耗时 %.1f ms",
+                firstRecord, total.skipped, manager.totalCount(), (System.nanoTime() - start) / 1e6));
+        return manager;
+    }
+
+    /**
+     * 从 JDBC 游标加载，列依次为 号码、玩法、金额、赔率。游标由调用方打开和关闭，
+     * 读取受驱动限制只能单线程，这里逐行直接累加，建分组时再并行
+     */
+    public BetNumberManager load(ResultSet resultSet) throws SQLException {
+        long start = System.nanoTime();
+        Accumulator total = new Accumulator();
+        long record = 0;
+        while (resultSet.next()) {
+            String number = resultSet.getString(1);
+            int dictNoTypeId = resultSet.getInt(2);
+            BigDecimal money = resultSet.getBigDecimal(3);
+            BigDecimal odds = resultSet.getBigDecimal(4);
+            int slot = number == null ? -1
+                    : dictNoTypeId > 0 ? NumberIndex.slotOf(number, dictNoTypeId) : NumberIndex.slotOf(number);
+            if (slot < 0 || money == null || odds == null) {
+                total.skipped++;
+            } else {
+                total.add(slot, FixedPoint.of(money), FixedPoint.of(odds), record);
+            }
+            record++;
+        }
+        BetNumberManager manager = build(total);
+        logger.info(String.format("已加载投注 %d 行, 跳过 %d 行, %d 个号码, 耗时 %.1f ms",
+                record, total.skipped, manager.totalCount(), (System.nanoTime() - start) / 1e6));
+        return manager;
+    }
+
+    // 11 个玩法并行建分组，行按号码首次出现的记录序号排列，分组按玩法首次出现的顺序排列
+    private BetNumberManager build(Accumulator total) {
+        List<ForkJoinTask<BetNumberGroupByType>> tasks = new ArrayList<>();
+        for (int type = 1; type <= NumberIndex.TYPE_COUNT; type++) {
+            int dictNoTypeId = type;
+            tasks.add(pool.submit(() -> total.group(dictNoTypeId)));
+        }
+        List<BetNumberGroupByType> groups = new ArrayList<>();
+        for (ForkJoinTask<BetNumberGroupByType> task : tasks) {
+            BetNumberGroupByType group = task.join();
+            if (group != null) {
+                groups.add(group);
+            }
+        }
+        // 每个分组的第一行就是该玩法最早出现的号码
+        groups.sort((a, b) -> Long.compare(total.firstRecord[a.slotAt(0)], total.firstRecord[b.slotAt(0)]));
+        return new BetNumberManager(groups);
+    }
+
+    // 解析一块文本行
+    private static class ParseTask extends RecursiveTask<Accumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] lines;
+        private final int count;
+        private final long firstRecord;
+
+        ParseTask(String[] lines, int count, long firstRecord) {
+            this.lines = lines;
+            this.count = count;
+            this.firstRecord = firstRecord;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            Accumulator accumulator = new Accumulator();
+            for (int i = 0; i < count; i++) {
+                String line = lines[i];
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                if (!parseLine(line, accumulator, firstRecord + i)) {
+                    accumulator.skipped++;
+                }
+            }
+            return accumulator;
+        }
+
+        private static boolean parseLine(String line, Accumulator accumulator, long record) {
+            int c1 = line.indexOf(',');
+            int c2 = c1 < 0 ? -1 : line.indexOf(',', c1 + 1);
+            int c3 = c2 < 0 ? -1 : line.indexOf(',', c2 + 1);
+            if (c3 < 0) {
+                return false;
+            }
+            int slot = NumberIndex.slotOf(line, 0, c1);
+            int dictNoTypeId = parseType(line, c1 + 1, c2);
+            if (slot < 0 || dictNoTypeId < 0 || dictNoTypeId > 0 && NumberIndex.dictNoTypeIdAt(slot) != dictNoTypeId) {
+                return false;
+            }
+            long money = parseFixed(line, c2 + 1, c3);
+            long odds = parseFixed(line, c3 + 1, line.length());
+            if (money == Long.MIN_VALUE || odds == Long.MIN_VALUE) {
+                return false;
+            }
+            accumulator.add(slot, money, odds, record);
+            return true;
+        }
+    }
+
+    // 玩法ID，空表示按号码推断返回 0，非数字返回 -1
+    private static int parseType(String text, int from, int to) {
+        int type = 0;
+        for (int i = from; i < to; i++) {
+            char ch = text.charAt(i);
+            if (ch < '0' || ch > '9' || type > NumberIndex.TYPE_COUNT) {
+                return -1;
+            }
+            type = type * 10 + (ch - '0');
+        }
+        return type;
+    }
+
+    /**
+     * 把 text[from, to) 的十进制数解析为定点数，不经过 BigDecimal；
+     * 超过 8 位小数或位数太多时退回 BigDecimal。格式错误返回 Long.MIN_VALUE
+     */
+    static long parseFixed(String text, int from, int to) {
+        while (from < to && text.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && text.charAt(to - 1) == ' ') {
+            to--;
+        }
+        if (from >= to) {
+            return Long.MIN_VALUE;
+        }
+        boolean negative = text.charAt(from) == '-';
+        int i = negative ? from + 1 : from;
+        long integer = 0;
+        int integerDigits = 0;
+        for (; i < to && text.charAt(i) != '.'; i++) {
+            char ch = text.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return Long.MIN_VALUE;
+            }
+            integer = integer * 10 + (ch - '0');
+            integerDigits++;
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < to) {
+            for (i++; i < to; i++) {
+                char ch = text.charAt(i);
+                if (ch < '0' || ch > '9') {
+                    return Long.MIN_VALUE;
+                }
+                fraction = fraction * 10 + (ch - '0');
+                fractionDigits++;
+            }
+        }
+        if (integerDigits + fractionDigits == 0) {
+            return Long.MIN_VALUE;
+        }
+        if (integerDigits > 10 || fractionDigits > FixedPoint.DECIMALS) {
+            try {
+                return FixedPoint.of(new BigDecimal(text.substring(from, to)));
+            } catch (NumberFormatException | ArithmeticException e) {
+                return Long.MIN_VALUE;
+            }
+        }
+        for (int d = fractionDigits; d < FixedPoint.DECIMALS; d++) {
+            fraction *= 10;
+        }
+        long value = integer * FixedPoint.ONE + fraction;
+        return negative ? -value : value;
+    }
+
+    /**
+     * 按槽位累加的投注，覆盖全部 11 个玩法（14600 个槽位，约 460 KB）
+     */
+    private static class Accumulator {
+        private final long[] money = new long[NumberIndex.SLOT_COUNT];
+        private final long[] odds = new long[NumberIndex.SLOT_COUNT];
+        private final long[] bonus = new long[NumberIndex.SLOT_COUNT];
+        // 号码首次出现的记录序号，Long.MAX_VALUE 表示没有投注
+        private final long[] firstRecord = new long[NumberIndex.SLOT_COUNT];
+        private long skipped;
+
+        Accumulator() {
+            Arrays.fill(firstRecord, Long.MAX_VALUE);
+        }
+
+        void add(int slot, long betMoney, long betOdds, long record) {
+            if (firstRecord[slot] == Long.MAX_VALUE) {
+                firstRecord[slot] = record;
+                odds[slot] = betOdds;
+            }
+            money[slot] += betMoney;
+            bonus[slot] += FixedPoint.mul(betMoney, betOdds);
+        }
+
+        // 合并后面一块，赔率取首次出现更早的
+        void merge(Accumulator other) {
+            for (int slot = 0; slot < NumberIndex.SLOT_COUNT; slot++) {
+                if (other.firstRecord[slot] == Long.MAX_VALUE) {
+                    continue;
+                }
+                if (other.firstRecord[slot] < firstRecord[slot]) {
+                    firstRecord[slot] = other.firstRecord[slot];
+                    odds[slot] = other.odds[slot];
+                }
+                money[slot] += other.money[slot];
+                bonus[slot] += other.bonus[slot];
+            }
+            skipped += other.skipped;
+        }
+
+        // 某玩法的分组，没有投注时返回 null
+        BetNumberGroupByType group(int dictNoTypeId) {
+            int first = NumberIndex.firstSlot(dictNoTypeId);
+            int slotCount = NumberIndex.slotCount(dictNoTypeId);
+            // (首次出现序号, 本地槽位) 打包成一个 long 排序；本地槽位不超过 10000，占低 14 位
+            long[] order = new long[slotCount];
+            int size = 0;
+            for (int local = 0; local < slotCount; local++) {
+                long record = firstRecord[first + local];
+                if (record != Long.MAX_VALUE) {
+                    order[size++] = record << 14 | local;
+                }
+            }
+            if (size == 0) {
+                return null;
+            }
+            Arrays.sort(order, 0, size);
+            int[] slots = new int[size];
+            long[] groupMoney = new long[size];
+            long[] groupOdds = new long[size];
+            long[] groupBonus = new long[size];
+            for (int row = 0; row < size; row++) {
+                int slot = first + (int) (order[row] & 0x3FFF);
+                slots[row] = slot;
+                groupMoney[row] = money[slot];
+                groupOdds[row] = odds[slot];
+                groupBonus[row] = bonus[slot];
+            }
+            return new BetNumberGroupByType(dictNoTypeId, slots, groupMoney, groupOdds, groupBonus, size);
+        }
+    }
+}
@@ -2,39 +2,47 @@ package com.fivebear.platform;
 
 import java.math.BigDecimal;
 
+/**
+ * 单个号码的投注，金额与赔率以 FixedPoint 定点数保存，BigDecimal getter/setter 仅用于对外接口
+ */
 public class BetNumber {
     // 玩法ID
     private int dictNoTypeId;
     // 投注号码
     private String betNo;
     // 投注金额
-    private BigDecimal betMoney = BigDecimal.ZERO;
+    private long betMoney;
     // 投注赔率
-    private BigDecimal odds = BigDecimal.ZERO;
+    private long odds;
     // 中奖奖金
-    private BigDecimal bonus = BigDecimal.ZERO;
+    private long bonus;
     // 负值（奖金-玩法总投注金额）
-    private BigDecimal profit = BigDecimal.ZERO;
+    private long profit;
 
     // 飞货相关字段
-    private BigDecimal compensateCount = BigDecimal.ZERO; // 补飞注数
-    private BigDecimal flyMoney = BigDecimal.ZERO;        // 飞货本金
-    private BigDecimal flyBonus = BigDecimal.ZERO;        // 飞货中奖
-    private BigDecimal keepMoney = BigDecimal.ZERO;       // 保留本金
+    private long compensateCount; // 补飞注数
+    private long flyMoney;        // 飞货本金
+    private long flyBonus;        // 飞货中奖
+    private long keepMoney;       // 保留本金
 
     // 出货赔率（补飞时实际可用的最大赔率）
-    private BigDecimal sellOdds = BigDecimal.ZERO;
+    private long sellOdds;
 
     // 成数（如 0.5 表示五成，或 50 表示50%）
-    private BigDecimal percentage = BigDecimal.ZERO;
+    private long percentage;
 
     // 构造方法
     public BetNumber(int dictNoTypeId, String betNo, BigDecimal betMoney, BigDecimal odds) {
+        this(dictNoTypeId, betNo, FixedPoint.of(betMoney), FixedPoint.of(odds));
+    }
+
+    // 构造方法（定点数）
+    public BetNumber(int dictNoTypeId, String betNo, long betMoney, long odds) {
         this.dictNoTypeId = dictNoTypeId;
         this.betNo = betNo;
         this.betMoney = betMoney;
         this.odds = odds;
-        this.bonus = betMoney.multiply(odds);
+        this.bonus = FixedPoint.mul(betMoney, odds);
     }
 
     public int getDictNoTypeId() { return dictNoTypeId; }
@@ -43,57 +51,62 @@ public class BetNumber {
     public String getBetNo() { return betNo; }
     public void setBetNo(String betNo) { this.betNo = betNo; }
 
-    public BigDecimal getBetMoney() { return betMoney; }
-    public void setBetMoney(BigDecimal betMoney) { this.betMoney = betMoney; }
+    public BigDecimal getBetMoney() { return FixedPoint.toBigDecimal(betMoney); }
+    public void setBetMoney(BigDecimal betMoney) { this.betMoney = FixedPoint.of(betMoney); }
+    public long getBetMoneyFixed() { return betMoney; }
 
-    public BigDecimal getOdds() { return odds; }
-    public void setOdds(BigDecimal odds) { this.odds = odds; }
+    public BigDecimal getOdds() { return FixedPoint.toBigDecimal(odds); }
+    public void setOdds(BigDecimal odds) { this.odds = FixedPoint.of(odds); }
+    public long getOddsFixed() { return odds; }
 
-    public BigDecimal getBonus() { return bonus; }
-    public void setBonus(BigDecimal bonus) { this.bonus = bonus; }
+    public BigDecimal getBonus() { return FixedPoint.toBigDecimal(bonus); }
+    public void setBonus(BigDecimal bonus) { this.bonus = FixedPoint.of(bonus); }
+    public long getBonusFixed() { return bonus; }
 
-    public BigDecimal getProfit() { return profit; }
-    public void setProfit(BigDecimal profit) { this.profit = profit; }
+    public BigDecimal getProfit() { return FixedPoint.toBigDecimal(profit); }
+    public void setProfit(BigDecimal profit) { this.profit = FixedPoint.of(profit); }
+    public long getProfitFixed() { return profit; }
+    public void setProfitFixed(long profit) { this.profit = profit; }
 
     // 补飞注数
-    public BigDecimal getCompensateCount() { return compensateCount; }
-    public void setCompensateCount(BigDecimal compensateCount) { this.compensateCount = compensateCount; }
+    public BigDecimal getCompensateCount() { return FixedPoint.toBigDecimal(compensateCount); }
+    public void setCompensateCount(BigDecimal compensateCount) { this.compensateCount = FixedPoint.of(compensateCount); }
 
     // 飞货本金
-    public BigDecimal getFlyMoney() { return flyMoney; }
-    public void setFlyMoney(BigDecimal flyMoney) { this.flyMoney = flyMoney; }
+    public BigDecimal getFlyMoney() { return FixedPoint.toBigDecimal(flyMoney); }
+    public void setFlyMoney(BigDecimal flyMoney) { this.flyMoney = FixedPoint.of(flyMoney); }
 
     // 飞货中奖
-    public BigDecimal getFlyBonus() { return flyBonus; }
-    public void setFlyBonus(BigDecimal flyBonus) { this.flyBonus = flyBonus; }
+    public BigDecimal getFlyBonus() { return FixedPoint.toBigDecimal(flyBonus); }
+    public void setFlyBonus(BigDecimal flyBonus) { this.flyBonus = FixedPoint.of(flyBonus); }
 
     // 保留本金
-    public BigDecimal getKeepMoney() { return keepMoney; }
-    public void setKeepMoney(BigDecimal keepMoney) { this.keepMoney = keepMoney; }
+    public BigDecimal getKeepMoney() { return FixedPoint.toBigDecimal(keepMoney); }
+    public void setKeepMoney(BigDecimal keepMoney) { this.keepMoney = FixedPoint.of(keepMoney); }
 
     // 出货赔率
-    public BigDecimal getSellOdds() { return sellOdds; }
-    public void setSellOdds(BigDecimal sellOdds) { this.sellOdds = sellOdds; }
+    public BigDecimal getSellOdds() { return FixedPoint.toBigDecimal(sellOdds); }
+    public void setSellOdds(BigDecimal sellOdds) { this.sellOdds = FixedPoint.of(sellOdds); }
 
     // 成数
-    public BigDecimal getPercentage() { return percentage; }
-    public void setPercentage(BigDecimal percentage) { this.percentage = percentage; }
+    public BigDecimal getPercentage() { return FixedPoint.toBigDecimal(percentage); }
+    public void setPercentage(BigDecimal percentage) { this.percentage = FixedPoint.of(percentage); }
 
     @Override
     public String toString() {
         return "BetNumber{" +
                 "dictNoTypeId=" + dictNoTypeId +
                 ", betNo='" + betNo + '\'' +
-                ", betMoney=" + betMoney +
-                ", odds=" + odds +
-                ", bonus=" + bonus +
-                ", profit=" + profit +
-                ", compensateCount=" + compensateCount +
-                ", flyMoney=" + flyMoney +
-                ", flyBonus=" + flyBonus +
-                ", keepMoney=" + keepMoney +
-                ", sellOdds=" + sellOdds +
-                ", percentage=" + percentage +
+                ", betMoney=" + getBetMoney() +
+                ", odds=" + getOdds() +
+                ", bonus=" + getBonus() +
+                ", profit=" + getProfit() +
+                ", compensateCount=" + getCompensateCount() +
+                ", flyMoney=" + getFlyMoney() +
+                ", flyBonus=" + getFlyBonus() +
+                ", keepMoney=" + getKeepMoney() +
+                ", sellOdds=" + getSellOdds() +
+                ", percentage=" + getPercentage() +
                 '}';
     }
-} 
\ No newline at end of file
+}
@@ -1,33 +1,227 @@
 package com.fivebear.platform;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * 某玩法下的全部投注及各种补飞分析，分析过程全部使用 FixedPoint 定点数运算。
+ * 投注按列存储：投注金额、赔率、奖金（负债）各一个 long 数组，按加入顺序稠密排列，
+ * 另有按 NumberIndex 槽位索引的位置表，同一号码重复投注合并到同一行：金额和奖金累加，赔率保留第一次的。
+ * 因此 getBetNumbers、getBet 以及 BetNumberManager 的查询和 totalCount 都是按号码而不是按注返回的，
+ * 分析结果也是每个号码一行；需要逐注明细时应从投注来源（BetSettlementManager、注单文件）读取。
+ * 分析是对这些数组的顺序扫描，最后才生成 BetNumberResults；出货赔率列按赔率快照版本缓存。
+ * 一个四定玩法（10000 个号码）的列和位置表共约 400 KB，出货赔率缓存另占 80 KB。
+ * BetNumberManager.getAllGroups 返回的分组是冻结的快照，增删改方法会抛 UnsupportedOperationException，
+ * 投注只能通过 BetNumberManager 修改；自己 new 出来的分组不受限制。
+ */
 public class BetNumberGroupByType {
+    private static final int INITIAL_CAPACITY = 64;
+
     private int dictNoTypeId;
-    private List<BetNumber> betNumbers;
-    private BigDecimal totalBetMoney = BigDecimal.ZERO;
+    // 本玩法第一个槽位，本地槽位 = 槽位 - firstSlot
+    private final int firstSlot;
+    // 本地槽位 -> 行号，-1 表示没有投注
+    private final int[] rowBySlot;
+    // 各列按行排列
+    private int[] slots = new int[0];
+    private long[] betMoney = new long[0];
+    private long[] odds = new long[0];
+    private long[] bonus = new long[0];
+    private int size;
+    // 冻结后不允许增删改（BetNumberManager 的快照）
+    private boolean frozen;
+    // 负值 = 玩法总投注 - 奖金，随总投注变化，不单独存列
+    private long totalBetMoney;
+    // 增量维护的汇总：总奖金、最大奖金（最大负债）；移除或调低最大行时标记失效，查询时重算
+    private long totalBonus;
+    private long maxBonus;
+    private boolean maxBonusDirty;
+    // 每次增删改加一，用于判断缓存是否过期
+    private long modCount;
+    // 出货赔率列缓存
+    private long[] sellOdds = new long[0];
+    private long sellOddsVersion = -1;
+    private long sellOddsModCount = -1;
+    // 风控补飞曲线缓存，失效条件同上
+    private RiskControlCurve riskCurve;
+    private long riskCurveVersion = -1;
+    private long riskCurveModCount = -1;
 
     // 统计字段
     private int positive;
     private int negative;
     private int both;
-    private BigDecimal flyTotal = BigDecimal.ZERO;
-    private BigDecimal leaveTotal = BigDecimal.ZERO;
+    private long flyTotal;
+    private long leaveTotal;
 
     public BetNumberGroupByType(int dictNoTypeId, List<BetNumber> betNumbers) {
         this.dictNoTypeId = dictNoTypeId;
-        this.betNumbers = betNumbers;
-        recalculateTotalBetMoney();
+        this.firstSlot = NumberIndex.firstSlot(dictNoTypeId);
+        this.rowBySlot = new int[NumberIndex.slotCount(dictNoTypeId)];
+        Arrays.fill(rowBySlot, -1);
+        for (BetNumber bet : betNumbers) {
+            appendBet(bet.getBetNo(), bet.getBetMoneyFixed(), bet.getOddsFixed());
+        }
+    }
+
+    /**
+     * 由已经合并好的列直接建立（BetBookLoader 批量加载用），列按行排列，长度即容量，之后由本对象持有
+     */
+    BetNumberGroupByType(int dictNoTypeId, int[] slots, long[] betMoney, long[] odds, long[] bonus, int size) {
+        this.dictNoTypeId = dictNoTypeId;
+        this.firstSlot = NumberIndex.firstSlot(dictNoTypeId);
+        this.rowBySlot = new int[NumberIndex.slotCount(dictNoTypeId)];
+        Arrays.fill(rowBySlot, -1);
+        this.slots = slots;
+        this.betMoney = betMoney;
+        this.odds = odds;
+        this.bonus = bonus;
+        this.size = size;
+        for (int row = 0; row < size; row++) {
+            rowBySlot[slots[row] - firstSlot] = row;
+        }
+        recalculate();
+        modCount++;
+    }
+
+    /**
+     * 加入一注，同一号码已有投注时金额和奖金累加，赔率保留第一次的
+     *
+     * @return 号码不属于本玩法时返回 false
+     */
+    public boolean addBet(BetNumber bet) {
+        return addBet(bet.getBetNo(), bet.getBetMoneyFixed(), bet.getOddsFixed());
+    }
+
+    /**
+     * 按定点数金额、赔率加入一注
+     */
+    public boolean addBet(String betNo, long money, long betOdds) {
+        checkMutable();
+        return appendBet(betNo, money, betOdds);
+    }
+
+    // addBet 的实现，构造时也用（不能调用可被覆盖的 public 方法）
+    private boolean appendBet(String betNo, long money, long betOdds) {
+        int slot = NumberIndex.slotOf(betNo, dictNoTypeId);
+        if (slot < 0) {
+            return false;
+        }
+        int local = slot - firstSlot;
+        int row = rowBySlot[local];
+        if (row < 0) {
+            if (size == slots.length) {
+                int capacity = Math.min(Math.max(INITIAL_CAPACITY, size * 2), rowBySlot.length);
+                slots = Arrays.copyOf(slots, capacity);
+                betMoney = Arrays.copyOf(betMoney, capacity);
+                odds = Arrays.copyOf(odds, capacity);
+                bonus = Arrays.copyOf(bonus, capacity);
+            }
+            row = size++;
+            rowBySlot[local] = row;
+            slots[row] = slot;
+            odds[row] = betOdds;
+            // 撤销后复用的行可能留有旧值
+            betMoney[row] = 0;
+            bonus[row] = 0;
+        }
+        setRow(row, betMoney[row] + money, bonus[row] + FixedPoint.mul(money, betOdds));
+        return true;
+    }
+
+    /**
+     * 用新的金额、赔率替换某号码的投注，号码还没有投注时等同于 addBet
+     *
+     * @return 号码不属于本玩法时返回 false
+     */
+    public boolean updateBet(String betNo, long money, long betOdds) {
+        checkMutable();
+        int slot = NumberIndex.slotOf(betNo, dictNoTypeId);
+        if (slot < 0) {
+            return false;
+        }
+        int row = rowBySlot[slot - firstSlot];
+        if (row < 0) {
+            return addBet(betNo, money, betOdds);
+        }
+        odds[row] = betOdds;
+        setRow(row, money, FixedPoint.mul(money, betOdds));
+        return true;
+    }
+
+    /**
+     * 撤销某号码的投注，最后一行移到空出的位置
+     *
+     * @return 该号码没有投注时返回 false
+     */
+    public boolean removeBet(String betNo) {
+        checkMutable();
+        int slot = NumberIndex.slotOf(betNo, dictNoTypeId);
+        if (slot < 0 || rowBySlot[slot - firstSlot] < 0) {
+            return false;
+        }
+        int row = rowBySlot[slot - firstSlot];
+        setRow(row, 0, 0);
+        int last = --size;
+        if (row != last) {
+            slots[row] = slots[last];
+            betMoney[row] = betMoney[last];
+            odds[row] = odds[last];
+            bonus[row] = bonus[last];
+            rowBySlot[slots[row] - firstSlot] = row;
+        }
+        rowBySlot[slot - firstSlot] = -1;
+        return true;
+    }
+
+    // 冻结为只读快照，之后的增删改抛 UnsupportedOperationException
+    void freeze() {
+        frozen = true;
     }
 
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("投注快照只读，请通过BetNumberManager修改投注");
+        }
+    }
+
+    // 写入一行的新金额和奖金，按差额更新汇总
+    private void setRow(int row, long money, long rowBonus) {
+        long oldBonus = bonus[row];
+        totalBetMoney += money - betMoney[row];
+        totalBonus = Math.addExact(totalBonus, rowBonus - oldBonus);
+        betMoney[row] = money;
+        bonus[row] = rowBonus;
+        if (!maxBonusDirty) {
+            if (rowBonus >= maxBonus) {
+                maxBonus = rowBonus;
+            } else if (oldBonus == maxBonus) {
+                maxBonusDirty = true;
+            }
+        }
+        modCount++;
+    }
+
+    /**
+     * 全量重算汇总，正常情况下汇总随增删改维护，不需要调用
+     */
     public void recalculateTotalBetMoney() {
-        this.totalBetMoney = betNumbers.stream().map(b -> b.getBetMoney()).reduce(BigDecimal.ZERO, BigDecimal::add);
-        // 统一设置每个 BetNumber 的 profit 字段
-        for (BetNumber bet : betNumbers) {
-            bet.setProfit(totalBetMoney.subtract(bet.getBonus()));
+        checkMutable();
+        recalculate();
+    }
+
+    private void recalculate() {
+        long total = 0;
+        long totalBonusSum = 0;
+        for (int i = 0; i < size; i++) {
+            total += betMoney[i];
+            totalBonusSum = Math.addExact(totalBonusSum, bonus[i]);
         }
+        this.totalBetMoney = total;
+        this.totalBonus = totalBonusSum;
+        this.maxBonusDirty = true;
     }
 
     /**
@@ -37,32 +231,68 @@ public class BetNumberGroupByType {
      * @return BetNumberNoTypeData 玩法下所有号码的统计明细和总计
      */
     public BetNumberNoTypeData riskControlAnalysis(int multiple, OddsManager oddsManager) {
-        BetNumberNoTypeData noTypeData = new BetNumberNoTypeData(dictNoTypeId);
-        noTypeData.setMultiple(multiple);
-        for (BetNumber bet : betNumbers) {
-            BigDecimal profit = bet.getProfit();
-            BigDecimal sellOdds = bet.getOdds();
-            if (oddsManager != null) {
-                NumberOddsGroup.OddsInfo maxOddsInfo = oddsManager.getMaxOddsInfo(bet.getBetNo(), bet.getDictNoTypeId());
-                if (maxOddsInfo != null) sellOdds = BigDecimal.valueOf(maxOddsInfo.getOdds());
-            }
-            BigDecimal realityMaxLose = profit.subtract(totalBetMoney).abs().subtract(totalBetMoney.multiply(BigDecimal.valueOf(multiple).divide(BigDecimal.TEN)));
-            BigDecimal flyMoney = realityMaxLose.compareTo(BigDecimal.ZERO) > 0 ? realityMaxLose.divide(sellOdds, 10, BigDecimal.ROUND_HALF_UP) : BigDecimal.ZERO;
-            BigDecimal keepMoney = bet.getBetMoney().subtract(flyMoney);
-            BetNumberResults result = new BetNumberResults(
-                bet.getBetNo(),
-                bet.getBetMoney(),
-                profit,
-                bet.getOdds(),
-                flyMoney,
-                keepMoney,
-                BigDecimal.ZERO,
-                sellOdds
-            );
-            noTypeData.addResult(result);
+        return riskControlAnalysis(multiple, snapshotOf(oddsManager));
+    }
+
+    // 同上，使用给定的赔率快照（null 表示按投注赔率出货）
+    BetNumberNoTypeData riskControlAnalysis(int multiple, OddsSnapshot snapshot) {
+        long[] sell = sellOddsColumn(snapshot);
+        long[] fly = new long[size];
+        riskControlSweep(multiple, sell, fly);
+        List<BetNumberResults> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(result(i, fly[i], sell[i]));
         }
+        BetNumberNoTypeData noTypeData = new BetNumberNoTypeData(dictNoTypeId, results);
+        noTypeData.setMultiple(multiple);
         return noTypeData;
     }
+
+    /**
+     * 只计算风控补飞的飞货总额，不生成明细，一次顺序扫描
+     * @param multiple 补飞倍数
+     * @param oddsManager 用于获取最大出货赔率
+     */
+    public long riskControlFlyTotal(int multiple, OddsManager oddsManager) {
+        long[] fly = new long[size];
+        riskControlSweep(multiple, sellOddsColumn(snapshotOf(oddsManager)), fly);
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += fly[i];
+        }
+        return total;
+    }
+
+    /**
+     * 风控补飞随成数变化的曲线，换成数时 O(log n) 得到飞货总额，供拖动成数时实时报价。
+     * 按赔率快照版本和投注版本缓存，投注或赔率变了才重建（一次排序）
+     * @param oddsManager 用于获取最大出货赔率
+     */
+    public RiskControlCurve riskControlCurve(OddsManager oddsManager) {
+        return riskControlCurve(snapshotOf(oddsManager));
+    }
+
+    synchronized RiskControlCurve riskControlCurve(OddsSnapshot snapshot) {
+        long version = snapshot != null ? snapshot.getVersion() : -2;
+        if (riskCurve == null || version != riskCurveVersion || modCount != riskCurveModCount) {
+            riskCurve = new RiskControlCurve(totalBetMoney, bonus, sellOddsColumn(snapshot), size);
+            riskCurveVersion = version;
+            riskCurveModCount = modCount;
+        }
+        return riskCurve;
+    }
+
+    // 风控补飞：实际最大亏损超过保留额度的部分按出货赔率飞出
+    private void riskControlSweep(int multiple, long[] sell, long[] fly) {
+        // 保留额度 = 总投注 × 成数 / 10，各号码相同
+        long keepLimit = FixedPoint.mul(totalBetMoney, FixedPoint.ONE / 10 * multiple);
+        for (int i = 0; i < size; i++) {
+            // |负值 - 总投注| 即奖金
+            long realityMaxLose = Math.abs(bonus[i]) - keepLimit;
+            fly[i] = realityMaxLose > 0 ? FixedPoint.div(realityMaxLose, sell[i]) : 0;
+        }
+    }
+
     /**
      * 赔率补偿分析
      * 分析每个号码的赔率补偿情况，计算出货盈亏
@@ -71,48 +301,33 @@ public class BetNumberGroupByType {
      */
     public BetNumberNoTypeData oddsCompensationAnalysis(OddsManager oddsManager)
     {
-        // 创建该玩法的统计数据对象
-        BetNumberNoTypeData noTypeData = new BetNumberNoTypeData(dictNoTypeId);
+        return oddsCompensationAnalysis(snapshotOf(oddsManager));
+    }
+
+    BetNumberNoTypeData oddsCompensationAnalysis(OddsSnapshot snapshot)
+    {
+        long[] sell = sellOddsColumn(snapshot);
+        List<BetNumberResults> results = new ArrayList<>(size);
         
-        // 遍历该玩法下的所有投注号码
-        for (BetNumber bet : betNumbers) {
-            // 获取当前号码的最大出货赔率
-            BigDecimal sellOdds = bet.getOdds();
-            if (oddsManager != null) {
-                NumberOddsGroup.OddsInfo maxOddsInfo = oddsManager.getMaxOddsInfo(bet.getBetNo(), bet.getDictNoTypeId());
-                if (maxOddsInfo != null) {
-                    sellOdds = BigDecimal.valueOf(maxOddsInfo.getOdds());
-                }
-            }
-            
+        // 顺序扫描该玩法下的所有投注号码
+        for (int i = 0; i < size; i++) {
             // 计算出货注数 = 入货奖金/出货赔率
-            BigDecimal flyMoney = bet.getBonus().divide(sellOdds, 10, BigDecimal.ROUND_HALF_UP);
+            long flyMoney = FixedPoint.div(bonus[i], sell[i]);
             
             // 计算出货盈亏 = 出货注数 * 出货赔率 - 出货注数
-            BigDecimal sellProfit = flyMoney.multiply(sellOdds).subtract(flyMoney);
+            long sellProfit = FixedPoint.mul(flyMoney, sell[i]) - flyMoney;
 
-            BigDecimal keepMoney = bet.getBetMoney().subtract(flyMoney);
-            
             // 创建单个号码的统计结果
-            BetNumberResults result = new BetNumberResults(
-                bet.getBetNo(),      // 号码
-                bet.getBetMoney(),   // 投注金额
-                bet.getProfit(),     // 盈亏
-                bet.getOdds(),       // 投注赔率
-                flyMoney,            // 出货注数
-                keepMoney,   // 剩余组数(保留本金)
-                BigDecimal.ZERO,                   // 盈利
-                sellOdds             // 出货赔率
-            );
+            BetNumberResults result = result(i, flyMoney, sell[i]);
             
             // 设置出货盈亏
-            result.setSellProfit(sellProfit);
+            result.setSellProfitFixed(sellProfit);
             
-            // 添加到统计数据中
-            noTypeData.addResult(result);
+            results.add(result);
         }
         
-        return noTypeData;
+        // 创建该玩法的统计数据对象，汇总与出货盈亏一次算完
+        return new BetNumberNoTypeData(dictNoTypeId, results);
     }
 
     /**
@@ -138,72 +353,54 @@ public class BetNumberGroupByType {
      * - 保证每个号码的补飞金额合理，避免过度补飞
      */
     public BetNumberNoTypeData greedyFlyMoneyOptimize(OddsManager oddsManager) {
+        return greedyFlyMoneyOptimize(snapshotOf(oddsManager));
+    }
+
+    BetNumberNoTypeData greedyFlyMoneyOptimize(OddsSnapshot snapshot) {
         // 1. 先用赔率补偿法算出每个号码的亏损和初始flyMoney，并统一获取sellOdds
-        List<BetNumberResults> baseResults = new java.util.ArrayList<>();
-        for (BetNumber bet : betNumbers) {
-            BigDecimal sellOdds = bet.getOdds();
-            if (oddsManager != null) {
-                NumberOddsGroup.OddsInfo maxOddsInfo = oddsManager.getMaxOddsInfo(bet.getBetNo(), bet.getDictNoTypeId());
-                if (maxOddsInfo != null) {
-                    sellOdds = BigDecimal.valueOf(maxOddsInfo.getOdds());
-                }
-            }
-            BigDecimal flyMoney = bet.getBonus().divide(sellOdds, 10, BigDecimal.ROUND_HALF_UP);
-            BigDecimal keepMoney = bet.getBetMoney().subtract(flyMoney);
-            BetNumberResults result = new BetNumberResults(
-                bet.getBetNo(),
-                bet.getBetMoney(),
-                bet.getProfit(),
-                bet.getOdds(),
-                flyMoney,
-                keepMoney,
-                BigDecimal.ZERO,
-                sellOdds
-            );
-            baseResults.add(result);
+        long[] sell = sellOddsColumn(snapshot);
+        List<BetNumberResults> baseResults = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            baseResults.add(result(i, FixedPoint.div(bonus[i], sell[i]), sell[i]));
         }
 
         // 2. 统计所有正值号码的总盈利作为可分配套利空间
-        BigDecimal totalProfit = BigDecimal.ZERO;
+        long totalProfit = 0;
         for (BetNumberResults r : baseResults) {
-            if (r.getWin().compareTo(BigDecimal.ZERO) > 0) totalProfit = totalProfit.add(r.getWin());
+            if (r.getWinFixed() > 0) totalProfit += r.getWinFixed();
         }
 
         // 3. 按亏损从大到小排序
-        baseResults.sort((a, b) -> a.getWin().compareTo(b.getWin()));
+        baseResults.sort((a, b) -> Long.compare(a.getWinFixed(), b.getWinFixed()));
 
         // 4. 贪心补飞
         for (int i = 0; i < baseResults.size(); i++) {
             BetNumberResults r = baseResults.get(i);
-            if (r.getWin().compareTo(BigDecimal.ZERO) < 0 && totalProfit.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal need = r.getWin().abs();
-                BigDecimal supply = need.min(totalProfit);
-                BigDecimal sellOdds = r.getOdds();
-                BigDecimal deltaFly = supply.divide(sellOdds.subtract(BigDecimal.ONE), 10, RoundingMode.HALF_UP);
-                BigDecimal newFlyMoney = r.getFlyMoney().add(deltaFly);
-                BigDecimal newKeepMoney = r.getBetMoney().subtract(newFlyMoney);
+            if (r.getWinFixed() < 0 && totalProfit > 0) {
+                long need = Math.abs(r.getWinFixed());
+                long supply = Math.min(need, totalProfit);
+                long sellOdds = r.getOddsFixed();
+                long deltaFly = FixedPoint.div(supply, sellOdds - FixedPoint.ONE);
+                long newFlyMoney = r.getFlyMoneyFixed() + deltaFly;
+                long newKeepMoney = r.getBetMoneyFixed() - newFlyMoney;
                 // 重新构造新的 BetNumberResults，sellOdds 保持一致
                 BetNumberResults newR = new BetNumberResults(
                     r.getBetNo(),
-                    r.getBetMoney(),
-                    r.getProfit(),
-                    r.getOdds(),
+                    r.getBetMoneyFixed(),
+                    r.getProfitFixed(),
+                    r.getOddsFixed(),
                     newFlyMoney,
                     newKeepMoney,
-                    BigDecimal.ZERO,
+                    0,
                     sellOdds
                 );
                 baseResults.set(i, newR);
-                totalProfit = totalProfit.subtract(supply);
+                totalProfit -= supply;
             }
         }
 
         // 5. 封装结果
-        BetNumberNoTypeData noTypeData = new BetNumberNoTypeData(dictNoTypeId);
-        for (BetNumberResults r : baseResults) {
-            noTypeData.addResult(r);
-        }
-        return noTypeData;
+        return new BetNumberNoTypeData(dictNoTypeId, baseResults);
     }
 
     /**
@@ -216,66 +413,197 @@ public class BetNumberGroupByType {
      */
     public BetNumberNoTypeData proportionalFlyMoneyOptimize(OddsManager oddsManager) {
         // 1. 获取基础数据：使用赔率补偿法计算初始的flyMoney
-        BetNumberNoTypeData baseData = this.oddsCompensationAnalysis(oddsManager);
-        List<BetNumberResults> results = new java.util.ArrayList<>(baseData.getResultsList());
+        return proportionalFlyMoneyOptimize(this.oddsCompensationAnalysis(oddsManager));
+    }
+
+    /**
+     * 在已有的赔率补偿分析结果上按比例分配套利空间，baseData 不会被修改
+     */
+    BetNumberNoTypeData proportionalFlyMoneyOptimize(BetNumberNoTypeData baseData) {
+        List<BetNumberResults> results = new ArrayList<>(baseData.getResultsList());
 
         // 2. 统计套利空间
         // totalProfit: 所有正值号码的总盈利，作为可分配的套利空间
         // totalLoss: 所有负值号码的总亏损，用于计算分配比例
-        BigDecimal totalProfit = BigDecimal.ZERO;
-        BigDecimal totalLoss = BigDecimal.ZERO;
+        long totalProfit = 0;
+        long totalLoss = 0;
         for (BetNumberResults r : results) {
-            if (r.getWin().compareTo(BigDecimal.ZERO) > 0) totalProfit = totalProfit.add(r.getWin());
-            if (r.getWin().compareTo(BigDecimal.ZERO) < 0) totalLoss = totalLoss.subtract(r.getWin());
+            if (r.getWinFixed() > 0) totalProfit += r.getWinFixed();
+            if (r.getWinFixed() < 0) totalLoss -= r.getWinFixed();
         }
 
         // 3. 按比例分配套利空间
         for (int i = 0; i < results.size(); i++) {
             BetNumberResults r = results.get(i);
             // 只处理负值号码，且确保有可分配的套利空间
-            if (r.getWin().compareTo(BigDecimal.ZERO) < 0 && totalProfit.compareTo(BigDecimal.ZERO) > 0 && totalLoss.compareTo(BigDecimal.ZERO) > 0) {
-                // 计算该号码应获得的套利金额：总套利空间 * (该号码亏损/总亏损)
-                BigDecimal supply = totalProfit.multiply(r.getWin().abs().divide(totalLoss.abs(), 10, BigDecimal.ROUND_HALF_UP));
+            if (r.getWinFixed() < 0 && totalProfit > 0 && totalLoss > 0) {
+                // 计算该号码应获得的套利金额：总套利空间 * (该号码亏损/总亏损)，先乘后除，避免比例舍入被放大
+                long supply = FixedPoint.div(FixedPoint.mul(totalProfit, Math.abs(r.getWinFixed())), totalLoss);
                 // 计算需要增加的飞货金额：套利金额/(出货赔率-1)
-                BigDecimal sellOdds = r.getOdds();
-                BigDecimal deltaFly = supply.divide(sellOdds.subtract(BigDecimal.ONE), 10, RoundingMode.HALF_UP);
+                long sellOdds = r.getOddsFixed();
+                long deltaFly = FixedPoint.div(supply, sellOdds - FixedPoint.ONE);
                 // 更新飞货金额和保留金额
-                BigDecimal newFlyMoney = r.getFlyMoney().add(deltaFly);
-                BigDecimal newKeepMoney = r.getBetMoney().subtract(newFlyMoney);
+                long newFlyMoney = r.getFlyMoneyFixed() + deltaFly;
+                long newKeepMoney = r.getBetMoneyFixed() - newFlyMoney;
                 
                 // 创建新的投注结果对象
                 BetNumberResults newR = new BetNumberResults(
-                    r.getBetNo(),      // 号码
-                    r.getBetMoney(),   // 投注金额
-                    r.getProfit(),     // 负值
-                    r.getOdds(),       // 投注赔率
-                    newFlyMoney,       // 新的飞货金额
-                    newKeepMoney,      // 新的保留金额
-                    BigDecimal.ZERO,                 // 盈利初始化为0，后续由BetNumberNoTypeData计算
-                    sellOdds             // 出货赔率
+                    r.getBetNo(),             // 号码
+                    r.getBetMoneyFixed(),     // 投注金额
+                    r.getProfitFixed(),       // 负值
+                    r.getOddsFixed(),         // 投注赔率
+                    newFlyMoney,              // 新的飞货金额
+                    newKeepMoney,             // 新的保留金额
+                    0,                        // 盈利初始化为0，后续由BetNumberNoTypeData计算
+                    sellOdds                  // 出货赔率
                 );
                 results.set(i, newR);
+            } else {
+                // 其余号码也复制一份，出货盈亏按本结果的总飞货金额计算，不影响 baseData
+                results.set(i, new BetNumberResults(r.getBetNo(), r.getBetMoneyFixed(), r.getProfitFixed(),
+                        r.getOddsFixed(), r.getFlyMoneyFixed(), r.getKeepMoneyFixed(), 0, r.getSellOddsFixed()));
             }
         }
 
         // 4. 封装结果
-        BetNumberNoTypeData noTypeData = new BetNumberNoTypeData(dictNoTypeId);
-        for (BetNumberResults r : results) {
-            noTypeData.addResult(r);
-        }
-        return noTypeData;
+        return new BetNumberNoTypeData(dictNoTypeId, results);
+    }
+
+
+    // 第 i 行的统计结果，保留本金 = 投注金额 - 飞货金额
+    private BetNumberResults result(int i, long flyMoney, long sellOdds) {
+        return new BetNumberResults(
+            NumberIndex.numberAt(slots[i]),
+            betMoney[i],
+            totalBetMoney - bonus[i],
+            odds[i],
+            flyMoney,
+            betMoney[i] - flyMoney,
+            0,
+            sellOdds
+        );
+    }
+
+    private static OddsSnapshot snapshotOf(OddsManager oddsManager) {
+        return oddsManager != null ? oddsManager.snapshot() : null;
     }
 
+    /**
+     * 出货赔率列：各行号码的最大站点赔率，没有站点赔率时用投注赔率。
+     * 赔率快照版本和投注都没变时直接返回缓存的列，调用方只读不改
+     */
+    private synchronized long[] sellOddsColumn(OddsSnapshot snapshot) {
+        if (snapshot == null) {
+            return odds;
+        }
+        if (snapshot.getVersion() == sellOddsVersion && modCount == sellOddsModCount) {
+            return sellOdds;
+        }
+        long[] column = new long[size];
+        for (int i = 0; i < size; i++) {
+            int domainId = snapshot.maxDomain(slots[i]);
+            column[i] = domainId >= 0 ? FixedPoint.of(snapshot.odds(domainId, slots[i])) : odds[i];
+        }
+        sellOdds = column;
+        sellOddsVersion = snapshot.getVersion();
+        sellOddsModCount = modCount;
+        return column;
+    }
 
     public int getDictNoTypeId() {
         return dictNoTypeId;
     }
 
+    /**
+     * 按加入顺序生成全部投注（同一号码已合并），返回的是副本
+     */
     public List<BetNumber> getBetNumbers() {
-        return betNumbers;
+        List<BetNumber> bets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bets.add(bet(i));
+        }
+        return bets;
+    }
+
+    /**
+     * 按号码查询投注，没有投注时返回 null
+     */
+    public BetNumber getBet(String betNo) {
+        int slot = NumberIndex.slotOf(betNo, dictNoTypeId);
+        if (slot < 0 || rowBySlot[slot - firstSlot] < 0) {
+            return null;
+        }
+        return bet(rowBySlot[slot - firstSlot]);
+    }
+
+    private BetNumber bet(int i) {
+        BetNumber bet = new BetNumber(dictNoTypeId, NumberIndex.numberAt(slots[i]), betMoney[i], odds[i]);
+        bet.setBonus(FixedPoint.toBigDecimal(bonus[i]));
+        bet.setProfitFixed(totalBetMoney - bonus[i]);
+        return bet;
+    }
+
+    // 投注号码个数
+    public int size() {
+        return size;
+    }
+
+    // 第 row 行的槽位、金额、赔率、奖金，row < size()
+    int slotAt(int row) {
+        return slots[row];
+    }
+
+    long betMoneyAt(int row) {
+        return betMoney[row];
+    }
+
+    long oddsAt(int row) {
+        return odds[row];
+    }
+
+    long bonusAt(int row) {
+        return bonus[row];
+    }
+
+    public BigDecimal getTotalBonus() {
+        return FixedPoint.toBigDecimal(totalBonus);
+    }
+
+    public long getTotalBonusFixed() {
+        return totalBonus;
+    }
+
+    /**
+     * 最大负债：单个号码的最大奖金，没有投注时为 0
+     */
+    public BigDecimal getMaxBonus() {
+        return FixedPoint.toBigDecimal(getMaxBonusFixed());
+    }
+
+    public synchronized long getMaxBonusFixed() {
+        if (maxBonusDirty) {
+            long max = 0;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, bonus[i]);
+            }
+            maxBonus = max;
+            maxBonusDirty = false;
+        }
+        return maxBonus;
+    }
+
+    /**
+     * 最差号码的负值 = 总投注 - 最大奖金
+     */
+    public long getMinProfitFixed() {
+        return totalBetMoney - getMaxBonusFixed();
     }
 
     public BigDecimal getTotalBetMoney() {
+        return FixedPoint.toBigDecimal(totalBetMoney);
+    }
+
+    public long getTotalBetMoneyFixed() {
         return totalBetMoney;
     }
 
@@ -292,10 +620,10 @@ public class BetNumberGroupByType {
     }
 
     public BigDecimal getFlyTotal() {
-        return flyTotal;
+        return FixedPoint.toBigDecimal(flyTotal);
     }
 
     public BigDecimal getLeaveTotal() {
-        return leaveTotal;
+        return FixedPoint.toBigDecimal(leaveTotal);
     }
 } 
\ No newline at end of file
@@ -2,56 +2,272 @@ package com.fivebear.platform;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * 投注登记，可由多个站点线程同时加入投注。
+ * 每个号码（NumberIndex 槽位，按玩法固定）的金额、奖金是分段累加的定点数计数器：
+ * 每段一把锁、一组按槽位排列的 long 数组，线程第一次投注时轮流分到各段，之后固定用这一段，互不竞争
+ * （与 LongAdder 相同的思路），读取时把各段相加。号码第一次出现时用 CAS 登记出现顺序和赔率，之后的投注只累加计数器。
+ * 分析用的 BetNumberGroupByType 由 getAllGroups 按当前计数器生成：依次锁住所有段后读取，得到一致的快照；
+ * 数据没变时直接返回上次的快照。快照中的分组是冻结的（见 BetNumberGroupByType.freeze），修改投注必须通过本类。
+ * 合并规则与 BetNumberGroupByType.addBet 相同：金额和奖金累加，赔率保留第一次的，行按号码首次出现的顺序排列。
+ */
 public class BetNumberManager {
-    private List<BetNumberGroupByType> groupList = new ArrayList<>();
+    // 段数：不少于 CPU 核数的 2 的幂
+    private static final int STRIPES = stripeCount();
+    // 线程的段号，第一次使用时按顺序分配
+    private static final AtomicInteger NEXT_STRIPE = new AtomicInteger();
+    private static final ThreadLocal<Integer> STRIPE_INDEX = ThreadLocal.withInitial(NEXT_STRIPE::getAndIncrement);
 
-    // 添加单个投注
+    // 一段计数器
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] money = new long[NumberIndex.SLOT_COUNT];
+        private final long[] bonus = new long[NumberIndex.SLOT_COUNT];
+        private long modCount;
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // 号码首次出现的序号（从 1 开始），0 表示没有投注
+    private final AtomicLongArray firstSeen = new AtomicLongArray(NumberIndex.SLOT_COUNT);
+    private final AtomicLong sequence = new AtomicLong();
+    // 第一次投注的赔率，由登记首次出现的线程在持有其段锁时写入
+    private final long[] odds = new long[NumberIndex.SLOT_COUNT];
+    // 最近一次生成的快照及其对应的版本（各段 modCount 之和）
+    private List<BetNumberGroupByType> snapshot;
+    private long snapshotVersion = -1;
+
+    public BetNumberManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // 由已建好的分组组成（BetBookLoader 批量加载用），只复制计数，不保留分组本身；快照在第一次 getAllGroups 时生成
+    BetNumberManager(List<BetNumberGroupByType> groups) {
+        this();
+        Stripe stripe = stripes[0];
+        for (BetNumberGroupByType group : groups) {
+            for (int row = 0; row < group.size(); row++) {
+                int slot = group.slotAt(row);
+                firstSeen.set(slot, sequence.incrementAndGet());
+                odds[slot] = group.oddsAt(row);
+                stripe.money[slot] = group.betMoneyAt(row);
+                stripe.bonus[slot] = group.bonusAt(row);
+            }
+        }
+    }
+
+    private static int stripeCount() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return cores <= 1 ? 1 : Integer.highestOneBit(cores - 1) << 1;
+    }
+
+    // 当前线程的段
+    private Stripe stripe() {
+        return stripes[STRIPE_INDEX.get() & (STRIPES - 1)];
+    }
+
+    // 号码+玩法 -> 槽位，玩法超出范围时抛 IllegalArgumentException（与新建分组时一致），号码非法返回 -1
+    private static int slotOf(BetNumber bet) {
+        NumberIndex.firstSlot(bet.getDictNoTypeId());
+        return NumberIndex.slotOf(bet.getBetNo(), bet.getDictNoTypeId());
+    }
+
+    // 在持有段锁时累加一注
+    private void accumulate(Stripe stripe, int slot, BetNumber bet) {
+        long money = bet.getBetMoneyFixed();
+        long betOdds = bet.getOddsFixed();
+        if (firstSeen.get(slot) == 0 && firstSeen.compareAndSet(slot, 0, sequence.incrementAndGet())) {
+            odds[slot] = betOdds;
+        }
+        stripe.money[slot] += money;
+        stripe.bonus[slot] += FixedPoint.mul(money, betOdds);
+        stripe.modCount++;
+    }
+
+    // 添加单个投注，号码与玩法不匹配时忽略
     public void addBet(BetNumber bet) {
-        for (BetNumberGroupByType group : groupList) {
-            if (group.getDictNoTypeId() == bet.getDictNoTypeId()) {
-                group.getBetNumbers().add(bet);
-                group.recalculateTotalBetMoney();
-                return;
+        int slot = slotOf(bet);
+        if (slot < 0) {
+            return;
+        }
+        Stripe stripe = stripe();
+        stripe.lock.lock();
+        try {
+            accumulate(stripe, slot, bet);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // 修改某号码的投注金额和赔率
+    public void updateBet(BetNumber bet) {
+        int slot = slotOf(bet);
+        if (slot < 0) {
+            return;
+        }
+        lockAll();
+        try {
+            clearSlot(slot);
+            if (firstSeen.get(slot) == 0) {
+                firstSeen.set(slot, sequence.incrementAndGet());
+            }
+            odds[slot] = bet.getOddsFixed();
+            stripes[0].money[slot] = bet.getBetMoneyFixed();
+            stripes[0].bonus[slot] = FixedPoint.mul(bet.getBetMoneyFixed(), bet.getOddsFixed());
+            stripes[0].modCount++;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // 撤销某号码的投注
+    public boolean removeBet(int dictNoTypeId, String betNo) {
+        if (dictNoTypeId < 1 || dictNoTypeId > NumberIndex.TYPE_COUNT) {
+            return false;
+        }
+        int slot = NumberIndex.slotOf(betNo, dictNoTypeId);
+        if (slot < 0) {
+            return false;
+        }
+        lockAll();
+        try {
+            if (firstSeen.get(slot) == 0) {
+                return false;
             }
+            clearSlot(slot);
+            firstSeen.set(slot, 0);
+            stripes[0].modCount++;
+            return true;
+        } finally {
+            unlockAll();
         }
-        // 没有该玩法分组则新建
-        List<BetNumber> bets = new ArrayList<>();
-        bets.add(bet);
-        groupList.add(new BetNumberGroupByType(bet.getDictNoTypeId(), bets));
     }
 
-    // 批量添加
+    // 清空某槽位在各段的计数，调用方持有全部段锁
+    private void clearSlot(int slot) {
+        for (Stripe stripe : stripes) {
+            stripe.money[slot] = 0;
+            stripe.bonus[slot] = 0;
+        }
+    }
+
+    // 批量添加，整批只加一次锁
     public void addBets(List<BetNumber> bets) {
-        for (BetNumber bet : bets) {
-            addBet(bet);
+        Stripe stripe = stripe();
+        stripe.lock.lock();
+        try {
+            for (BetNumber bet : bets) {
+                int slot = slotOf(bet);
+                if (slot >= 0) {
+                    accumulate(stripe, slot, bet);
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
         }
     }
 
-    // 获取所有分组
+    /**
+     * 获取所有分组：当前投注的一致快照，按玩法首次出现的顺序排列；列表和其中的分组都是只读的
+     */
     public List<BetNumberGroupByType> getAllGroups() {
-        return groupList;
+        lockAll();
+        try {
+            long version = 0;
+            for (Stripe stripe : stripes) {
+                version += stripe.modCount;
+            }
+            if (snapshot == null || version != snapshotVersion) {
+                snapshot = Collections.unmodifiableList(buildGroups());
+                snapshotVersion = version;
+            }
+            return snapshot;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // 按段的顺序加锁，解锁顺序相反
+    private void lockAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
     }
 
-    // 按号码查询
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    // 各段相加生成每个玩法的分组，调用方持有全部段锁
+    private List<BetNumberGroupByType> buildGroups() {
+        List<BetNumberGroupByType> groups = new ArrayList<>();
+        long[] firstOfType = new long[NumberIndex.TYPE_COUNT + 1];
+        for (int type = 1; type <= NumberIndex.TYPE_COUNT; type++) {
+            int first = NumberIndex.firstSlot(type);
+            int slotCount = NumberIndex.slotCount(type);
+            // (首次出现序号, 本地槽位) 打包成一个 long 排序；本地槽位不超过 10000，占低 14 位
+            long[] order = new long[slotCount];
+            int size = 0;
+            for (int local = 0; local < slotCount; local++) {
+                long seen = firstSeen.get(first + local);
+                if (seen != 0) {
+                    order[size++] = seen << 14 | local;
+                }
+            }
+            if (size == 0) {
+                continue;
+            }
+            Arrays.sort(order, 0, size);
+            int[] slots = new int[size];
+            long[] groupMoney = new long[size];
+            long[] groupOdds = new long[size];
+            long[] groupBonus = new long[size];
+            for (int row = 0; row < size; row++) {
+                int slot = first + (int) (order[row] & 0x3FFF);
+                slots[row] = slot;
+                groupOdds[row] = odds[slot];
+                for (Stripe stripe : stripes) {
+                    groupMoney[row] += stripe.money[slot];
+                    groupBonus[row] += stripe.bonus[slot];
+                }
+            }
+            firstOfType[type] = order[0] >>> 14;
+            BetNumberGroupByType group = new BetNumberGroupByType(type, slots, groupMoney, groupOdds, groupBonus, size);
+            group.freeze();
+            groups.add(group);
+        }
+        groups.sort((a, b) -> Long.compare(firstOfType[a.getDictNoTypeId()], firstOfType[b.getDictNoTypeId()]));
+        return groups;
+    }
+
+    // 按号码查询，每个玩法至多一条合并后的投注
     public List<BetNumber> queryByNumber(String betNo) {
         List<BetNumber> result = new ArrayList<>();
-        for (BetNumberGroupByType group : groupList) {
-            for (BetNumber bet : group.getBetNumbers()) {
-                if (bet.getBetNo().equals(betNo)) {
-                    result.add(bet);
-                }
+        for (BetNumberGroupByType group : getAllGroups()) {
+            BetNumber bet = group.getBet(betNo);
+            if (bet != null) {
+                result.add(bet);
             }
         }
         return result;
     }
 
-    // 按玩法类型查询
+    // 按玩法类型查询，同一号码的多次投注已合并
     public List<BetNumber> queryByDictNoTypeId(int dictNoTypeId) {
-        for (BetNumberGroupByType group : groupList) {
+        for (BetNumberGroupByType group : getAllGroups()) {
             if (group.getDictNoTypeId() == dictNoTypeId) {
-                return new ArrayList<>(group.getBetNumbers());
+                return group.getBetNumbers();
             }
         }
         return new ArrayList<>();
@@ -59,30 +275,28 @@ public class BetNumberManager {
 
     // 统计总投注金额
     public BigDecimal totalBetMoney() {
-        BigDecimal sum = BigDecimal.ZERO;
-        for (BetNumberGroupByType group : groupList) {
-            sum = sum.add(group.getTotalBetMoney());
+        long sum = 0;
+        for (BetNumberGroupByType group : getAllGroups()) {
+            sum += group.getTotalBetMoneyFixed();
         }
-        return sum;
+        return FixedPoint.toBigDecimal(sum);
     }
 
     // 统计总奖金
     public BigDecimal totalBonus() {
-        BigDecimal sum = BigDecimal.ZERO;
-        for (BetNumberGroupByType group : groupList) {
-            for (BetNumber bet : group.getBetNumbers()) {
-                sum = sum.add(bet.getBonus());
-            }
+        long sum = 0;
+        for (BetNumberGroupByType group : getAllGroups()) {
+            sum = Math.addExact(sum, group.getTotalBonusFixed());
         }
-        return sum;
+        return FixedPoint.toBigDecimal(sum);
     }
 
-    // 统计投注号码总数
+    // 统计投注号码总数，同一号码多次投注只算一个
     public int totalCount() {
         int count = 0;
-        for (BetNumberGroupByType group : groupList) {
-            count += group.getBetNumbers().size();
+        for (BetNumberGroupByType group : getAllGroups()) {
+            count += group.size();
         }
         return count;
     }
-}
\ No newline at end of file
+}
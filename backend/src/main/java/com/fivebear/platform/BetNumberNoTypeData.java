@@ -1,28 +1,34 @@
 package com.fivebear.platform;
 
 import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * 某玩法下所有号码的投注明细及统计数据
+ * 某玩法下所有号码的投注明细及统计数据，汇总字段以 FixedPoint 定点数保存。
+ * 各明细的出货盈亏依赖总飞货金额，由明细在读取时按本对象的汇总计算，加入明细不需要回头更新已有明细。
+ * 构造时就把本对象交给各明细，所以类是 final 的，不会有子类在初始化完成前被访问
  */
-public class BetNumberNoTypeData {
+public final class BetNumberNoTypeData {
     /** 玩法ID */
     private int dictNoTypeId;
     /** 该玩法下所有号码的投注明细 */
     private List<BetNumberResults> resultsList;
     /** 总投注金额 */
-    private BigDecimal totalBetMoney = BigDecimal.ZERO;
+    private long totalBetMoney;
     /** 总飞货金额 */
-    private BigDecimal totalFlyMoney = BigDecimal.ZERO;
+    private long totalFlyMoney;
     /** 总保留金额 */
-    private BigDecimal totalKeepMoney = BigDecimal.ZERO;
+    private long totalKeepMoney;
     /** 负值（亏损）号码个数 */
     private int negativeCount;
     /** 正值（盈利）号码个数 */
     private int positiveCount;
     /** 成数*/
     private int multiple;
+    /** 已加入的号码，首次 addResult 时建立 */
+    private Set<String> betNos;
 
     /**
      * 构造方法，自动统计汇总字段
@@ -33,13 +39,18 @@ public class BetNumberNoTypeData {
         this.dictNoTypeId = dictNoTypeId;
         this.resultsList = resultsList;
         // 统计汇总
-        this.totalBetMoney = resultsList.stream().map(BetNumberResults::getBetMoney).reduce(BigDecimal.ZERO, BigDecimal::add);
-        this.totalFlyMoney = resultsList.stream().map(BetNumberResults::getFlyMoney).reduce(BigDecimal.ZERO, BigDecimal::add);
-        this.totalKeepMoney = resultsList.stream().map(BetNumberResults::getKeepMoney).reduce(BigDecimal.ZERO, BigDecimal::add);
-        this.negativeCount = (int) resultsList.stream().filter(r -> r.getProfit().compareTo(BigDecimal.ZERO) < 0).count();
-        this.positiveCount = (int) resultsList.stream().filter(r -> r.getProfit().compareTo(BigDecimal.ZERO) > 0).count();
-        // 设置每个号码的出货盈亏
-        updateSellProfitForAll();
+        for (BetNumberResults r : resultsList) {
+            this.totalBetMoney += r.getBetMoneyFixed();
+            this.totalFlyMoney += r.getFlyMoneyFixed();
+            this.totalKeepMoney += r.getKeepMoneyFixed();
+            if (r.getProfitFixed() < 0) {
+                this.negativeCount++;
+            } else if (r.getProfitFixed() > 0) {
+                this.positiveCount++;
+            }
+            // 出货盈亏按本对象的总飞货金额计算
+            r.attach(this);
+        }
     }
 
     public BetNumberNoTypeData(int dictNoTypeId)
@@ -52,11 +63,15 @@ public class BetNumberNoTypeData {
     /** 获取投注明细列表 */
     public List<BetNumberResults> getResultsList() { return resultsList; }
     /** 获取总投注金额 */
-    public BigDecimal getTotalBetMoney() { return totalBetMoney; }
+    public BigDecimal getTotalBetMoney() { return FixedPoint.toBigDecimal(totalBetMoney); }
     /** 获取总飞货金额 */
-    public BigDecimal getTotalFlyMoney() { return totalFlyMoney; }
+    public BigDecimal getTotalFlyMoney() { return FixedPoint.toBigDecimal(totalFlyMoney); }
     /** 获取总保留金额 */
-    public BigDecimal getTotalKeepMoney() { return totalKeepMoney; }
+    public BigDecimal getTotalKeepMoney() { return FixedPoint.toBigDecimal(totalKeepMoney); }
+    /** 定点数汇总 */
+    public long getTotalBetMoneyFixed() { return totalBetMoney; }
+    public long getTotalFlyMoneyFixed() { return totalFlyMoney; }
+    public long getTotalKeepMoneyFixed() { return totalKeepMoney; }
     /** 获取负值号码个数 */
     public int getNegativeCount() { return negativeCount; }
     /** 获取正值号码个数 */
@@ -80,36 +95,29 @@ public class BetNumberNoTypeData {
         if (this.resultsList == null) {
             this.resultsList = new java.util.ArrayList<>();
         }
+        if (this.betNos == null) {
+            this.betNos = new HashSet<>(Math.max(16, resultsList.size() * 2));
+            for (BetNumberResults r : resultsList) {
+                this.betNos.add(r.getBetNo());
+            }
+        }
         // 检查是否已存在相同betNo
-        boolean exists = this.resultsList.stream()
-            .anyMatch(r -> r.getBetNo().equals(result.getBetNo()));
-        if (exists) {
+        if (!this.betNos.add(result.getBetNo())) {
             // 已存在该号码，忽略或可选择覆盖
             return;
         }
         this.resultsList.add(result);
         // 增量更新统计字段
-        this.totalBetMoney = this.totalBetMoney.add(result.getBetMoney());
-        this.totalFlyMoney = this.totalFlyMoney.add(result.getFlyMoney());
-        this.totalKeepMoney = this.totalKeepMoney.add(result.getKeepMoney());
-        if (result.getProfit().compareTo(BigDecimal.ZERO) < 0) {
+        this.totalBetMoney += result.getBetMoneyFixed();
+        this.totalFlyMoney += result.getFlyMoneyFixed();
+        this.totalKeepMoney += result.getKeepMoneyFixed();
+        if (result.getProfitFixed() < 0) {
             this.negativeCount++;
-        } else if (result.getProfit().compareTo(BigDecimal.ZERO) > 0) {
+        } else if (result.getProfitFixed() > 0) {
             this.positiveCount++;
         }
-        updateSellProfitForAll();
-    }
-
-    /**
-     * 批量设置所有号码的出货盈亏（出货奖金-出货本金）
-     */
-    private void updateSellProfitForAll() {
-        if (resultsList != null) {
-            for (BetNumberResults result : resultsList) {
-                BigDecimal sellProfit = result.getSellBonus().subtract(this.totalFlyMoney);
-                result.setSellProfit(sellProfit);
-            }
-        }
+        // 总飞货金额已更新，已有明细的出货盈亏读取时自然跟着变
+        result.attach(this);
     }
 
     // 如需set方法可补充
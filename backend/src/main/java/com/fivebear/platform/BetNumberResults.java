@@ -3,27 +3,29 @@ package com.fivebear.platform;
 import java.math.BigDecimal;
 
 /**
- * 单号码统计明细结果
+ * 单号码统计明细结果，金额与赔率以 FixedPoint 定点数保存
  */
 public class BetNumberResults {
     /** 号码 */
     private String betNo;
     /** 投注金额 */
-    private BigDecimal betMoney = BigDecimal.ZERO;
+    private long betMoney;
     /** 负值（盈亏） */
-    private BigDecimal profit = BigDecimal.ZERO;
+    private long profit;
     /** 投注赔率 */
-    private BigDecimal odds = BigDecimal.ZERO;
+    private long odds;
     /** 出货组数（飞货本金/补飞注数） */
-    private BigDecimal flyMoney = BigDecimal.ZERO;
+    private long flyMoney;
     /** 剩余组数（保留本金） */
-    private BigDecimal keepMoney = BigDecimal.ZERO;
+    private long keepMoney;
     /** 盈利 */
-    private BigDecimal win = BigDecimal.ZERO;
+    private long win;
     /** 出货赔率（最大可出货赔率） */
-    private BigDecimal sellOdds = BigDecimal.ZERO;
+    private long sellOdds;
     /**出货盈亏 */
-    private BigDecimal sellProfit = BigDecimal.ZERO;
+    private long sellProfit;
+    /** 所属的玩法统计，不为 null 时出货盈亏和盈利按其总飞货金额在读取时计算 */
+    private BetNumberNoTypeData owner;
 
     /**
      * 构造方法
@@ -38,6 +40,15 @@ public class BetNumberResults {
      */
     public BetNumberResults(String betNo, BigDecimal betMoney, BigDecimal profit, BigDecimal odds,
                             BigDecimal flyMoney, BigDecimal keepMoney, BigDecimal win, BigDecimal sellOdds) {
+        this(betNo, FixedPoint.of(betMoney), FixedPoint.of(profit), FixedPoint.of(odds),
+                FixedPoint.of(flyMoney), FixedPoint.of(keepMoney), FixedPoint.of(win), FixedPoint.of(sellOdds));
+    }
+
+    /**
+     * 构造方法（定点数），参数同上
+     */
+    public BetNumberResults(String betNo, long betMoney, long profit, long odds,
+                            long flyMoney, long keepMoney, long win, long sellOdds) {
         this.betNo = betNo;
         this.betMoney = betMoney;
         this.profit = profit;
@@ -51,29 +62,58 @@ public class BetNumberResults {
     /** 获取号码 */
     public String getBetNo() { return betNo; }
     /** 获取投注金额 */
-    public BigDecimal getBetMoney() { return betMoney; }
+    public BigDecimal getBetMoney() { return FixedPoint.toBigDecimal(betMoney); }
     /** 获取负值 */
-    public BigDecimal getProfit() { return profit; }
+    public BigDecimal getProfit() { return FixedPoint.toBigDecimal(profit); }
     /** 获取赔率 */
-    public BigDecimal getOdds() { return odds; }
+    public BigDecimal getOdds() { return FixedPoint.toBigDecimal(odds); }
     /** 获取出货组数 */
-    public BigDecimal getFlyMoney() { return flyMoney; }
+    public BigDecimal getFlyMoney() { return FixedPoint.toBigDecimal(flyMoney); }
     /** 获取剩余组数 */
-    public BigDecimal getKeepMoney() { return keepMoney; }
+    public BigDecimal getKeepMoney() { return FixedPoint.toBigDecimal(keepMoney); }
     /** 获取盈利 */
-    public BigDecimal getWin() { return win; }
+    public BigDecimal getWin() { return FixedPoint.toBigDecimal(getWinFixed()); }
     /** 获取出货赔率 */
-    public BigDecimal getSellOdds() { return sellOdds; }
+    public BigDecimal getSellOdds() { return FixedPoint.toBigDecimal(sellOdds); }
+
+    // 定点数 getter
+    public long getBetMoneyFixed() { return betMoney; }
+    public long getProfitFixed() { return profit; }
+    public long getOddsFixed() { return odds; }
+    public long getFlyMoneyFixed() { return flyMoney; }
+    public long getKeepMoneyFixed() { return keepMoney; }
+    public long getWinFixed() { return owner != null ? profit + getSellProfitFixed() : win; }
+    public long getSellOddsFixed() { return sellOdds; }
+    public long getSellProfitFixed() {
+        return owner != null ? getSellBonusFixed() - owner.getTotalFlyMoneyFixed() : sellProfit;
+    }
 
     public void  setSellProfit(BigDecimal sellProfit)
     {
+        setSellProfitFixed(FixedPoint.of(sellProfit));
+    }
+
+    /**
+     * 显式设置出货盈亏，之后不再随所属玩法的总飞货金额变化
+     */
+    public void setSellProfitFixed(long sellProfit)
+    {
+        this.owner = null;
         this.sellProfit = sellProfit;
-        this.win = profit.add(sellProfit);
+        this.win = profit + sellProfit;
     }
 
     public BigDecimal getSellProfit()
     {
-        return sellProfit;
+        return FixedPoint.toBigDecimal(getSellProfitFixed());
+    }
+
+    /**
+     * 加入玩法统计：出货盈亏 = 出货奖金 - 该玩法总飞货金额，读取时计算
+     */
+    void attach(BetNumberNoTypeData owner)
+    {
+        this.owner = owner;
     }
 
     /**
@@ -81,6 +121,10 @@ public class BetNumberResults {
      * @return 出货奖金
      */
     public BigDecimal getSellBonus() {
-        return this.sellOdds.multiply(this.flyMoney);
+        return FixedPoint.toBigDecimal(getSellBonusFixed());
+    }
+
+    public long getSellBonusFixed() {
+        return FixedPoint.mul(sellOdds, flyMoney);
     }
-} 
\ No newline at end of file
+}
@@ -34,6 +34,7 @@ public class BetScheduler {
         List<BetAllocation> allocations = new ArrayList<>();
         Map<MemberSite, Map<String, Double>> siteNumberAmount = new HashMap<>(); // 站点-号码-已下注金额
         Map<MemberSite, Double> siteTotalAllocated = new HashMap<>(); // 站点已分配总金额
+        long now = System.currentTimeMillis();
 
         for (BetTask bet : bets) {
             double remaining = bet.amount;
@@ -48,6 +49,9 @@ public class BetScheduler {
                     MemberSettingInfo setting = getSettingForNumber(info, bet.number);
                     if (setting == null)
                         continue;
+                    // 赔率已超过该 domain 的最大时效
+                    if (oddsManager.isStale(bet.number, site.getDomain(), now))
+                        continue;
                     double minBet = setting.getMinBet();
                     double oneBetLimit = setting.getOneBetLimit();
                     double maxPerNumber = setting.getOneItemLimit();
@@ -87,16 +91,7 @@ public class BetScheduler {
      * 获取站点该号码的当前赔率
      */
     private double getOddsForSite(MemberSite site, String number, boolean isPackage) {
-        List<NumberOddsGroup> oddsGroups = platformManager.getOddsManager().queryByNumber(number);
-        String domain = site.getDomain();
-        for (NumberOddsGroup group : oddsGroups) {
-            for (NumberOddsGroup.OddsInfo info : group.getOddsList()) {
-                if (info.getDomain().equals(domain)) {
-                    return info.getOdds();
-                }
-            }
-        }
-        return 0;
+        return oddsManager.getOdds(number, site.getDomain());
     }
 
     /**
@@ -171,19 +166,7 @@ public class BetScheduler {
     }
 
     private double getOddsForNumber(int dictNoTypeId, String number) {
-        List<NumberOddsGroup> groups = oddsManager.queryByNumber(number);
-        for (NumberOddsGroup group : groups) {
-            if (group.getDictNoTypeId() == dictNoTypeId) {
-                double maxOdds = 0;
-                for (NumberOddsGroup.OddsInfo info : group.getOddsList()) {
-                    if (info.getOdds() > maxOdds) {
-                        maxOdds = info.getOdds();
-                    }
-                }
-                return maxOdds;
-            }
-        }
-        return 0;
+        return oddsManager.getMaxOdds(number, dictNoTypeId);
     }
 
     /**
@@ -210,26 +193,22 @@ public class BetScheduler {
         Map<String, List<Bet>> keyToBets = new HashMap<>();
         Map<String, MemberSite> keyToSite = new HashMap<>();
         List<Bet> unassignedBets = new ArrayList<>();
+        // 整个分配过程使用同一版本的赔率
+        OddsSnapshot odds = oddsManager.snapshot();
+        long now = System.currentTimeMillis();
         for (Map.Entry<Integer, List<Bet>> entry : input.entrySet()) {
             int dictNoTypeId = entry.getKey();
             for (Bet bet : entry.getValue()) {
                 double remaining = bet.getBetMoney();
-                // 1. 查找所有domain及其赔率，按赔率从高到低排序
-                List<NumberOddsGroup> groups = oddsManager.queryByNumber(bet.getNumber());
-                List<DomainOdds> domainOddsList = new ArrayList<>();
-                for (NumberOddsGroup group : groups) {
-                    if (group.getDictNoTypeId() == dictNoTypeId) {
-                        for (NumberOddsGroup.OddsInfo info : group.getOddsList()) {
-                            domainOddsList.add(new DomainOdds(info.getDomain(), info.getOdds()));
-                        }
+                // 1. 查找所有domain及其赔率，按赔率从高到低排列（快照内已维护排名）
+                int slot = NumberIndex.slotOf(bet.getNumber(), dictNoTypeId);
+                int[] rankedDomains = slot < 0 ? new int[0] : odds.rankedDomains(slot);
+                for (int domainId : rankedDomains) {
+                    // 过期检查按 tick 执行，快照里可能还留着刚超时的赔率
+                    if (!oddsManager.isFresh(odds, domainId, slot, now)) {
+                        continue;
                     }
-                }
-                // 按赔率降序排序
-                domainOddsList.sort((a, b) -> Double.compare(b.odds, a.odds));
-                Set<String> visitedDomain = new HashSet<>();
-                for (DomainOdds domainOdds : domainOddsList) {
-                    String domain = domainOdds.domain;
-                    if (!visitedDomain.add(domain)) continue; // 去重
+                    String domain = odds.getDomain(domainId);
                     // 获取该domain下所有可用账号，按余额降序排列
                     List<MemberSite> accounts = new ArrayList<>();
                     for (Site s : siteManager.getAllSites()) {
@@ -306,19 +285,6 @@ public class BetScheduler {
         return new AllocationResult(result, unassignedBets);
     }
 
-    /**
-     * domain及其赔率结构体
-     */
-    private static class DomainOdds {
-        String domain;
-        double odds;
-
-        DomainOdds(String domain, double odds) {
-            this.domain = domain;
-            this.odds = odds;
-        }
-    }
-
     /**
      * 站点与其分配的投注列表结构
      */
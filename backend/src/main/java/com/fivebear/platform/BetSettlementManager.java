@@ -1,123 +1,271 @@
 package com.fivebear.platform;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
+/**
+ * 入货、出货结算。除了逐笔保存的注单，还增量维护按 (号码, 玩法)、玩法、站点（domain）的汇总，
+ * 加入一笔只更新对应的几个计数器，各种盈亏查询都是直接查表。
+ * 负值 = 总入货 - 该号码入货奖金，总入货对所有号码相同，所以按入货奖金从大到小排好的有序集合
+ * 就是负值从小到大的顺序，加入时 O(log n) 调整。
+ * 汇总按加入时注单的金额、赔率计算，加入后再修改注单不会反映到汇总；金额用 FixedPoint 定点数累加。
+ */
 public class BetSettlementManager {
     private final List<Bet> inBets = new ArrayList<>(); // 入货（投注）
     private final List<Bet> outBets = new ArrayList<>(); // 出货（中奖）
+    // 各开奖结果的净盈亏，随入货、出货逐笔更新
+    private final DrawLiability liability = new DrawLiability();
 
+    // 某 (号码, 玩法) 的汇总。inBets/outBets 是该号码的注单引用（与上面的总表共享 Bet 对象），
+    // 供 getInBetsByNumber/getOutBetsByNumber 查明细
+    private static class NumberTotals {
+        private final String key;
+        private final List<Bet> inBets = new ArrayList<>();
+        private final List<Bet> outBets = new ArrayList<>();
+        private long inMoney;
+        private long outMoney;
+        private long inWin;
+        private long outWin;
 
-    //计算负值
-    public void  analyzeNegative() {
-        double totalInAmount = getTotalInAmount();
-        double totalOutAmount = getTotalOutAmount();
+        NumberTotals(String key) {
+            this.key = key;
+        }
+    }
+
+    // "号码#玩法" -> 汇总
+    private final Map<String, NumberTotals> byNumberAndType = new HashMap<>();
+    // 号码 -> 各玩法的汇总（同一号码通常只属于一个玩法）
+    private final Map<String, List<NumberTotals>> byNumber = new HashMap<>();
+    // 按入货奖金从大到小（即负值从小到大），奖金相同按 key
+    private final TreeSet<NumberTotals> byNegative = new TreeSet<>(
+            Comparator.comparingLong((NumberTotals t) -> -t.inWin).thenComparing(t -> t.key));
+    // 玩法 -> 入货、出货金额
+    private final Map<Integer, long[]> byType = new HashMap<>();
+    // 站点 -> 入货、出货金额
+    private final Map<String, long[]> byDomain = new HashMap<>();
+    private long totalIn;
+    private long totalOut;
+
+    /**
+     * 把负值回写到各注单：入货为 总入货 - 该注单奖金，出货为 该注单奖金 - 总出货，都是逐笔的值。
+     * 总入货、总出货取定点数汇总，奖金按定点数逐笔计算；
+     * 按号码合计的负值用 getNegativeByNumberAndTypeId、getNegativeNumbers 查询，不必调用本方法
+     */
+    public synchronized void analyzeNegative() {
         for (Bet bet : inBets) {
-            bet.setNegative(totalInAmount - bet.getWinMoney());
+            bet.setNegative(FixedPoint.toDouble(totalIn - winOf(bet)));
         }
         for (Bet bet : outBets) {
-            bet.setNegative(bet.getWinMoney() - totalOutAmount);
+            bet.setNegative(FixedPoint.toDouble(winOf(bet) - totalOut));
         }
     }
 
+    // 注单奖金（金额 × 赔率），与汇总时的算法相同
+    private static long winOf(Bet bet) {
+        return FixedPoint.mul(FixedPoint.of(bet.getBetMoney()), FixedPoint.of(bet.getOdds()));
+    }
+
     // 添加入货
     public synchronized void addInBet(Bet bet) {
-        if (bet != null) inBets.add(bet);
+        if (bet != null) {
+            inBets.add(bet);
+            liability.addInBet(bet);
+            long money = FixedPoint.of(bet.getBetMoney());
+            totalIn += money;
+            NumberTotals totals = totalsOf(bet);
+            // 入货奖金变了，先移出有序集合再放回
+            byNegative.remove(totals);
+            totals.inBets.add(bet);
+            totals.inMoney += money;
+            totals.inWin += winOf(bet);
+            byNegative.add(totals);
+            byType.computeIfAbsent(bet.getDictNoTypeId(), k -> new long[2])[0] += money;
+            byDomain.computeIfAbsent(domainOf(bet), k -> new long[2])[0] += money;
+        }
     }
     public synchronized void addInBets(List<Bet> bets) {
-        if (bets != null) inBets.addAll(bets);
+        if (bets != null) {
+            for (Bet bet : bets) {
+                addInBet(bet);
+            }
+        }
     }
 
     // 添加出货
     public synchronized void addOutBet(Bet bet) {
-        if (bet != null) outBets.add(bet);
+        if (bet != null) {
+            outBets.add(bet);
+            liability.addOutBet(bet);
+            long money = FixedPoint.of(bet.getBetMoney());
+            totalOut += money;
+            NumberTotals totals = totalsOf(bet);
+            totals.outBets.add(bet);
+            totals.outMoney += money;
+            totals.outWin += winOf(bet);
+            byType.computeIfAbsent(bet.getDictNoTypeId(), k -> new long[2])[1] += money;
+            byDomain.computeIfAbsent(domainOf(bet), k -> new long[2])[1] += money;
+        }
     }
     public synchronized void addOutBets(List<Bet> bets) {
-        if (bets != null) outBets.addAll(bets);
+        if (bets != null) {
+            for (Bet bet : bets) {
+                addOutBet(bet);
+            }
+        }
+    }
+
+    private NumberTotals totalsOf(Bet bet) {
+        String key = bet.getNumber() + "#" + bet.getDictNoTypeId();
+        NumberTotals totals = byNumberAndType.get(key);
+        if (totals == null) {
+            totals = new NumberTotals(key);
+            byNumberAndType.put(key, totals);
+            byNumber.computeIfAbsent(bet.getNumber(), k -> new ArrayList<>(1)).add(totals);
+        }
+        return totals;
+    }
+
+    // 没有站点的注单归到空字符串下
+    private static String domainOf(Bet bet) {
+        return bet.getDomain() != null ? bet.getDomain() : "";
+    }
+
+    // 各开奖结果的净盈亏，最差开奖结果 O(1) 查询
+    public DrawLiability getLiability() {
+        return liability;
     }
 
     // 总入货金额
-    public double getTotalInAmount() {
-        return inBets.stream().mapToDouble(Bet::getBetMoney).sum();
+    public synchronized double getTotalInAmount() {
+        return FixedPoint.toDouble(totalIn);
     }
 
     // 总出货金额
-    public double getTotalOutAmount() {
-        return outBets.stream().mapToDouble(Bet::getBetMoney).sum();
+    public synchronized double getTotalOutAmount() {
+        return FixedPoint.toDouble(totalOut);
     }
 
     // 盈亏（入货-出货）
-    public double getProfit() {
-        return getTotalInAmount() - getTotalOutAmount();
+    public synchronized double getProfit() {
+        return FixedPoint.toDouble(totalIn - totalOut);
     }
 
     // 获取所有入货Bets
-    public List<Bet> getInBets() {
+    public synchronized List<Bet> getInBets() {
         return new ArrayList<>(inBets);
     }
 
     // 获取所有出货Bets
-    public List<Bet> getOutBets() {
+    public synchronized List<Bet> getOutBets() {
         return new ArrayList<>(outBets);
     }
 
     // 按玩法统计总入货金额
-    public double getTotalInAmountByTypeId(int dictNoTypeId) {
-        return inBets.stream()
-                .filter(b -> b.getDictNoTypeId() == dictNoTypeId)
-                .mapToDouble(Bet::getBetMoney)
-                .sum();
+    public synchronized double getTotalInAmountByTypeId(int dictNoTypeId) {
+        long[] totals = byType.get(dictNoTypeId);
+        return totals == null ? 0 : FixedPoint.toDouble(totals[0]);
     }
 
     // 按玩法统计总出货金额
-    public double getTotalOutAmountByTypeId(int dictNoTypeId) {
-        return outBets.stream()
-                .filter(b -> b.getDictNoTypeId() == dictNoTypeId)
-                .mapToDouble(Bet::getBetMoney)
-                .sum();
+    public synchronized double getTotalOutAmountByTypeId(int dictNoTypeId) {
+        long[] totals = byType.get(dictNoTypeId);
+        return totals == null ? 0 : FixedPoint.toDouble(totals[1]);
     }
 
     // 按玩法统计盈亏
-    public double getProfitByTypeId(int dictNoTypeId) {
-        return getTotalInAmountByTypeId(dictNoTypeId) - getTotalOutAmountByTypeId(dictNoTypeId);
+    public synchronized double getProfitByTypeId(int dictNoTypeId) {
+        long[] totals = byType.get(dictNoTypeId);
+        return totals == null ? 0 : FixedPoint.toDouble(totals[0] - totals[1]);
+    }
+
+    // 按站点统计总入货金额
+    public synchronized double getTotalInAmountByDomain(String domain) {
+        long[] totals = byDomain.get(domain != null ? domain : "");
+        return totals == null ? 0 : FixedPoint.toDouble(totals[0]);
+    }
+
+    // 按站点统计总出货金额
+    public synchronized double getTotalOutAmountByDomain(String domain) {
+        long[] totals = byDomain.get(domain != null ? domain : "");
+        return totals == null ? 0 : FixedPoint.toDouble(totals[1]);
+    }
+
+    // 按站点统计盈亏
+    public synchronized double getProfitByDomain(String domain) {
+        long[] totals = byDomain.get(domain != null ? domain : "");
+        return totals == null ? 0 : FixedPoint.toDouble(totals[0] - totals[1]);
     }
 
     // 获取每个号码+玩法的盈亏，key为"号码#玩法"
-    public Map<String, Double> getProfitByNumberAndTypeId() {
-        Map<String, Double> profitMap = new java.util.HashMap<>();
-        // 统计入货
-        for (Bet bet : inBets) {
-            String key = bet.getNumber() + "#" + bet.getDictNoTypeId();
-            profitMap.put(key, profitMap.getOrDefault(key, 0.0) + bet.getBetMoney());
-        }
-        // 统计出货
-        for (Bet bet : outBets) {
-            String key = bet.getNumber() + "#" + bet.getDictNoTypeId();
-            profitMap.put(key, profitMap.getOrDefault(key, 0.0) - bet.getBetMoney());
+    public synchronized Map<String, Double> getProfitByNumberAndTypeId() {
+        Map<String, Double> profitMap = new HashMap<>();
+        for (NumberTotals totals : byNumberAndType.values()) {
+            profitMap.put(totals.key, FixedPoint.toDouble(totals.inMoney - totals.outMoney));
         }
         return profitMap;
     }
 
     // 查询号码出货号码
-    public List<Bet> getOutBetsByNumber(String number) {
-        return outBets.stream()
-                .filter(b -> b.getNumber().equals(number))
-                .collect(java.util.stream.Collectors.toList());
+    public synchronized List<Bet> getOutBetsByNumber(String number) {
+        List<Bet> bets = new ArrayList<>();
+        for (NumberTotals totals : byNumber.getOrDefault(number, Collections.emptyList())) {
+            bets.addAll(totals.outBets);
+        }
+        return bets;
     }
 
     //查询入货号码
-    public List<Bet> getInBetsByNumber(String number) {
-        return inBets.stream()
-                .filter(b -> b.getNumber().equals(number))
-                .collect(java.util.stream.Collectors.toList());
+    public synchronized List<Bet> getInBetsByNumber(String number) {
+        List<Bet> bets = new ArrayList<>();
+        for (NumberTotals totals : byNumber.getOrDefault(number, Collections.emptyList())) {
+            bets.addAll(totals.inBets);
+        }
+        return bets;
     }
 
     // 获取指定号码+玩法的盈亏
-    public double getProfitByNumberAndTypeId(String number, int dictNoTypeId) {
-        String key = number + "#" + dictNoTypeId;
-        return getProfitByNumberAndTypeId().getOrDefault(key, 0.0);
+    public synchronized double getProfitByNumberAndTypeId(String number, int dictNoTypeId) {
+        NumberTotals totals = byNumberAndType.get(number + "#" + dictNoTypeId);
+        return totals == null ? 0 : FixedPoint.toDouble(totals.inMoney - totals.outMoney);
+    }
+
+    // 指定号码+玩法的负值（总入货 - 该号码入货奖金）
+    public synchronized double getNegativeByNumberAndTypeId(String number, int dictNoTypeId) {
+        NumberTotals totals = byNumberAndType.get(number + "#" + dictNoTypeId);
+        return FixedPoint.toDouble(totalIn - (totals == null ? 0 : totals.inWin));
+    }
+
+    /**
+     * 负值最小的前 limit 个号码+玩法，key为"号码#玩法"，按负值从小到大
+     */
+    public synchronized Map<String, Double> getMostNegative(int limit) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (NumberTotals totals : byNegative) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.put(totals.key, FixedPoint.toDouble(totalIn - totals.inWin));
+        }
+        return result;
     }
 
-    // 可扩展：按号码、玩法等统计
-} 
\ No newline at end of file
+    /**
+     * 负值小于 0（入货奖金超过总入货）的号码+玩法，key为"号码#玩法"，按负值从小到大
+     */
+    public synchronized Map<String, Double> getNegativeNumbers() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (NumberTotals totals : byNegative) {
+            if (totals.inWin <= totalIn) {
+                break;
+            }
+            result.put(totals.key, FixedPoint.toDouble(totalIn - totals.inWin));
+        }
+        return result;
+    }
+}
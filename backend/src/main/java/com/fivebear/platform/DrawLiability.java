@@ -0,0 +1,293 @@
+package com.fivebear.platform;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 开奖结果负债表：对 0000~9999 每个可能的四位开奖结果，计算全部 11 个玩法合计的平台净盈亏
+ * （总投注 - 该结果命中的全部投注奖金）。一个开奖结果同时命中二定、三定、四定中所有匹配的号码，
+ * 如 1234 命中 12XX、1X3X、X23X、123X、1234 等。
+ * 号码到开奖结果的展开沿用 NumberTemplateGenerator.getRelatedFourStarNumber，按槽位预先算好，
+ * 重建时只是对各玩法的奖金列做一次散列累加（共约 11 万次加法）。
+ * 入货、出货也可以逐笔增量加入，只更新命中的开奖结果；最小值线段树维护最差开奖结果，随时 O(1) 查询。
+ * 金额为 FixedPoint 定点数。
+ */
+public class DrawLiability {
+    /** 开奖结果个数 */
+    public static final int DRAW_COUNT = 10000;
+
+    // 槽位 -> 命中的开奖结果（0~9999）
+    private static final int[][] DRAWS_BY_SLOT = new int[NumberIndex.SLOT_COUNT][];
+    // 开奖结果 -> 命中它的 11 个号码的槽位（每个玩法一个）
+    private static final int[][] SLOTS_BY_DRAW = new int[DRAW_COUNT][NumberIndex.TYPE_COUNT];
+
+    static {
+        for (int slot = 0; slot < NumberIndex.SLOT_COUNT; slot++) {
+            List<String> related = NumberTemplateGenerator.getRelatedFourStarNumber(NumberIndex.numberAt(slot));
+            int[] draws = new int[related.size()];
+            for (int i = 0; i < draws.length; i++) {
+                draws[i] = Integer.parseInt(related.get(i));
+            }
+            DRAWS_BY_SLOT[slot] = draws;
+            for (int draw : draws) {
+                SLOTS_BY_DRAW[draw][NumberIndex.dictNoTypeIdAt(slot) - 1] = slot;
+            }
+        }
+    }
+
+    // 线段树叶子数（不小于 DRAW_COUNT 的 2 的幂），多出的叶子填 Long.MAX_VALUE
+    private static final int LEAVES = Integer.highestOneBit(DRAW_COUNT - 1) << 1;
+
+    // 各开奖结果的净盈亏 = offset + tree[LEAVES + draw]；offset 是所有开奖结果共同的部分（入货金额 - 出货金额），
+    // 叶子是与开奖结果有关的部分（出货奖金 - 入货奖金）。内部节点保存子树最小值及其下标，根即最差开奖结果
+    private final long[] tree = new long[2 * LEAVES];
+    private final int[] minDraw = new int[2 * LEAVES];
+    private long offset;
+    private long totalBetMoney;
+
+    public DrawLiability() {
+        reset();
+    }
+
+    /**
+     * 清空全部负债
+     */
+    public synchronized void clear() {
+        reset();
+    }
+
+    // 构造时也用，不能调用可被覆盖的 clear
+    private void reset() {
+        Arrays.fill(tree, LEAVES, LEAVES + DRAW_COUNT, 0);
+        Arrays.fill(tree, LEAVES + DRAW_COUNT, 2 * LEAVES, Long.MAX_VALUE);
+        offset = 0;
+        totalBetMoney = 0;
+        buildInternal();
+    }
+
+    /**
+     * 按投注全量重建（之前增量加入的入货、出货都会被清掉）
+     */
+    public synchronized void rebuild(BetNumberManager manager) {
+        rebuild(manager.getAllGroups(), null);
+    }
+
+    /**
+     * 按给定分组的投注和补飞方案全量重建：入货取分组的奖金列，出货取方案中各号码的飞货金额和出货奖金
+     * @param plan 补飞方案，为 null 表示不补飞
+     */
+    public synchronized void rebuild(List<BetNumberGroupByType> groups, List<BetNumberNoTypeData> plan) {
+        Arrays.fill(tree, LEAVES, LEAVES + DRAW_COUNT, 0);
+        long total = 0;
+        for (BetNumberGroupByType group : groups) {
+            total += group.getTotalBetMoneyFixed();
+            for (int row = 0; row < group.size(); row++) {
+                long bonus = group.bonusAt(row);
+                for (int draw : DRAWS_BY_SLOT[group.slotAt(row)]) {
+                    tree[LEAVES + draw] -= bonus;
+                }
+            }
+        }
+        this.offset = total;
+        this.totalBetMoney = total;
+        if (plan != null) {
+            for (BetNumberNoTypeData data : plan) {
+                for (BetNumberResults r : data.getResultsList()) {
+                    long fly = r.getFlyMoneyFixed();
+                    int slot = NumberIndex.slotOf(r.getBetNo());
+                    if (fly == 0 || slot < 0) {
+                        continue;
+                    }
+                    offset -= fly;
+                    long bonus = r.getSellBonusFixed();
+                    for (int draw : DRAWS_BY_SLOT[slot]) {
+                        tree[LEAVES + draw] += bonus;
+                    }
+                }
+            }
+        }
+        buildInternal();
+    }
+
+    /**
+     * 增量加入一笔入货：所有开奖结果 +投注金额，命中的开奖结果 -奖金。
+     * 二定更新 100 个开奖结果，三定 10 个，四定 1 个，每个 O(log n)
+     *
+     * @return 号码非法时返回 false
+     */
+    public synchronized boolean addInBet(String number, long betMoney, long bonus) {
+        int slot = NumberIndex.slotOf(number);
+        if (slot < 0) {
+            return false;
+        }
+        offset += betMoney;
+        totalBetMoney += betMoney;
+        addToDraws(slot, -bonus);
+        return true;
+    }
+
+    /**
+     * 增量加入一笔出货（飞货）：所有开奖结果 -飞货金额，命中的开奖结果 +出货奖金
+     *
+     * @return 号码非法时返回 false
+     */
+    public synchronized boolean addOutBet(String number, long flyMoney, long bonus) {
+        int slot = NumberIndex.slotOf(number);
+        if (slot < 0) {
+            return false;
+        }
+        offset -= flyMoney;
+        addToDraws(slot, bonus);
+        return true;
+    }
+
+    public boolean addInBet(Bet bet) {
+        long money = FixedPoint.of(bet.getBetMoney());
+        return addInBet(bet.getNumber(), money, FixedPoint.mul(money, FixedPoint.of(bet.getOdds())));
+    }
+
+    public boolean addOutBet(Bet bet) {
+        long money = FixedPoint.of(bet.getBetMoney());
+        return addOutBet(bet.getNumber(), money, FixedPoint.mul(money, FixedPoint.of(bet.getOdds())));
+    }
+
+    // 命中的每个开奖结果加 delta，逐个沿路径更新到根
+    private void addToDraws(int slot, long delta) {
+        for (int draw : DRAWS_BY_SLOT[slot]) {
+            int node = LEAVES + draw;
+            tree[node] += delta;
+            for (node >>>= 1; node > 0; node >>>= 1) {
+                pull(node);
+            }
+        }
+    }
+
+    private void buildInternal() {
+        for (int draw = 0; draw < LEAVES; draw++) {
+            minDraw[LEAVES + draw] = draw;
+        }
+        for (int node = LEAVES - 1; node > 0; node--) {
+            pull(node);
+        }
+    }
+
+    private void pull(int node) {
+        int left = node << 1;
+        int right = left | 1;
+        int child = tree[right] < tree[left] ? right : left;
+        tree[node] = tree[child];
+        minDraw[node] = minDraw[child];
+    }
+
+    /** 某槽位号码命中的开奖结果下标（共享数组，不可修改） */
+    static int[] drawsOf(int slot) {
+        return DRAWS_BY_SLOT[slot];
+    }
+
+    /** 命中某开奖结果的各玩法号码槽位（共享数组，不可修改） */
+    static int[] slotsOf(int draw) {
+        return SLOTS_BY_DRAW[draw];
+    }
+
+    /** 开奖结果 -> 下标，非四位数字返回 -1 */
+    public static int drawIndex(String draw) {
+        int slot = NumberIndex.slotOf(draw, 11);
+        return slot < 0 ? -1 : slot - NumberIndex.firstSlot(11);
+    }
+
+    /** 下标 -> 开奖结果 */
+    public static String drawNumber(int draw) {
+        return NumberIndex.numberAt(NumberIndex.firstSlot(11) + draw);
+    }
+
+    /** 某开奖结果的净盈亏 */
+    public synchronized BigDecimal getNet(String draw) {
+        int index = drawIndex(draw);
+        if (index < 0) {
+            throw new IllegalArgumentException("开奖结果必须是四位数字: " + draw);
+        }
+        return FixedPoint.toBigDecimal(offset + tree[LEAVES + index]);
+    }
+
+    public synchronized long getNetFixed(int draw) {
+        return offset + tree[LEAVES + draw];
+    }
+
+    public synchronized BigDecimal getTotalBetMoney() {
+        return FixedPoint.toBigDecimal(totalBetMoney);
+    }
+
+    /** 净盈亏最差（亏损最大）的开奖结果，O(1) */
+    public synchronized String getWorstDraw() {
+        return drawNumber(minDraw[1]);
+    }
+
+    public synchronized long getWorstNetFixed() {
+        return offset + tree[1];
+    }
+
+    /**
+     * 净盈亏最差的前 k 个开奖结果，按净盈亏从低到高
+     */
+    public synchronized List<String> topDangerousDraws(int k) {
+        int n = Math.min(Math.max(k, 0), DRAW_COUNT);
+        // 有序的前 n 个下标，新值只在比当前第 n 个更差时插入
+        int[] top = new int[n];
+        int count = 0;
+        for (int draw = 0; draw < DRAW_COUNT && n > 0; draw++) {
+            if (count == n && tree[LEAVES + draw] >= tree[LEAVES + top[n - 1]]) {
+                continue;
+            }
+            int i = count < n ? count++ : n - 1;
+            while (i > 0 && tree[LEAVES + top[i - 1]] > tree[LEAVES + draw]) {
+                top[i] = top[i - 1];
+                i--;
+            }
+            top[i] = draw;
+        }
+        String[] draws = new String[count];
+        for (int i = 0; i < count; i++) {
+            draws[i] = drawNumber(top[i]);
+        }
+        return Arrays.asList(draws);
+    }
+
+    /**
+     * 全部开奖结果的净盈亏分布（副本），下标即开奖结果
+     */
+    public synchronized long[] getDistributionFixed() {
+        long[] net = new long[DRAW_COUNT];
+        for (int draw = 0; draw < DRAW_COUNT; draw++) {
+            net[draw] = offset + tree[LEAVES + draw];
+        }
+        return net;
+    }
+
+    /**
+     * 各开奖结果等概率时的平均净盈亏（期望盈利），商和余数分开累加避免溢出
+     */
+    public synchronized long getMeanNetFixed() {
+        long quotient = 0;
+        long remainder = 0;
+        for (int draw = 0; draw < DRAW_COUNT; draw++) {
+            long leaf = tree[LEAVES + draw];
+            quotient += leaf / DRAW_COUNT;
+            remainder += leaf % DRAW_COUNT;
+        }
+        return offset + quotient + remainder / DRAW_COUNT;
+    }
+
+    /**
+     * 净盈亏小于 0 的开奖结果个数
+     */
+    public synchronized int getLosingDrawCount() {
+        int count = 0;
+        for (int draw = 0; draw < DRAW_COUNT; draw++) {
+            if (offset + tree[LEAVES + draw] < 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
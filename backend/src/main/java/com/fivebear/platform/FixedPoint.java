@@ -0,0 +1,128 @@
+package com.fivebear.platform;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 定点数运算：金额、赔率统一用 long 表示，实际值 = long / 10^8，范围约 ±9.2 × 10^10。
+ * 加减为精确的 long 运算；乘法用 128 位中间结果，除法逐段长除，都在第 8 位小数按 HALF_UP 舍入
+ * （与 BigDecimal 的 HALF_UP 一致，按绝对值远离 0）。结果超出范围时抛 ArithmeticException。
+ * BigDecimal 只在对外接口和持久化处通过 of / toBigDecimal 转换。
+ */
+public final class FixedPoint {
+    /** 小数位数 */
+    public static final int DECIMALS = 8;
+    /** 1 的定点表示 */
+    public static final long ONE = 100_000_000L;
+    public static final long ZERO = 0L;
+
+    private static final long HALF_SCALE = 10_000L;
+    // 除数不超过该值时逐段长除不会溢出（HALF_SCALE × 除数 < Long.MAX_VALUE）
+    private static final long MAX_FAST_DIVISOR = Long.MAX_VALUE / HALF_SCALE;
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+
+    private FixedPoint() {
+    }
+
+    /** BigDecimal 转定点数，超过 8 位小数的部分 HALF_UP 舍入 */
+    public static long of(BigDecimal value) {
+        return value.setScale(DECIMALS, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /** double 转定点数，按 double 的十进制表示舍入（与 BigDecimal.valueOf(double) 一致到第 8 位） */
+    public static long of(double value) {
+        double scaled = value * ONE;
+        if (Math.abs(scaled) < 1e15) {
+            // 15 位有效数字以内，直接舍入即为最近的十进制值
+            return Math.round(scaled);
+        }
+        return of(BigDecimal.valueOf(value));
+    }
+
+    /** 整数转定点数 */
+    public static long ofInt(long value) {
+        return Math.multiplyExact(value, ONE);
+    }
+
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, DECIMALS);
+    }
+
+    public static double toDouble(long value) {
+        return (double) value / ONE;
+    }
+
+    /**
+     * 乘法：精确的 128 位乘积除以 10^8，HALF_UP 舍入
+     */
+    public static long mul(long a, long b) {
+        boolean negative = (a < 0) != (b < 0);
+        long x = Math.abs(a);
+        long y = Math.abs(b);
+        long hi = Math.multiplyHigh(x, y);
+        long lo = x * y;
+        long q;
+        long r;
+        if (hi == 0 && lo >= 0) {
+            q = lo / ONE;
+            r = lo % ONE;
+        } else {
+            // 无符号 128 位数按 32 位分段除以 10^8，每段余数 < 10^8，(余数 << 32 | 段) 不会溢出；
+            // 商的高 64 位必须为 0
+            long cur = hi >>> 32;
+            if (cur >= ONE) {
+                throw new ArithmeticException("定点数乘法溢出");
+            }
+            cur = (cur << 32) | (hi & LOW_MASK);
+            if (cur >= ONE) {
+                throw new ArithmeticException("定点数乘法溢出");
+            }
+            cur = (cur << 32) | (lo >>> 32);
+            long q1 = cur / ONE;
+            cur = ((cur % ONE) << 32) | (lo & LOW_MASK);
+            long q0 = cur / ONE;
+            r = cur % ONE;
+            if (q1 > Integer.MAX_VALUE) {
+                throw new ArithmeticException("定点数乘法溢出");
+            }
+            q = (q1 << 32) | q0;
+        }
+        if (r * 2 >= ONE) {
+            q = Math.incrementExact(q);
+        }
+        return negative ? -q : q;
+    }
+
+    /**
+     * 除法：结果保留 8 位小数，HALF_UP 舍入（与 BigDecimal.divide(b, 8, HALF_UP) 一致）
+     */
+    public static long div(long a, long b) {
+        if (b == 0) {
+            throw new ArithmeticException("定点数除数为0");
+        }
+        boolean negative = (a < 0) != (b < 0);
+        long x = Math.abs(a);
+        long y = Math.abs(b);
+        if (y > MAX_FAST_DIVISOR) {
+            return toBigDecimal(a).divide(toBigDecimal(b), DECIMALS, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+        }
+        // x × 10^8 / y 分两段各乘 10^4，余数始终小于 y
+        long q = x / y;
+        long r = x % y;
+        for (int i = 0; i < 2; i++) {
+            r *= HALF_SCALE;
+            q = Math.addExact(Math.multiplyExact(q, HALF_SCALE), r / y);
+            r %= y;
+        }
+        if (r >= y - r) {
+            q = Math.incrementExact(q);
+        }
+        return negative ? -q : q;
+    }
+
+    /** 乘以整数（精确） */
+    public static long mulInt(long a, long n) {
+        return Math.multiplyExact(a, n);
+    }
+}
@@ -0,0 +1,237 @@
+package com.fivebear.platform;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 补飞策略对比：只取一次赔率快照，在 ForkJoin 池上对所有玩法并行跑风控、赔率补偿、贪心补飞、比例补飞四种策略，
+ * 返回各策略的总飞货、最差盈亏、平均盈亏并排对比。
+ * 同一玩法的出货赔率列由 BetNumberGroupByType 按快照版本缓存，四种策略共用；比例补飞直接复用赔率补偿的结果。
+ * 最差盈亏和平均盈亏都按开奖结果算：用投注加上该策略的补飞方案建 DrawLiability（与 PnlSimulator.exposure 相同），
+ * 取 10000 个开奖结果中净盈亏的最小值和平均值；合计行对全部玩法一起建，不是各玩法相加。
+ */
+public class FlyStrategyEngine {
+
+    /**
+     * 补飞策略
+     */
+    public enum Strategy {
+        RISK_CONTROL("风控"),
+        ODDS_COMPENSATION("赔率补偿"),
+        GREEDY("贪心补飞"),
+        PROPORTIONAL("比例补飞");
+
+        private final String label;
+
+        Strategy(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * 某玩法（或全部玩法合计）在某策略下的汇总
+     */
+    public static class Summary {
+        private final Strategy strategy;
+        // 0 表示全部玩法合计
+        private final int dictNoTypeId;
+        private final int count;
+        private final long totalFlyMoney;
+        // 最差开奖结果的净盈亏
+        private final long worstWin;
+        // 各开奖结果等概率时的平均净盈亏
+        private final long expectedWin;
+        private final BetNumberNoTypeData detail;
+
+        Summary(Strategy strategy, int dictNoTypeId, int count, long totalFlyMoney, long worstWin, long expectedWin,
+                BetNumberNoTypeData detail) {
+            this.strategy = strategy;
+            this.dictNoTypeId = dictNoTypeId;
+            this.count = count;
+            this.totalFlyMoney = totalFlyMoney;
+            this.worstWin = worstWin;
+            this.expectedWin = expectedWin;
+            this.detail = detail;
+        }
+
+        // 单个玩法：只用该玩法的投注和补飞方案建负债表（liability 由调用方复用）
+        static Summary of(Strategy strategy, BetNumberGroupByType group, BetNumberNoTypeData data,
+                DrawLiability liability) {
+            liability.rebuild(Collections.singletonList(group), Collections.singletonList(data));
+            return new Summary(strategy, data.getDictNoTypeId(), data.getResultsList().size(),
+                    data.getTotalFlyMoneyFixed(), liability.getWorstNetFixed(), liability.getMeanNetFixed(), data);
+        }
+
+        // 全部玩法合计：全部投注加上各玩法该策略的补飞方案
+        static Summary total(Strategy strategy, List<BetNumberGroupByType> groups, List<Summary[]> byType) {
+            int count = 0;
+            long fly = 0;
+            List<BetNumberNoTypeData> plan = new ArrayList<>(byType.size());
+            for (Summary[] summaries : byType) {
+                Summary summary = summaries[strategy.ordinal()];
+                count += summary.count;
+                fly += summary.totalFlyMoney;
+                plan.add(summary.detail);
+            }
+            DrawLiability liability = new DrawLiability();
+            liability.rebuild(groups, plan);
+            return new Summary(strategy, 0, count, fly, liability.getWorstNetFixed(), liability.getMeanNetFixed(),
+                    null);
+        }
+
+        public Strategy getStrategy() { return strategy; }
+        public int getDictNoTypeId() { return dictNoTypeId; }
+        public int getCount() { return count; }
+        public BigDecimal getTotalFlyMoney() { return FixedPoint.toBigDecimal(totalFlyMoney); }
+        public BigDecimal getWorstWin() { return FixedPoint.toBigDecimal(worstWin); }
+        public BigDecimal getExpectedWin() { return FixedPoint.toBigDecimal(expectedWin); }
+        public long getTotalFlyMoneyFixed() { return totalFlyMoney; }
+        public long getWorstWinFixed() { return worstWin; }
+        public long getExpectedWinFixed() { return expectedWin; }
+        /** 逐号码明细，合计行为 null */
+        public BetNumberNoTypeData getDetail() { return detail; }
+    }
+
+    /**
+     * 一次对比的结果：各玩法、各策略的汇总及合计
+     */
+    public static class Comparison {
+        private final long snapshotVersion;
+        private final int multiple;
+        private final List<Summary[]> byType;
+        private final Summary[] totals;
+        private final long elapsedNanos;
+
+        Comparison(long snapshotVersion, int multiple, List<Summary[]> byType, Summary[] totals,
+                long elapsedNanos) {
+            this.snapshotVersion = snapshotVersion;
+            this.multiple = multiple;
+            this.byType = byType;
+            this.totals = totals;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** 所用赔率快照的版本，没有赔率时为 -1 */
+        public long getSnapshotVersion() { return snapshotVersion; }
+        public int getMultiple() { return multiple; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        /** 各玩法的汇总，数组按 Strategy.ordinal() 排列 */
+        public List<Summary[]> getByType() { return byType; }
+
+        public Summary getSummary(int dictNoTypeId, Strategy strategy) {
+            for (Summary[] summaries : byType) {
+                if (summaries[strategy.ordinal()].dictNoTypeId == dictNoTypeId) {
+                    return summaries[strategy.ordinal()];
+                }
+            }
+            return null;
+        }
+
+        public BetNumberNoTypeData getDetail(int dictNoTypeId, Strategy strategy) {
+            Summary summary = getSummary(dictNoTypeId, strategy);
+            return summary != null ? summary.detail : null;
+        }
+
+        /**
+         * 全部玩法合计。最差盈利是全部玩法一起算时最差开奖结果的净盈亏，平均盈利是 10000 个开奖结果的平均
+         */
+        public Summary getTotal(Strategy strategy) {
+            return totals[strategy.ordinal()];
+        }
+
+        /**
+         * 输出并排对比表
+         */
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%-8s%-10s%16s%16s%16s%n", "玩法", "策略", "总飞货", "最差盈利", "平均盈利"));
+            for (Summary[] summaries : byType) {
+                for (Summary summary : summaries) {
+                    appendRow(sb, String.valueOf(summary.dictNoTypeId), summary);
+                }
+            }
+            for (Summary summary : totals) {
+                appendRow(sb, "合计", summary);
+            }
+            sb.append(String.format("耗时: %.1f ms%n", elapsedNanos / 1e6));
+            return sb.toString();
+        }
+
+        private static void appendRow(StringBuilder sb, String type, Summary summary) {
+            sb.append(String.format("%-8s%-10s%16.1f%16.1f%16.1f%n", type, summary.strategy.label,
+                    FixedPoint.toDouble(summary.totalFlyMoney), FixedPoint.toDouble(summary.worstWin),
+                    FixedPoint.toDouble(summary.expectedWin)));
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    public FlyStrategyEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public FlyStrategyEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 对所有玩法并行跑四种策略
+     * @param manager 投注
+     * @param multiple 风控补飞的成数
+     * @param oddsManager 出货赔率来源，为 null 时按投注赔率出货
+     */
+    public Comparison compare(BetNumberManager manager, int multiple, OddsManager oddsManager) {
+        long start = System.nanoTime();
+        OddsSnapshot snapshot = oddsManager != null ? oddsManager.snapshot() : null;
+        List<BetNumberGroupByType> groups = new ArrayList<>(manager.getAllGroups());
+        Summary[][] summaries = new Summary[groups.size()][Strategy.values().length];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(groups.size() * 3);
+        for (int g = 0; g < groups.size(); g++) {
+            BetNumberGroupByType group = groups.get(g);
+            Summary[] row = summaries[g];
+            tasks.add(ForkJoinTask.adapt(() -> {
+                row[Strategy.RISK_CONTROL.ordinal()] = Summary.of(Strategy.RISK_CONTROL, group,
+                        group.riskControlAnalysis(multiple, snapshot), new DrawLiability());
+            }));
+            tasks.add(ForkJoinTask.adapt(() -> {
+                row[Strategy.GREEDY.ordinal()] = Summary.of(Strategy.GREEDY, group,
+                        group.greedyFlyMoneyOptimize(snapshot), new DrawLiability());
+            }));
+            // 比例补飞在赔率补偿结果上调整，放在同一个任务里
+            tasks.add(ForkJoinTask.adapt(() -> {
+                DrawLiability liability = new DrawLiability();
+                BetNumberNoTypeData compensation = group.oddsCompensationAnalysis(snapshot);
+                row[Strategy.ODDS_COMPENSATION.ordinal()] =
+                        Summary.of(Strategy.ODDS_COMPENSATION, group, compensation, liability);
+                row[Strategy.PROPORTIONAL.ordinal()] = Summary.of(Strategy.PROPORTIONAL, group,
+                        group.proportionalFlyMoneyOptimize(compensation), liability);
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        List<Summary[]> byType = new ArrayList<>(groups.size());
+        for (Summary[] row : summaries) {
+            byType.add(row);
+        }
+        byType.sort((a, b) -> Integer.compare(a[0].dictNoTypeId, b[0].dictNoTypeId));
+        // 合计行各策略一个任务，全部玩法一起建负债表
+        Summary[] totals = new Summary[Strategy.values().length];
+        List<ForkJoinTask<?>> totalTasks = new ArrayList<>(totals.length);
+        for (Strategy strategy : Strategy.values()) {
+            totalTasks.add(ForkJoinTask.adapt(() -> {
+                totals[strategy.ordinal()] = Summary.total(strategy, groups, byType);
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(totalTasks)));
+        return new Comparison(snapshot != null ? snapshot.getVersion() : -1, multiple, byType, totals,
+                System.nanoTime() - start);
+    }
+}
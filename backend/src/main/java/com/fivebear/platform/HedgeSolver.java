@@ -0,0 +1,398 @@
+package com.fivebear.platform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 补飞方案求解：在全部 10000 个开奖结果的最大亏损不超过上限的前提下，为各 (号码, domain) 选择飞货金额，
+ * 使飞货总额最小或期望盈利最大。一个开奖结果同时结算所有匹配的二定、三定、四定号码，
+ * 所以每一步都针对当前最差的开奖结果，在覆盖它的 11 个号码 × 各 domain 中选性价比最高的一个加飞货：
+ * 性价比 = 这笔飞货消除的各开奖结果缺口之和 / 成本，二定号码能同时补 100 个开奖结果。
+ * 每个 (号码, domain) 受该站点 MemberSettingInfo 的 oneItemLimit 和信用余额限制，下单时按 oneBetLimit 拆单；
+ * 两个限额 ≤ 0 都表示不限。exposure 里已经下过的飞货要用 SiteLimit.addPlaced 登记，才会从 oneItemLimit 中扣除。
+ * 有时间预算：到时返回目前为止最差开奖结果最好的那个方案前缀，临近封盘时也能用。
+ */
+public class HedgeSolver {
+
+    /**
+     * 优化目标
+     */
+    public enum Objective {
+        /** 飞货总额最小 */
+        MIN_COST,
+        /** 期望盈利最大（按开奖结果均匀分布计算每笔飞货的期望损耗：飞货金额 × (1 - 赔率 × 命中概率)） */
+        MAX_EXPECTED_PROFIT
+    }
+
+    /**
+     * 某站点（domain）的下注限额
+     */
+    public static class SiteLimit {
+        private final String domain;
+        private final double creditBalance;
+        private final Map<Integer, MemberSettingInfo> settingsByType = new HashMap<>();
+        // 号码 -> 该站点上已经下过的飞货金额，占用 oneItemLimit
+        private final Map<String, Double> placedByNumber = new HashMap<>();
+        private MemberSettingInfo defaultSetting;
+
+        public SiteLimit(String domain, double creditBalance, List<MemberSettingInfo> settings) {
+            this.domain = domain;
+            this.creditBalance = creditBalance;
+            if (settings != null) {
+                for (MemberSettingInfo setting : settings) {
+                    settingsByType.putIfAbsent(setting.getDictNoTypeId(), setting);
+                    if (defaultSetting == null) {
+                        defaultSetting = setting;
+                    }
+                }
+            }
+        }
+
+        /** 由会员站点当前的账户信息生成 */
+        public static SiteLimit of(MemberSite site) {
+            MemberInfo info = site.getMemberInfo();
+            return new SiteLimit(site.getDomain(), info.getCreditBalance(), info.getMemberSettingInfos());
+        }
+
+        /** 空闲的下注用会员站点 */
+        public static List<SiteLimit> fromSites(Collection<? extends Site> sites) {
+            List<SiteLimit> limits = new ArrayList<>();
+            for (Site site : sites) {
+                if (site instanceof MemberSite && site.getSiteStatus() == SiteStatus.IDLE
+                        && ((MemberSite) site).getPurpose() == MemberPurpose.BETTING) {
+                    limits.add(of((MemberSite) site));
+                }
+            }
+            return limits;
+        }
+
+        public String getDomain() {
+            return domain;
+        }
+
+        /**
+         * 登记该站点上某号码已经下过的飞货（已计入 exposure），求解时从该号码的 oneItemLimit 中扣除
+         */
+        public SiteLimit addPlaced(String number, double amount) {
+            placedByNumber.merge(number, amount, Double::sum);
+            return this;
+        }
+
+        // 该玩法的设置，没有对应玩法时用第一条
+        MemberSettingInfo setting(int dictNoTypeId) {
+            MemberSettingInfo setting = settingsByType.get(dictNoTypeId);
+            return setting != null ? setting : defaultSetting;
+        }
+    }
+
+    /**
+     * 一笔下单：单笔金额不超过 oneBetLimit
+     */
+    public static class Order {
+        private final String number;
+        private final int dictNoTypeId;
+        private final String domain;
+        private final double amount;
+        private final double odds;
+
+        Order(String number, int dictNoTypeId, String domain, double amount, double odds) {
+            this.number = number;
+            this.dictNoTypeId = dictNoTypeId;
+            this.domain = domain;
+            this.amount = amount;
+            this.odds = odds;
+        }
+
+        public String getNumber() { return number; }
+        public int getDictNoTypeId() { return dictNoTypeId; }
+        public String getDomain() { return domain; }
+        public double getAmount() { return amount; }
+        public double getOdds() { return odds; }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%s %.1f x %.2f", number, domain, amount, odds);
+        }
+    }
+
+    /**
+     * 求解结果
+     */
+    public static class Plan {
+        private final List<Order> orders;
+        private final double totalCost;
+        private final double worstNet;
+        private final String worstDraw;
+        private final double expectedNet;
+        private final boolean feasible;
+        private final boolean timedOut;
+        private final int iterations;
+        private final long elapsedNanos;
+
+        Plan(List<Order> orders, double totalCost, double worstNet, String worstDraw, double expectedNet,
+                boolean feasible, boolean timedOut, int iterations, long elapsedNanos) {
+            this.orders = orders;
+            this.totalCost = totalCost;
+            this.worstNet = worstNet;
+            this.worstDraw = worstDraw;
+            this.expectedNet = expectedNet;
+            this.feasible = feasible;
+            this.timedOut = timedOut;
+            this.iterations = iterations;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<Order> getOrders() { return orders; }
+        /** 飞货总额 */
+        public double getTotalCost() { return totalCost; }
+        /** 执行方案后最差开奖结果的净盈亏 */
+        public double getWorstNet() { return worstNet; }
+        public String getWorstDraw() { return worstDraw; }
+        /** 执行方案后各开奖结果净盈亏的平均值 */
+        public double getExpectedNet() { return expectedNet; }
+        /** 是否满足最大亏损上限 */
+        public boolean isFeasible() { return feasible; }
+        /** 是否因时间预算用完而提前返回 */
+        public boolean isTimedOut() { return timedOut; }
+        public int getIterations() { return iterations; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("下单 %d 笔, 飞货 %.1f, 最差 %s 净盈亏 %.1f, 平均 %.1f, %s%s, 迭代 %d, 耗时 %.1f ms",
+                    orders.size(), totalCost, worstDraw, worstNet, expectedNet, feasible ? "满足上限" : "未满足上限",
+                    timedOut ? "（超时）" : "", iterations, elapsedNanos / 1e6);
+        }
+    }
+
+    private static final int DRAWS = DrawLiability.DRAW_COUNT;
+    // 每步多补的余量占初始缺口的比例。只补到正好等于上限时，后续飞货会把它重新压到上限以下，
+    // 大量开奖结果在上限附近来回，迭代次数成倍增加
+    private static final double SLACK_RATE = 0.005;
+    // 期望损耗率的下限，赔率高到期望不亏时避免除以 0 或负数
+    private static final double MIN_LOSS_RATE = 1e-6;
+
+    /**
+     * 求解补飞方案
+     * @param exposure 当前各开奖结果的净盈亏（已含投注和已下的飞货，已下的飞货同时要在 sites 中 addPlaced）
+     * @param snapshot 出货赔率
+     * @param sites 各站点限额，只在这些 domain 上下单
+     * @param maxLoss 允许的最大亏损（正数），即要求每个开奖结果净盈亏 ≥ -maxLoss
+     * @param objective 优化目标
+     * @param budgetMillis 时间预算
+     */
+    public Plan solve(DrawLiability exposure, OddsSnapshot snapshot, List<SiteLimit> sites, double maxLoss,
+            Objective objective, long budgetMillis) {
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000L;
+        double floor = -maxLoss;
+
+        // 各开奖结果净盈亏 = level - stake：level 为原净盈亏加上命中的飞货奖金，stake 为飞货总额
+        long[] fixed = exposure.getDistributionFixed();
+        double[] base = new double[DRAWS];
+        for (int d = 0; d < DRAWS; d++) {
+            base[d] = FixedPoint.toDouble(fixed[d]);
+        }
+        MinTree level = new MinTree(base);
+        double slack = Math.max(0, floor - level.get(level.argMin())) * SLACK_RATE;
+        double stake = 0;
+
+        // 站点下标 -> snapshot 中的 domainId
+        int sitesCount = sites.size();
+        int[] domainIds = new int[sitesCount];
+        for (int j = 0; j < sitesCount; j++) {
+            domainIds[j] = snapshot.getDomainId(sites.get(j).getDomain());
+        }
+        double[] siteUsed = new double[sitesCount];
+        // 槽位 × 站点 -> 已分配金额
+        double[] allocated = new double[NumberIndex.SLOT_COUNT * sitesCount];
+        // 已下的飞货也占单项限额
+        double[] placed = new double[NumberIndex.SLOT_COUNT * sitesCount];
+        for (int j = 0; j < sitesCount; j++) {
+            for (Map.Entry<String, Double> entry : sites.get(j).placedByNumber.entrySet()) {
+                int slot = NumberIndex.slotOf(entry.getKey());
+                if (slot >= 0) {
+                    placed[slot * sitesCount + j] += entry.getValue();
+                }
+            }
+        }
+        // 逐步记录，超时或结束时取最差开奖结果最好的前缀
+        List<int[]> stepKeys = new ArrayList<>();
+        List<Double> stepAmounts = new ArrayList<>();
+        double bestWorst = Double.NEGATIVE_INFINITY;
+        int bestSteps = 0;
+        boolean timedOut = false;
+        int iterations = 0;
+
+        while (true) {
+            int worst = level.argMin();
+            double worstNet = level.get(worst) - stake;
+            if (worstNet > bestWorst) {
+                bestWorst = worstNet;
+                bestSteps = stepKeys.size();
+            }
+            if (worstNet >= floor) {
+                break;
+            }
+            if (System.nanoTime() > deadline) {
+                timedOut = true;
+                break;
+            }
+            iterations++;
+            double deficit = floor - worstNet;
+            // 在覆盖最差开奖结果的号码 × 站点中找性价比最高的一笔：单位金额消除的缺口，
+            // 期望盈利优先时再按期望损耗率加权，偏向赔率高、期望损耗小的号码
+            int bestSlot = -1;
+            int bestSite = -1;
+            double bestAmount = 0;
+            double bestScore = 0;
+            for (int slot : DrawLiability.slotsOf(worst)) {
+                int dictNoTypeId = NumberIndex.dictNoTypeIdAt(slot);
+                int[] draws = DrawLiability.drawsOf(slot);
+                for (int j = 0; j < sitesCount; j++) {
+                    if (domainIds[j] < 0) {
+                        continue;
+                    }
+                    double odds = snapshot.odds(domainIds[j], slot);
+                    MemberSettingInfo setting = sites.get(j).setting(dictNoTypeId);
+                    if (Double.isNaN(odds) || odds <= 1 || setting == null) {
+                        continue;
+                    }
+                    // oneItemLimit ≤ 0 与 oneBetLimit 一样表示不限
+                    int key = slot * sitesCount + j;
+                    double itemLeft = setting.getOneItemLimit() > 0
+                            ? setting.getOneItemLimit() - placed[key] - allocated[key]
+                            : Double.POSITIVE_INFINITY;
+                    double capacity = Math.min(itemLeft, sites.get(j).creditBalance - siteUsed[j]);
+                    double minBet = Math.max(setting.getMinBet(), 0.01);
+                    // 补上最差开奖结果缺口（加余量）的金额，向上取 minBet 的整数倍，不超过剩余额度
+                    double amount = Math.ceil((deficit + slack) / (odds - 1) / minBet) * minBet;
+                    amount = Math.min(amount, Math.floor(capacity / minBet) * minBet);
+                    if (amount < minBet) {
+                        continue;
+                    }
+                    double raise = amount * (odds - 1);
+                    double benefit = 0;
+                    for (int d : draws) {
+                        double gap = floor - (level.get(d) - stake);
+                        if (gap > 0) {
+                            benefit += Math.min(gap, raise);
+                        }
+                    }
+                    double cost = amount;
+                    if (objective == Objective.MAX_EXPECTED_PROFIT) {
+                        // 期望损耗率 = 1 - 赔率 × 命中概率；不亏的飞货（≤ 0）按极小的正损耗计，排在最前
+                        cost = amount * Math.max(1 - odds * draws.length / DRAWS, MIN_LOSS_RATE);
+                    }
+                    double score = benefit / cost;
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestSlot = slot;
+                        bestSite = j;
+                        bestAmount = amount;
+                    }
+                }
+            }
+            if (bestSlot < 0) {
+                // 最差开奖结果已经没有可用额度
+                break;
+            }
+            allocated[bestSlot * sitesCount + bestSite] += bestAmount;
+            siteUsed[bestSite] += bestAmount;
+            stake += bestAmount;
+            level.add(DrawLiability.drawsOf(bestSlot), bestAmount * snapshot.odds(domainIds[bestSite], bestSlot));
+            stepKeys.add(new int[] { bestSlot, bestSite });
+            stepAmounts.add(bestAmount);
+        }
+
+        // 取最好的前缀，合并同一 (号码, 站点) 的金额后按 oneBetLimit 拆单
+        Map<Long, double[]> chosen = new LinkedHashMap<>();
+        MinTree result = new MinTree(base);
+        double cost = 0;
+        for (int i = 0; i < bestSteps; i++) {
+            int slot = stepKeys.get(i)[0];
+            int site = stepKeys.get(i)[1];
+            double amount = stepAmounts.get(i);
+            chosen.computeIfAbsent((long) slot << 32 | site, k -> new double[1])[0] += amount;
+            cost += amount;
+            result.add(DrawLiability.drawsOf(slot), amount * snapshot.odds(domainIds[site], slot));
+        }
+        List<Order> orders = new ArrayList<>();
+        for (Map.Entry<Long, double[]> entry : chosen.entrySet()) {
+            int slot = (int) (entry.getKey() >>> 32);
+            int site = (int) (entry.getKey() & 0xFFFFFFFFL);
+            int dictNoTypeId = NumberIndex.dictNoTypeIdAt(slot);
+            MemberSettingInfo setting = sites.get(site).setting(dictNoTypeId);
+            double odds = snapshot.odds(domainIds[site], slot);
+            double remaining = entry.getValue()[0];
+            double oneBetLimit = setting.getOneBetLimit() > 0 ? setting.getOneBetLimit() : remaining;
+            while (remaining > 1e-6) {
+                double amount = Math.min(remaining, oneBetLimit);
+                orders.add(new Order(NumberIndex.numberAt(slot), dictNoTypeId, sites.get(site).getDomain(), amount, odds));
+                remaining -= amount;
+            }
+        }
+        int worst = result.argMin();
+        double worstNet = result.get(worst) - cost;
+        return new Plan(orders, cost, worstNet, DrawLiability.drawNumber(worst), result.sum() / DRAWS - cost,
+                worstNet >= floor, timedOut, iterations, System.nanoTime() - start);
+    }
+
+    // 各开奖结果数值的最小值线段树，与 DrawLiability 相同的结构，只是用 double
+    private static class MinTree {
+        private static final int LEAVES = Integer.highestOneBit(DRAWS - 1) << 1;
+        private final double[] tree = new double[2 * LEAVES];
+        private final int[] minDraw = new int[2 * LEAVES];
+
+        MinTree(double[] values) {
+            Arrays.fill(tree, LEAVES + DRAWS, 2 * LEAVES, Double.POSITIVE_INFINITY);
+            System.arraycopy(values, 0, tree, LEAVES, DRAWS);
+            for (int draw = 0; draw < LEAVES; draw++) {
+                minDraw[LEAVES + draw] = draw;
+            }
+            for (int node = LEAVES - 1; node > 0; node--) {
+                pull(node);
+            }
+        }
+
+        double get(int draw) {
+            return tree[LEAVES + draw];
+        }
+
+        int argMin() {
+            return minDraw[1];
+        }
+
+        // 给一组开奖结果各加 delta
+        void add(int[] draws, double delta) {
+            for (int draw : draws) {
+                int node = LEAVES + draw;
+                tree[node] += delta;
+                for (node >>>= 1; node > 0; node >>>= 1) {
+                    pull(node);
+                }
+            }
+        }
+
+        double sum() {
+            double total = 0;
+            for (int draw = 0; draw < DRAWS; draw++) {
+                total += tree[LEAVES + draw];
+            }
+            return total;
+        }
+
+        private void pull(int node) {
+            int left = node << 1;
+            int right = left | 1;
+            int child = tree[right] < tree[left] ? right : left;
+            tree[node] = tree[child];
+            minDraw[node] = minDraw[child];
+        }
+    }
+}
@@ -59,6 +59,7 @@ public class Main {
         }
         System.err.println("生成投注方案");
         PlatformManager platformManager = new PlatformManager();
+        platformManager.start();
         platformManager.addSiteCallbackListener(new SiteCallback() {
             @Override
             public void onMessage(Site site, String message, MessageType messageType) {
@@ -360,8 +361,8 @@ public class Main {
         int smallBetCount = (int) bets.stream().filter(b -> b.getBetMoney() < 1).count();
         System.out.println("金额小于1的个数: " + smallBetCount);
 
-        // 构建测试的包牌等级列表
-        List<PackageInfo> packageLevels = new ArrayList<>();
+        // 构建测试的包牌等级，档位由 PackageInfoManager 维护
+        PackageInfoManager packageInfoManager = new PackageInfoManager();
 
         PackageInfo pkg1000 = new PackageInfo();
         pkg1000.setDictTypeId(11);
@@ -370,7 +371,7 @@ public class Main {
         pkg1000.setPackageCount(1000);
         pkg1000.setOddsBatchMin(9910.0);
         pkg1000.setOddsSetting(9810.0);
-        packageLevels.add(pkg1000);
+        packageInfoManager.addPackage(pkg1000);
 
         PackageInfo pkg2000 = new PackageInfo();
         pkg2000.setDictTypeId(11);
@@ -379,7 +380,7 @@ public class Main {
         pkg2000.setPackageCount(2000);
         pkg2000.setOddsBatchMin(9920.0);
         pkg2000.setOddsSetting(9820.0);
-        packageLevels.add(pkg2000);
+        packageInfoManager.addPackage(pkg2000);
 
         PackageInfo pkg3000 = new PackageInfo();
         pkg3000.setDictTypeId(11);
@@ -388,7 +389,7 @@ public class Main {
         pkg3000.setPackageCount(3000);
         pkg3000.setOddsBatchMin(9930.0);
         pkg3000.setOddsSetting(9830.0);
-        packageLevels.add(pkg3000);
+        packageInfoManager.addPackage(pkg3000);
 
         PackageInfo pkg3500 = new PackageInfo();
         pkg3500.setDictTypeId(11);
@@ -397,7 +398,7 @@ public class Main {
         pkg3500.setPackageCount(3500);
         pkg3500.setOddsBatchMin(9935.0);
         pkg3500.setOddsSetting(9840.0);
-        packageLevels.add(pkg3500);
+        packageInfoManager.addPackage(pkg3500);
 
         PackageInfo pkg4000 = new PackageInfo();
         pkg4000.setDictTypeId(11);
@@ -406,7 +407,7 @@ public class Main {
         pkg4000.setPackageCount(4000);
         pkg4000.setOddsBatchMin(9940.0);
         pkg4000.setOddsSetting(9850.0);
-        packageLevels.add(pkg4000);
+        packageInfoManager.addPackage(pkg4000);
 
         PackageInfo pkg4500 = new PackageInfo();
         pkg4500.setDictTypeId(11);
@@ -415,7 +416,7 @@ public class Main {
         pkg4500.setPackageCount(4500);
         pkg4500.setOddsBatchMin(9945.0);
         pkg4500.setOddsSetting(9860.0);
-        packageLevels.add(pkg4500);
+        packageInfoManager.addPackage(pkg4500);
 
         PackageInfo pkg5000 = new PackageInfo();
         pkg5000.setDictTypeId(11);
@@ -424,7 +425,7 @@ public class Main {
         pkg5000.setPackageCount(5000);
         pkg5000.setOddsBatchMin(9950.0);
         pkg5000.setOddsSetting(9870.0);
-        packageLevels.add(pkg5000);
+        packageInfoManager.addPackage(pkg5000);
 
         PackageInfo pkg6000 = new PackageInfo();
         pkg6000.setDictTypeId(11);
@@ -433,7 +434,7 @@ public class Main {
         pkg6000.setPackageCount(6000);
         pkg6000.setOddsBatchMin(9960.0);
         pkg6000.setOddsSetting(9880.0);
-        packageLevels.add(pkg6000);
+        packageInfoManager.addPackage(pkg6000);
 
         PackageInfo pkg7000 = new PackageInfo();
         pkg7000.setDictTypeId(11);
@@ -442,7 +443,7 @@ public class Main {
         pkg7000.setPackageCount(7000);
         pkg7000.setOddsBatchMin(9970.0);
         pkg7000.setOddsSetting(9890.0);
-        packageLevels.add(pkg7000);
+        packageInfoManager.addPackage(pkg7000);
 
         PackageInfo pkg8000 = new PackageInfo();
         pkg8000.setDictTypeId(11);
@@ -451,12 +452,12 @@ public class Main {
         pkg8000.setPackageCount(8000);
         pkg8000.setOddsBatchMin(9980.0);
         pkg8000.setOddsSetting(9900.0);
-        packageLevels.add(pkg8000);
+        packageInfoManager.addPackage(pkg8000);
 
         double maxSingleBetAmount = 50.0; // 例如单注最高50元
         boolean allowSmallBet = false;
         PackageAnalyzer.PackageGroupResult results = PackageAnalyzer.splitToPackageGroups(
-                bets, packageLevels, allowSmallBet, maxSingleBetAmount);
+                bets, packageInfoManager, 11, allowSmallBet, maxSingleBetAmount);
 
         BetSettlementManager betSettlementManager = new BetSettlementManager();
 
@@ -527,6 +528,7 @@ public class Main {
 
     private static void testPlatformManager() {
         PlatformManager platformManager = new PlatformManager();
+        platformManager.start();
         platformManager.addSiteCallbackListener(new SiteCallback() {
             @Override
             public void onMessage(Site site, String message, MessageType messageType) {
@@ -787,6 +789,7 @@ public class Main {
     static void testManager() {
         // 获取 SiteMessageManager 单例
         PlatformManager platformManager = new PlatformManager();
+        platformManager.start();
         SiteManager manager = new SiteManager(platformManager);
 
         // 用List<Site>保存所有member
@@ -888,15 +891,49 @@ public class Main {
 
         // 按玩法分组统计输出
         int multiple = 5; // 例如五成
+        // 四种策略在所有玩法上一次并行算完
+        FlyStrategyEngine.Comparison comparison = new FlyStrategyEngine().compare(manager, multiple, oddsManager);
+        System.out.println("\n策略对比:");
+        System.out.print(comparison.format());
+        // 按开奖结果汇总全部玩法的负债
+        DrawLiability liability = new DrawLiability();
+        liability.rebuild(manager);
+        System.out.printf("最差开奖结果: %s 净盈亏 %.1f，亏损开奖结果数: %d，最危险的 5 个: %s%n",
+                liability.getWorstDraw(), FixedPoint.toDouble(liability.getWorstNetFixed()),
+                liability.getLosingDrawCount(), liability.topDangerousDraws(5));
+        // 各策略作为补飞方案时的本期盈亏模拟（100 万次均匀开奖）
+        PnlSimulator simulator = new PnlSimulator();
+        for (FlyStrategyEngine.Strategy strategy : FlyStrategyEngine.Strategy.values()) {
+            System.out.println(strategy.getLabel() + " 模拟: "
+                    + simulator.simulate(manager, comparison, strategy, null, 1_000_000, 20240601L));
+        }
+        // 补飞求解：最大亏损不超过当前最差亏损的一半，各站点单项限额 3000、单注限额 500
+        List<HedgeSolver.SiteLimit> siteLimits = new ArrayList<>();
+        for (String domain : domains) {
+            List<MemberSettingInfo> settings = new ArrayList<>();
+            for (int typeId = 1; typeId <= NumberIndex.TYPE_COUNT; typeId++) {
+                MemberSettingInfo setting = new MemberSettingInfo();
+                setting.setDictNoTypeId(typeId);
+                setting.setMinBet(1);
+                setting.setOneBetLimit(500);
+                setting.setOneItemLimit(3000);
+                settings.add(setting);
+            }
+            siteLimits.add(new HedgeSolver.SiteLimit(domain, 1_000_000, settings));
+        }
+        double maxLoss = -FixedPoint.toDouble(liability.getWorstNetFixed()) / 2;
+        System.out.println("补飞求解: " + new HedgeSolver().solve(liability, oddsManager.snapshot(), siteLimits,
+                maxLoss, HedgeSolver.Objective.MIN_COST, 500));
         System.out.println("\n按玩法分组统计:");
         for (BetNumberGroupByType group : manager.getAllGroups()) {
             if (group.getDictNoTypeId() != 11) {
                 continue;
             }
-            BetNumberNoTypeData noTypeData = group.riskControlAnalysis(multiple, oddsManager);
-            BetNumberNoTypeData noTypeData2 = group.oddsCompensationAnalysis(oddsManager);
-            BetNumberNoTypeData noTypeData3 = group.greedyFlyMoneyOptimize(oddsManager);
-            BetNumberNoTypeData noTypeData4 = group.proportionalFlyMoneyOptimize(oddsManager);
+            int typeId = group.getDictNoTypeId();
+            BetNumberNoTypeData noTypeData = comparison.getDetail(typeId, FlyStrategyEngine.Strategy.RISK_CONTROL);
+            BetNumberNoTypeData noTypeData2 = comparison.getDetail(typeId, FlyStrategyEngine.Strategy.ODDS_COMPENSATION);
+            BetNumberNoTypeData noTypeData3 = comparison.getDetail(typeId, FlyStrategyEngine.Strategy.GREEDY);
+            BetNumberNoTypeData noTypeData4 = comparison.getDetail(typeId, FlyStrategyEngine.Strategy.PROPORTIONAL);
             String fileName = "noTypeData/compare_dictNoTypeId_" + group.getDictNoTypeId() + ".txt";
             try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
                     new FileOutputStream(fileName), StandardCharsets.UTF_8))) {
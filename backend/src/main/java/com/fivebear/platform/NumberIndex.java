@@ -0,0 +1,128 @@
+package com.fivebear.platform;
+
+import java.util.List;
+
+/**
+ * 号码稠密索引：把 11 个模板下的全部号码（6×100 + 4×1000 + 10000 = 14600 个）
+ * 映射为连续的整数槽位（slot）。
+ * 槽位按 dictNoTypeId 升序排列，同一玩法内的顺序与 NumberTemplateGenerator 生成顺序一致，
+ * 号码与槽位之间的换算不需要分配任何对象。
+ */
+public final class NumberIndex {
+    /** 玩法数量（dictNoTypeId 1~11） */
+    public static final int TYPE_COUNT = 11;
+    /** 号码总数 */
+    public static final int SLOT_COUNT;
+
+    // TYPE_OFFSET[t] 为玩法 t 的第一个槽位，TYPE_OFFSET[12] 为槽位总数
+    private static final int[] TYPE_OFFSET = new int[TYPE_COUNT + 2];
+    // X 位置掩码 -> 玩法ID，最左一位对应 bit3
+    private static final int[] MASK_TO_TYPE = new int[16];
+    private static final String[] NUMBERS;
+    private static final byte[] SLOT_TYPE;
+
+    static {
+        java.util.Arrays.fill(MASK_TO_TYPE, -1);
+        int offset = 0;
+        for (int type = 1; type <= TYPE_COUNT; type++) {
+            String template = NumberTemplateGenerator.getDictNoTypeName(type);
+            int mask = 0;
+            int digits = 0;
+            for (int i = 0; i < template.length(); i++) {
+                if (template.charAt(i) == 'X') {
+                    mask |= 1 << (3 - i);
+                } else {
+                    digits++;
+                }
+            }
+            MASK_TO_TYPE[mask] = type;
+            TYPE_OFFSET[type] = offset;
+            offset += (int) Math.pow(10, digits);
+        }
+        TYPE_OFFSET[TYPE_COUNT + 1] = offset;
+        SLOT_COUNT = offset;
+
+        NUMBERS = new String[SLOT_COUNT];
+        SLOT_TYPE = new byte[SLOT_COUNT];
+        for (int type = 1; type <= TYPE_COUNT; type++) {
+            List<String> numbers = NumberTemplateGenerator.getNumbersByDictNoTypeId(type);
+            int first = TYPE_OFFSET[type];
+            for (int i = 0; i < numbers.size(); i++) {
+                NUMBERS[first + i] = numbers.get(i);
+                SLOT_TYPE[first + i] = (byte) type;
+            }
+        }
+    }
+
+    private NumberIndex() {
+    }
+
+    /**
+     * 号码 -> 槽位
+     *
+     * @param number 号码（如 "12XX"、"1234"）
+     * @return 槽位，号码非法返回 -1
+     */
+    public static int slotOf(String number) {
+        return number == null ? -1 : slotOf(number, 0, number.length());
+    }
+
+    /**
+     * text[from, to) 中的号码 -> 槽位，供批量解析时不必先截出子串
+     */
+    static int slotOf(CharSequence text, int from, int to) {
+        if (to - from != 4) {
+            return -1;
+        }
+        int mask = 0;
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            char c = text.charAt(from + i);
+            if (c == 'X') {
+                mask |= 1 << (3 - i);
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else {
+                return -1;
+            }
+        }
+        int type = MASK_TO_TYPE[mask];
+        return type < 0 ? -1 : TYPE_OFFSET[type] + value;
+    }
+
+    /**
+     * 号码+玩法 -> 槽位，号码与玩法不匹配时返回 -1
+     */
+    public static int slotOf(String number, int dictNoTypeId) {
+        int slot = slotOf(number);
+        return slot >= 0 && SLOT_TYPE[slot] == dictNoTypeId ? slot : -1;
+    }
+
+    /** 槽位 -> 号码 */
+    public static String numberAt(int slot) {
+        return NUMBERS[slot];
+    }
+
+    /** 槽位 -> 玩法ID */
+    public static int dictNoTypeIdAt(int slot) {
+        return SLOT_TYPE[slot];
+    }
+
+    /** 玩法的第一个槽位 */
+    public static int firstSlot(int dictNoTypeId) {
+        checkType(dictNoTypeId);
+        return TYPE_OFFSET[dictNoTypeId];
+    }
+
+    /** 玩法的槽位数量（100 / 1000 / 10000） */
+    public static int slotCount(int dictNoTypeId) {
+        checkType(dictNoTypeId);
+        return TYPE_OFFSET[dictNoTypeId + 1] - TYPE_OFFSET[dictNoTypeId];
+    }
+
+    private static void checkType(int dictNoTypeId) {
+        if (dictNoTypeId < 1 || dictNoTypeId > TYPE_COUNT) {
+            throw new IllegalArgumentException("dictNoTypeId超出范围");
+        }
+    }
+}
@@ -10,19 +10,71 @@ public class NumberOddsGroup {
     public static class OddsInfo {
         private String domain;
         private double odds;
+        // 更新时间（epoch millis），updateDatetime 只在需要展示时格式化
+        private long updateMillis;
         private String updateDatetime;
+        // 只读：OddsSnapshot 跨版本共享的缓存视图中的元素，调用方不能修改
+        private boolean frozen;
 
         public OddsInfo(String domain, double odds, String updateDatetime) {
             this.domain = domain;
             this.odds = odds;
             this.updateDatetime = updateDatetime;
+            this.updateMillis = OddsManager.parseDatetime(updateDatetime);
+        }
+
+        public OddsInfo(String domain, double odds, long updateMillis) {
+            this.domain = domain;
+            this.odds = odds;
+            this.updateMillis = updateMillis;
         }
         public String getDomain() { return domain; }
         public double getOdds() { return odds; }
-        public String getUpdateDatetime() { return updateDatetime; }
-        public void setDomain(String domain) { this.domain = domain; }
-        public void setOdds(double odds) { this.odds = odds; }
-        public void setUpdateDatetime(String updateDatetime) { this.updateDatetime = updateDatetime; }
+        public long getUpdateMillis() { return updateMillis; }
+        public String getUpdateDatetime() {
+            // 只读元素也会在这里缓存格式化结果，多个线程同时格式化得到的是相同的字符串
+            if (updateDatetime == null) {
+                updateDatetime = OddsSnapshot.formatDatetime(updateMillis);
+            }
+            return updateDatetime;
+        }
+        public void setDomain(String domain) {
+            checkMutable();
+            this.domain = domain;
+        }
+        public void setOdds(double odds) {
+            checkMutable();
+            this.odds = odds;
+        }
+        public void setUpdateMillis(long updateMillis) {
+            checkMutable();
+            this.updateMillis = updateMillis;
+            this.updateDatetime = null;
+        }
+        public void setUpdateDatetime(String updateDatetime) {
+            checkMutable();
+            this.updateDatetime = updateDatetime;
+            this.updateMillis = OddsManager.parseDatetime(updateDatetime);
+        }
+
+        // 设为只读，之后调用 setter 抛出 UnsupportedOperationException；copy() 得到的副本可以修改
+        OddsInfo freeze() {
+            frozen = true;
+            return this;
+        }
+
+        private void checkMutable() {
+            if (frozen) {
+                throw new UnsupportedOperationException("赔率视图只读，请先 copy() 再修改");
+            }
+        }
+
+        // 复制全部字段（副本可以修改）
+        public OddsInfo copy() {
+            OddsInfo info = new OddsInfo(domain, odds, updateMillis);
+            info.updateDatetime = updateDatetime;
+            return info;
+        }
     }
 
     public NumberOddsGroup(String number, int dictNoTypeId) {
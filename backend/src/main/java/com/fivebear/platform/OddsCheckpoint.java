@@ -0,0 +1,406 @@
+package com.fivebear.platform;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * 赔率检查点：把当前期的号码赔率、返点率和包牌定期写入一个紧凑的二进制文件，
+ * 两次检查点之间的增量追加到日志文件。重启后先加载检查点和日志，等站点报告期号后，
+ * 期号一致则直接恢复到 OddsManager / PackageInfoManager，不需要等待远程全量同步。
+ * 日志记录总是在数据写入管理器之后追加，写检查点与追加日志互斥，保证增量不会丢失。
+ * 检查点和日志都保存每行赔率的更新时间，恢复时原样写回，是否过期仍由最大时效判断，
+ * 停机期间已超时的赔率恢复后在下一个 tick 移除。
+ * 文件整体读写到堆内存，不保留内存映射：Windows 上被映射的文件不能被 rename 覆盖。
+ */
+public class OddsCheckpoint {
+    private static final Logger logger = Logger.getLogger(OddsCheckpoint.class.getName());
+
+    private static final int MAGIC = 0x46424F43;
+    // 2：日志中的赔率按行保存更新时间
+    private static final int FORMAT_VERSION = 2;
+    private static final String CHECKPOINT_FILE = "odds.ckpt";
+    private static final String JOURNAL_FILE = "odds.journal";
+
+    // 日志记录类型
+    private static final byte RECORD_ODDS = 'O';
+    private static final byte RECORD_REBATE = 'R';
+    private static final byte RECORD_PACKAGE = 'P';
+    private static final byte RECORD_REMOVE_DOMAIN = 'D';
+
+    private final Path checkpointFile;
+    private final Path journalFile;
+    private DataOutputStream journal;
+    // 启动时加载、等待期号确认的数据
+    private Restored pending;
+
+    // 检查点中的一个 domain
+    private static class DomainOdds {
+        private final String domain;
+        private final double rebateRate;
+        private final OddsManager.OddsBatch batch;
+
+        DomainOdds(String domain, double rebateRate, OddsManager.OddsBatch batch) {
+            this.domain = domain;
+            this.rebateRate = rebateRate;
+            this.batch = batch;
+        }
+    }
+
+    // 加载后待恢复的数据
+    private static class Restored {
+        private final String periodNo;
+        private final List<DomainOdds> domains = new ArrayList<>();
+        // oddsMemberFinal 为站点原始赔率
+        private final List<PackageInfo> packages = new ArrayList<>();
+        private byte[] journal = new byte[0];
+
+        Restored(String periodNo) {
+            this.periodNo = periodNo;
+        }
+    }
+
+    public OddsCheckpoint(Path directory) {
+        this.checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        this.journalFile = directory.resolve(JOURNAL_FILE);
+    }
+
+    /**
+     * 启动时加载检查点和日志，只读入内存，等 restoreIfCurrent 确认期号后再恢复
+     */
+    public synchronized void load() {
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpointFile));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.warning("检查点文件格式不匹配，忽略: " + checkpointFile);
+                return;
+            }
+            Restored restored = new Restored(readString(buffer));
+            int domainCount = buffer.getInt();
+            for (int d = 0; d < domainCount; d++) {
+                String domain = readString(buffer);
+                double rebateRate = buffer.getDouble();
+                int rows = buffer.getInt();
+                OddsManager.OddsBatch batch = new OddsManager.OddsBatch(rows);
+                for (int i = 0; i < rows; i++) {
+                    int slot = buffer.getShort();
+                    double odds = buffer.getDouble();
+                    long millis = buffer.getLong();
+                    batch.add(slot, odds, millis);
+                }
+                restored.domains.add(new DomainOdds(domain, rebateRate, batch));
+            }
+            // 包牌块与日志使用同一编码
+            byte[] packageBlock = new byte[buffer.remaining()];
+            buffer.get(packageBlock);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(packageBlock));
+            int packageCount = in.readInt();
+            for (int i = 0; i < packageCount; i++) {
+                restored.packages.add(readPackage(in));
+            }
+            if (Files.exists(journalFile)) {
+                restored.journal = Files.readAllBytes(journalFile);
+            }
+            pending = restored;
+            logger.info(String.format("已加载赔率检查点: 期号 %s, %d 个domain, %d 个包牌, 日志 %d 字节",
+                    restored.periodNo, domainCount, packageCount, restored.journal.length));
+        } catch (IOException | RuntimeException e) {
+            logger.warning("加载赔率检查点失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 期号与检查点一致时恢复检查点并重放日志，只在启动后第一次确认期号时生效。
+     * 恢复的赔率保留原来的更新时间
+     *
+     * @return 是否已恢复
+     */
+    public synchronized boolean restoreIfCurrent(String periodNo, OddsManager oddsManager,
+            PackageInfoManager packageInfoManager) {
+        Restored restored = pending;
+        pending = null;
+        if (restored == null || !restored.periodNo.equals(periodNo)) {
+            return false;
+        }
+        for (DomainOdds domainOdds : restored.domains) {
+            // 每行都带有更新时间，整批时间戳不会被使用
+            oddsManager.addOddsBatch(domainOdds.domain, periodNo, domainOdds.batch, domainOdds.rebateRate, 0);
+            packageInfoManager.setRebateRate(domainOdds.domain, domainOdds.rebateRate);
+        }
+        for (PackageInfo pkg : restored.packages) {
+            packageInfoManager.addPackage(pkg);
+        }
+        int records = replayJournal(restored.journal, oddsManager, packageInfoManager);
+        logger.info(String.format("已从检查点恢复期号 %s 的赔率，重放日志 %d 条", periodNo, records));
+        return true;
+    }
+
+    /**
+     * 写检查点：先写临时文件再原子替换，成功后清空日志。
+     * 期号未确定时写不出可恢复的检查点，日志也无法重放（恢复要求期号一致），
+     * 除非还有启动时加载、等待确认期号的检查点，否则直接清空日志，避免日志无限增长
+     */
+    public synchronized void checkpoint(OddsManager oddsManager, PackageInfoManager packageInfoManager) {
+        String periodNo = oddsManager.getLivePeriodNo();
+        if (periodNo == null) {
+            if (pending == null) {
+                try {
+                    resetJournal();
+                } catch (IOException e) {
+                    logger.warning("清空赔率日志失败: " + e.getMessage());
+                }
+            }
+            return;
+        }
+        OddsSnapshot snapshot = oddsManager.snapshot();
+        try {
+            byte[] packages = encodePackages(packageInfoManager);
+            byte[] period = periodNo.getBytes(StandardCharsets.UTF_8);
+            long size = 4 + 4 + 2 + period.length + 4 + packages.length;
+            byte[][] domainNames = new byte[snapshot.getDomainCount()][];
+            for (int d = 0; d < snapshot.getDomainCount(); d++) {
+                domainNames[d] = snapshot.getDomain(d).getBytes(StandardCharsets.UTF_8);
+                size += 2 + domainNames[d].length + 8 + 4
+                        + (long) snapshot.getDomainSize(snapshot.getDomain(d)) * (2 + 8 + 8);
+            }
+            Path tempFile = checkpointFile.resolveSibling(CHECKPOINT_FILE + ".tmp");
+            Files.createDirectories(checkpointFile.getParent());
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size));
+            buffer.putInt(MAGIC);
+            buffer.putInt(FORMAT_VERSION);
+            buffer.putShort((short) period.length).put(period);
+            buffer.putInt(snapshot.getDomainCount());
+            for (int d = 0; d < snapshot.getDomainCount(); d++) {
+                buffer.putShort((short) domainNames[d].length).put(domainNames[d]);
+                buffer.putDouble(snapshot.rebateRate(d));
+                buffer.putInt(snapshot.getDomainSize(snapshot.getDomain(d)));
+                for (int slot = 0; slot < NumberIndex.SLOT_COUNT; slot++) {
+                    double raw = snapshot.rawOdds(d, slot);
+                    if (!Double.isNaN(raw)) {
+                        buffer.putShort((short) slot);
+                        buffer.putDouble(raw);
+                        buffer.putLong(snapshot.updateMillis(d, slot));
+                    }
+                }
+            }
+            buffer.put(packages);
+            buffer.flip();
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            resetJournal();
+        } catch (IOException e) {
+            logger.warning("写赔率检查点失败: " + e.getMessage());
+        }
+    }
+
+    // 追加一批号码赔率（站点原始赔率），每行带上更新时间
+    public synchronized void journalOdds(String domain, String periodNo, OddsManager.OddsBatch batch,
+            double rebateRate, long updateMillis) {
+        try {
+            DataOutputStream out = journal();
+            out.writeByte(RECORD_ODDS);
+            out.writeUTF(periodNo == null ? "" : periodNo);
+            out.writeUTF(domain);
+            out.writeDouble(rebateRate);
+            out.writeLong(updateMillis);
+            out.writeInt(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                out.writeShort(batch.slotAt(i));
+                out.writeDouble(batch.oddsAt(i));
+                out.writeLong(batch.millisAt(i, updateMillis));
+            }
+            out.flush();
+        } catch (IOException e) {
+            logger.warning("写赔率日志失败: " + e.getMessage());
+        }
+    }
+
+    // 追加返点率变化
+    public synchronized void journalRebate(String domain, double rebateRate) {
+        try {
+            DataOutputStream out = journal();
+            out.writeByte(RECORD_REBATE);
+            out.writeUTF(domain);
+            out.writeDouble(rebateRate);
+            out.flush();
+        } catch (IOException e) {
+            logger.warning("写赔率日志失败: " + e.getMessage());
+        }
+    }
+
+    // 追加包牌，rawOdds[i] 为第 i 个包牌的站点原始赔率
+    public synchronized void journalPackages(List<PackageInfo> packages, double[] rawOdds) {
+        try {
+            DataOutputStream out = journal();
+            for (int i = 0; i < packages.size(); i++) {
+                out.writeByte(RECORD_PACKAGE);
+                writePackage(out, packages.get(i), rawOdds[i]);
+            }
+            out.flush();
+        } catch (IOException e) {
+            logger.warning("写赔率日志失败: " + e.getMessage());
+        }
+    }
+
+    // 追加 domain 删除
+    public synchronized void journalRemoveDomain(String domain) {
+        try {
+            DataOutputStream out = journal();
+            out.writeByte(RECORD_REMOVE_DOMAIN);
+            out.writeUTF(domain);
+            out.flush();
+        } catch (IOException e) {
+            logger.warning("写赔率日志失败: " + e.getMessage());
+        }
+    }
+
+    public synchronized void close() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warning("关闭赔率日志失败: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    private DataOutputStream journal() throws IOException {
+        if (journal == null) {
+            Files.createDirectories(journalFile.getParent());
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile.toFile(), true)));
+        }
+        return journal;
+    }
+
+    private void resetJournal() throws IOException {
+        close();
+        Files.deleteIfExists(journalFile);
+    }
+
+    // 重放日志，赔率保留记录中的更新时间；末尾不完整的记录（写到一半时进程退出）忽略
+    private static int replayJournal(byte[] bytes, OddsManager oddsManager, PackageInfoManager packageInfoManager) {
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            while (in.available() > 0) {
+                byte type = in.readByte();
+                if (type == RECORD_ODDS) {
+                    String periodNo = in.readUTF();
+                    String domain = in.readUTF();
+                    double rebateRate = in.readDouble();
+                    long updateMillis = in.readLong();
+                    int rows = in.readInt();
+                    OddsManager.OddsBatch batch = new OddsManager.OddsBatch(rows);
+                    for (int i = 0; i < rows; i++) {
+                        int slot = in.readShort();
+                        double odds = in.readDouble();
+                        batch.add(slot, odds, in.readLong());
+                    }
+                    oddsManager.addOddsBatch(domain, periodNo.isEmpty() ? null : periodNo, batch, rebateRate,
+                            updateMillis);
+                } else if (type == RECORD_REBATE) {
+                    String domain = in.readUTF();
+                    double rebateRate = in.readDouble();
+                    oddsManager.setRebateRate(domain, rebateRate);
+                    packageInfoManager.setRebateRate(domain, rebateRate);
+                } else if (type == RECORD_PACKAGE) {
+                    packageInfoManager.addPackage(readPackage(in));
+                } else if (type == RECORD_REMOVE_DOMAIN) {
+                    String domain = in.readUTF();
+                    oddsManager.removeDomain(domain);
+                    packageInfoManager.removeDomain(domain);
+                } else {
+                    logger.warning("赔率日志记录类型未知，停止重放: " + type);
+                    break;
+                }
+                records++;
+            }
+        } catch (EOFException e) {
+            logger.warning("赔率日志末尾记录不完整，已忽略");
+        } catch (IOException e) {
+            logger.warning("重放赔率日志失败: " + e.getMessage());
+        }
+        return records;
+    }
+
+    private static byte[] encodePackages(PackageInfoManager packageInfoManager) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<PackageInfo> packages = new ArrayList<>();
+        List<Double> rawOdds = new ArrayList<>();
+        packageInfoManager.forEachLivePackage((pkg, raw) -> {
+            packages.add(pkg);
+            rawOdds.add(raw);
+        });
+        out.writeInt(packages.size());
+        for (int i = 0; i < packages.size(); i++) {
+            writePackage(out, packages.get(i), rawOdds.get(i));
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // 包牌只保存分组、下注和比价用到的字段
+    private static void writePackage(DataOutputStream out, PackageInfo pkg, double rawOdds) throws IOException {
+        out.writeUTF(pkg.getDomain() == null ? "" : pkg.getDomain());
+        out.writeUTF(pkg.getPeriodNo() == null ? "" : pkg.getPeriodNo());
+        out.writeUTF(pkg.getPackageName() == null ? "" : pkg.getPackageName());
+        out.writeInt(pkg.getDictTypeId());
+        out.writeInt(pkg.getDictNoTypeId());
+        out.writeLong(pkg.getPackageId());
+        out.writeInt(pkg.getPackageCount());
+        out.writeDouble(pkg.getOddsSetting());
+        out.writeDouble(rawOdds);
+        out.writeBoolean(pkg.isStop());
+        out.writeBoolean(pkg.isHot());
+        out.writeBoolean(pkg.isUse());
+    }
+
+    private static PackageInfo readPackage(DataInputStream in) throws IOException {
+        PackageInfo pkg = new PackageInfo();
+        pkg.setDomain(in.readUTF());
+        String periodNo = in.readUTF();
+        pkg.setPeriodNo(periodNo.isEmpty() ? null : periodNo);
+        pkg.setPackageName(in.readUTF());
+        pkg.setDictTypeId(in.readInt());
+        pkg.setDictNoTypeId(in.readInt());
+        pkg.setPackageId(in.readLong());
+        pkg.setPackageCount(in.readInt());
+        pkg.setOddsSetting(in.readDouble());
+        pkg.setOddsMemberFinal(in.readDouble());
+        pkg.setStop(in.readBoolean());
+        pkg.setHot(in.readBoolean());
+        pkg.setUse(in.readBoolean());
+        return pkg;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,185 @@
+package com.fivebear.platform;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 赔率过期时间轮：每个 (domain, 号码) 最多挂一个到期项，按到期 tick 散列到固定数量的桶里。
+ * 更新赔率时不移动已挂的到期项（惰性重排），到期时由 Handler 按最新更新时间决定重新挂载还是过期，
+ * 所以每次写入和每个到期项的处理都是 O(1)，没有到期项的 tick 只看一个空桶。
+ * 不是线程安全的，由 OddsManager 在写锁内使用。
+ */
+public class OddsExpiry {
+    private static final int SLOT_BITS = 16;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+    /**
+     * 到期处理
+     */
+    public interface Handler {
+        /**
+         * @return 新的到期时间（epoch millis）表示继续挂载，小于 0 表示不再挂载
+         */
+        long onDue(String domain, int slot, long nowMillis);
+    }
+
+    private final long tickMillis;
+    private final Bucket[] wheel;
+    private final int wheelMask;
+    // 已处理到的 tick
+    private long currentTick;
+    private final Map<String, Integer> domainIndex = new HashMap<>();
+    private String[] domainNames = new String[0];
+    // 每个 domain 一个位图，标记已挂载的槽位
+    private long[][] scheduled = new long[0][];
+    private int pending;
+    // 处理一个桶时需要重新挂载的项，处理完再放回时间轮
+    private int[] rescheduleKeys = new int[INITIAL_BUCKET_CAPACITY];
+    private long[] rescheduleTicks = new long[INITIAL_BUCKET_CAPACITY];
+
+    // 一个桶：到期项的 key（domain 序号 << 16 | 槽位）和到期 tick
+    private static class Bucket {
+        private int[] keys = new int[INITIAL_BUCKET_CAPACITY];
+        private long[] ticks = new long[INITIAL_BUCKET_CAPACITY];
+        private int size;
+
+        void add(int key, long tick) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ticks = Arrays.copyOf(ticks, size * 2);
+            }
+            keys[size] = key;
+            ticks[size] = tick;
+            size++;
+        }
+    }
+
+    /**
+     * @param tickMillis  每个 tick 的毫秒数
+     * @param wheelSize   桶数，取整为 2 的幂
+     * @param startMillis 起始时间
+     */
+    public OddsExpiry(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis和wheelSize必须大于0");
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.wheel = new Bucket[size];
+        this.wheelMask = size - 1;
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * 挂载到期项，该 (domain, 号码) 已挂载时直接返回（到期时再按最新更新时间重排）
+     */
+    public void schedule(String domain, int slot, long deadlineMillis) {
+        int d = index(domain);
+        long[] bits = scheduled[d];
+        long bit = 1L << slot;
+        if ((bits[slot >>> 6] & bit) != 0) {
+            return;
+        }
+        bits[slot >>> 6] |= bit;
+        pending++;
+        add(d << SLOT_BITS | slot, tickOf(deadlineMillis));
+    }
+
+    /**
+     * 推进到 nowMillis，依次处理到期的桶
+     *
+     * @return 本次处理的到期项数
+     */
+    public int advance(long nowMillis, Handler handler) {
+        long target = nowMillis / tickMillis;
+        if (target <= currentTick) {
+            return 0;
+        }
+        // 停顿超过一圈时每个桶只需处理一次
+        long last = Math.min(target, currentTick + wheel.length);
+        int processed = 0;
+        int rescheduled = 0;
+        for (long tick = currentTick + 1; tick <= last; tick++) {
+            Bucket bucket = wheel[(int) (tick & wheelMask)];
+            int kept = 0;
+            for (int i = 0; i < bucket.size; i++) {
+                int key = bucket.keys[i];
+                if (bucket.ticks[i] > target) {
+                    // 还有若干圈才到期
+                    bucket.keys[kept] = key;
+                    bucket.ticks[kept] = bucket.ticks[i];
+                    kept++;
+                    continue;
+                }
+                processed++;
+                int d = key >>> SLOT_BITS;
+                int slot = key & SLOT_MASK;
+                long deadline = handler.onDue(domainNames[d], slot, nowMillis);
+                if (deadline < 0) {
+                    scheduled[d][slot >>> 6] &= ~(1L << slot);
+                    pending--;
+                } else {
+                    if (rescheduled == rescheduleKeys.length) {
+                        rescheduleKeys = Arrays.copyOf(rescheduleKeys, rescheduled * 2);
+                        rescheduleTicks = Arrays.copyOf(rescheduleTicks, rescheduled * 2);
+                    }
+                    rescheduleKeys[rescheduled] = key;
+                    rescheduleTicks[rescheduled] = Math.max(tickOf(deadline), target + 1);
+                    rescheduled++;
+                }
+            }
+            bucket.size = kept;
+        }
+        currentTick = target;
+        for (int i = 0; i < rescheduled; i++) {
+            add(rescheduleKeys[i], rescheduleTicks[i]);
+        }
+        return processed;
+    }
+
+    // 已挂载的到期项数
+    public int size() {
+        return pending;
+    }
+
+    // 清空全部到期项
+    public void clear() {
+        for (Bucket bucket : wheel) {
+            bucket.size = 0;
+        }
+        for (long[] bits : scheduled) {
+            Arrays.fill(bits, 0);
+        }
+        pending = 0;
+    }
+
+    // 已过期的到期时间挂到下一个 tick
+    private void add(int key, long tick) {
+        long due = Math.max(tick, currentTick + 1);
+        wheel[(int) (due & wheelMask)].add(key, due);
+    }
+
+    // 向上取整到 tick
+    private long tickOf(long millis) {
+        return Math.floorDiv(millis + tickMillis - 1, tickMillis);
+    }
+
+    private int index(String domain) {
+        Integer d = domainIndex.get(domain);
+        if (d != null) {
+            return d;
+        }
+        int newIndex = domainNames.length;
+        domainNames = Arrays.copyOf(domainNames, newIndex + 1);
+        domainNames[newIndex] = domain;
+        scheduled = Arrays.copyOf(scheduled, newIndex + 1);
+        scheduled[newIndex] = new long[(NumberIndex.SLOT_COUNT + 63) / 64];
+        domainIndex.put(domain, newIndex);
+        return newIndex;
+    }
+}
@@ -0,0 +1,268 @@
+package com.fivebear.platform;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * 赔率历史：每个 (号码, domain) 一个固定容量的环形缓冲区，记录站点原始赔率的变化。
+ * 样本保存在每个 domain 一块的堆外 ByteBuffer 中，每个样本 7 字节：
+ * 4 字节相对 baseMillis 的有符号毫秒偏移（前后约 24.8 天）+ 3 字节定点赔率（×1000，范围 0~16777.215）。
+ * 时间或赔率超出范围的样本不写入并计数，不截断成错误的样本。
+ * 14600 个号码 × 10 个 domain × 64 个样本约占 62 MB，domain 第一次写入时分配，之后写入不分配对象。
+ */
+public class OddsHistory {
+    private static final Logger logger = Logger.getLogger(OddsHistory.class.getName());
+
+    private static final int SAMPLE_BYTES = 7;
+    private static final int ODDS_SCALE = 1000;
+    private static final int MAX_FIXED_ODDS = 0xFFFFFF;
+
+    private final int capacity;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> domainIds = new HashMap<>();
+    private DomainRing[] rings = new DomainRing[0];
+    // 时间戳基准，clear 时重置
+    private long baseMillis = System.currentTimeMillis();
+    // 超出范围被丢弃的样本数，clear 时重置
+    private long rejected;
+
+    // 单个 domain 的全部环形缓冲区
+    private static class DomainRing {
+        private final ByteBuffer samples;
+        // 每个号码下一个写入位置
+        private final byte[] heads;
+        // 每个号码已有样本数（不超过 capacity）
+        private final byte[] counts;
+
+        DomainRing(int capacity) {
+            this.samples = ByteBuffer.allocateDirect(NumberIndex.SLOT_COUNT * capacity * SAMPLE_BYTES);
+            this.heads = new byte[NumberIndex.SLOT_COUNT];
+            this.counts = new byte[NumberIndex.SLOT_COUNT];
+        }
+    }
+
+    /**
+     * @param capacity 每个 (号码, domain) 保留的样本数，1~127
+     */
+    public OddsHistory(int capacity) {
+        if (capacity < 1 || capacity > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity超出范围: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 记录一个样本，缓冲区满时覆盖最旧的样本
+     *
+     * @param slot   NumberIndex 槽位
+     * @param domain 站点域名
+     * @param odds   站点原始赔率
+     * @param millis 更新时间（epoch millis）
+     * @return 时间离 baseMillis 超过 int 毫秒范围、或赔率不在 0~16777.215 时不记录，返回 false
+     */
+    public boolean record(int slot, String domain, double odds, long millis) {
+        lock.writeLock().lock();
+        try {
+            long offset = millis - baseMillis;
+            long fixed = Math.round(odds * ODDS_SCALE);
+            if (offset < Integer.MIN_VALUE || offset > Integer.MAX_VALUE
+                    || !(odds >= 0) || fixed > MAX_FIXED_ODDS) {
+                if (rejected++ == 0) {
+                    logger.warning(String.format("赔率历史样本超出范围，已丢弃: slot=%d, domain=%s, odds=%s, millis=%d",
+                            slot, domain, odds, millis));
+                }
+                return false;
+            }
+            DomainRing ring = ringForWrite(domain);
+            int head = ring.heads[slot];
+            int pos = (slot * capacity + head) * SAMPLE_BYTES;
+            ring.samples.putInt(pos, (int) offset);
+            ring.samples.put(pos + 4, (byte) (fixed >>> 16));
+            ring.samples.put(pos + 5, (byte) (fixed >>> 8));
+            ring.samples.put(pos + 6, (byte) fixed);
+            ring.heads[slot] = (byte) (head + 1 == capacity ? 0 : head + 1);
+            if (ring.counts[slot] < capacity) {
+                ring.counts[slot]++;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 某时刻的赔率：该时刻及之前最后一个样本的赔率
+     *
+     * @return 赔率，没有该时刻之前的样本返回 NaN
+     */
+    public double oddsAt(String number, String domain, long millis) {
+        lock.readLock().lock();
+        try {
+            DomainRing ring = ring(domain);
+            int slot = NumberIndex.slotOf(number);
+            if (ring == null || slot < 0) {
+                return Double.NaN;
+            }
+            // 从最新样本往前找
+            for (int i = ring.counts[slot] - 1; i >= 0; i--) {
+                int pos = position(ring, slot, i);
+                if (timeAt(ring, pos) <= millis) {
+                    return oddsAt(ring, pos);
+                }
+            }
+            return Double.NaN;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 最近 N 分钟内的最小、最大赔率
+     *
+     * @return {最小赔率, 最大赔率}，区间内没有样本时返回 null
+     */
+    public double[] minMaxLastMinutes(String number, String domain, int minutes) {
+        return minMaxSince(number, domain, System.currentTimeMillis() - minutes * 60_000L);
+    }
+
+    /**
+     * 某时刻之后（含）的最小、最大赔率
+     *
+     * @return {最小赔率, 最大赔率}，区间内没有样本时返回 null
+     */
+    public double[] minMaxSince(String number, String domain, long fromMillis) {
+        lock.readLock().lock();
+        try {
+            DomainRing ring = ring(domain);
+            int slot = NumberIndex.slotOf(number);
+            if (ring == null || slot < 0) {
+                return null;
+            }
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = ring.counts[slot] - 1; i >= 0; i--) {
+                int pos = position(ring, slot, i);
+                if (timeAt(ring, pos) < fromMillis) {
+                    break;
+                }
+                double value = oddsAt(ring, pos);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            return min > max ? null : new double[] { min, max };
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 某时刻以来的赔率变化：最新赔率减去该时刻的赔率；
+     * 该时刻早于保留的最旧样本时，以最旧样本为起点
+     *
+     * @return 变化量，没有样本返回 0
+     */
+    public double deltaSince(String number, String domain, long millis) {
+        lock.readLock().lock();
+        try {
+            DomainRing ring = ring(domain);
+            int slot = NumberIndex.slotOf(number);
+            if (ring == null || slot < 0 || ring.counts[slot] == 0) {
+                return 0;
+            }
+            int count = ring.counts[slot];
+            double latest = oddsAt(ring, position(ring, slot, count - 1));
+            double start = oddsAt(ring, position(ring, slot, 0));
+            for (int i = count - 1; i >= 0; i--) {
+                int pos = position(ring, slot, i);
+                if (timeAt(ring, pos) <= millis) {
+                    start = oddsAt(ring, pos);
+                    break;
+                }
+            }
+            return latest - start;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 已保留的样本数
+    public int sampleCount(String number, String domain) {
+        lock.readLock().lock();
+        try {
+            DomainRing ring = ring(domain);
+            int slot = NumberIndex.slotOf(number);
+            return ring == null || slot < 0 ? 0 : ring.counts[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 超出范围被丢弃的样本数（只在第一次丢弃时记日志）
+    public long rejectedCount() {
+        lock.readLock().lock();
+        try {
+            return rejected;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 清空全部样本（换期时调用），已分配的缓冲区保留复用
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (DomainRing ring : rings) {
+                Arrays.fill(ring.heads, (byte) 0);
+                Arrays.fill(ring.counts, (byte) 0);
+            }
+            baseMillis = System.currentTimeMillis();
+            rejected = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private DomainRing ring(String domain) {
+        Integer id = domainIds.get(domain);
+        return id == null ? null : rings[id];
+    }
+
+    private DomainRing ringForWrite(String domain) {
+        Integer id = domainIds.get(domain);
+        if (id != null) {
+            return rings[id];
+        }
+        DomainRing ring = new DomainRing(capacity);
+        rings = Arrays.copyOf(rings, rings.length + 1);
+        rings[rings.length - 1] = ring;
+        domainIds.put(domain, rings.length - 1);
+        return ring;
+    }
+
+    // 第 index 个样本（0 为最旧）的字节位置
+    private int position(DomainRing ring, int slot, int index) {
+        int start = ring.counts[slot] < capacity ? 0 : ring.heads[slot];
+        int i = start + index;
+        if (i >= capacity) {
+            i -= capacity;
+        }
+        return (slot * capacity + i) * SAMPLE_BYTES;
+    }
+
+    private long timeAt(DomainRing ring, int pos) {
+        return baseMillis + ring.samples.getInt(pos);
+    }
+
+    private double oddsAt(DomainRing ring, int pos) {
+        int fixed = ((ring.samples.get(pos + 4) & 0xFF) << 16)
+                | ((ring.samples.get(pos + 5) & 0xFF) << 8)
+                | (ring.samples.get(pos + 6) & 0xFF);
+        return (double) fixed / ODDS_SCALE;
+    }
+}
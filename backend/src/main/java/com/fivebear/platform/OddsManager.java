@@ -1,115 +1,613 @@
 package com.fivebear.platform;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
 
+/**
+ * 赔率管理器
+ * 号码通过 NumberIndex 映射为稠密槽位，每个 domain 一列赔率和更新时间，domain 驻留为小整数 id。
+ * 数据以不可变的 OddsSnapshot 发布：写方串行地在旁边构建下一版本，一次 volatile 赋值发布；
+ * 读方无锁，需要一致视图的计算应先调用 snapshot() 再在同一快照上完成全部查询。
+ * 赔率按期号分区：对外只发布当前期的快照，下一期的赔率可提前写入各自的分区，
+ * 换期（rollover）只是把下一期分区赋给 current，旧分区不再被引用后由 GC 回收。
+ * 当前期的原始赔率变化同时记入 OddsHistory，供走势查询。
+ * 每个 domain 可设置赔率最大时效，超时未更新的赔率由 OddsExpiry 时间轮移出当前快照，不再参与最优排名。
+ * 赔率目前只在会员站点拉取或推送时更新，没有定时全量同步，所以默认不过期，需要时再按 domain 开启。
+ */
 public class OddsManager {
-    private final Map<String, NumberOddsGroup> groupMap = new HashMap<>();
+    private static final Logger logger = Logger.getLogger(OddsManager.class.getName());
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Object writeLock = new Object();
+    private volatile OddsSnapshot current = OddsSnapshot.EMPTY;
+    // 当前期号，null 表示尚未确定
+    private volatile String livePeriodNo;
+    // 提前写入的后续期分区，期号 -> 快照，只在 writeLock 内访问
+    private final Map<String, OddsSnapshot> stagedPeriods = new HashMap<>();
+    // 当前期赔率历史，每个 (号码, domain) 保留最近 64 个变化
+    private final OddsHistory history = new OddsHistory(64);
+    // 赔率默认最大时效（毫秒），不大于 0 表示不过期；没有定时同步之前默认关闭
+    private volatile long defaultMaxOddsAge =
+            Long.getLong("fivebear.odds.maxAgeSeconds", 0) * 1000;
+    // 各 domain 单独设置的最大时效
+    private final Map<String, Long> maxOddsAges = new ConcurrentHashMap<>();
+    // 当前期赔率的过期时间轮，1 秒一个 tick，只在 writeLock 内访问
+    private final OddsExpiry expiry = new OddsExpiry(1000, 512, System.currentTimeMillis());
 
     public OddsManager() {
     }
 
-    // 添加或更新赔率
-    public synchronized void addOdds(String number, int dictNoTypeId, String domain, double odds,
+    /**
+     * 获取当前赔率快照（无锁）
+     */
+    public OddsSnapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * 获取当前期赔率历史
+     */
+    public OddsHistory getHistory() {
+        return history;
+    }
+
+    // 添加或更新赔率（站点原始赔率，返点由 setRebateRate 按 domain 叠加）
+    public void addOdds(String number, int dictNoTypeId, String domain, double odds,
             String updateDatetime) {
-        String key = number + "_" + dictNoTypeId;
-        NumberOddsGroup group = groupMap.computeIfAbsent(key, k -> new NumberOddsGroup(number, dictNoTypeId));
-        // 可去重：如果同domain已存在则更新，否则添加
-        Optional<NumberOddsGroup.OddsInfo> existing = group.getOddsList().stream()
-                .filter(info -> info.getDomain().equals(domain))
-                .findFirst();
-        if (existing.isPresent()) {
-            existing.get().setOdds(odds);
-            existing.get().setUpdateDatetime(updateDatetime);
-        } else {
-            group.getOddsList().add(new NumberOddsGroup.OddsInfo(domain, odds, updateDatetime));
+        addOdds(number, dictNoTypeId, domain, odds, parseDatetime(updateDatetime));
+    }
+
+    // 添加或更新赔率（时间为 epoch millis）
+    public void addOdds(String number, int dictNoTypeId, String domain, double odds,
+            long updateMillis) {
+        int slot = NumberIndex.slotOf(number, dictNoTypeId);
+        if (slot < 0) {
+            return;
+        }
+        synchronized (writeLock) {
+            OddsSnapshot.Builder builder = current.toBuilder();
+            int domainId = intern(builder, domain);
+            if (domainId < 0) {
+                return;
+            }
+            putAndRecord(builder, slot, domainId, odds, updateMillis);
+            current = builder.build();
         }
     }
 
-    // 获取所有聚合后的赔率
-    public synchronized List<NumberOddsGroup> getAggregatedOdds() {
-        return new ArrayList<>(groupMap.values());
+    /**
+     * 按槽位写入赔率
+     *
+     * @param slot         NumberIndex 槽位
+     * @param domainId     domainId(String) 返回的 id
+     * @param odds         赔率
+     * @param updateMillis 更新时间
+     */
+    public void addOdds(int slot, int domainId, double odds, long updateMillis) {
+        synchronized (writeLock) {
+            OddsSnapshot.Builder builder = current.toBuilder();
+            if (domainId < 0 || domainId >= builder.domainCount()) {
+                throw new IllegalArgumentException("domainId不存在: " + domainId);
+            }
+            putAndRecord(builder, slot, domainId, odds, updateMillis);
+            current = builder.build();
+        }
     }
 
-    // 按号码查询聚合赔率
-    public synchronized List<NumberOddsGroup> queryByNumber(String number) {
-        List<NumberOddsGroup> result = new ArrayList<>();
-        for (NumberOddsGroup group : groupMap.values()) {
-            if (group.getNumber().equals(number)) {
-                result.add(group);
+    // 写入当前期，原始赔率有变化时记入历史，并挂载过期检查
+    private boolean putAndRecord(OddsSnapshot.Builder builder, int slot, int domainId, double odds, long updateMillis) {
+        boolean changed = builder.rawOdds(domainId, slot) != odds;
+        builder.put(slot, domainId, odds, updateMillis);
+        String domain = builder.domain(domainId);
+        if (changed) {
+            history.record(slot, domain, odds, updateMillis);
+        }
+        long maxAge = getMaxOddsAge(domain);
+        if (maxAge > 0) {
+            expiry.schedule(domain, slot, updateMillis + maxAge);
+        }
+        return changed;
+    }
+
+    /**
+     * 批量写入某 domain 的一批赔率：同时更新该 domain 的返点率，整批共用一个时间戳，只发布一个版本
+     *
+     * @param domain       站点域名
+     * @param batch        站点原始赔率（不含返点）
+     * @param rebateRate   返点率
+     * @param updateMillis 更新时间
+     * @return 原始赔率有变化（含新增）的行数
+     */
+    public int addOddsBatch(String domain, OddsBatch batch, double rebateRate, long updateMillis) {
+        return addOddsBatch(domain, null, batch, rebateRate, updateMillis);
+    }
+
+    /**
+     * 按期号批量写入：当前期直接发布，后续期写入提前分区，早于当前期的数据丢弃
+     *
+     * @param periodNo 赔率所属期号，null 视为当前期
+     * @return 原始赔率有变化（含新增）的行数
+     */
+    public int addOddsBatch(String domain, String periodNo, OddsBatch batch, double rebateRate, long updateMillis) {
+        int changed = 0;
+        synchronized (writeLock) {
+            if (periodNo != null && livePeriodNo == null) {
+                livePeriodNo = periodNo;
+            }
+            int cmp = periodNo == null ? 0 : comparePeriodNo(periodNo, livePeriodNo);
+            if (cmp < 0) {
+                return 0;
+            }
+            OddsSnapshot base = cmp == 0 ? current
+                    : stagedPeriods.computeIfAbsent(periodNo, k -> current.nextPeriod());
+            OddsSnapshot.Builder builder = base.toBuilder();
+            int domainId = intern(builder, domain);
+            if (domainId < 0) {
+                return 0;
+            }
+            builder.setRebateRate(domainId, rebateRate);
+            for (int i = 0; i < batch.size; i++) {
+                int slot = batch.slots[i];
+                double value = batch.odds[i];
+                long millis = batch.millisAt(i, updateMillis);
+                if (cmp == 0) {
+                    if (putAndRecord(builder, slot, domainId, value, millis)) {
+                        changed++;
+                    }
+                } else {
+                    if (builder.rawOdds(domainId, slot) != value) {
+                        changed++;
+                    }
+                    builder.put(slot, domainId, value, millis);
+                }
+            }
+            if (cmp == 0) {
+                current = builder.build();
+            } else {
+                stagedPeriods.put(periodNo, builder.build());
             }
         }
-        return result;
+        return changed;
     }
 
-    // 可扩展：按号码/玩法/站点查询、清空、导出等
-    public synchronized void clear() {
-        groupMap.clear();
+    /**
+     * 换期：已提前写入的下一期分区直接成为当前快照，没有则换成只保留 domain 与返点率的空快照。
+     * 只是一次引用切换，耗时与已加载的赔率数量无关
+     *
+     * @return 期号比当前期新并完成切换时返回 true
+     */
+    public boolean rollover(String periodNo) {
+        if (periodNo == null) {
+            return false;
+        }
+        synchronized (writeLock) {
+            if (livePeriodNo != null && comparePeriodNo(periodNo, livePeriodNo) <= 0) {
+                return false;
+            }
+            OddsSnapshot next = stagedPeriods.remove(periodNo);
+            current = next != null ? next : current.nextPeriod();
+            livePeriodNo = periodNo;
+            history.clear();
+            // 旧期的到期项到期时发现赔率已不存在会自行注销，只需为提前写入的赔率挂载
+            if (next != null) {
+                scheduleAll(next);
+            }
+            stagedPeriods.keySet().removeIf(p -> comparePeriodNo(p, periodNo) <= 0);
+            return true;
+        }
     }
 
-    //
+    // 当前期号
+    public String getLivePeriodNo() {
+        return livePeriodNo;
+    }
+
+    // 期号比较：先比长度再比字典序，适用于纯数字期号
+    static int comparePeriodNo(String a, String b) {
+        if (a.length() != b.length()) {
+            return Integer.compare(a.length(), b.length());
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * 更新 domain 的返点率，该 domain 全部号码的赔率与跨 domain 排名随新版本立即生效
+     */
+    public void setRebateRate(String domain, double rebateRate) {
+        synchronized (writeLock) {
+            int domainId = current.getDomainId(domain);
+            if (domainId >= 0 && current.rebateRate(domainId) == rebateRate) {
+                return;
+            }
+            OddsSnapshot.Builder builder = current.toBuilder();
+            int id = intern(builder, domain);
+            if (id >= 0) {
+                builder.setRebateRate(id, rebateRate);
+                current = builder.build();
+            }
+            for (Map.Entry<String, OddsSnapshot> entry : stagedPeriods.entrySet()) {
+                OddsSnapshot.Builder staged = entry.getValue().toBuilder();
+                int stagedId = intern(staged, domain);
+                if (stagedId >= 0) {
+                    staged.setRebateRate(stagedId, rebateRate);
+                    entry.setValue(staged.build());
+                }
+            }
+        }
+    }
+
+    /**
+     * 设置 domain 的赔率最大时效，该 domain 已有赔率按新时效重新挂载过期检查
+     *
+     * @param maxAgeMillis 最大时效（毫秒），不大于 0 表示不过期
+     */
+    public void setMaxOddsAge(String domain, long maxAgeMillis) {
+        synchronized (writeLock) {
+            maxOddsAges.put(domain, maxAgeMillis);
+            int domainId = current.getDomainId(domain);
+            if (maxAgeMillis > 0 && domainId >= 0) {
+                scheduleDomain(current, domainId);
+            }
+        }
+    }
+
+    // 设置未单独设置的 domain 的赔率最大时效
+    public void setDefaultMaxOddsAge(long maxAgeMillis) {
+        synchronized (writeLock) {
+            defaultMaxOddsAge = maxAgeMillis;
+            if (maxAgeMillis > 0) {
+                scheduleAll(current);
+            }
+        }
+    }
+
+    // domain 的赔率最大时效（毫秒），不大于 0 表示不过期
+    public long getMaxOddsAge(String domain) {
+        Long maxAge = maxOddsAges.get(domain);
+        return maxAge != null ? maxAge : defaultMaxOddsAge;
+    }
+
+    /**
+     * 快照中某 domain 某槽位的赔率是否存在且未超过该 domain 的最大时效。
+     * 过期检查每个 tick 才执行一次，下注分配应以此为准，而不是只看快照里是否还有赔率
+     */
+    public boolean isFresh(OddsSnapshot snapshot, int domainId, int slot, long nowMillis) {
+        if (Double.isNaN(snapshot.rawOdds(domainId, slot))) {
+            return false;
+        }
+        long maxAge = getMaxOddsAge(snapshot.getDomain(domainId));
+        return maxAge <= 0 || nowMillis - snapshot.updateMillis(domainId, slot) <= maxAge;
+    }
+
+    // 按号码和 domain 判断当前赔率是否存在且未过期
+    public boolean isFresh(String number, String domain, long nowMillis) {
+        OddsSnapshot snapshot = current;
+        int slot = NumberIndex.slotOf(number);
+        int domainId = snapshot.getDomainId(domain);
+        return slot >= 0 && domainId >= 0 && isFresh(snapshot, domainId, slot, nowMillis);
+    }
+
+    /**
+     * 按号码和 domain 判断当前赔率是否存在但已超过最大时效。
+     * 没有赔率的不算过期，由调用方按原有规则处理
+     */
+    public boolean isStale(String number, String domain, long nowMillis) {
+        OddsSnapshot snapshot = current;
+        int slot = NumberIndex.slotOf(number);
+        int domainId = snapshot.getDomainId(domain);
+        if (slot < 0 || domainId < 0 || Double.isNaN(snapshot.rawOdds(domainId, slot))) {
+            return false;
+        }
+        return !isFresh(snapshot, domainId, slot, nowMillis);
+    }
+
+    /**
+     * 推进过期时间轮：到期且期间没有更新的赔率从当前快照移除，有更新的按新时间重新挂载。
+     * 没有到期项时不构建新版本
+     *
+     * @return 本次移除的赔率数
+     */
+    public int expireStale(long nowMillis) {
+        synchronized (writeLock) {
+            ExpiryHandler handler = new ExpiryHandler(current);
+            expiry.advance(nowMillis, handler);
+            if (handler.builder != null) {
+                current = handler.builder.build();
+            }
+            return handler.expired;
+        }
+    }
+
+    // 到期处理：以推进前的快照判断，过期的赔率在同一个 Builder 中移除
+    private class ExpiryHandler implements OddsExpiry.Handler {
+        private final OddsSnapshot snapshot;
+        private OddsSnapshot.Builder builder;
+        private int expired;
+
+        ExpiryHandler(OddsSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public long onDue(String domain, int slot, long nowMillis) {
+            int domainId = snapshot.getDomainId(domain);
+            long maxAge = getMaxOddsAge(domain);
+            if (domainId < 0 || maxAge <= 0 || Double.isNaN(snapshot.rawOdds(domainId, slot))) {
+                return -1;
+            }
+            long deadline = snapshot.updateMillis(domainId, slot) + maxAge;
+            if (deadline > nowMillis) {
+                return deadline;
+            }
+            if (builder == null) {
+                builder = snapshot.toBuilder();
+            }
+            builder.remove(slot, domainId);
+            expired++;
+            return -1;
+        }
+    }
 
-    public synchronized int getSize() {
-        return groupMap.size();
+    // 为快照中全部赔率挂载过期检查（已挂载的不重复挂载）
+    private void scheduleAll(OddsSnapshot snapshot) {
+        for (int d = 0; d < snapshot.getDomainCount(); d++) {
+            scheduleDomain(snapshot, d);
+        }
     }
 
-    public synchronized List<NumberOddsGroup.OddsInfo> getMaxOddsForEachNumber() {
-        Map<String, NumberOddsGroup.OddsInfo> maxMap = new HashMap<>();
-        for (NumberOddsGroup group : groupMap.values()) {
-            NumberOddsGroup.OddsInfo maxInfo = group.getMaxOddsInfo();
-            if (maxInfo == null)
-                continue;
-            String number = group.getNumber();
-            // 如果同号码有多个玩法/彩种，取全局最大
-            if (!maxMap.containsKey(number) || maxInfo.getOdds() > maxMap.get(number).getOdds()) {
-                maxMap.put(number, maxInfo);
+    private void scheduleDomain(OddsSnapshot snapshot, int domainId) {
+        String domain = snapshot.getDomain(domainId);
+        long maxAge = getMaxOddsAge(domain);
+        if (maxAge <= 0) {
+            return;
+        }
+        for (int slot = 0; slot < NumberIndex.SLOT_COUNT; slot++) {
+            if (!Double.isNaN(snapshot.rawOdds(domainId, slot))) {
+                expiry.schedule(domain, slot, snapshot.updateMillis(domainId, slot) + maxAge);
             }
         }
-        return new ArrayList<>(maxMap.values());
     }
 
-    public synchronized List<NumberOddsGroup.OddsInfo> getMaxOddsForDictNoTypeId(int dictNoTypeId) {
-        Map<String, NumberOddsGroup.OddsInfo> maxMap = new HashMap<>();
-        for (NumberOddsGroup group : groupMap.values()) {
-            if (group.getDictNoTypeId() != dictNoTypeId)
-                continue;
-            NumberOddsGroup.OddsInfo maxInfo = group.getMaxOddsInfo();
-            if (maxInfo == null)
-                continue;
-            String number = group.getNumber();
-            if (!maxMap.containsKey(number) || maxInfo.getOdds() > maxMap.get(number).getOdds()) {
-                maxMap.put(number, maxInfo);
+    // 返点折算到赔率的系数：二字 100，三字 1000，四字 10000
+    static double rebateFactor(int dictNoTypeId) {
+        if (dictNoTypeId >= 1 && dictNoTypeId <= 6) {
+            return 100;
+        } else if (dictNoTypeId >= 7 && dictNoTypeId < 11) {
+            return 1000;
+        } else if (dictNoTypeId == 11) {
+            return 10000;
+        }
+        return 0;
+    }
+
+    /**
+     * 一批待写入的号码赔率，号码在加入时即换算为槽位
+     */
+    public static class OddsBatch {
+        private int[] slots;
+        private double[] odds;
+        // 每行各自的更新时间，null 表示整批使用同一时间戳
+        private long[] millis;
+        private int size;
+
+        public OddsBatch(int capacity) {
+            this.slots = new int[Math.max(capacity, 16)];
+            this.odds = new double[slots.length];
+        }
+
+        // 加入一行，号码与玩法不匹配时忽略并返回 false
+        public boolean add(String number, int dictNoTypeId, double value) {
+            int slot = NumberIndex.slotOf(number, dictNoTypeId);
+            if (slot < 0) {
+                return false;
             }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                odds = Arrays.copyOf(odds, size * 2);
+            }
+            slots[size] = slot;
+            odds[size] = value;
+            size++;
+            return true;
+        }
+
+        // 按槽位加入一行并带上该行的更新时间（恢复检查点时使用）
+        void add(int slot, double value, long updateMillis) {
+            if (millis == null) {
+                millis = new long[slots.length];
+            }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                odds = Arrays.copyOf(odds, size * 2);
+            }
+            if (millis.length < slots.length) {
+                millis = Arrays.copyOf(millis, slots.length);
+            }
+            slots[size] = slot;
+            odds[size] = value;
+            millis[size] = updateMillis;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        int slotAt(int index) {
+            return slots[index];
+        }
+
+        double oddsAt(int index) {
+            return odds[index];
+        }
+
+        // 该行的更新时间，没有单独时间时返回整批的 updateMillis
+        long millisAt(int index, long updateMillis) {
+            return millis != null ? millis[index] : updateMillis;
         }
-        return new ArrayList<>(maxMap.values());
     }
 
-    // 添加或更新NumberOddsGroup
-    public synchronized void addOrUpdateOddsGroup(NumberOddsGroup group) {
-        String key = group.getNumber() + "_" + group.getDictNoTypeId();
-        groupMap.put(key, group);
+    // 获取 domain 对应的 id，不存在则分配；domain 已满且没有可回收的 id 时返回 -1
+    public int domainId(String domain) {
+        int id = current.getDomainId(domain);
+        if (id >= 0) {
+            return id;
+        }
+        synchronized (writeLock) {
+            OddsSnapshot.Builder builder = current.toBuilder();
+            id = intern(builder, domain);
+            if (id >= 0) {
+                current = builder.build();
+            }
+            return id;
+        }
+    }
+
+    // 驻留 domain；已满 64 个且没有可回收的 id 时记日志并返回 -1，调用方放弃这次写入
+    private static int intern(OddsSnapshot.Builder builder, String domain) {
+        int id = builder.internDomain(domain);
+        if (id < 0) {
+            logger.severe("domain数量已达上限 " + OddsSnapshot.MAX_DOMAINS + " 且没有可回收的id，丢弃 " + domain + " 的赔率");
+        }
+        return id;
+    }
+
+    // 获取所有聚合后的赔率
+    public List<NumberOddsGroup> getAggregatedOdds() {
+        return current.getAggregatedOdds();
+    }
+
+    // 按号码查询聚合赔率
+    public List<NumberOddsGroup> queryByNumber(String number) {
+        return current.queryByNumber(number);
+    }
+
+    // 按号码+玩法查询聚合赔率
+    public NumberOddsGroup queryByNumberAndType(String number, int dictNoTypeId) {
+        return current.queryByNumberAndType(number, dictNoTypeId);
+    }
+
+    // 按 domain 查询赔率
+    public List<NumberOddsGroup> queryByDomain(String domain) {
+        return current.queryByDomain(domain);
+    }
+
+    // 可扩展：按号码/玩法/站点查询、清空、导出等
+    public void clear() {
+        synchronized (writeLock) {
+            current = OddsSnapshot.EMPTY;
+            stagedPeriods.clear();
+            history.clear();
+            expiry.clear();
+        }
+    }
+
+    //
+
+    public int getSize() {
+        return current.getSize();
+    }
+
+    public List<NumberOddsGroup.OddsInfo> getMaxOddsForEachNumber() {
+        return current.getMaxOddsForEachNumber();
+    }
+
+    public List<NumberOddsGroup.OddsInfo> getMaxOddsForDictNoTypeId(int dictNoTypeId) {
+        return current.getMaxOddsForDictNoTypeId(dictNoTypeId);
+    }
+
+    // 添加或更新NumberOddsGroup（整组替换该号码的所有 domain 赔率）
+    public void addOrUpdateOddsGroup(NumberOddsGroup group) {
+        int slot = NumberIndex.slotOf(group.getNumber(), group.getDictNoTypeId());
+        if (slot < 0) {
+            return;
+        }
+        synchronized (writeLock) {
+            OddsSnapshot.Builder builder = current.toBuilder();
+            for (int d = 0; d < builder.domainCount(); d++) {
+                builder.remove(slot, d);
+            }
+            for (NumberOddsGroup.OddsInfo info : group.getOddsList()) {
+                int domainId = intern(builder, info.getDomain());
+                if (domainId >= 0) {
+                    putAndRecord(builder, slot, domainId, info.getOdds(), info.getUpdateMillis());
+                }
+            }
+            current = builder.build();
+        }
     }
 
     // 返回指定号码和玩法下最大赔率的info
-    public synchronized NumberOddsGroup.OddsInfo getMaxOddsInfo(String number, int dictNoTypeId) {
-        String key = number + "_" + dictNoTypeId;
-        NumberOddsGroup group = groupMap.get(key);
-        if (group == null)
-            return null;
-        NumberOddsGroup.OddsInfo maxInfo = null;
-        for (NumberOddsGroup.OddsInfo info : group.getOddsList()) {
-            if (maxInfo == null || info.getOdds() > maxInfo.getOdds()) {
-                maxInfo = info;
+    public NumberOddsGroup.OddsInfo getMaxOddsInfo(String number, int dictNoTypeId) {
+        return current.getMaxOddsInfo(number, dictNoTypeId);
+    }
+
+    // 返回指定号码和玩法下次大赔率的info
+    public NumberOddsGroup.OddsInfo getSecondMaxOddsInfo(String number, int dictNoTypeId) {
+        return current.getSecondMaxOddsInfo(number, dictNoTypeId);
+    }
+
+    // 返回指定号码和玩法下各 domain 的赔率，按赔率从高到低排列
+    public List<NumberOddsGroup.OddsInfo> getRankedOdds(String number, int dictNoTypeId) {
+        return current.getRankedOdds(number, dictNoTypeId);
+    }
+
+    /**
+     * 返回指定号码和玩法下的最大赔率
+     *
+     * @return 最大赔率，没有赔率返回 0
+     */
+    public double getMaxOdds(String number, int dictNoTypeId) {
+        return current.getMaxOdds(number, dictNoTypeId);
+    }
+
+    /**
+     * 返回指定 domain 下某号码的赔率
+     *
+     * @return 赔率，没有赔率返回 0
+     */
+    public double getOdds(String number, String domain) {
+        return current.getOdds(number, domain);
+    }
+
+    public void removeDomain(String domain) {
+        synchronized (writeLock) {
+            OddsSnapshot.Builder builder = current.toBuilder();
+            int domainId = builder.domainId(domain);
+            if (domainId >= 0) {
+                builder.removeDomain(domainId);
+                current = builder.build();
+            }
+            for (Map.Entry<String, OddsSnapshot> entry : stagedPeriods.entrySet()) {
+                OddsSnapshot.Builder staged = entry.getValue().toBuilder();
+                int stagedId = staged.domainId(domain);
+                if (stagedId >= 0) {
+                    staged.removeDomain(stagedId);
+                    entry.setValue(staged.build());
+                }
             }
         }
-        return maxInfo;
     }
 
-    public synchronized void removeDomain(String domain) {
-        for (NumberOddsGroup group : groupMap.values()) {
-            group.getOddsList().removeIf(info -> info.getDomain().equals(domain));
+    // 兼容 "yyyy-MM-dd HH:mm:ss" 与 ISO 格式，无法解析时取当前时间
+    static long parseDatetime(String datetime) {
+        if (datetime == null || datetime.isEmpty()) {
+            return System.currentTimeMillis();
+        }
+        try {
+            LocalDateTime time = datetime.indexOf('T') > 0
+                    ? LocalDateTime.parse(datetime)
+                    : LocalDateTime.parse(datetime, DATETIME_FORMATTER);
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return System.currentTimeMillis();
         }
     }
-}
\ No newline at end of file
+}
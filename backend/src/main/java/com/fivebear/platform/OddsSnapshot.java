@@ -0,0 +1,764 @@
+package com.fivebear.platform;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 赔率快照：某一时刻全部号码、全部 domain 赔率的不可变视图。
+ * 读方（分配、风控分析、REST 查询）拿到一个快照后，整个计算过程看到的都是同一版本的赔率，
+ * 不需要加锁；写方通过 Builder 在旁边构建下一版本，再由 OddsManager 一次 volatile 赋值发布。
+ * 列按 512 个槽位分页，写入时只复制被修改的页，未修改的页在新旧版本之间共享。
+ * 另维护两个随写入同步更新的二级索引：每个槽位的 domain 位图（按号码查询只遍历有赔率的 domain），
+ * 以及每个 domain 的槽位位图（按 domain 查询、删除 domain 只遍历该 domain 的号码）。
+ * 每个槽位的最优、次优赔率 domain 在写入时维护，最大赔率查询为 O(1)；
+ * 按玩法的最大赔率表在首次读取时生成并缓存，发布新版本时只丢弃赔率有变化的玩法。
+ * 列中保存站点原始赔率，返点按 (domain, 玩法) 存为偏移量在读取时叠加，返点变化不需要重写赔率列。
+ */
+public final class OddsSnapshot {
+    static final int PAGE_SHIFT = 9;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+    static final int PAGE_COUNT = (NumberIndex.SLOT_COUNT + PAGE_SIZE - 1) >> PAGE_SHIFT;
+    /** domain 位图为 long，同时最多 64 个 domain；已删除或整期没有赔率的 domain 的 id 满额后回收 */
+    static final int MAX_DOMAINS = Long.SIZE;
+    private static final int SLOT_WORDS = (NumberIndex.SLOT_COUNT + Long.SIZE - 1) / Long.SIZE;
+
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final double[] EMPTY_ODDS_PAGE = new double[PAGE_SIZE];
+    private static final long[] EMPTY_UPDATE_PAGE = new long[PAGE_SIZE];
+    private static final long[] EMPTY_MASK_PAGE = new long[PAGE_SIZE];
+    private static final int[] EMPTY_RANK_PAGE = new int[PAGE_SIZE];
+
+    static {
+        Arrays.fill(EMPTY_ODDS_PAGE, Double.NaN);
+    }
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    static final OddsSnapshot EMPTY = new OddsSnapshot(0, Collections.emptyMap(), new String[0],
+            new double[0][][], new long[0][][], emptyMaskPages(), new long[0][], new int[0], emptyRankPages(),
+            new double[0], new double[0][], new AtomicReferenceArray<>(NumberIndex.TYPE_COUNT + 1), 0, 0);
+
+    private final long version;
+    private final Map<String, Integer> domainIds;
+    private final String[] domains;
+    // odds[domainId][page][offset]，站点原始赔率（不含返点），NaN 表示该 domain 没有此号码的赔率
+    private final double[][][] odds;
+    // updates[domainId][page][offset]，赔率更新时间（epoch millis）
+    private final long[][][] updates;
+    // 按号码索引：domainMasks[page][offset] 的第 d 位表示 domain d 有此号码的赔率
+    private final long[][] domainMasks;
+    // 按 domain 索引：slotBits[domainId] 的第 slot 位表示该 domain 有此号码的赔率
+    private final long[][] slotBits;
+    // 每个 domain 的号码数
+    private final int[] domainRows;
+    // ranks[page][offset]：低 8 位为最优 domainId+1，次 8 位为次优 domainId+1，0 表示没有
+    private final int[][] ranks;
+    // 每个 domain 的返点率
+    private final double[] rebateRates;
+    // rebateOffsets[domainId][dictNoTypeId]，返点折算后叠加到赔率上的偏移量
+    private final double[][] rebateOffsets;
+    // 按玩法缓存的最大赔率表，下标为 dictNoTypeId，null 表示尚未生成
+    private final AtomicReferenceArray<List<NumberOddsGroup.OddsInfo>> bestOddsViews;
+    private final int populatedSlots;
+    // 可回收的 domainId 位图：已删除，或上一期整期没有赔率的 domain
+    private final long releasedDomains;
+
+    private OddsSnapshot(long version, Map<String, Integer> domainIds, String[] domains, double[][][] odds,
+            long[][][] updates, long[][] domainMasks, long[][] slotBits, int[] domainRows, int[][] ranks,
+            double[] rebateRates, double[][] rebateOffsets,
+            AtomicReferenceArray<List<NumberOddsGroup.OddsInfo>> bestOddsViews, int populatedSlots,
+            long releasedDomains) {
+        this.version = version;
+        this.domainIds = domainIds;
+        this.domains = domains;
+        this.odds = odds;
+        this.updates = updates;
+        this.domainMasks = domainMasks;
+        this.slotBits = slotBits;
+        this.domainRows = domainRows;
+        this.ranks = ranks;
+        this.rebateRates = rebateRates;
+        this.rebateOffsets = rebateOffsets;
+        this.bestOddsViews = bestOddsViews;
+        this.populatedSlots = populatedSlots;
+        this.releasedDomains = releasedDomains;
+    }
+
+    /** 快照版本号，全局递增（跨期号分区也不重复） */
+    public long getVersion() {
+        return version;
+    }
+
+    /** 已驻留的 domain 数量 */
+    public int getDomainCount() {
+        return domains.length;
+    }
+
+    /** domainId -> domain */
+    public String getDomain(int domainId) {
+        return domains[domainId];
+    }
+
+    /** domain -> domainId，不存在返回 -1 */
+    public int getDomainId(String domain) {
+        Integer id = domainIds.get(domain);
+        return id == null ? -1 : id;
+    }
+
+    /** 有赔率的号码数量 */
+    public int getSize() {
+        return populatedSlots;
+    }
+
+    /** 某 domain 的号码数量 */
+    public int getDomainSize(String domain) {
+        int domainId = getDomainId(domain);
+        return domainId < 0 ? 0 : domainRows[domainId];
+    }
+
+    /** 某槽位某 domain 的赔率（含返点），没有返回 NaN */
+    public double odds(int domainId, int slot) {
+        return odds[domainId][slot >> PAGE_SHIFT][slot & PAGE_MASK]
+                + rebateOffsets[domainId][NumberIndex.dictNoTypeIdAt(slot)];
+    }
+
+    /** 某槽位某 domain 的站点原始赔率（不含返点），没有返回 NaN */
+    public double rawOdds(int domainId, int slot) {
+        return odds[domainId][slot >> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /** 某 domain 当前的返点率 */
+    public double rebateRate(int domainId) {
+        return rebateRates[domainId];
+    }
+
+    /** 某槽位某 domain 的更新时间（epoch millis） */
+    public long updateMillis(int domainId, int slot) {
+        return updates[domainId][slot >> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /** 某槽位已有赔率的 domain 数 */
+    public int domainCountAt(int slot) {
+        return Long.bitCount(domainMaskAt(slot));
+    }
+
+    /** 某槽位的 domain 位图，第 d 位表示 domain d 有赔率 */
+    public long domainMaskAt(int slot) {
+        return domainMasks[slot >> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /** 某槽位最大赔率的 domainId，没有返回 -1；赔率相同时 domainId 小的优先 */
+    public int maxDomain(int slot) {
+        return (ranks[slot >> PAGE_SHIFT][slot & PAGE_MASK] & 0xFF) - 1;
+    }
+
+    /** 某槽位次大赔率的 domainId，没有返回 -1 */
+    public int secondDomain(int slot) {
+        return ((ranks[slot >> PAGE_SHIFT][slot & PAGE_MASK] >>> 8) & 0xFF) - 1;
+    }
+
+    /** 某槽位按赔率从高到低排列的 domainId */
+    public int[] rankedDomains(int slot) {
+        long mask = domainMaskAt(slot);
+        int[] result = new int[Long.bitCount(mask)];
+        if (result.length == 0) {
+            return result;
+        }
+        result[0] = maxDomain(slot);
+        if (result.length > 1) {
+            result[1] = secondDomain(slot);
+        }
+        if (result.length > 2) {
+            // 前两名已知，只对其余 domain 做插入排序
+            mask &= ~(1L << result[0]) & ~(1L << result[1]);
+            int n = 2;
+            for (; mask != 0; mask &= mask - 1) {
+                int d = Long.numberOfTrailingZeros(mask);
+                double value = odds(d, slot);
+                int i = n++;
+                while (i > 2 && ahead(d, value, result[i - 1], odds(result[i - 1], slot))) {
+                    result[i] = result[i - 1];
+                    i--;
+                }
+                result[i] = d;
+            }
+        }
+        return result;
+    }
+
+    // 按号码查询聚合赔率
+    public List<NumberOddsGroup> queryByNumber(String number) {
+        List<NumberOddsGroup> result = new ArrayList<>();
+        int slot = NumberIndex.slotOf(number);
+        if (slot >= 0 && domainMaskAt(slot) != 0) {
+            result.add(buildGroup(slot));
+        }
+        return result;
+    }
+
+    /**
+     * 按号码+玩法查询聚合赔率
+     *
+     * @return 该号码各 domain 的赔率，号码与玩法不匹配或没有赔率返回 null
+     */
+    public NumberOddsGroup queryByNumberAndType(String number, int dictNoTypeId) {
+        int slot = NumberIndex.slotOf(number, dictNoTypeId);
+        return slot < 0 || domainMaskAt(slot) == 0 ? null : buildGroup(slot);
+    }
+
+    /**
+     * 按 domain 查询赔率，每个号码一组，组内只含该 domain 的赔率
+     */
+    public List<NumberOddsGroup> queryByDomain(String domain) {
+        int domainId = getDomainId(domain);
+        if (domainId < 0) {
+            return new ArrayList<>();
+        }
+        List<NumberOddsGroup> result = new ArrayList<>(domainRows[domainId]);
+        long[] bits = slotBits[domainId];
+        for (int word = 0; word < bits.length; word++) {
+            for (long w = bits[word]; w != 0; w &= w - 1) {
+                int slot = word * Long.SIZE + Long.numberOfTrailingZeros(w);
+                List<NumberOddsGroup.OddsInfo> oddsList = new ArrayList<>(1);
+                oddsList.add(oddsInfo(slot, domainId));
+                result.add(new NumberOddsGroup(NumberIndex.dictNoTypeIdAt(slot), NumberIndex.numberAt(slot), oddsList));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按号码+玩法返回各 domain 的赔率，按赔率从高到低排列
+     */
+    public List<NumberOddsGroup.OddsInfo> getRankedOdds(String number, int dictNoTypeId) {
+        List<NumberOddsGroup.OddsInfo> result = new ArrayList<>();
+        int slot = NumberIndex.slotOf(number, dictNoTypeId);
+        if (slot >= 0) {
+            for (int d : rankedDomains(slot)) {
+                result.add(oddsInfo(slot, d));
+            }
+        }
+        return result;
+    }
+
+    // 获取所有聚合后的赔率
+    public List<NumberOddsGroup> getAggregatedOdds() {
+        List<NumberOddsGroup> result = new ArrayList<>(populatedSlots);
+        for (int slot = 0; slot < NumberIndex.SLOT_COUNT; slot++) {
+            if (domainMaskAt(slot) != 0) {
+                result.add(buildGroup(slot));
+            }
+        }
+        return result;
+    }
+
+    // 返回指定号码和玩法下最大赔率的info
+    public NumberOddsGroup.OddsInfo getMaxOddsInfo(String number, int dictNoTypeId) {
+        int slot = NumberIndex.slotOf(number, dictNoTypeId);
+        return slot < 0 ? null : maxOddsInfo(slot);
+    }
+
+    // 返回指定号码和玩法下次大赔率的info，不足两个 domain 返回 null
+    public NumberOddsGroup.OddsInfo getSecondMaxOddsInfo(String number, int dictNoTypeId) {
+        int slot = NumberIndex.slotOf(number, dictNoTypeId);
+        if (slot < 0) {
+            return null;
+        }
+        int second = secondDomain(slot);
+        return second < 0 ? null : oddsInfo(slot, second);
+    }
+
+    /**
+     * 返回指定号码和玩法下的最大赔率
+     *
+     * @return 最大赔率，没有赔率返回 0
+     */
+    public double getMaxOdds(String number, int dictNoTypeId) {
+        int slot = NumberIndex.slotOf(number, dictNoTypeId);
+        if (slot < 0) {
+            return 0;
+        }
+        int best = maxDomain(slot);
+        return best < 0 ? 0 : odds(best, slot);
+    }
+
+    /**
+     * 返回指定 domain 下某号码的赔率
+     *
+     * @return 赔率，没有赔率返回 0
+     */
+    public double getOdds(String number, String domain) {
+        int slot = NumberIndex.slotOf(number);
+        int domainId = getDomainId(domain);
+        if (slot < 0 || domainId < 0) {
+            return 0;
+        }
+        double value = odds(domainId, slot);
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    // 每个号码只属于一个玩法，因此每个号码的最大赔率即其槽位的最大赔率；元素取自各玩法的只读缓存
+    public List<NumberOddsGroup.OddsInfo> getMaxOddsForEachNumber() {
+        List<NumberOddsGroup.OddsInfo> result = new ArrayList<>(populatedSlots);
+        for (int type = 1; type <= NumberIndex.TYPE_COUNT; type++) {
+            result.addAll(getMaxOddsForDictNoTypeId(type));
+        }
+        return result;
+    }
+
+    /**
+     * 某玩法下每个号码的最大赔率（只读缓存，赔率未变化的玩法跨版本复用）。
+     * 列表和其中的 OddsInfo 都是只读的，修改前先 copy()
+     */
+    public List<NumberOddsGroup.OddsInfo> getMaxOddsForDictNoTypeId(int dictNoTypeId) {
+        int first = NumberIndex.firstSlot(dictNoTypeId);
+        List<NumberOddsGroup.OddsInfo> view = bestOddsViews.get(dictNoTypeId);
+        if (view == null) {
+            List<NumberOddsGroup.OddsInfo> best = collectMaxOdds(first, first + NumberIndex.slotCount(dictNoTypeId));
+            for (NumberOddsGroup.OddsInfo info : best) {
+                info.freeze();
+            }
+            view = Collections.unmodifiableList(best);
+            if (!bestOddsViews.compareAndSet(dictNoTypeId, null, view)) {
+                view = bestOddsViews.get(dictNoTypeId);
+            }
+        }
+        return view;
+    }
+
+    private List<NumberOddsGroup.OddsInfo> collectMaxOdds(int from, int to) {
+        List<NumberOddsGroup.OddsInfo> result = new ArrayList<>();
+        for (int slot = from; slot < to; slot++) {
+            NumberOddsGroup.OddsInfo maxInfo = maxOddsInfo(slot);
+            if (maxInfo != null) {
+                result.add(maxInfo);
+            }
+        }
+        return result;
+    }
+
+    private NumberOddsGroup.OddsInfo maxOddsInfo(int slot) {
+        int best = maxDomain(slot);
+        return best < 0 ? null : oddsInfo(slot, best);
+    }
+
+    private NumberOddsGroup.OddsInfo oddsInfo(int slot, int domainId) {
+        return new NumberOddsGroup.OddsInfo(domains[domainId], odds(domainId, slot), updateMillis(domainId, slot));
+    }
+
+    private NumberOddsGroup buildGroup(int slot) {
+        long mask = domainMaskAt(slot);
+        List<NumberOddsGroup.OddsInfo> oddsList = new ArrayList<>(Long.bitCount(mask));
+        for (; mask != 0; mask &= mask - 1) {
+            oddsList.add(oddsInfo(slot, Long.numberOfTrailingZeros(mask)));
+        }
+        return new NumberOddsGroup(NumberIndex.dictNoTypeIdAt(slot), NumberIndex.numberAt(slot), oddsList);
+    }
+
+    static String formatDatetime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(DATETIME_FORMATTER);
+    }
+
+    Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * 下一期的空分区：沿用 domain 驻留与返点率，不含任何赔率；本期没有赔率的 domain 的 id 标记为可回收。
+     * 只分配空页引用，耗时与当前已加载的赔率数量无关
+     */
+    OddsSnapshot nextPeriod() {
+        int domainCount = domains.length;
+        double[][][] emptyOdds = new double[domainCount][PAGE_COUNT][];
+        long[][][] emptyUpdates = new long[domainCount][PAGE_COUNT][];
+        long released = releasedDomains;
+        for (int d = 0; d < domainCount; d++) {
+            Arrays.fill(emptyOdds[d], EMPTY_ODDS_PAGE);
+            Arrays.fill(emptyUpdates[d], EMPTY_UPDATE_PAGE);
+            if (domainRows[d] == 0) {
+                released |= 1L << d;
+            }
+        }
+        return new OddsSnapshot(VERSIONS.incrementAndGet(), domainIds, domains, emptyOdds, emptyUpdates,
+                emptyMaskPages(), new long[domainCount][SLOT_WORDS], new int[domainCount], emptyRankPages(),
+                rebateRates, rebateOffsets, new AtomicReferenceArray<>(NumberIndex.TYPE_COUNT + 1), 0, released);
+    }
+
+    private static long[][] emptyMaskPages() {
+        long[][] pages = new long[PAGE_COUNT][];
+        Arrays.fill(pages, EMPTY_MASK_PAGE);
+        return pages;
+    }
+
+    private static int[][] emptyRankPages() {
+        int[][] pages = new int[PAGE_COUNT][];
+        Arrays.fill(pages, EMPTY_RANK_PAGE);
+        return pages;
+    }
+
+    // d1 的赔率排在 d2 之前：赔率大者优先，相同时 domainId 小者优先
+    private static boolean ahead(int d1, double odds1, int d2, double odds2) {
+        return odds1 > odds2 || (odds1 == odds2 && d1 < d2);
+    }
+
+    /**
+     * 快照构建器：以某个快照为基础做写时复制，只在写方持有写锁时使用。
+     * 每页在一个 Builder 生命周期内最多复制一次。
+     */
+    static final class Builder {
+        private Map<String, Integer> domainIds;
+        private boolean domainIdsOwned;
+        private String[] domains;
+        private boolean domainsOwned;
+        private long releasedDomains;
+        private double[][][] odds;
+        private long[][][] updates;
+        private final long[][] domainMasks;
+        private long[][] slotBits;
+        private int[] domainRows;
+        private final int[][] ranks;
+        private double[] rebateRates;
+        private double[][] rebateOffsets;
+        private final OddsSnapshot base;
+        private int populatedSlots;
+        // 赔率有变化的玩法，第 t 位对应 dictNoTypeId t
+        private int dirtyTypes;
+        // 本次构建中已复制（可直接写）的页
+        private boolean[][] ownedPages;
+        private final boolean[] ownedMaskPages = new boolean[PAGE_COUNT];
+        private final boolean[] ownedRankPages = new boolean[PAGE_COUNT];
+        private boolean[] ownedSlotBits;
+
+        private Builder(OddsSnapshot base) {
+            this.domainIds = base.domainIds;
+            this.domains = base.domains;
+            this.odds = base.odds.clone();
+            this.updates = base.updates.clone();
+            this.domainMasks = base.domainMasks.clone();
+            this.slotBits = base.slotBits.clone();
+            this.domainRows = base.domainRows.clone();
+            this.ranks = base.ranks.clone();
+            this.rebateRates = base.rebateRates.clone();
+            this.rebateOffsets = base.rebateOffsets.clone();
+            this.base = base;
+            this.populatedSlots = base.populatedSlots;
+            this.releasedDomains = base.releasedDomains;
+            this.ownedPages = new boolean[domains.length][PAGE_COUNT];
+            this.ownedSlotBits = new boolean[domains.length];
+            for (int d = 0; d < domains.length; d++) {
+                this.odds[d] = base.odds[d].clone();
+                this.updates[d] = base.updates[d].clone();
+            }
+        }
+
+        int domainCount() {
+            return domains.length;
+        }
+
+        /**
+         * 获取 domain 对应的 id，不存在则分配；已满 64 个时回收一个已释放且没有赔率的 id，
+         * 没有可回收的返回 -1
+         */
+        int internDomain(String domain) {
+            Integer id = domainIds.get(domain);
+            if (id != null) {
+                releasedDomains &= ~(1L << id);
+                return id;
+            }
+            if (domains.length >= MAX_DOMAINS) {
+                return recycleDomain(domain);
+            }
+            ownDomainIds();
+            int newId = domains.length;
+            domains = Arrays.copyOf(domains, newId + 1);
+            domainsOwned = true;
+            domains[newId] = domain;
+            odds = Arrays.copyOf(odds, newId + 1);
+            updates = Arrays.copyOf(updates, newId + 1);
+            ownedPages = Arrays.copyOf(ownedPages, newId + 1);
+            slotBits = Arrays.copyOf(slotBits, newId + 1);
+            domainRows = Arrays.copyOf(domainRows, newId + 1);
+            ownedSlotBits = Arrays.copyOf(ownedSlotBits, newId + 1);
+            rebateRates = Arrays.copyOf(rebateRates, newId + 1);
+            rebateOffsets = Arrays.copyOf(rebateOffsets, newId + 1);
+            rebateOffsets[newId] = new double[NumberIndex.TYPE_COUNT + 1];
+            odds[newId] = new double[PAGE_COUNT][];
+            updates[newId] = new long[PAGE_COUNT][];
+            Arrays.fill(odds[newId], EMPTY_ODDS_PAGE);
+            Arrays.fill(updates[newId], EMPTY_UPDATE_PAGE);
+            ownedPages[newId] = new boolean[PAGE_COUNT];
+            slotBits[newId] = new long[SLOT_WORDS];
+            ownedSlotBits[newId] = true;
+            domainIds.put(domain, newId);
+            return newId;
+        }
+
+        // 把已释放且没有赔率的 id 改给新 domain，返点率清零
+        private int recycleDomain(String domain) {
+            long candidates = releasedDomains;
+            for (int d = 0; d < domains.length; d++) {
+                if (domainRows[d] != 0) {
+                    candidates &= ~(1L << d);
+                }
+            }
+            if (candidates == 0) {
+                return -1;
+            }
+            int id = Long.numberOfTrailingZeros(candidates);
+            ownDomainIds();
+            if (!domainsOwned) {
+                domains = domains.clone();
+                domainsOwned = true;
+            }
+            domainIds.remove(domains[id]);
+            domains[id] = domain;
+            domainIds.put(domain, id);
+            releasedDomains &= ~(1L << id);
+            rebateRates[id] = 0;
+            rebateOffsets[id] = new double[NumberIndex.TYPE_COUNT + 1];
+            Arrays.fill(odds[id], EMPTY_ODDS_PAGE);
+            Arrays.fill(updates[id], EMPTY_UPDATE_PAGE);
+            Arrays.fill(ownedPages[id], false);
+            return id;
+        }
+
+        private void ownDomainIds() {
+            if (!domainIdsOwned) {
+                domainIds = new HashMap<>(domainIds);
+                domainIdsOwned = true;
+            }
+        }
+
+        int domainId(String domain) {
+            Integer id = domainIds.get(domain);
+            return id == null ? -1 : id;
+        }
+
+        String domain(int domainId) {
+            return domains[domainId];
+        }
+
+        // 含返点的赔率
+        double odds(int domainId, int slot) {
+            return odds[domainId][slot >> PAGE_SHIFT][slot & PAGE_MASK]
+                    + rebateOffsets[domainId][NumberIndex.dictNoTypeIdAt(slot)];
+        }
+
+        double rawOdds(int domainId, int slot) {
+            return odds[domainId][slot >> PAGE_SHIFT][slot & PAGE_MASK];
+        }
+
+        /**
+         * 设置 domain 的返点率：只替换该 domain 的偏移量，不改动赔率列；
+         * 随后对该 domain 有赔率、且有多个 domain 竞争的号码重排最优/次优
+         */
+        void setRebateRate(int domainId, double rebateRate) {
+            if (rebateRates[domainId] == rebateRate) {
+                return;
+            }
+            rebateRates[domainId] = rebateRate;
+            double[] offsets = new double[NumberIndex.TYPE_COUNT + 1];
+            for (int type = 1; type <= NumberIndex.TYPE_COUNT; type++) {
+                offsets[type] = rebateRate * OddsManager.rebateFactor(type);
+            }
+            rebateOffsets[domainId] = offsets;
+            if (domainRows[domainId] == 0) {
+                return;
+            }
+            long[] bits = slotBits[domainId];
+            for (int word = 0; word < bits.length; word++) {
+                for (long w = bits[word]; w != 0; w &= w - 1) {
+                    int slot = word * Long.SIZE + Long.numberOfTrailingZeros(w);
+                    if (Long.bitCount(domainMasks[slot >> PAGE_SHIFT][slot & PAGE_MASK]) > 1) {
+                        rescan(slot);
+                    }
+                    dirtyTypes |= 1 << NumberIndex.dictNoTypeIdAt(slot);
+                }
+            }
+        }
+
+        void put(int slot, int domainId, double value, long updateMillis) {
+            int page = slot >> PAGE_SHIFT;
+            int offset = slot & PAGE_MASK;
+            ownPage(domainId, page);
+            double[] oddsPage = odds[domainId][page];
+            if (Double.isNaN(oddsPage[offset])) {
+                link(slot, domainId);
+            }
+            oddsPage[offset] = value;
+            updates[domainId][page][offset] = updateMillis;
+            promote(slot, domainId, odds(domainId, slot));
+            dirtyTypes |= 1 << NumberIndex.dictNoTypeIdAt(slot);
+        }
+
+        void remove(int slot, int domainId) {
+            int page = slot >> PAGE_SHIFT;
+            int offset = slot & PAGE_MASK;
+            if (Double.isNaN(odds[domainId][page][offset])) {
+                return;
+            }
+            ownPage(domainId, page);
+            odds[domainId][page][offset] = Double.NaN;
+            unlink(slot, domainId);
+            demote(slot, domainId);
+            dirtyTypes |= 1 << NumberIndex.dictNoTypeIdAt(slot);
+        }
+
+        // 只遍历该 domain 的号码，整列直接换成空页；id 标记为可回收
+        void removeDomain(int domainId) {
+            releasedDomains |= 1L << domainId;
+            if (domainRows[domainId] == 0) {
+                return;
+            }
+            Arrays.fill(odds[domainId], EMPTY_ODDS_PAGE);
+            Arrays.fill(updates[domainId], EMPTY_UPDATE_PAGE);
+            Arrays.fill(ownedPages[domainId], false);
+            long[] bits = slotBits[domainId];
+            long clearBit = ~(1L << domainId);
+            for (int word = 0; word < bits.length; word++) {
+                for (long w = bits[word]; w != 0; w &= w - 1) {
+                    int slot = word * Long.SIZE + Long.numberOfTrailingZeros(w);
+                    int page = slot >> PAGE_SHIFT;
+                    ownMaskPage(page);
+                    long mask = domainMasks[page][slot & PAGE_MASK] & clearBit;
+                    domainMasks[page][slot & PAGE_MASK] = mask;
+                    if (mask == 0) {
+                        populatedSlots--;
+                    }
+                    demote(slot, domainId);
+                    dirtyTypes |= 1 << NumberIndex.dictNoTypeIdAt(slot);
+                }
+            }
+            slotBits[domainId] = new long[SLOT_WORDS];
+            ownedSlotBits[domainId] = true;
+            domainRows[domainId] = 0;
+        }
+
+        OddsSnapshot build() {
+            // 赔率未变化的玩法沿用上一版本已生成的最大赔率表
+            AtomicReferenceArray<List<NumberOddsGroup.OddsInfo>> views =
+                    new AtomicReferenceArray<>(NumberIndex.TYPE_COUNT + 1);
+            for (int type = 1; type <= NumberIndex.TYPE_COUNT; type++) {
+                if ((dirtyTypes & (1 << type)) == 0) {
+                    views.set(type, base.bestOddsViews.get(type));
+                }
+            }
+            return new OddsSnapshot(VERSIONS.incrementAndGet(), domainIds, domains, odds, updates, domainMasks, slotBits,
+                    domainRows, ranks, rebateRates, rebateOffsets, views, populatedSlots, releasedDomains);
+        }
+
+        private void ownPage(int domainId, int page) {
+            if (!ownedPages[domainId][page]) {
+                odds[domainId][page] = odds[domainId][page].clone();
+                updates[domainId][page] = updates[domainId][page].clone();
+                ownedPages[domainId][page] = true;
+            }
+        }
+
+        private void link(int slot, int domainId) {
+            int page = slot >> PAGE_SHIFT;
+            ownMaskPage(page);
+            long mask = domainMasks[page][slot & PAGE_MASK];
+            if (mask == 0) {
+                populatedSlots++;
+            }
+            domainMasks[page][slot & PAGE_MASK] = mask | (1L << domainId);
+            ownSlotBits(domainId)[slot >> 6] |= 1L << slot;
+            domainRows[domainId]++;
+        }
+
+        private void unlink(int slot, int domainId) {
+            int page = slot >> PAGE_SHIFT;
+            ownMaskPage(page);
+            long mask = domainMasks[page][slot & PAGE_MASK] & ~(1L << domainId);
+            domainMasks[page][slot & PAGE_MASK] = mask;
+            if (mask == 0) {
+                populatedSlots--;
+            }
+            ownSlotBits(domainId)[slot >> 6] &= ~(1L << slot);
+            domainRows[domainId]--;
+        }
+
+        // 写入后维护最优/次优：该 domain 已在前两名时重排，否则只在新值能挤进前两名时调整
+        private void promote(int slot, int domainId, double value) {
+            int page = slot >> PAGE_SHIFT;
+            int offset = slot & PAGE_MASK;
+            int packed = ranks[page][offset];
+            int best = (packed & 0xFF) - 1;
+            int second = ((packed >>> 8) & 0xFF) - 1;
+            if (domainId == best || domainId == second) {
+                rescan(slot);
+            } else if (best < 0 || ahead(domainId, value, best, odds(best, slot))) {
+                setRank(page, offset, domainId, best);
+            } else if (second < 0 || ahead(domainId, value, second, odds(second, slot))) {
+                setRank(page, offset, best, domainId);
+            }
+        }
+
+        // 删除后维护最优/次优：只有删掉的是前两名时才需要重排
+        private void demote(int slot, int domainId) {
+            int packed = ranks[slot >> PAGE_SHIFT][slot & PAGE_MASK];
+            if (domainId == (packed & 0xFF) - 1 || domainId == ((packed >>> 8) & 0xFF) - 1) {
+                rescan(slot);
+            }
+        }
+
+        // 遍历该槽位已有赔率的 domain，重新求前两名
+        private void rescan(int slot) {
+            int page = slot >> PAGE_SHIFT;
+            int offset = slot & PAGE_MASK;
+            int best = -1;
+            int second = -1;
+            double bestOdds = 0;
+            double secondOdds = 0;
+            for (long mask = domainMasks[page][offset]; mask != 0; mask &= mask - 1) {
+                int d = Long.numberOfTrailingZeros(mask);
+                double value = odds(d, slot);
+                if (best < 0 || ahead(d, value, best, bestOdds)) {
+                    second = best;
+                    secondOdds = bestOdds;
+                    best = d;
+                    bestOdds = value;
+                } else if (second < 0 || ahead(d, value, second, secondOdds)) {
+                    second = d;
+                    secondOdds = value;
+                }
+            }
+            setRank(page, offset, best, second);
+        }
+
+        private void setRank(int page, int offset, int best, int second) {
+            if (!ownedRankPages[page]) {
+                ranks[page] = ranks[page].clone();
+                ownedRankPages[page] = true;
+            }
+            ranks[page][offset] = (best + 1) | ((second + 1) << 8);
+        }
+
+        private void ownMaskPage(int page) {
+            if (!ownedMaskPages[page]) {
+                domainMasks[page] = domainMasks[page].clone();
+                ownedMaskPages[page] = true;
+            }
+        }
+
+        private long[] ownSlotBits(int domainId) {
+            if (!ownedSlotBits[domainId]) {
+                slotBits[domainId] = slotBits[domainId].clone();
+                ownedSlotBits[domainId] = true;
+            }
+            return slotBits[domainId];
+        }
+    }
+}
@@ -42,8 +42,8 @@ public class PackageAnalyzer {
         if (bets == null || bets.isEmpty() || packageLevels == null || packageLevels.isEmpty()) {
             return null;
         }
-        // 1. 对 packageLevels 排序（大到小）
-        packageLevels.sort((a, b) -> Integer.compare(b.getPackageCount(), a.getPackageCount()));
+        // 1. 对 packageLevels 排序（大到小），不修改调用方的列表
+        packageLevels = sortedLevels(packageLevels);
         // 只统计唯一号码
         Set<String> uniqueNumbers = new HashSet<>();
         for (Bet bet : bets) {
@@ -71,6 +71,26 @@ public class PackageAnalyzer {
         return bestLevel;
     }
 
+    /**
+     * 按 PackageInfoManager 维护的包牌档位分割投注列表，见 splitToPackageGroups(List, List, boolean, double)
+     *
+     * @param bets               投注列表
+     * @param packageInfoManager 包牌管理器，档位取 getPackageLevels(dictTypeId)，赔率已叠加返点
+     * @param dictTypeId         包牌玩法
+     * @param allowSmallBet      是否允许角票（金额<1）参与包牌分组
+     * @param maxSingleBetAmount 单注最高金额限制
+     * @return PackageGroupResult，包含所有包牌组和所有未分组的散货
+     */
+    public static PackageGroupResult splitToPackageGroups(
+            List<Bet> bets,
+            PackageInfoManager packageInfoManager,
+            int dictTypeId,
+            boolean allowSmallBet,
+            double maxSingleBetAmount) {
+        return splitToPackageGroups(bets, packageInfoManager.getPackageLevels(dictTypeId), allowSmallBet,
+                maxSingleBetAmount);
+    }
+
     /**
      * 按包牌等级依次分割投注列表，输出所有包牌组和所有散货（支持多轮分组）
      * 
@@ -91,8 +111,10 @@ public class PackageAnalyzer {
         if (bets == null || bets.isEmpty() || packageLevels == null || packageLevels.isEmpty()) {
             return new PackageGroupResult(allGroups, bets == null ? new ArrayList<>() : new ArrayList<>(bets), 0.0);
         }
+        // 档位只排序一次，每轮分组共用
+        List<PackageInfo> sortedLevels = sortedLevels(packageLevels);
         while (true) {
-            SplitOneResult result = splitOnePackageGroup(remainBets, packageLevels, allowSmallBet, maxSingleBetAmount);
+            SplitOneResult result = splitOnePackageGroup(remainBets, sortedLevels, allowSmallBet, maxSingleBetAmount);
             if (result.group != null) {
                 allGroups.add(result.group);
                 remainBets = result.remainBets;
@@ -103,15 +125,24 @@ public class PackageAnalyzer {
         return new PackageGroupResult(allGroups, remainBets, lostAmount.doubleValue());
     }
 
+    // 按包牌数从大到小排序的副本
+    private static List<PackageInfo> sortedLevels(List<PackageInfo> packageLevels) {
+        List<PackageInfo> sortedLevels = new ArrayList<>(packageLevels);
+        sortedLevels.sort((a, b) -> Integer.compare(b.getPackageCount(), a.getPackageCount()));
+        return sortedLevels;
+    }
+
     /**
      * 尝试从投注列表中分出一组包牌，返回分组和剩余投注
+     *
+     * @param sortedLevels 按包牌数从大到小排好的档位
      */
     private static SplitOneResult splitOnePackageGroup(
             List<Bet> bets,
-            List<PackageInfo> packageLevels,
+            List<PackageInfo> sortedLevels,
             boolean allowSmallBet,
             double maxSingleBetAmount) {
-        if (bets == null || bets.isEmpty() || packageLevels == null || packageLevels.isEmpty()) {
+        if (bets == null || bets.isEmpty() || sortedLevels == null || sortedLevels.isEmpty()) {
             return new SplitOneResult(null, bets == null ? new ArrayList<>() : new ArrayList<>(bets));
         }
         List<Bet> validBets = bets;
@@ -125,8 +156,6 @@ public class PackageAnalyzer {
                 packageBets.add(new Bet(bet.getNumber(), useAmount.doubleValue(), bet.getDictNoTypeId()));
             }
         }
-        List<PackageInfo> sortedLevels = new ArrayList<>(packageLevels);
-        sortedLevels.sort((a, b) -> Integer.compare(b.getPackageCount(), a.getPackageCount()));
         PackageInfo bestPkg = null;
         List<Bet> bestGroup = null;
         BigDecimal targetAmount = BigDecimal.ZERO;
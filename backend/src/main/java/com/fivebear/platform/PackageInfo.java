@@ -57,6 +57,8 @@ public class PackageInfo {
     private int dictNoTypeId;
     // 期号
     private String periodNo;
+    // 只读：PackageInfoManager 缓存视图中的包牌，调用方不能修改
+    private boolean frozen;
 
     // Getter and Setter methods
 
@@ -65,6 +67,7 @@ public class PackageInfo {
     }
 
     public void setDictTypeId(int dictTypeId) {
+        checkMutable();
         this.dictTypeId = dictTypeId;
     }
 
@@ -73,6 +76,7 @@ public class PackageInfo {
     }
 
     public void setPackageId(long packageId) {
+        checkMutable();
         this.packageId = packageId;
     }
 
@@ -81,6 +85,7 @@ public class PackageInfo {
     }
 
     public void setPackageName(String packageName) {
+        checkMutable();
         this.packageName = packageName;
     }
 
@@ -89,6 +94,7 @@ public class PackageInfo {
     }
 
     public void setPackageCount(int packageCount) {
+        checkMutable();
         this.packageCount = packageCount;
     }
 
@@ -97,6 +103,7 @@ public class PackageInfo {
     }
 
     public void setOddsFixMax(double oddsFixMax) {
+        checkMutable();
         this.oddsFixMax = oddsFixMax;
     }
 
@@ -105,6 +112,7 @@ public class PackageInfo {
     }
 
     public void setOddsFixMin(double oddsFixMin) {
+        checkMutable();
         this.oddsFixMin = oddsFixMin;
     }
 
@@ -113,6 +121,7 @@ public class PackageInfo {
     }
 
     public void setOddsSetting(double oddsSetting) {
+        checkMutable();
         this.oddsSetting = oddsSetting;
     }
 
@@ -121,6 +130,7 @@ public class PackageInfo {
     }
 
     public void setOddsBatchMin(double oddsBatchMin) {
+        checkMutable();
         this.oddsBatchMin = oddsBatchMin;
     }
 
@@ -129,6 +139,7 @@ public class PackageInfo {
     }
 
     public void setOddsHotDiff(double oddsHotDiff) {
+        checkMutable();
         this.oddsHotDiff = oddsHotDiff;
     }
 
@@ -137,6 +148,7 @@ public class PackageInfo {
     }
 
     public void setOddsDirector(double oddsDirector) {
+        checkMutable();
         this.oddsDirector = oddsDirector;
     }
 
@@ -145,6 +157,7 @@ public class PackageInfo {
     }
 
     public void setOddsDirectorNoHot(double oddsDirectorNoHot) {
+        checkMutable();
         this.oddsDirectorNoHot = oddsDirectorNoHot;
     }
 
@@ -153,6 +166,7 @@ public class PackageInfo {
     }
 
     public void setOddsMemberStatic(double oddsMemberStatic) {
+        checkMutable();
         this.oddsMemberStatic = oddsMemberStatic;
     }
 
@@ -161,6 +175,7 @@ public class PackageInfo {
     }
 
     public void setOddsMemberFinal(double oddsMemberFinal) {
+        checkMutable();
         this.oddsMemberFinal = oddsMemberFinal;
     }
 
@@ -169,6 +184,7 @@ public class PackageInfo {
     }
 
     public void setOddsTypeMember(int oddsTypeMember) {
+        checkMutable();
         this.oddsTypeMember = oddsTypeMember;
     }
 
@@ -177,6 +193,7 @@ public class PackageInfo {
     }
 
     public void setReturnWaterMember(double returnWaterMember) {
+        checkMutable();
         this.returnWaterMember = returnWaterMember;
     }
 
@@ -185,6 +202,7 @@ public class PackageInfo {
     }
 
     public void setHoldMoneyAvgHolden(double holdMoneyAvgHolden) {
+        checkMutable();
         this.holdMoneyAvgHolden = holdMoneyAvgHolden;
     }
 
@@ -193,6 +211,7 @@ public class PackageInfo {
     }
 
     public void setHoldMoneyHolden(double holdMoneyHolden) {
+        checkMutable();
         this.holdMoneyHolden = holdMoneyHolden;
     }
 
@@ -201,6 +220,7 @@ public class PackageInfo {
     }
 
     public void setMainDirectorHoldMoneyAvgHolden(double mainDirectorHoldMoneyAvgHolden) {
+        checkMutable();
         this.mainDirectorHoldMoneyAvgHolden = mainDirectorHoldMoneyAvgHolden;
     }
 
@@ -209,6 +229,7 @@ public class PackageInfo {
     }
 
     public void setMainDirectorHoldMoneyHolden(double mainDirectorHoldMoneyHolden) {
+        checkMutable();
         this.mainDirectorHoldMoneyHolden = mainDirectorHoldMoneyHolden;
     }
 
@@ -217,6 +238,7 @@ public class PackageInfo {
     }
 
     public void setHoldMoneyBatchMax(double holdMoneyBatchMax) {
+        checkMutable();
         this.holdMoneyBatchMax = holdMoneyBatchMax;
     }
 
@@ -225,6 +247,7 @@ public class PackageInfo {
     }
 
     public void setHoldMoneyHot(double holdMoneyHot) {
+        checkMutable();
         this.holdMoneyHot = holdMoneyHot;
     }
 
@@ -233,6 +256,7 @@ public class PackageInfo {
     }
 
     public void setStop(boolean isStop) {
+        checkMutable();
         this.isStop = isStop;
     }
 
@@ -241,6 +265,7 @@ public class PackageInfo {
     }
 
     public void setHot(boolean isHot) {
+        checkMutable();
         this.isHot = isHot;
     }
 
@@ -249,6 +274,7 @@ public class PackageInfo {
     }
 
     public void setUse(boolean isUse) {
+        checkMutable();
         this.isUse = isUse;
     }
 
@@ -257,6 +283,7 @@ public class PackageInfo {
     }
 
     public void setDomain(String domain) {
+        checkMutable();
         this.domain = domain;
     }
 
@@ -265,6 +292,7 @@ public class PackageInfo {
     }
 
     public void setDictNoTypeId(int dictNoTypeId) {
+        checkMutable();
         this.dictNoTypeId = dictNoTypeId;
     }
 
@@ -273,9 +301,54 @@ public class PackageInfo {
     }
 
     public void setPeriodNo(String periodNo) {
+        checkMutable();
         this.periodNo = periodNo;
     }
 
+    // 设为只读，之后调用 setter 抛出 UnsupportedOperationException；copy() 得到的副本可以修改
+    void freeze() {
+        frozen = true;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("包牌视图只读，请先 copy() 再修改");
+        }
+    }
+
+    // 复制全部字段（副本可以修改）
+    public PackageInfo copy() {
+        PackageInfo info = new PackageInfo();
+        info.dictTypeId = dictTypeId;
+        info.packageId = packageId;
+        info.packageName = packageName;
+        info.packageCount = packageCount;
+        info.oddsFixMax = oddsFixMax;
+        info.oddsFixMin = oddsFixMin;
+        info.oddsSetting = oddsSetting;
+        info.oddsBatchMin = oddsBatchMin;
+        info.oddsHotDiff = oddsHotDiff;
+        info.oddsDirector = oddsDirector;
+        info.oddsDirectorNoHot = oddsDirectorNoHot;
+        info.oddsMemberStatic = oddsMemberStatic;
+        info.oddsMemberFinal = oddsMemberFinal;
+        info.oddsTypeMember = oddsTypeMember;
+        info.returnWaterMember = returnWaterMember;
+        info.holdMoneyAvgHolden = holdMoneyAvgHolden;
+        info.holdMoneyHolden = holdMoneyHolden;
+        info.mainDirectorHoldMoneyAvgHolden = mainDirectorHoldMoneyAvgHolden;
+        info.mainDirectorHoldMoneyHolden = mainDirectorHoldMoneyHolden;
+        info.holdMoneyBatchMax = holdMoneyBatchMax;
+        info.holdMoneyHot = holdMoneyHot;
+        info.isStop = isStop;
+        info.isHot = isHot;
+        info.isUse = isUse;
+        info.domain = domain;
+        info.dictNoTypeId = dictNoTypeId;
+        info.periodNo = periodNo;
+        return info;
+    }
+
     static PackageInfo parsePackageInfo(JSONObject json) {
         try {
             PackageInfo info = new PackageInfo();
@@ -2,176 +2,581 @@ package com.fivebear.platform;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ObjDoubleConsumer;
+import java.util.logging.Logger;
 
+/**
+ * 包牌管理器
+ * 数据按期号分区：当前期的分区对外查询，下一期的包牌可以提前写入分区；
+ * 换期只是切换当前分区的引用，旧分区不再被引用后由 GC 回收，耗时与已加载的数据量无关。
+ * 当前期号只由 rollover 确定，提前写入的分区最多一个（已知的最近一期），更晚的包牌丢弃。
+ * 每个分区以 (玩法, 包牌名称, 包牌数) 为键索引各 domain 的包牌，每个键随写入维护最终赔率最高的包牌，
+ * 只有原最高者被移除或降低时才重新扫描该键下的各 domain。
+ * 保存的包牌是加入时的副本，oddsMemberFinal 始终是站点原始赔率；返点按 (domain, 玩法) 的偏移量在读取时叠加，
+ * 改返点只重算该 domain 涉及的键，不改写任何包牌。
+ * 按名称、按玩法等最高赔率随键的最高者变化局部更新；查询返回的包牌是叠加返点后的只读副本，
+ * 列表不可修改，调用方需要修改时先 copy()。
+ */
 public class PackageInfoManager {
-    // 新数据结构
-    private final Map<Integer, Map<String, Map<Integer, List<SiteOddsInfo>>>> oddsData = new HashMap<>();
+    private static final Logger logger = Logger.getLogger(PackageInfoManager.class.getName());
 
-    public static class SiteOddsInfo {
-        private String domain;
-        private double odds;
+    // 索引键：(玩法, 包牌名称, 包牌数)
+    private static final class PackageKey {
+        private final int dictTypeId;
+        private final String packageName;
+        private final int packageCount;
 
-        public SiteOddsInfo(String domain, double odds) {
-            this.domain = domain;
-            this.odds = odds;
+        PackageKey(PackageInfo pkg) {
+            this.dictTypeId = pkg.getDictTypeId();
+            this.packageName = pkg.getPackageName();
+            this.packageCount = pkg.getPackageCount();
         }
 
-        public String getDomain() {
-            return domain;
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PackageKey)) {
+                return false;
+            }
+            PackageKey other = (PackageKey) o;
+            return dictTypeId == other.dictTypeId && packageCount == other.packageCount
+                    && Objects.equals(packageName, other.packageName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dictTypeId, packageName, packageCount);
+        }
+    }
+
+    // 同一索引键下各 domain 的包牌（原始赔率）及其中最终赔率最高者
+    private static class PackageEntry {
+        private final Map<String, PackageInfo> byDomain = new HashMap<>();
+        // 最高者的原始包牌和叠加返点后的只读副本，没有包牌时为 null
+        private PackageInfo bestRaw;
+        private PackageInfo best;
+
+        // 加入或替换某 domain 的包牌，返回最高者是否变化
+        boolean put(PackageInfo pkg, Map<String, Double> rebateRates) {
+            PackageInfo old = byDomain.put(pkg.getDomain(), pkg);
+            double odds = finalOdds(pkg, rebateRates);
+            if (best == null || odds > best.getOddsMemberFinal()) {
+                setBest(pkg, odds);
+                return true;
+            }
+            // 原最高者被更低的赔率替换，最高者可能换成别的 domain
+            return old == bestRaw && rescan(rebateRates);
+        }
+
+        // 移除某 domain 的这个包牌，返回最高者是否变化
+        boolean remove(String domain, PackageInfo pkg, Map<String, Double> rebateRates) {
+            if (byDomain.get(domain) != pkg) {
+                return false;
+            }
+            byDomain.remove(domain);
+            return pkg == bestRaw && rescan(rebateRates);
+        }
+
+        // 重新找最高者，返回最高者是否变化
+        boolean rescan(Map<String, Double> rebateRates) {
+            PackageInfo raw = null;
+            double rawFinal = 0;
+            for (PackageInfo candidate : byDomain.values()) {
+                double candidateFinal = finalOdds(candidate, rebateRates);
+                if (raw == null || candidateFinal > rawFinal) {
+                    raw = candidate;
+                    rawFinal = candidateFinal;
+                }
+            }
+            if (raw == null) {
+                boolean changed = best != null;
+                bestRaw = null;
+                best = null;
+                return changed;
+            }
+            if (raw == bestRaw && rawFinal == best.getOddsMemberFinal()) {
+                return false;
+            }
+            setBest(raw, rawFinal);
+            return true;
+        }
+
+        private void setBest(PackageInfo raw, double odds) {
+            PackageInfo priced = raw.copy();
+            priced.setOddsMemberFinal(odds);
+            priced.freeze();
+            bestRaw = raw;
+            best = priced;
+        }
+    }
+
+    // 一期的包牌数据
+    private static class PeriodPartition {
+        // 按键首次出现的顺序排列
+        private final Map<PackageKey, PackageEntry> index = new LinkedHashMap<>();
+        // domain 分组
+        private final Map<String, Map<Long, PackageInfo>> domainToPackages = new HashMap<>();
+        // 玩法 -> 包牌名称 -> 各包牌数的索引项
+        private final Map<Integer, Map<String, List<PackageEntry>>> entriesByTypeAndName = new HashMap<>();
+        // 各维度的最高者（只读副本），某个键的最高者变化时只重算它所在的 (玩法, 名称)、名称和玩法
+        private final Map<Integer, Map<String, PackageInfo>> bestByTypeAndName = new HashMap<>();
+        private final Map<String, PackageInfo> bestByName = new HashMap<>();
+        private final Map<Integer, PackageInfo> bestByType = new HashMap<>();
+        // 包牌名称的引用计数，以及 包牌ID -> 名称 -> 引用计数
+        private final Map<String, Integer> nameCounts = new HashMap<>();
+        private final Map<Long, Map<String, Integer>> nameCountsByPackageId = new HashMap<>();
+        // 对外返回的不可变集合，第一次查询时生成，相关数据变化时丢弃
+        private List<PackageInfo> bestPackages;
+        private final Map<Integer, List<PackageInfo>> levelsByType = new HashMap<>();
+        private final Map<Integer, List<PackageInfo>> bestByTypeGroupedByName = new HashMap<>();
+        private Set<String> allNames;
+        private final Map<Long, Set<String>> namesByPackageId = new HashMap<>();
+
+        void put(PackageInfo pkg, Map<String, Double> rebateRates) {
+            Map<Long, PackageInfo> packages = domainToPackages.computeIfAbsent(pkg.getDomain(), k -> new HashMap<>());
+            PackageInfo old = packages.put(pkg.getPackageId(), pkg);
+            PackageKey key = new PackageKey(pkg);
+            if (old != null) {
+                removeName(old);
+                PackageKey oldKey = new PackageKey(old);
+                if (!oldKey.equals(key)) {
+                    detach(oldKey, old, rebateRates);
+                }
+            }
+            addName(pkg);
+            PackageEntry entry = index.get(key);
+            if (entry == null) {
+                entry = new PackageEntry();
+                index.put(key, entry);
+                entriesByTypeAndName.computeIfAbsent(key.dictTypeId, k -> new HashMap<>())
+                        .computeIfAbsent(key.packageName, k -> new ArrayList<>()).add(entry);
+                bestPackages = null;
+            }
+            if (entry.put(pkg, rebateRates)) {
+                bestChanged(key);
+            }
+        }
+
+        void putAll(PeriodPartition other, Map<String, Double> rebateRates) {
+            for (Map<Long, PackageInfo> packages : other.domainToPackages.values()) {
+                for (PackageInfo pkg : packages.values()) {
+                    put(pkg, rebateRates);
+                }
+            }
+        }
+
+        void removeDomain(String domain, Map<String, Double> rebateRates) {
+            Map<Long, PackageInfo> packages = domainToPackages.remove(domain);
+            if (packages == null) {
+                return;
+            }
+            for (PackageInfo pkg : packages.values()) {
+                removeName(pkg);
+                detach(new PackageKey(pkg), pkg, rebateRates);
+            }
+        }
+
+        // 返点率变化：只重算该 domain 的包牌所在的键
+        void reprice(String domain, Map<String, Double> rebateRates) {
+            Map<Long, PackageInfo> packages = domainToPackages.get(domain);
+            if (packages == null) {
+                return;
+            }
+            for (PackageInfo pkg : packages.values()) {
+                PackageKey key = new PackageKey(pkg);
+                PackageEntry entry = index.get(key);
+                if (entry != null && entry.rescan(rebateRates)) {
+                    bestChanged(key);
+                }
+            }
+        }
+
+        // 从索引项中移除包牌，索引项空了就整个移除
+        private void detach(PackageKey key, PackageInfo pkg, Map<String, Double> rebateRates) {
+            PackageEntry entry = index.get(key);
+            if (entry == null) {
+                return;
+            }
+            boolean changed = entry.remove(pkg.getDomain(), pkg, rebateRates);
+            if (entry.byDomain.isEmpty()) {
+                index.remove(key);
+                Map<String, List<PackageEntry>> byName = entriesByTypeAndName.get(key.dictTypeId);
+                List<PackageEntry> entries = byName.get(key.packageName);
+                entries.remove(entry);
+                if (entries.isEmpty()) {
+                    byName.remove(key.packageName);
+                    if (byName.isEmpty()) {
+                        entriesByTypeAndName.remove(key.dictTypeId);
+                    }
+                }
+                bestPackages = null;
+                changed = true;
+            }
+            if (changed) {
+                bestChanged(key);
+            }
+        }
+
+        // 某个键的最高者变化
+        private void bestChanged(PackageKey key) {
+            int type = key.dictTypeId;
+            String name = key.packageName;
+            PackageInfo typeAndName = null;
+            for (PackageEntry entry : entriesByTypeAndName.getOrDefault(type, Collections.emptyMap())
+                    .getOrDefault(name, Collections.emptyList())) {
+                typeAndName = higherOf(typeAndName, entry.best);
+            }
+            Map<String, PackageInfo> byName = bestByTypeAndName.computeIfAbsent(type, k -> new HashMap<>());
+            putOrRemove(byName, name, typeAndName);
+            PackageInfo typed = null;
+            for (PackageInfo pkg : byName.values()) {
+                typed = higherOf(typed, pkg);
+            }
+            if (byName.isEmpty()) {
+                bestByTypeAndName.remove(type);
+            }
+            putOrRemove(bestByType, type, typed);
+            PackageInfo named = null;
+            for (Map<String, PackageInfo> map : bestByTypeAndName.values()) {
+                named = higherOf(named, map.get(name));
+            }
+            putOrRemove(bestByName, name, named);
+            bestPackages = null;
+            levelsByType.remove(type);
+            bestByTypeGroupedByName.remove(type);
+        }
+
+        private void addName(PackageInfo pkg) {
+            if (nameCounts.merge(pkg.getPackageName(), 1, Integer::sum) == 1) {
+                allNames = null;
+            }
+            nameCountsByPackageId.computeIfAbsent(pkg.getPackageId(), k -> new HashMap<>())
+                    .merge(pkg.getPackageName(), 1, Integer::sum);
+            namesByPackageId.remove(pkg.getPackageId());
+        }
+
+        private void removeName(PackageInfo pkg) {
+            if (decrement(nameCounts, pkg.getPackageName())) {
+                allNames = null;
+            }
+            Map<String, Integer> counts = nameCountsByPackageId.get(pkg.getPackageId());
+            if (counts != null && decrement(counts, pkg.getPackageName()) && counts.isEmpty()) {
+                nameCountsByPackageId.remove(pkg.getPackageId());
+            }
+            namesByPackageId.remove(pkg.getPackageId());
+        }
+
+        List<PackageInfo> bestPackages() {
+            if (bestPackages == null) {
+                List<PackageInfo> packages = new ArrayList<>(index.size());
+                for (PackageEntry entry : index.values()) {
+                    packages.add(entry.best);
+                }
+                bestPackages = Collections.unmodifiableList(packages);
+            }
+            return bestPackages;
+        }
+
+        List<PackageInfo> levels(int dictTypeId) {
+            List<PackageInfo> levels = levelsByType.get(dictTypeId);
+            if (levels == null) {
+                List<PackageInfo> packages = new ArrayList<>();
+                for (List<PackageEntry> entries : entriesByTypeAndName.getOrDefault(dictTypeId,
+                        Collections.emptyMap()).values()) {
+                    for (PackageEntry entry : entries) {
+                        packages.add(entry.best);
+                    }
+                }
+                packages.sort((a, b) -> Integer.compare(b.getPackageCount(), a.getPackageCount()));
+                levels = Collections.unmodifiableList(packages);
+                levelsByType.put(dictTypeId, levels);
+            }
+            return levels;
         }
 
-        public double getOdds() {
-            return odds;
+        List<PackageInfo> bestByTypeGroupedByName(int dictTypeId) {
+            List<PackageInfo> grouped = bestByTypeGroupedByName.get(dictTypeId);
+            if (grouped == null) {
+                grouped = Collections.unmodifiableList(new ArrayList<>(
+                        bestByTypeAndName.getOrDefault(dictTypeId, Collections.emptyMap()).values()));
+                bestByTypeGroupedByName.put(dictTypeId, grouped);
+            }
+            return grouped;
+        }
+
+        Set<String> allNames() {
+            if (allNames == null) {
+                allNames = Collections.unmodifiableSet(new HashSet<>(nameCounts.keySet()));
+            }
+            return allNames;
+        }
+
+        Set<String> namesByPackageId(long packageId) {
+            Map<String, Integer> counts = nameCountsByPackageId.get(packageId);
+            if (counts == null) {
+                return Collections.emptySet();
+            }
+            return namesByPackageId.computeIfAbsent(packageId,
+                    k -> Collections.unmodifiableSet(new HashSet<>(counts.keySet())));
         }
     }
 
-    // domain 分组
-    private final Map<String, Map<Long, PackageInfo>> domainToPackages = new HashMap<>();
+    // 当前期分区
+    private PeriodPartition live = new PeriodPartition();
+    // 当前期号，null 表示尚未确定
+    private String livePeriodNo;
+    // 提前写入的后续期分区，期号 -> 分区，最多一个
+    private final Map<String, PeriodPartition> stagedPartitions = new HashMap<>();
+    // domain -> 返点率
+    private final Map<String, Double> rebateRates = new HashMap<>();
+    // 上次丢弃包牌的期号，同一期号只记一次日志
+    private String lastRejectedPeriodNo;
 
     // 构造方法设为 public
     public PackageInfoManager() {
     }
 
-    // 添加包牌
+    // 添加包牌，pkg 的 oddsMemberFinal 为站点原始赔率，保存其副本，pkg 本身不修改；早于当前期的包牌丢弃
     public synchronized void addPackage(PackageInfo pkg) {
-        // 新结构
-        oddsData
-                .computeIfAbsent(pkg.getDictTypeId(), k -> new HashMap<>())
-                .computeIfAbsent(pkg.getPackageName(), k -> new HashMap<>())
-                .computeIfAbsent(pkg.getPackageCount(), k -> new ArrayList<>())
-                .add(new SiteOddsInfo(pkg.getDomain(), pkg.getOddsMemberFinal()));
-        // 兼容老结构
-        domainToPackages
-                .computeIfAbsent(pkg.getDomain(), k -> new HashMap<>())
-                .put(pkg.getPackageId(), pkg);
-    }
-
-    // 获取某 domain 下所有包牌
-    public synchronized List<PackageInfo> getPackagesByDomain(String domain) {
-        return domainToPackages.getOrDefault(domain, Collections.emptyMap()).values().stream()
-                .collect(Collectors.toList());
+        PeriodPartition partition = partitionFor(pkg.getPeriodNo());
+        if (partition == null) {
+            return;
+        }
+        partition.put(pkg.copy(), rebateRates);
     }
 
-    // 获取某 domain 下最高赔率的包牌
-    public synchronized PackageInfo getMaxOddsPackageByDomain(String domain) {
-        return getPackagesByDomain(domain).stream()
-                .max(Comparator.comparingDouble(PackageInfo::getOddsMemberFinal))
-                .orElse(null);
+    /**
+     * 更新 domain 的返点率：只重算该 domain 的包牌所在的键，包牌本身不改写
+     */
+    public synchronized void setRebateRate(String domain, double rebateRate) {
+        Double oldRate = rebateRates.put(domain, rebateRate);
+        if (oldRate != null && oldRate == rebateRate) {
+            return;
+        }
+        live.reprice(domain, rebateRates);
+        for (PeriodPartition partition : stagedPartitions.values()) {
+            partition.reprice(domain, rebateRates);
+        }
     }
 
-    // 获取所有已存在的 PackageName，去重
-    public synchronized java.util.Set<String> getAllPackageNames() {
-        java.util.Set<String> names = new java.util.HashSet<>();
-        for (Map<Long, PackageInfo> map : domainToPackages.values()) {
-            for (PackageInfo pkg : map.values()) {
-                names.add(pkg.getPackageName());
+    /**
+     * 按 domain 当前返点率叠加后的包牌副本，pkg 的 oddsMemberFinal 为站点原始赔率
+     */
+    public synchronized PackageInfo withRebate(PackageInfo pkg) {
+        PackageInfo priced = pkg.copy();
+        priced.setOddsMemberFinal(finalOdds(pkg, rebateRates));
+        return priced;
+    }
+
+    // 原始赔率 + (domain, 玩法) 的返点偏移
+    private static double finalOdds(PackageInfo pkg, Map<String, Double> rebateRates) {
+        double rebateRate = rebateRates.getOrDefault(pkg.getDomain(), 0.0);
+        return pkg.getOddsMemberFinal() + rebateRate * OddsManager.rebateFactor(pkg.getDictNoTypeId());
+    }
+
+    /**
+     * 换期：下一期已提前写入的分区直接成为当前分区，没有则换成空分区。
+     * 只切换引用，不遍历旧数据；第一次确定期号时，此前不带期号写入的包牌归入该期
+     *
+     * @return 期号比当前期新并完成切换时返回 true
+     */
+    public synchronized boolean rollover(String periodNo) {
+        if (periodNo == null || (livePeriodNo != null && OddsManager.comparePeriodNo(periodNo, livePeriodNo) <= 0)) {
+            return false;
+        }
+        PeriodPartition next = stagedPartitions.remove(periodNo);
+        if (livePeriodNo == null) {
+            if (next == null) {
+                next = live;
+            } else {
+                next.putAll(live, rebateRates);
             }
         }
-        return names;
+        live = next != null ? next : new PeriodPartition();
+        livePeriodNo = periodNo;
+        stagedPartitions.keySet().removeIf(p -> OddsManager.comparePeriodNo(p, periodNo) <= 0);
+        return true;
     }
 
-    // 根据 PackageId 查询所有的 PackageName（去重）
-    public synchronized java.util.Set<String> getPackageNamesByPackageId(long packageId) {
-        java.util.Set<String> names = new java.util.HashSet<>();
-        for (Map<Long, PackageInfo> map : domainToPackages.values()) {
-            for (PackageInfo pkg : map.values()) {
-                if (pkg.getPackageId() == packageId) {
-                    names.add(pkg.getPackageName());
-                }
+    // 当前期号
+    public synchronized String getLivePeriodNo() {
+        return livePeriodNo;
+    }
+
+    /**
+     * 期号对应的分区：未带期号或当前期为当前分区，后续期为提前写入的分区。
+     * 提前写入的分区只保留一个：出现更近的一期时原分区不是下一期，丢弃；比它更晚的期返回 null。
+     * 早于当前期也返回 null
+     */
+    private PeriodPartition partitionFor(String periodNo) {
+        if (periodNo == null || periodNo.equals(livePeriodNo)) {
+            return live;
+        }
+        if (livePeriodNo != null && OddsManager.comparePeriodNo(periodNo, livePeriodNo) < 0) {
+            rejectPeriod(periodNo, "早于当前期 " + livePeriodNo);
+            return null;
+        }
+        if (!stagedPartitions.isEmpty()) {
+            String stagedPeriodNo = stagedPartitions.keySet().iterator().next();
+            int cmp = OddsManager.comparePeriodNo(periodNo, stagedPeriodNo);
+            if (cmp == 0) {
+                return stagedPartitions.get(stagedPeriodNo);
+            }
+            if (cmp > 0) {
+                rejectPeriod(periodNo, "晚于已提前写入的 " + stagedPeriodNo);
+                return null;
+            }
+            stagedPartitions.remove(stagedPeriodNo);
+            logger.warning("收到更近一期 " + periodNo + " 的包牌，丢弃提前写入的 " + stagedPeriodNo + " 期包牌");
+        }
+        PeriodPartition partition = new PeriodPartition();
+        stagedPartitions.put(periodNo, partition);
+        return partition;
+    }
+
+    private void rejectPeriod(String periodNo, String reason) {
+        if (!periodNo.equals(lastRejectedPeriodNo)) {
+            lastRejectedPeriodNo = periodNo;
+            logger.warning("丢弃 " + periodNo + " 期包牌: " + reason);
+        }
+    }
+
+    // 获取某 domain 下所有包牌（叠加返点后的副本）
+    public synchronized List<PackageInfo> getPackagesByDomain(String domain) {
+        List<PackageInfo> packages = new ArrayList<>();
+        for (PackageInfo pkg : live.domainToPackages.getOrDefault(domain, Collections.emptyMap()).values()) {
+            packages.add(withRebate(pkg));
+        }
+        return packages;
+    }
+
+    // 获取某 domain 下最高赔率的包牌（叠加返点后的副本）
+    public synchronized PackageInfo getMaxOddsPackageByDomain(String domain) {
+        PackageInfo max = null;
+        double maxOdds = 0;
+        for (PackageInfo pkg : live.domainToPackages.getOrDefault(domain, Collections.emptyMap()).values()) {
+            double odds = finalOdds(pkg, rebateRates);
+            if (max == null || odds > maxOdds) {
+                max = pkg;
+                maxOdds = odds;
             }
         }
-        return names;
+        return max == null ? null : withRebate(max);
+    }
+
+    // 获取所有已存在的 PackageName，去重（只读）
+    public synchronized Set<String> getAllPackageNames() {
+        return live.allNames();
     }
 
-    // 根据 PackageName 查找出最高赔率的 PackageInfo（全局）
+    // 根据 PackageId 查询所有的 PackageName（去重，只读）
+    public synchronized Set<String> getPackageNamesByPackageId(long packageId) {
+        return live.namesByPackageId(packageId);
+    }
+
+    // 根据 PackageName 查找出最高赔率的 PackageInfo（全局，只读）
     public synchronized PackageInfo getMaxOddsPackageByName(String packageName) {
-        return domainToPackages.values().stream()
-                .flatMap(map -> map.values().stream())
-                .filter(pkg -> packageName.equals(pkg.getPackageName()))
-                .max(Comparator.comparingDouble(PackageInfo::getOddsMemberFinal))
-                .orElse(null);
+        return live.bestByName.get(packageName);
     }
 
-    // 根据 dictNoTypeId 返回赔率最高的 PackageInfo（全局）
+    // 根据 dictNoTypeId 返回赔率最高的 PackageInfo（全局，只读）
     public synchronized PackageInfo getMaxOddsPackageByDictNoTypeId(int dictNoTypeId) {
-        return domainToPackages.values().stream()
-                .flatMap(map -> map.values().stream())
-                .filter(pkg -> pkg.getDictTypeId() == dictNoTypeId)
-                .max(Comparator.comparingDouble(PackageInfo::getOddsMemberFinal))
-                .orElse(null);
+        return live.bestByType.get(dictNoTypeId);
     }
 
-    // 根据 dictNoTypeId，返回每个 PackageName 下赔率最高的 PackageInfo（全局）
+    // 根据 dictNoTypeId，返回每个 PackageName 下赔率最高的 PackageInfo（全局，只读）
     public synchronized List<PackageInfo> getMaxOddsPackagesByDictNoTypeId(int dictNoTypeId) {
-        // 先筛选出所有该玩法的包牌
-        return domainToPackages.values().stream()
-                .flatMap(map -> map.values().stream())
-                .filter(pkg -> pkg.getDictTypeId() == dictNoTypeId)
-                .collect(Collectors.groupingBy(PackageInfo::getPackageName,
-                        Collectors.maxBy(Comparator.comparingDouble(PackageInfo::getOddsMemberFinal))))
-                .values().stream()
-                .filter(java.util.Optional::isPresent)
-                .map(java.util.Optional::get)
-                .collect(Collectors.toList());
-    }
-
-    // 根据 dictNoTypeId 和 PackageName 查询最高赔率的 PackageInfo（全局）
+        return live.bestByTypeGroupedByName(dictNoTypeId);
+    }
+
+    // 根据 dictNoTypeId 和 PackageName 查询最高赔率的 PackageInfo（全局，只读）
     public synchronized PackageInfo getMaxOddsPackageByDictNoTypeIdAndName(int dictNoTypeId, String packageName) {
-        return domainToPackages.values().stream()
-                .flatMap(map -> map.values().stream())
-                .filter(pkg -> pkg.getDictTypeId() == dictNoTypeId && packageName.equals(pkg.getPackageName()))
-                .max(Comparator.comparingDouble(PackageInfo::getOddsMemberFinal))
-                .orElse(null);
+        return live.bestByTypeAndName.getOrDefault(dictNoTypeId, Collections.emptyMap()).get(packageName);
+    }
+
+    /**
+     * 某玩法的包牌档位：每个 (包牌名称, 包牌数) 取最高赔率的包牌，按包牌数从大到小排列，
+     * 可直接作为 PackageAnalyzer.splitToPackageGroups 的 packageLevels（只读）
+     */
+    public synchronized List<PackageInfo> getPackageLevels(int dictTypeId) {
+        return live.levels(dictTypeId);
+    }
+
+    /**
+     * 遍历当前期的全部包牌及其站点原始赔率（写检查点时使用）
+     */
+    synchronized void forEachLivePackage(ObjDoubleConsumer<PackageInfo> consumer) {
+        for (Map<Long, PackageInfo> packages : live.domainToPackages.values()) {
+            for (PackageInfo pkg : packages.values()) {
+                consumer.accept(pkg, pkg.getOddsMemberFinal());
+            }
+        }
     }
 
     // 删除指定 domain 下的所有包牌
     public synchronized void removeDomain(String domain) {
-        domainToPackages.remove(domain);
+        live.removeDomain(domain, rebateRates);
+        for (PeriodPartition partition : stagedPartitions.values()) {
+            partition.removeDomain(domain, rebateRates);
+        }
     }
 
-    // 删除指定期号下的所有包牌
+    // 删除指定期号下的所有包牌，直接丢弃该期分区
     public synchronized void removeByPeriodNo(String periodNo) {
-        for (Map<Long, PackageInfo> map : domainToPackages.values()) {
-            // 用迭代器安全删除
-            map.values().removeIf(pkg -> periodNo.equals(pkg.getPeriodNo()));
+        if (periodNo.equals(livePeriodNo)) {
+            live = new PeriodPartition();
+        } else {
+            stagedPartitions.remove(periodNo);
         }
     }
 
-    // 获取所有的包牌 根据包牌名称去，返回最高赔率的
+    // 获取所有的包牌 根据包牌名称去，返回最高赔率的（只读）
     public synchronized List<PackageInfo> getSortedMaxOddsPackageDomains() {
-        List<PackageInfo> result = new ArrayList<>();
-        for (Map.Entry<Integer, Map<String, Map<Integer, List<SiteOddsInfo>>>> typeEntry : oddsData.entrySet()) {
-            int dictTypeId = typeEntry.getKey();
-            for (Map.Entry<String, Map<Integer, List<SiteOddsInfo>>> pkgEntry : typeEntry.getValue().entrySet()) {
-                String packageName = pkgEntry.getKey();
-                for (Map.Entry<Integer, List<SiteOddsInfo>> countEntry : pkgEntry.getValue().entrySet()) {
-                    int packageCount = countEntry.getKey();
-                    List<SiteOddsInfo> siteList = countEntry.getValue();
-                    SiteOddsInfo max = siteList.stream().max(Comparator.comparingDouble(SiteOddsInfo::getOdds))
-                            .orElse(null);
-                    if (max != null) {
-                        PackageInfo pkg = new PackageInfo();
-                        pkg.setDictTypeId(dictTypeId);
-                        pkg.setPackageName(packageName);
-                        pkg.setPackageCount(packageCount);
-                        pkg.setDomain(max.getDomain());
-                        pkg.setOddsMemberFinal(max.getOdds());
-                        result.add(pkg);
-                    }
-                }
-            }
-        }
-        // 可按需要排序
-        return result;
+        return live.bestPackages();
     }
 
     // 清空所有包牌数据
     public synchronized void clear() {
-        domainToPackages.clear();
+        live = new PeriodPartition();
+        stagedPartitions.clear();
+    }
+
+    // 赔率较高者，相同时取前者，null 视为没有
+    private static PackageInfo higherOf(PackageInfo a, PackageInfo b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return b.getOddsMemberFinal() > a.getOddsMemberFinal() ? b : a;
+    }
+
+    private static <K> void putOrRemove(Map<K, PackageInfo> map, K key, PackageInfo value) {
+        if (value == null) {
+            map.remove(key);
+        } else {
+            map.put(key, value);
+        }
+    }
+
+    // 引用计数减一，减到 0 时移除并返回 true
+    private static boolean decrement(Map<String, Integer> counts, String name) {
+        Integer count = counts.get(name);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            counts.remove(name);
+            return true;
+        }
+        counts.put(name, count - 1);
+        return false;
     }
 }
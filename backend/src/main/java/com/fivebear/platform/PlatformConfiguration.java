@@ -1,10 +1,14 @@
 package com.fivebear.platform;
 
+import java.nio.file.Paths;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
+import com.fivebear.common.config.FiveBearProperties;
+
 /**
  * Platform模块的Spring配置类
  */
@@ -13,14 +17,18 @@ public class PlatformConfiguration {
     
     @Autowired
     private ExternalSiteService externalSiteService;
+
+    @Autowired
+    private FiveBearProperties fiveBearProperties;
     
     /**
      * 配置PlatformManager Bean并注入数据库服务
-     * WebSocket处理器通过setter方法延迟注入
+     * WebSocket处理器通过setter方法延迟注入；检查点加载和后台线程在 @PostConstruct 中启动
      */
     @Bean
     public PlatformManager platformManager() {
-        PlatformManager platformManager = new PlatformManager();
+        PlatformManager platformManager = new PlatformManager(
+                Paths.get(fiveBearProperties.getCheckpoint().getDir()));
         platformManager.setExternalSiteService(externalSiteService);
         return platformManager;
     }
@@ -1,7 +1,5 @@
 package com.fivebear.platform;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -12,6 +10,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.json.JSONArray;
@@ -39,12 +39,61 @@ public class PlatformManager implements SiteCallback {
     private final ExecutorService operationExecutor = Executors.newFixedThreadPool(10);
     private final Map<String, CompletableFuture<Boolean>> pendingOperations = new ConcurrentHashMap<>();
 
+    // 赔率检查点：重启后期号不变时直接恢复赔率，不必等待全量同步
+    private static final long CHECKPOINT_INTERVAL_SECONDS = 60;
+    // 赔率过期时间轮推进间隔
+    private static final long ODDS_EXPIRY_TICK_MILLIS = 1000;
+    private final OddsCheckpoint oddsCheckpoint;
+    // 检查点与过期检查的后台线程，start 时创建，shutdown 时关闭
+    private ScheduledExecutorService oddsMaintenanceExecutor;
+
     // 构造方法设为 public
     public PlatformManager() {
+        this(java.nio.file.Paths.get("checkpoint"));
+    }
+
+    /**
+     * @param checkpointDir 赔率检查点目录（配置项 fivebear.checkpoint.dir）
+     */
+    public PlatformManager(java.nio.file.Path checkpointDir) {
         this.siteManager = new SiteManager(this);
+        this.oddsCheckpoint = new OddsCheckpoint(checkpointDir);
         // 其它初始化...
     }
 
+    /**
+     * 启动：加载赔率检查点并开始定期写检查点、检查赔率过期。
+     * 由 Spring 在注入完成后调用；不经 Spring 创建时需手动调用，shutdown 之后可以再次 start
+     */
+    @jakarta.annotation.PostConstruct
+    public synchronized void start() {
+        if (oddsMaintenanceExecutor != null) {
+            return;
+        }
+        oddsCheckpoint.load();
+        oddsMaintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "odds-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        oddsMaintenanceExecutor.scheduleWithFixedDelay(() -> oddsCheckpoint.checkpoint(oddsManager, packageInfoManager),
+                CHECKPOINT_INTERVAL_SECONDS, CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        oddsMaintenanceExecutor.scheduleAtFixedRate(this::expireStaleOdds,
+                ODDS_EXPIRY_TICK_MILLIS, ODDS_EXPIRY_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // 超时未更新的赔率移出最优排名，避免继续向同步已停滞的站点下注
+    private void expireStaleOdds() {
+        try {
+            int expired = oddsManager.expireStale(System.currentTimeMillis());
+            if (expired > 0) {
+                logger.info("赔率过期移除: " + expired);
+            }
+        } catch (RuntimeException e) {
+            logger.warning("赔率过期检查失败: " + e.getMessage());
+        }
+    }
+
     // 设置数据库服务
     public void setExternalSiteService(ExternalSiteService externalSiteService) {
         this.externalSiteService = externalSiteService;
@@ -487,6 +536,7 @@ public class PlatformManager implements SiteCallback {
         return packageInfoManager;
     }
 
+    @jakarta.annotation.PreDestroy
     public void shutdown() {
         // 清理用户隔离相关资源
         operationExecutor.shutdown();
@@ -507,6 +557,10 @@ public class PlatformManager implements SiteCallback {
         
         // 清理原有资源
         siteManager.shutdown();
+        // 清空前写最后一次检查点
+        stopOddsMaintenance();
+        oddsCheckpoint.checkpoint(oddsManager, packageInfoManager);
+        oddsCheckpoint.close();
         oddsManager.clear();
         packageInfoManager.clear();
         // 如果 PackageInfoManager、OddsManager 有 shutdown 方法，也一并调用
@@ -514,6 +568,23 @@ public class PlatformManager implements SiteCallback {
         // oddsManager.shutdown();
     }
 
+    // 停止后台线程并等待正在写的检查点完成
+    private synchronized void stopOddsMaintenance() {
+        if (oddsMaintenanceExecutor == null) {
+            return;
+        }
+        oddsMaintenanceExecutor.shutdown();
+        try {
+            if (!oddsMaintenanceExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                oddsMaintenanceExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            oddsMaintenanceExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        oddsMaintenanceExecutor = null;
+    }
+
     // 注册外部回调
     public void addSiteCallbackListener(SiteCallback callback) {
         externalCallbacks.add(callback);
@@ -538,28 +609,55 @@ public class PlatformManager implements SiteCallback {
 
     @Override
     public void onPackageOddsInfo(Site site, List<PackageInfo> packageInfoList) {
-        for (PackageInfo packageInfo : packageInfoList) {
-            if (packageInfo.getDictNoTypeId() == 11) {
-                packageInfo.setOddsMemberFinal(packageInfo.getOddsMemberFinal() + (site.getRebateRate() * 10000));
-            } else if (packageInfo.getDictNoTypeId() >= 7 && packageInfo.getDictNoTypeId() <= 11) {
-                packageInfo.setOddsMemberFinal(packageInfo.getOddsMemberFinal() + (site.getRebateRate() * 1000));
-            } else if (packageInfo.getDictNoTypeId() >= 1 && packageInfo.getDictNoTypeId() <= 6) {
-                packageInfo.setOddsMemberFinal(packageInfo.getOddsMemberFinal() + (site.getRebateRate() * 100));
-            }
-            addPackageInfo(packageInfo);
+        // 包牌保存站点原始赔率，返点由 PackageInfoManager 按 domain 叠加
+        packageInfoManager.setRebateRate(site.getDomain(), site.getRebateRate());
+        double[] rawOdds = new double[packageInfoList.size()];
+        // 外部监听器收到的是叠加返点后的最终赔率
+        List<PackageInfo> pricedList = new ArrayList<>(packageInfoList.size());
+        for (int i = 0; i < rawOdds.length; i++) {
+            PackageInfo pkg = packageInfoList.get(i);
+            rawOdds[i] = pkg.getOddsMemberFinal();
+            addPackageInfo(pkg);
+            pricedList.add(packageInfoManager.withRebate(pkg));
         }
+        oddsCheckpoint.journalPackages(packageInfoList, rawOdds);
         for (SiteCallback cb : externalCallbacks) {
-            cb.onPackageOddsInfo(site, packageInfoList);
+            cb.onPackageOddsInfo(site, pricedList);
         }
     }
 
     @Override
     public void onRebateRateChanged(Site site, double newRate) {
+        // 返点只是 domain 级偏移量，本地立即重新定价，不需要重新同步赔率
+        String domain = site.getDomain();
+        if (domain != null) {
+            oddsManager.setRebateRate(domain, newRate);
+            packageInfoManager.setRebateRate(domain, newRate);
+            oddsCheckpoint.journalRebate(domain, newRate);
+        }
         for (SiteCallback cb : externalCallbacks) {
             cb.onRebateRateChanged(site, newRate);
         }
     }
 
+    @Override
+    public void onPeriodChanged(Site site, String periodNo) {
+        // 第一个报告新期号的站点触发换期，之后的站点报告同一期号时为空操作
+        boolean rolled = oddsManager.rollover(periodNo);
+        if (rolled) {
+            logger.info("赔率换期: " + periodNo);
+        }
+        packageInfoManager.rollover(periodNo);
+        // 启动后第一次确认期号：与检查点同一期则恢复；恢复或换期后立即以当前状态重写检查点
+        boolean restored = oddsCheckpoint.restoreIfCurrent(periodNo, oddsManager, packageInfoManager);
+        if (rolled || restored) {
+            oddsCheckpoint.checkpoint(oddsManager, packageInfoManager);
+        }
+        for (SiteCallback cb : externalCallbacks) {
+            cb.onPeriodChanged(site, periodNo);
+        }
+    }
+
     @Override
     public void onStatusChanged(Site site, SiteStatus newStatus) {
         if (newStatus == SiteStatus.LOGGED_OUT) {
@@ -573,6 +671,7 @@ public class PlatformManager implements SiteCallback {
                     oddsManager.removeDomain(domain);
                     // 删除包牌
                     packageInfoManager.removeDomain(domain);
+                    oddsCheckpoint.journalRemoveDomain(domain);
                 }
             }
         }
@@ -588,26 +687,16 @@ public class PlatformManager implements SiteCallback {
         }
         String domain = site.getDomain();
         double rebateRate = site.getRebateRate();
-        // 处理号码赔率信息
+        // 处理号码赔率信息：整批解析后一次写入
+        OddsManager.OddsBatch batch = new OddsManager.OddsBatch(oddsJsonArray.length());
         for (int i = 0; i < oddsJsonArray.length(); i++) {
             JSONObject oddsJson = oddsJsonArray.getJSONObject(i);
-            String number = oddsJson.getString("number");
-            double odds = oddsJson.getDouble("odds");
-            int dictNoTypeId = oddsJson.getInt("dict_no_type_id");
-            double rebateFactor;
-            if (dictNoTypeId >= 1 && dictNoTypeId <= 6) {
-                rebateFactor = 100;
-            } else if (dictNoTypeId >= 7 && dictNoTypeId < 11) {
-                rebateFactor = 1000;
-            } else if (dictNoTypeId == 11) {
-                rebateFactor = 10000;
-            } else {
-                rebateFactor = 0;
-            }
-            odds += rebateRate * rebateFactor;
-            String updateDatetime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            addOdds(number, dictNoTypeId, domain, odds, updateDatetime);
+            batch.add(oddsJson.getString("number"), oddsJson.getInt("dict_no_type_id"), oddsJson.getDouble("odds"));
         }
+        long updateMillis = System.currentTimeMillis();
+        String periodNo = site.getPeriodNo();
+        oddsManager.addOddsBatch(domain, periodNo, batch, rebateRate, updateMillis);
+        oddsCheckpoint.journalOdds(domain, periodNo, batch, rebateRate, updateMillis);
     }
 
     public String syncAllOddsForSite(Site site) {
@@ -657,6 +746,8 @@ public class PlatformManager implements SiteCallback {
      */
     public List<Bet> processBetScheme(List<Bet> bets) {
         List<Bet> result = new ArrayList<>();
+        // 整个方案使用同一版本的赔率
+        OddsSnapshot odds = oddsManager.snapshot();
         // 输出总金额
         System.out.println(String.format("开始处理投注方案,总金额: %.2f  注数: %d",
                 bets.stream().mapToDouble(b -> b.getBetMoney()).sum(), bets.size()));
@@ -666,26 +757,28 @@ public class PlatformManager implements SiteCallback {
                 String number = bet.getNumber();
                 double betMoney = bet.getBetMoney();
                 // 获取三星最大赔率
-                NumberOddsGroup.OddsInfo odds3Info = oddsManager.getMaxOddsInfo(number, typeId);
-                double odds3 = odds3Info != null ? odds3Info.getOdds() : bet.getOdds();
+                double odds3 = odds.getMaxOdds(number, typeId);
+                if (odds3 <= 0) {
+                    odds3 = bet.getOdds();
+                }
                 // 展开为10个四星号码
                 List<String> fourStarNums = NumberTemplateGenerator.getRelatedFourStarNumber(number);
-                List<Double> odds4List = new ArrayList<>();
-                for (String num : fourStarNums) {
-                    NumberOddsGroup.OddsInfo odds4Info = oddsManager.getMaxOddsInfo(num, 11);
-                    odds4List.add(odds4Info != null ? odds4Info.getOdds() : bet.getOdds());
+                double[] odds4List = new double[fourStarNums.size()];
+                for (int i = 0; i < odds4List.length; i++) {
+                    double odds4 = odds.getMaxOdds(fourStarNums.get(i), 11);
+                    odds4List[i] = odds4 > 0 ? odds4 : bet.getOdds();
                 }
                 // 计算四星平均中奖金额
-                double avgOdds4 = odds4List.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+                double avgOdds4 = Arrays.stream(odds4List).average().orElse(0.0);
                 double avgFourStarWin = (betMoney / 10.0) * avgOdds4;
                 // 三星中奖金额
                 double threeStarWin = betMoney * odds3;
                 if (avgFourStarWin > threeStarWin) {
                     // 转换为10个四星投注
-                    for (String num : fourStarNums) {
+                    for (int i = 0; i < fourStarNums.size(); i++) {
+                        String num = fourStarNums.get(i);
                         Bet fourStarBet = new Bet(num, betMoney / 10.0, 11);
-                        NumberOddsGroup.OddsInfo odds4Info = oddsManager.getMaxOddsInfo(num, 11);
-                        fourStarBet.setOdds(odds4Info != null ? odds4Info.getOdds() : bet.getOdds());
+                        fourStarBet.setOdds(odds4List[i]);
                         // System.out.println(String.format("原号码%s 金额: %.2f 赔率: %.2f 转换为四星投注: %s 金额:
                         // %.2f 赔率: %.2f", number, betMoney, odds3, num, betMoney / 10.0, odds4Info !=
                         // null ? odds4Info.getOdds() : bet.getOdds()));
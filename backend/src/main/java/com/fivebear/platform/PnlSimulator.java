@@ -0,0 +1,277 @@
+package com.fivebear.platform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 本期盈亏模拟：在当前投注和候选补飞方案下，随机抽取大量开奖结果，给出盈亏分布、VaR/CVaR 和亏损概率。
+ * 每个开奖结果的净盈亏先用 DrawLiability 算好（入货按投注本，出货按方案的飞货金额和出货赔率），
+ * 抽样时只需查表并给该开奖结果计数，所以分布用 10000 个计数就能完整表示。
+ * 抽样用带种子的 SplittableRandom，按固定的块大小切分到 ForkJoin 池的各线程，同一种子结果可复现。
+ */
+public class PnlSimulator {
+    // 每个叶子任务的抽样数，切分方式只取决于抽样总数，与线程调度无关
+    private static final long CHUNK = 1L << 16;
+
+    private final ForkJoinPool pool;
+
+    public PnlSimulator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public PnlSimulator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 模拟结果：抽样得到的盈亏分布及统计量，金额单位为元
+     */
+    public static class Result {
+        private final long samples;
+        // 按净盈亏升序排列的开奖结果净盈亏及其抽中次数（只含抽中过的）
+        private final double[] sortedNet;
+        private final long[] sortedCount;
+        private final double mean;
+        private final double stdDev;
+        private final double probabilityOfLoss;
+        private final long elapsedNanos;
+
+        Result(long samples, double[] sortedNet, long[] sortedCount, long elapsedNanos) {
+            this.samples = samples;
+            this.sortedNet = sortedNet;
+            this.sortedCount = sortedCount;
+            this.elapsedNanos = elapsedNanos;
+            double sum = 0;
+            double sumSquares = 0;
+            long losing = 0;
+            for (int i = 0; i < sortedNet.length; i++) {
+                sum += sortedNet[i] * sortedCount[i];
+                sumSquares += sortedNet[i] * sortedNet[i] * sortedCount[i];
+                if (sortedNet[i] < 0) {
+                    losing += sortedCount[i];
+                }
+            }
+            this.mean = samples > 0 ? sum / samples : 0;
+            this.stdDev = samples > 0 ? Math.sqrt(Math.max(0, sumSquares / samples - mean * mean)) : 0;
+            this.probabilityOfLoss = samples > 0 ? (double) losing / samples : 0;
+        }
+
+        public long getSamples() { return samples; }
+        public double getMean() { return mean; }
+        public double getStdDev() { return stdDev; }
+        public double getProbabilityOfLoss() { return probabilityOfLoss; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        /** 抽到的最差盈亏 */
+        public double getWorst() { return sortedNet.length > 0 ? sortedNet[0] : 0; }
+        /** 抽到的最好盈亏 */
+        public double getBest() { return sortedNet.length > 0 ? sortedNet[sortedNet.length - 1] : 0; }
+
+        /**
+         * VaR：在给定置信度下的最大亏损（正数表示亏损），即盈亏分布 (1 - confidence) 分位数的相反数
+         * @param confidence 如 0.95、0.99
+         */
+        public double getValueAtRisk(double confidence) {
+            long tail = tailSamples(confidence);
+            long cumulative = 0;
+            for (int i = 0; i < sortedNet.length; i++) {
+                cumulative += sortedCount[i];
+                if (cumulative >= tail) {
+                    return -sortedNet[i];
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * CVaR（预期亏损）：最差 (1 - confidence) 部分样本的平均亏损（正数表示亏损）
+         */
+        public double getConditionalValueAtRisk(double confidence) {
+            long tail = tailSamples(confidence);
+            long remaining = tail;
+            double sum = 0;
+            for (int i = 0; i < sortedNet.length && remaining > 0; i++) {
+                long take = Math.min(remaining, sortedCount[i]);
+                sum += sortedNet[i] * take;
+                remaining -= take;
+            }
+            return tail > 0 ? -sum / tail : 0;
+        }
+
+        private long tailSamples(double confidence) {
+            if (confidence <= 0 || confidence >= 1) {
+                throw new IllegalArgumentException("置信度必须在0和1之间");
+            }
+            return Math.max(1, (long) Math.ceil(samples * (1 - confidence)));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("样本 %d, 均值 %.1f, 标准差 %.1f, 亏损概率 %.2f%%, VaR95 %.1f, CVaR95 %.1f, "
+                            + "VaR99 %.1f, CVaR99 %.1f, 最差 %.1f, 耗时 %.1f ms",
+                    samples, mean, stdDev, probabilityOfLoss * 100, getValueAtRisk(0.95),
+                    getConditionalValueAtRisk(0.95), getValueAtRisk(0.99), getConditionalValueAtRisk(0.99),
+                    getWorst(), elapsedNanos / 1e6);
+        }
+    }
+
+    /**
+     * 投注本加上候选补飞方案后，各开奖结果的净盈亏
+     * @param plan 各玩法的补飞方案（飞货金额、出货赔率），为 null 或空表示不补飞
+     */
+    public static DrawLiability exposure(BetNumberManager manager, List<BetNumberNoTypeData> plan) {
+        DrawLiability liability = new DrawLiability();
+        liability.rebuild(manager.getAllGroups(), plan);
+        return liability;
+    }
+
+    /**
+     * 按 FlyStrategyEngine 某个策略的结果作为补飞方案模拟
+     */
+    public Result simulate(BetNumberManager manager, FlyStrategyEngine.Comparison comparison,
+            FlyStrategyEngine.Strategy strategy, double[] drawWeights, long samples, long seed) {
+        List<BetNumberNoTypeData> plan = new ArrayList<>();
+        for (FlyStrategyEngine.Summary[] summaries : comparison.getByType()) {
+            plan.add(summaries[strategy.ordinal()].getDetail());
+        }
+        return simulate(exposure(manager, plan), drawWeights, samples, seed);
+    }
+
+    /**
+     * 对给定的开奖结果净盈亏抽样
+     * @param liability 各开奖结果的净盈亏
+     * @param drawWeights 各开奖结果（0~9999）的权重，为 null 表示均匀分布
+     * @param samples 抽样次数
+     * @param seed 随机种子
+     */
+    public Result simulate(DrawLiability liability, double[] drawWeights, long samples, long seed) {
+        if (samples <= 0) {
+            throw new IllegalArgumentException("抽样次数必须大于0");
+        }
+        long start = System.nanoTime();
+        long[] net = liability.getDistributionFixed();
+        DrawSampler sampler = drawWeights == null ? null : new DrawSampler(drawWeights);
+        long[] counts = pool.invoke(new SampleTask(sampler, new SplittableRandom(seed), samples));
+
+        Integer[] order = new Integer[DrawLiability.DRAW_COUNT];
+        int hit = 0;
+        for (int draw = 0; draw < counts.length; draw++) {
+            if (counts[draw] > 0) {
+                order[hit++] = draw;
+            }
+        }
+        Arrays.sort(order, 0, hit, (a, b) -> Long.compare(net[a], net[b]));
+        double[] sortedNet = new double[hit];
+        long[] sortedCount = new long[hit];
+        for (int i = 0; i < hit; i++) {
+            sortedNet[i] = FixedPoint.toDouble(net[order[i]]);
+            sortedCount[i] = counts[order[i]];
+        }
+        return new Result(samples, sortedNet, sortedCount, System.nanoTime() - start);
+    }
+
+    // 抽样任务：超过一块就对半切分，左右各用 split 出的独立随机数流
+    private static class SampleTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        // 任务只在本进程的 ForkJoin 池中执行，不会被序列化
+        private final transient DrawSampler sampler;
+        private final transient SplittableRandom random;
+        private final long samples;
+
+        SampleTask(DrawSampler sampler, SplittableRandom random, long samples) {
+            this.sampler = sampler;
+            this.random = random;
+            this.samples = samples;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (samples <= CHUNK) {
+                long[] counts = new long[DrawLiability.DRAW_COUNT];
+                for (long i = 0; i < samples; i++) {
+                    int draw = sampler == null ? random.nextInt(DrawLiability.DRAW_COUNT) : sampler.sample(random);
+                    counts[draw]++;
+                }
+                return counts;
+            }
+            long half = samples / 2;
+            SampleTask right = new SampleTask(sampler, random.split(), samples - half);
+            SampleTask left = new SampleTask(sampler, random, half);
+            right.fork();
+            long[] counts = left.compute();
+            long[] rightCounts = right.join();
+            for (int draw = 0; draw < counts.length; draw++) {
+                counts[draw] += rightCounts[draw];
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * 按权重抽取开奖结果（Walker 别名法，每次抽样 O(1)）
+     */
+    static class DrawSampler {
+        private final double[] probability;
+        private final int[] alias;
+
+        DrawSampler(double[] weights) {
+            int n = DrawLiability.DRAW_COUNT;
+            if (weights.length != n) {
+                throw new IllegalArgumentException("权重个数必须为" + n);
+            }
+            double total = 0;
+            for (double weight : weights) {
+                if (weight < 0 || Double.isNaN(weight)) {
+                    throw new IllegalArgumentException("权重不能为负数");
+                }
+                total += weight;
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("权重之和必须大于0");
+            }
+            probability = new double[n];
+            alias = new int[n];
+            double[] scaled = new double[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallSize = 0;
+            int largeSize = 0;
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / total;
+                if (scaled[i] < 1) {
+                    small[smallSize++] = i;
+                } else {
+                    large[largeSize++] = i;
+                }
+            }
+            while (smallSize > 0 && largeSize > 0) {
+                int less = small[--smallSize];
+                int more = large[--largeSize];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1;
+                if (scaled[more] < 1) {
+                    small[smallSize++] = more;
+                } else {
+                    large[largeSize++] = more;
+                }
+            }
+            // 剩下的（含浮点误差）概率为 1
+            while (largeSize > 0) {
+                probability[large[--largeSize]] = 1;
+            }
+            while (smallSize > 0) {
+                probability[small[--smallSize]] = 1;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int column = random.nextInt(probability.length);
+            return random.nextDouble() < probability[column] ? column : alias[column];
+        }
+    }
+}
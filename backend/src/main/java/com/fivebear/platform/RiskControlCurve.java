@@ -0,0 +1,113 @@
+package com.fivebear.platform;
+
+import java.util.Arrays;
+
+/**
+ * 某玩法风控补飞随成数变化的曲线。保留额度 K = 总投注 × 成数 / 10 对所有号码相同，
+ * 号码的飞货 = max(0, (奖金 - K) / 出货赔率)，奖金超过 K 的号码飞货对 K 是线性的。
+ * 行按奖金从大到小排好，并预先累加 Σ 奖金/出货赔率 和 Σ 1/出货赔率，
+ * 换成数时二分找出奖金超过 K 的前 c 行，飞货总额 = Σ(奖金/出货赔率)[c] - K × Σ(1/出货赔率)[c]，O(log n)；
+ * 只有跨过保留额度的号码会改变 c，其余号码不需要重算。
+ * 用 double 计算，与逐行定点数的 riskControlFlyTotal 只差舍入，适合拖动成数时的实时报价；
+ * 出单仍以 riskControlAnalysis 为准。由 BetNumberGroupByType.riskControlCurve 按赔率快照和投注版本缓存。
+ */
+public class RiskControlCurve {
+    private final double totalBetMoney;
+    // 按奖金从大到小排列的行号和奖金
+    private final int[] rows;
+    private final double[] sortedBonus;
+    // 各行（按原行号）的奖金和出货赔率
+    private final double[] bonusByRow;
+    private final double[] sellOdds;
+    // 前 k 行的 Σ 奖金/出货赔率、Σ 1/出货赔率，下标 0 为 0
+    private final double[] bonusOverSell;
+    private final double[] inverseSell;
+
+    RiskControlCurve(long totalBetMoney, long[] bonus, long[] sell, int size) {
+        this.totalBetMoney = FixedPoint.toDouble(totalBetMoney);
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(Math.abs(bonus[b]), Math.abs(bonus[a])));
+        this.rows = new int[size];
+        this.sortedBonus = new double[size];
+        this.bonusByRow = new double[size];
+        this.sellOdds = new double[size];
+        this.bonusOverSell = new double[size + 1];
+        this.inverseSell = new double[size + 1];
+        for (int i = 0; i < size; i++) {
+            bonusByRow[i] = FixedPoint.toDouble(Math.abs(bonus[i]));
+            sellOdds[i] = FixedPoint.toDouble(sell[i]);
+        }
+        for (int k = 0; k < size; k++) {
+            int row = order[k];
+            rows[k] = row;
+            sortedBonus[k] = bonusByRow[row];
+            bonusOverSell[k + 1] = bonusOverSell[k] + bonusByRow[row] / sellOdds[row];
+            inverseSell[k + 1] = inverseSell[k] + 1 / sellOdds[row];
+        }
+    }
+
+    /**
+     * 保留额度 = 总投注 × 成数 / 10
+     * @param multiple 成数，可以是小数（如 5.5）
+     */
+    public double keepLimit(double multiple) {
+        return totalBetMoney * multiple / 10;
+    }
+
+    /**
+     * 需要飞货的号码个数（奖金超过保留额度），O(log n)
+     */
+    public int flyCount(double multiple) {
+        double keepLimit = keepLimit(multiple);
+        // 第一个奖金不超过保留额度的位置
+        int low = 0;
+        int high = rows.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedBonus[mid] > keepLimit) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 风控补飞飞货总额，O(log n)
+     */
+    public double flyTotal(double multiple) {
+        int count = flyCount(multiple);
+        return Math.max(0, bonusOverSell[count] - keepLimit(multiple) * inverseSell[count]);
+    }
+
+    /**
+     * 保留后的最大负债 = min(最大奖金, 保留额度)
+     */
+    public double maxKeptBonus(double multiple) {
+        return rows.length == 0 ? 0 : Math.min(sortedBonus[0], keepLimit(multiple));
+    }
+
+    /**
+     * 某行在给定成数下的飞货金额
+     * @param row BetNumberGroupByType 中的行号
+     */
+    public double flyAt(int row, double multiple) {
+        return Math.max(0, (bonusByRow[row] - keepLimit(multiple)) / sellOdds[row]);
+    }
+
+    /**
+     * 按奖金从大到小第 rank 个行号；配合 flyCount，换成数时只需处理前 flyCount 行
+     */
+    public int rowAt(int rank) {
+        return rows[rank];
+    }
+
+    /** 行数 */
+    public int size() {
+        return rows.length;
+    }
+}
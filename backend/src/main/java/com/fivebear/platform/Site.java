@@ -424,12 +424,25 @@ public abstract class Site {
     }
 
     public void setPeriodNo(String periodNo) {
+        boolean changed;
         periodNoLock.writeLock().lock();
         try {
+            changed = periodNo != null && !periodNo.equals(this.periodNo);
             this.periodNo = periodNo;
         } finally {
             periodNoLock.writeLock().unlock();
         }
+        if (changed) {
+            // 通知回调
+            callbackLock.readLock().lock();
+            try {
+                if (siteCallback != null) {
+                    siteCallback.onPeriodChanged(this, periodNo);
+                }
+            } finally {
+                callbackLock.readLock().unlock();
+            }
+        }
     }
 
     protected void pushPackageOddsInfo(List<PackageInfo> packageInfoList) {
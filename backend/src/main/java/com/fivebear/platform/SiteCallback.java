@@ -47,4 +47,13 @@ public interface SiteCallback {
      * @param oddsJsonArray 赔率信息JSON数组
      */
     void onNumOddsInfo(Site site, JSONArray oddsJsonArray);
+
+    /**
+     * 期号变化时的回调方法
+     * 
+     * @param site     发生变化的站点
+     * @param periodNo 新的期号
+     */
+    default void onPeriodChanged(Site site, String periodNo) {
+    }
 }
\ No newline at end of file
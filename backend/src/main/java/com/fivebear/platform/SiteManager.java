@@ -159,6 +159,13 @@ public class SiteManager implements SiteCallback {
         }
     }
 
+    @Override
+    public void onPeriodChanged(Site site, String periodNo) {
+        if (mainCallback != null) {
+            mainCallback.onPeriodChanged(site, periodNo);
+        }
+    }
+
     public ExecutorService getExecutorService() {
         return executorService;
     }
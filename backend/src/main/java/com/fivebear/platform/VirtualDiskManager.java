@@ -11,25 +11,25 @@ public class VirtualDiskManager {
     // 虚盘数据结构：key=号码#玩法，value=虚盘余额对象
     private final Map<String, VirtualDiskEntry> diskMap = new ConcurrentHashMap<>();
     // 全局保留组数
-    private BigDecimal keepCount = BigDecimal.ZERO;
+    private long keepCount;
 
     /**
-     * 虚盘余额对象
+     * 虚盘余额对象，金额与赔率以 FixedPoint 定点数保存
      */
     public static class VirtualDiskEntry {
         private final String number;
         private final int dictNoTypeId;
-        private BigDecimal totalAmount = BigDecimal.ZERO; // 入货总金额
-        private BigDecimal inNegative = BigDecimal.ZERO;      // 入货负值
-        private BigDecimal inRebate = BigDecimal.ZERO;        // 入货返点
-        private BigDecimal inAvgOdds = BigDecimal.ZERO;       // 入货平均赔率
-        private BigDecimal inReturnWater = BigDecimal.ZERO;   // 入货回水
-        private BigDecimal outTotalAmount = BigDecimal.ZERO;  // 出货总金额
-        private BigDecimal outAvgOdds = BigDecimal.ZERO;      // 出货平均赔率
-        private BigDecimal outRebateTotal = BigDecimal.ZERO;  // 出货返点总金额
-        private BigDecimal keepAmount = BigDecimal.ZERO;      // 保留金额
-        private BigDecimal keepRebateTotal = BigDecimal.ZERO; // 保留总返点
-        private BigDecimal outProfit = BigDecimal.ZERO;       // 出货盈亏
+        private long totalAmount;     // 入货总金额
+        private long inNegative;      // 入货负值
+        private long inRebate;        // 入货返点
+        private long inAvgOdds;       // 入货平均赔率
+        private long inReturnWater;   // 入货回水
+        private long outTotalAmount;  // 出货总金额
+        private long outAvgOdds;      // 出货平均赔率
+        private long outRebateTotal;  // 出货返点总金额
+        private long keepAmount;      // 保留金额
+        private long keepRebateTotal; // 保留总返点
+        private long outProfit;       // 出货盈亏
 
         public VirtualDiskEntry(String number, int dictNoTypeId) {
             this.number = number;
@@ -37,62 +37,80 @@ public class VirtualDiskManager {
         }
 
         public synchronized BigDecimal getRemainAmount() {
-            return totalAmount.subtract(outTotalAmount);
+            return FixedPoint.toBigDecimal(totalAmount - outTotalAmount);
         }
 
         public synchronized boolean lock(BigDecimal amount) {
-            if (getRemainAmount().compareTo(amount) >= 0) {
-                totalAmount = totalAmount.subtract(amount);
+            long value = FixedPoint.of(amount);
+            if (totalAmount - outTotalAmount >= value) {
+                totalAmount -= value;
                 return true;
             }
             return false;
         }
 
         public synchronized void unlock(BigDecimal amount) {
-            totalAmount = totalAmount.add(amount);
+            totalAmount += FixedPoint.of(amount);
         }
 
         public synchronized void add(BigDecimal amount) {
-            totalAmount = totalAmount.add(amount);
+            totalAmount += FixedPoint.of(amount);
         }
 
         public synchronized void subtract(BigDecimal amount) {
-            totalAmount = totalAmount.subtract(amount);
-            if (totalAmount.compareTo(BigDecimal.ZERO) < 0) {
-                totalAmount = BigDecimal.ZERO;
-            }
+            subtractFixed(FixedPoint.of(amount));
+        }
+
+        synchronized void subtractFixed(long amount) {
+            totalAmount = Math.max(0, totalAmount - amount);
+        }
+
+        /**
+         * 记一笔出货：累加出货金额与返点，按金额加权更新出货平均赔率（8 位小数 HALF_UP）
+         */
+        synchronized void addOut(long amount, long odds, long rebate) {
+            long previous = outTotalAmount;
+            outTotalAmount += amount;
+            outAvgOdds = outTotalAmount == 0 ? odds
+                    : FixedPoint.div(FixedPoint.mul(outAvgOdds, previous) + FixedPoint.mul(odds, amount), outTotalAmount);
+            outRebateTotal += rebate;
         }
 
         public String getNumber() { return number; }
         public int getDictNoTypeId() { return dictNoTypeId; }
-        public synchronized BigDecimal getTotalAmount() { return totalAmount; }
-        public synchronized void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
-        public synchronized void setInNegative(BigDecimal inNegative) { this.inNegative = inNegative; }
-        public synchronized BigDecimal getInNegative() { return inNegative; }
-        public synchronized void setInRebate(BigDecimal inRebate) { this.inRebate = inRebate; }
-        public synchronized BigDecimal getInRebate() { return inRebate; }
-        public synchronized void setInAvgOdds(BigDecimal inAvgOdds) { this.inAvgOdds = inAvgOdds; }
-        public synchronized BigDecimal getInAvgOdds() { return inAvgOdds; }
-        public synchronized void setInReturnWater(BigDecimal inReturnWater) { this.inReturnWater = inReturnWater; }
-        public synchronized BigDecimal getInReturnWater() { return inReturnWater; }
-        public synchronized void setOutTotalAmount(BigDecimal outTotalAmount) { this.outTotalAmount = outTotalAmount; }
-        public synchronized BigDecimal getOutTotalAmount() { return outTotalAmount; }
-        public synchronized void setOutAvgOdds(BigDecimal outAvgOdds) { this.outAvgOdds = outAvgOdds; }
-        public synchronized BigDecimal getOutAvgOdds() { return outAvgOdds; }
-        public synchronized void setOutRebateTotal(BigDecimal outRebateTotal) { this.outRebateTotal = outRebateTotal; }
-        public synchronized BigDecimal getOutRebateTotal() { return outRebateTotal; }
-        public synchronized void setKeepAmount(BigDecimal keepAmount) { this.keepAmount = keepAmount; }
-        public synchronized BigDecimal getKeepAmount() { return keepAmount; }
-        public synchronized void setKeepRebateTotal(BigDecimal keepRebateTotal) { this.keepRebateTotal = keepRebateTotal; }
-        public synchronized BigDecimal getKeepRebateTotal() { return keepRebateTotal; }
-        public synchronized BigDecimal getOutProfit() { return outProfit; }
-        public synchronized void setOutProfit(BigDecimal outProfit) { this.outProfit = outProfit; }
+        public synchronized BigDecimal getTotalAmount() { return FixedPoint.toBigDecimal(totalAmount); }
+        public synchronized long getTotalAmountFixed() { return totalAmount; }
+        public synchronized void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = FixedPoint.of(totalAmount); }
+        public synchronized void setInNegative(BigDecimal inNegative) { this.inNegative = FixedPoint.of(inNegative); }
+        public synchronized BigDecimal getInNegative() { return FixedPoint.toBigDecimal(inNegative); }
+        public synchronized void setInRebate(BigDecimal inRebate) { this.inRebate = FixedPoint.of(inRebate); }
+        public synchronized BigDecimal getInRebate() { return FixedPoint.toBigDecimal(inRebate); }
+        public synchronized void setInAvgOdds(BigDecimal inAvgOdds) { this.inAvgOdds = FixedPoint.of(inAvgOdds); }
+        public synchronized BigDecimal getInAvgOdds() { return FixedPoint.toBigDecimal(inAvgOdds); }
+        public synchronized void setInReturnWater(BigDecimal inReturnWater) { this.inReturnWater = FixedPoint.of(inReturnWater); }
+        public synchronized BigDecimal getInReturnWater() { return FixedPoint.toBigDecimal(inReturnWater); }
+        public synchronized void setOutTotalAmount(BigDecimal outTotalAmount) { this.outTotalAmount = FixedPoint.of(outTotalAmount); }
+        public synchronized BigDecimal getOutTotalAmount() { return FixedPoint.toBigDecimal(outTotalAmount); }
+        public synchronized void setOutAvgOdds(BigDecimal outAvgOdds) { this.outAvgOdds = FixedPoint.of(outAvgOdds); }
+        public synchronized BigDecimal getOutAvgOdds() { return FixedPoint.toBigDecimal(outAvgOdds); }
+        public synchronized void setOutRebateTotal(BigDecimal outRebateTotal) { this.outRebateTotal = FixedPoint.of(outRebateTotal); }
+        public synchronized BigDecimal getOutRebateTotal() { return FixedPoint.toBigDecimal(outRebateTotal); }
+        public synchronized void setKeepAmount(BigDecimal keepAmount) { this.keepAmount = FixedPoint.of(keepAmount); }
+        public synchronized BigDecimal getKeepAmount() { return FixedPoint.toBigDecimal(keepAmount); }
+        public synchronized void setKeepRebateTotal(BigDecimal keepRebateTotal) { this.keepRebateTotal = FixedPoint.of(keepRebateTotal); }
+        public synchronized BigDecimal getKeepRebateTotal() { return FixedPoint.toBigDecimal(keepRebateTotal); }
+        public synchronized BigDecimal getOutProfit() { return FixedPoint.toBigDecimal(outProfit); }
+        public synchronized void setOutProfit(BigDecimal outProfit) { this.outProfit = FixedPoint.of(outProfit); }
 
         /**
          * 计算该号码的盈亏 = 入货负值-入货返点+出货返点总金额+出货盈亏
          */
         public synchronized BigDecimal getProfit() {
-            return inNegative.subtract(inRebate).add(outRebateTotal).add(outProfit);
+            return FixedPoint.toBigDecimal(getProfitFixed());
+        }
+
+        public synchronized long getProfitFixed() {
+            return inNegative - inRebate + outRebateTotal + outProfit;
         }
     }
 
@@ -163,18 +181,18 @@ public class VirtualDiskManager {
      * 获取所有四定号码的锁定总金额
      */
     public BigDecimal getTotalLockedAmount() {
-        return diskMap.values().stream()
-                .map(VirtualDiskEntry::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return FixedPoint.toBigDecimal(diskMap.values().stream()
+                .mapToLong(VirtualDiskEntry::getTotalAmountFixed)
+                .sum());
     }
 
     /**
      * 获取所有四定号码的入货总金额（即虚盘总余额）
      */
     public BigDecimal getTotalInAmount() {
-        return diskMap.values().stream()
-                .map(VirtualDiskEntry::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return FixedPoint.toBigDecimal(diskMap.values().stream()
+                .mapToLong(VirtualDiskEntry::getTotalAmountFixed)
+                .sum());
     }
 
     /**
@@ -204,7 +222,7 @@ public class VirtualDiskManager {
         if (page < 1 || pageSize < 1) return java.util.Collections.emptyList();
         java.util.Comparator<VirtualDiskEntry> comparator;
         if ("totalAmount".equalsIgnoreCase(sortBy)) {
-            comparator = java.util.Comparator.comparing(VirtualDiskEntry::getTotalAmount);
+            comparator = java.util.Comparator.comparingLong(VirtualDiskEntry::getTotalAmountFixed);
         } else {
             comparator = java.util.Comparator.comparing(VirtualDiskEntry::getNumber);
         }
@@ -223,9 +241,9 @@ public class VirtualDiskManager {
      * =入货负值-入货返点+出货返点总金额+出货盈亏
      */
     public BigDecimal calcTotalProfit() {
-        return diskMap.values().stream()
-                .map(VirtualDiskEntry::getProfit)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return FixedPoint.toBigDecimal(diskMap.values().stream()
+                .mapToLong(VirtualDiskEntry::getProfitFixed)
+                .sum());
     }
 
     private String buildKey(String number, int dictNoTypeId) {
@@ -233,8 +251,8 @@ public class VirtualDiskManager {
     }
 
     // 保留组数（全局）
-    public synchronized BigDecimal getKeepCount() { return keepCount; }
-    public synchronized void setKeepCount(BigDecimal keepCount) { this.keepCount = keepCount; }
+    public synchronized BigDecimal getKeepCount() { return FixedPoint.toBigDecimal(keepCount); }
+    public synchronized void setKeepCount(BigDecimal keepCount) { this.keepCount = FixedPoint.of(keepCount); }
 
     /**
      * 出货操作，考虑全局保留组数
@@ -246,22 +264,15 @@ public class VirtualDiskManager {
      */
     public synchronized boolean deliver(String number, BigDecimal amount, BigDecimal odds, BigDecimal rebate) {
         int dictNoTypeId = 11;
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) return false;
+        long value = FixedPoint.of(amount);
+        if (value <= 0) return false;
         VirtualDiskEntry entry = diskMap.computeIfAbsent(buildKey(number, dictNoTypeId), k -> new VirtualDiskEntry(number, dictNoTypeId));
         // 只允许出货 (totalAmount - keepCount) 以内的组数
-        BigDecimal maxDeliver = entry.getTotalAmount().subtract(this.keepCount);
-        if (maxDeliver.compareTo(BigDecimal.ZERO) < 0) maxDeliver = BigDecimal.ZERO;
-        if (amount.compareTo(maxDeliver) > 0) return false; // 超过可出货组数
-        entry.subtract(amount); // 扣减余额
-        // 更新出货相关字段
-        entry.setOutTotalAmount(entry.getOutTotalAmount().add(amount));
-        // 计算新的平均赔率
-        BigDecimal totalOut = entry.getOutTotalAmount();
-        BigDecimal newAvgOdds = totalOut.compareTo(BigDecimal.ZERO) == 0 ? odds :
-            (entry.getOutAvgOdds().multiply(totalOut.subtract(amount)).add(odds.multiply(amount))).divide(totalOut, 8, BigDecimal.ROUND_HALF_UP);
-        entry.setOutAvgOdds(newAvgOdds);
-        // 累加返点
-        entry.setOutRebateTotal(entry.getOutRebateTotal().add(rebate));
+        long maxDeliver = Math.max(0, entry.getTotalAmountFixed() - this.keepCount);
+        if (value > maxDeliver) return false; // 超过可出货组数
+        entry.subtractFixed(value); // 扣减余额
+        // 更新出货金额、平均赔率，累加返点
+        entry.addOut(value, FixedPoint.of(odds), FixedPoint.of(rebate));
         return true;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 定点数分析路径的对照测试。bet-analysis-expected.csv 是改用定点数之前的 BigDecimal 实现
+ * 对 bet-analysis-input.csv 运行四种分析的输出，这里用同样的输入跑当前实现，逐行逐字段比较。
+ * 原实现的除法保留 10 位小数，FixedPoint 保留 8 位，误差预算按字段给出：
+ * <ul>
+ * <li>出货赔率：两边取自同一份赔率快照，必须完全相同；</li>
+ * <li>飞货、保留：一次 HALF_UP 除法，8 位小数的舍入误差不超过 0.5e-8，原实现 10 位小数不超过 0.5e-10；</li>
+ * <li>出货盈亏、盈利 = 飞货 × 出货赔率 - 玩法飞货总额：飞货的误差被放大出货赔率倍，
+ * 飞货总额累加了每行的误差（行数倍），乘法本身再舍入一次（0.5e-8）。</li>
+ * </ul>
+ */
+class BetAnalysisGoldenTest {
+    // 一次除法的舍入误差上限：0.5e-8 + 0.5e-10
+    private static final BigDecimal DIVISION_TOLERANCE = new BigDecimal("0.00000000505");
+    private static final BigDecimal MULTIPLY_TOLERANCE = new BigDecimal("0.000000005");
+    private static final int MULTIPLE = 5;
+
+    @Test
+    void analysesMatchBigDecimalImplementation() throws IOException {
+        Map<Integer, List<BetNumber>> bets = new LinkedHashMap<>();
+        OddsManager.OddsBatch siteA = new OddsManager.OddsBatch(512);
+        OddsManager.OddsBatch siteB = new OddsManager.OddsBatch(512);
+        for (String[] row : readCsv("bet-analysis-input.csv")) {
+            int dictNoTypeId = Integer.parseInt(row[0]);
+            bets.computeIfAbsent(dictNoTypeId, k -> new ArrayList<>())
+                    .add(new BetNumber(dictNoTypeId, row[1], new BigDecimal(row[2]), new BigDecimal(row[3])));
+            if (!row[4].isEmpty()) {
+                siteA.add(row[1], dictNoTypeId, Double.parseDouble(row[4]));
+            }
+            if (!row[5].isEmpty()) {
+                siteB.add(row[1], dictNoTypeId, Double.parseDouble(row[5]));
+            }
+        }
+        OddsManager oddsManager = new OddsManager();
+        oddsManager.addOddsBatch("site-a", siteA, 0, System.currentTimeMillis());
+        oddsManager.addOddsBatch("site-b", siteB, 0.01, System.currentTimeMillis());
+
+        List<String[]> expected = readCsv("bet-analysis-expected.csv");
+        int next = 0;
+        for (Map.Entry<Integer, List<BetNumber>> entry : bets.entrySet()) {
+            BetNumberGroupByType group = new BetNumberGroupByType(entry.getKey(), entry.getValue());
+            Map<String, BetNumberNoTypeData> analyses = new LinkedHashMap<>();
+            analyses.put("riskControl", group.riskControlAnalysis(MULTIPLE, oddsManager));
+            analyses.put("oddsCompensation", group.oddsCompensationAnalysis(oddsManager));
+            analyses.put("greedy", group.greedyFlyMoneyOptimize(oddsManager));
+            analyses.put("proportional", group.proportionalFlyMoneyOptimize(oddsManager));
+            for (Map.Entry<String, BetNumberNoTypeData> analysis : analyses.entrySet()) {
+                List<BetNumberResults> results = analysis.getValue().getResultsList();
+                BigDecimal rowTolerance = DIVISION_TOLERANCE.multiply(BigDecimal.valueOf(results.size()));
+                for (BetNumberResults actual : results) {
+                    String[] row = expected.get(next++);
+                    String where = analysis.getKey() + " 玩法" + entry.getKey() + " 号码" + row[2];
+                    assertEquals(row[0], analysis.getKey(), where);
+                    assertEquals(row[1], String.valueOf(entry.getKey()), where);
+                    assertEquals(row[2], actual.getBetNo(), where);
+                    BigDecimal sellOdds = new BigDecimal(row[5]);
+                    assertEquals(0, sellOdds.compareTo(actual.getSellOdds()), where + " 出货赔率");
+                    BigDecimal profitTolerance = DIVISION_TOLERANCE.multiply(sellOdds).add(rowTolerance)
+                            .add(MULTIPLY_TOLERANCE);
+                    assertClose(row[3], actual.getFlyMoney(), DIVISION_TOLERANCE, where + " 飞货");
+                    assertClose(row[4], actual.getKeepMoney(), DIVISION_TOLERANCE, where + " 保留");
+                    assertClose(row[6], actual.getSellProfit(), profitTolerance, where + " 出货盈亏");
+                    assertClose(row[7], actual.getWin(), profitTolerance, where + " 盈利");
+                }
+            }
+        }
+        assertEquals(expected.size(), next, "期望结果行数");
+    }
+
+    private static void assertClose(String expected, BigDecimal actual, BigDecimal tolerance, String where) {
+        BigDecimal diff = new BigDecimal(expected).subtract(actual).abs();
+        assertTrue(diff.compareTo(tolerance) <= 0,
+                () -> where + ": 期望 " + expected + ", 实际 " + actual.toPlainString() + ", 偏差 " + diff.toPlainString()
+                        + " 超过 " + tolerance.toPlainString());
+    }
+
+    // 读取 CSV，跳过 # 开头的注释行，保留空字段
+    private static List<String[]> readCsv(String name) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (InputStream in = BetAnalysisGoldenTest.class.getResourceAsStream(name);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && line.charAt(0) != '#') {
+                    rows.add(line.split(",", -1));
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,92 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * BetBookLoader 并行加载的结果与逐笔 addBet 完全相同，parseFixed 与 BigDecimal 一致
+ */
+class BetBookLoaderTest {
+
+    @Test
+    void parallelLoadMatchesSequentialAddBet() throws IOException {
+        Random random = new Random(24);
+        StringBuilder text = new StringBuilder("# 号码,玩法,金额,赔率\n");
+        BetNumberManager expected = new BetNumberManager();
+        // 三块（每块 65536 行），覆盖跨块合并
+        for (int i = 0; i < 150_000; i++) {
+            if (i % 1000 == 7) {
+                text.append(i % 3 == 0 ? "abcd,11,1,1" : i % 3 == 1 ? "1234,1,1,1" : "1234,11,x,1").append('\n');
+                continue;
+            }
+            // 四定为主，二定、三定各少量，玩法最先出现的是三定
+            int type = i == 0 ? 8 : random.nextInt(10) < 7 ? 11 : 1 + random.nextInt(10);
+            int first = NumberIndex.firstSlot(type);
+            String number = NumberIndex.numberAt(first + random.nextInt(NumberIndex.slotCount(type)));
+            String money = (1 + random.nextInt(50)) + "." + random.nextInt(100);
+            String odds = (type <= 6 ? 90 : type <= 10 ? 900 : 9000) + random.nextInt(1000) / 100.0 + "";
+            text.append(number).append(',').append(random.nextBoolean() ? String.valueOf(type) : "")
+                    .append(',').append(money).append(',').append(odds).append('\n');
+            expected.addBet(new BetNumber(type, number, new BigDecimal(money), new BigDecimal(odds)));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        // 单线程池最多两块在途，三块时读取线程要先合并第一块
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            BetNumberManager loaded = new BetBookLoader(pool)
+                    .load(new BufferedReader(new StringReader(text.toString())));
+            assertSameBook(expected, loaded);
+            assertSameBook(expected, new BetBookLoader(single)
+                    .load(new BufferedReader(new StringReader(text.toString()))));
+        } finally {
+            pool.shutdown();
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void parseFixedMatchesBigDecimal() {
+        String[] values = { "1", "0", "1.5", ".5", "5.", "-3.1", "9999.99", "0.00000001", "0.123456789",
+                "0.000000005", "1234567890.12345678", "12345678901.5" };
+        for (String value : values) {
+            assertEquals(FixedPoint.of(new BigDecimal(value)), BetBookLoader.parseFixed(value, 0, value.length()), value);
+        }
+        assertEquals(FixedPoint.of(new BigDecimal("2.25")), BetBookLoader.parseFixed("x, 2.25 ,y", 2, 8));
+        String[] invalid = { "", " ", ".", "-", "1.2.3", "abc", "1e3", "+1", "12a" };
+        for (String value : invalid) {
+            assertEquals(Long.MIN_VALUE, BetBookLoader.parseFixed(value, 0, value.length()), value);
+        }
+    }
+
+    private static void assertSameBook(BetNumberManager expected, BetNumberManager actual) {
+        List<BetNumberGroupByType> expectedGroups = expected.getAllGroups();
+        List<BetNumberGroupByType> actualGroups = actual.getAllGroups();
+        assertEquals(expectedGroups.size(), actualGroups.size());
+        for (int g = 0; g < expectedGroups.size(); g++) {
+            BetNumberGroupByType e = expectedGroups.get(g);
+            BetNumberGroupByType a = actualGroups.get(g);
+            assertEquals(e.getDictNoTypeId(), a.getDictNoTypeId(), "第" + g + "个分组");
+            assertEquals(e.size(), a.size(), "玩法" + e.getDictNoTypeId());
+            for (int row = 0; row < e.size(); row++) {
+                String where = "玩法" + e.getDictNoTypeId() + " 行" + row;
+                assertEquals(e.slotAt(row), a.slotAt(row), where);
+                assertEquals(e.betMoneyAt(row), a.betMoneyAt(row), where);
+                assertEquals(e.oddsAt(row), a.oddsAt(row), where);
+                assertEquals(e.bonusAt(row), a.bonusAt(row), where);
+            }
+            assertEquals(e.getTotalBetMoneyFixed(), a.getTotalBetMoneyFixed());
+            assertEquals(e.getMaxBonusFixed(), a.getMaxBonusFixed());
+        }
+        assertEquals(expected.totalBonus(), actual.totalBonus());
+    }
+}
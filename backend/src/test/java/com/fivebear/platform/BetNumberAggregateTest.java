@@ -0,0 +1,79 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * BetNumberGroupByType 增量维护的汇总（总投注、总奖金、最大奖金）与逐行重算的结果一致
+ */
+class BetNumberAggregateTest {
+
+    @Test
+    void aggregatesTrackRandomAddUpdateRemove() {
+        Random random = new Random(14);
+        BetNumberGroupByType group = new BetNumberGroupByType(7, new ArrayList<>());
+        for (int i = 0; i < 20_000; i++) {
+            String betNo = String.format("%03dX", random.nextInt(1000));
+            long money = FixedPoint.ofInt(1 + random.nextInt(100));
+            long odds = FixedPoint.of(900 + random.nextInt(100) / 10.0);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                assertTrue(group.addBet(betNo, money, odds));
+            } else if (op < 8) {
+                assertTrue(group.updateBet(betNo, money, odds));
+            } else {
+                group.removeBet(betNo);
+            }
+            if (i % 97 == 0) {
+                assertAggregates(group);
+            }
+        }
+        assertAggregates(group);
+    }
+
+    @Test
+    void maxBonusRecoversAfterRemovingLargestRow() {
+        BetNumberGroupByType group = new BetNumberGroupByType(11, new ArrayList<>());
+        group.addBet("1111", FixedPoint.ofInt(10), FixedPoint.ofInt(9000));
+        group.addBet("2222", FixedPoint.ofInt(30), FixedPoint.ofInt(9000));
+        group.addBet("3333", FixedPoint.ofInt(20), FixedPoint.ofInt(9000));
+        assertEquals(FixedPoint.ofInt(270_000), group.getMaxBonusFixed());
+
+        assertTrue(group.removeBet("2222"));
+        assertEquals(FixedPoint.ofInt(180_000), group.getMaxBonusFixed());
+        assertEquals(FixedPoint.ofInt(30), group.getTotalBetMoneyFixed());
+        assertEquals(FixedPoint.ofInt(30) - FixedPoint.ofInt(180_000), group.getMinProfitFixed());
+
+        // 调低最大行
+        assertTrue(group.updateBet("3333", FixedPoint.ofInt(1), FixedPoint.ofInt(9000)));
+        assertEquals(FixedPoint.ofInt(90_000), group.getMaxBonusFixed());
+
+        assertTrue(group.removeBet("1111"));
+        assertTrue(group.removeBet("3333"));
+        assertFalse(group.removeBet("3333"));
+        assertEquals(0, group.getMaxBonusFixed());
+        assertEquals(0, group.getTotalBonusFixed());
+        assertEquals(0, group.getTotalBetMoneyFixed());
+    }
+
+    private static void assertAggregates(BetNumberGroupByType group) {
+        long money = 0;
+        long bonus = 0;
+        long max = 0;
+        for (int row = 0; row < group.size(); row++) {
+            money += group.betMoneyAt(row);
+            bonus += group.bonusAt(row);
+            max = Math.max(max, group.bonusAt(row));
+        }
+        assertEquals(money, group.getTotalBetMoneyFixed(), "总投注");
+        assertEquals(bonus, group.getTotalBonusFixed(), "总奖金");
+        assertEquals(max, group.getMaxBonusFixed(), "最大奖金");
+        assertEquals(money - max, group.getMinProfitFixed(), "最差负值");
+    }
+}
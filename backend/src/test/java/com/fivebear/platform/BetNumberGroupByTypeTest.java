@@ -0,0 +1,78 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 列式投注本的合并规则：同一号码的重复投注合并为一行，金额和奖金累加，赔率保留第一次的，
+ * 行按号码首次出现的顺序排列。getBetNumbers、BetNumberManager 的查询和统计都按合并后的行返回。
+ */
+class BetNumberGroupByTypeTest {
+
+    private static BetNumber bet(String betNo, String money, String odds) {
+        return new BetNumber(11, betNo, new BigDecimal(money), new BigDecimal(odds));
+    }
+
+    @Test
+    void duplicateBetsMergeIntoFirstRow() {
+        BetNumberGroupByType group = new BetNumberGroupByType(11, Arrays.asList(
+                bet("1234", "10", "9000"),
+                bet("5678", "20", "9500"),
+                bet("1234", "5", "9800"),
+                bet("0000", "1", "9000")));
+
+        assertEquals(3, group.size());
+        List<BetNumber> bets = group.getBetNumbers();
+        assertEquals(Arrays.asList("1234", "5678", "0000"), Arrays.asList(
+                bets.get(0).getBetNo(), bets.get(1).getBetNo(), bets.get(2).getBetNo()));
+
+        BetNumber merged = bets.get(0);
+        assertEquals(0, new BigDecimal("15").compareTo(merged.getBetMoney()));
+        // 赔率保留第一次的，奖金按每注自己的赔率累加：10×9000 + 5×9800
+        assertEquals(0, new BigDecimal("9000").compareTo(merged.getOdds()));
+        assertEquals(0, new BigDecimal("139000").compareTo(merged.getBonus()));
+        // 负值 = 玩法总投注 - 该号码奖金
+        assertEquals(0, new BigDecimal("36").subtract(new BigDecimal("139000")).compareTo(merged.getProfit()));
+
+        assertEquals(0, new BigDecimal("36").compareTo(group.getTotalBetMoney()));
+        assertEquals(0, new BigDecimal("139000").add(new BigDecimal("190000")).add(new BigDecimal("9000"))
+                .compareTo(group.getTotalBonus()));
+        assertEquals(0, new BigDecimal("190000").compareTo(group.getMaxBonus()));
+    }
+
+    @Test
+    void getBetMatchesMergedRowAndIgnoresOtherTypes() {
+        BetNumberGroupByType group = new BetNumberGroupByType(11, Arrays.asList(
+                bet("1234", "10", "9000"), bet("1234", "2", "9000")));
+        assertEquals(0, new BigDecimal("12").compareTo(group.getBet("1234").getBetMoney()));
+        assertNull(group.getBet("4321"));
+        assertNull(group.getBet("12XX"));
+        assertFalse(group.addBet(new BetNumber(1, "12XX", new BigDecimal("1"), new BigDecimal("90"))));
+        assertEquals(1, group.size());
+    }
+
+    @Test
+    void managerQueriesReturnMergedRows() {
+        BetNumberManager manager = new BetNumberManager();
+        manager.addBet(bet("1234", "10", "9000"));
+        manager.addBet(new BetNumber(1, "12XX", new BigDecimal("3"), new BigDecimal("90")));
+        manager.addBet(bet("1234", "5", "9800"));
+
+        // 投注号码总数按合并后的号码计
+        assertEquals(2, manager.totalCount());
+        List<BetNumber> byType = manager.queryByDictNoTypeId(11);
+        assertEquals(1, byType.size());
+        assertEquals(0, new BigDecimal("15").compareTo(byType.get(0).getBetMoney()));
+        assertEquals(0, new BigDecimal("9000").compareTo(byType.get(0).getOdds()));
+        assertEquals(1, manager.queryByNumber("1234").size());
+        assertEquals(0, new BigDecimal("18").compareTo(manager.totalBetMoney()));
+        assertEquals(0, new BigDecimal("139270").compareTo(manager.totalBonus()));
+    }
+}
@@ -0,0 +1,152 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * BetNumberManager 多线程并发加入投注：计数不丢失，快照一致且只读
+ */
+class BetNumberManagerTest {
+    private static final int THREADS = 8;
+    private static final int BETS_PER_THREAD = 20_000;
+
+    // 每个线程的投注：金额为整数，赔率按号码固定，并发顺序不影响结果
+    private static List<BetNumber> bets(int thread) {
+        Random random = new Random(thread);
+        List<BetNumber> bets = new ArrayList<>(BETS_PER_THREAD);
+        for (int i = 0; i < BETS_PER_THREAD; i++) {
+            int number = random.nextInt(2000);
+            bets.add(new BetNumber(11, String.format("%04d", number), BigDecimal.valueOf(1 + random.nextInt(20)),
+                    BigDecimal.valueOf(9000 + number % 100)));
+        }
+        return bets;
+    }
+
+    @Test
+    void concurrentAddsMatchSequentialTotals() throws Exception {
+        BetNumberManager expected = new BetNumberManager();
+        for (int t = 0; t < THREADS; t++) {
+            expected.addBets(bets(t));
+        }
+
+        BetNumberManager manager = new BetNumberManager();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                List<BetNumber> bets = bets(t);
+                boolean single = t % 2 == 0;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    if (single) {
+                        for (BetNumber bet : bets) {
+                            manager.addBet(bet);
+                        }
+                    } else {
+                        for (int i = 0; i < bets.size(); i += 100) {
+                            manager.addBets(bets.subList(i, i + 100));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            // 写入期间不断读取快照：每份快照内部的汇总与各行之和一致
+            Future<Integer> reader = executor.submit(() -> {
+                start.await();
+                int snapshots = 0;
+                while (writing.get()) {
+                    for (BetNumberGroupByType group : manager.getAllGroups()) {
+                        long money = 0;
+                        for (int row = 0; row < group.size(); row++) {
+                            money += group.betMoneyAt(row);
+                        }
+                        assertEquals(money, group.getTotalBetMoneyFixed());
+                    }
+                    snapshots++;
+                }
+                return snapshots;
+            });
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(expected.totalBetMoney(), manager.totalBetMoney());
+        assertEquals(expected.totalBonus(), manager.totalBonus());
+        assertEquals(expected.totalCount(), manager.totalCount());
+        BetNumberGroupByType e = expected.getAllGroups().get(0);
+        BetNumberGroupByType a = manager.getAllGroups().get(0);
+        for (int row = 0; row < e.size(); row++) {
+            BetNumber bet = a.getBet(NumberIndex.numberAt(e.slotAt(row)));
+            assertEquals(e.betMoneyAt(row), bet.getBetMoneyFixed());
+            assertEquals(e.oddsAt(row), bet.getOddsFixed());
+            assertEquals(e.bonusAt(row), bet.getBonusFixed());
+        }
+    }
+
+    @Test
+    void snapshotIsReadOnlyAndCachedUntilChanged() {
+        BetNumberManager manager = new BetNumberManager();
+        manager.addBet(new BetNumber(11, "1234", BigDecimal.TEN, BigDecimal.valueOf(9000)));
+        List<BetNumberGroupByType> snapshot = manager.getAllGroups();
+        assertSame(snapshot, manager.getAllGroups());
+
+        BetNumberGroupByType group = snapshot.get(0);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(group));
+        assertThrows(UnsupportedOperationException.class,
+                () -> group.addBet(new BetNumber(11, "1234", BigDecimal.ONE, BigDecimal.ONE)));
+        assertThrows(UnsupportedOperationException.class, () -> group.updateBet("1234", 1, 1));
+        assertThrows(UnsupportedOperationException.class, () -> group.removeBet("1234"));
+        assertThrows(UnsupportedOperationException.class, group::recalculateTotalBetMoney);
+
+        manager.updateBet(new BetNumber(11, "1234", BigDecimal.ONE, BigDecimal.valueOf(9500)));
+        List<BetNumberGroupByType> updated = manager.getAllGroups();
+        assertNotSame(snapshot, updated);
+        assertEquals(FixedPoint.ofInt(9500), updated.get(0).getTotalBonusFixed());
+        // 旧快照不受影响
+        assertEquals(FixedPoint.ofInt(90_000), group.getTotalBonusFixed());
+
+        assertTrue(manager.removeBet(11, "1234"));
+        assertTrue(manager.getAllGroups().isEmpty());
+    }
+
+    @Test
+    void loadedGroupsAreNotShared() {
+        BetNumberGroupByType loaded = new BetNumberGroupByType(11, new ArrayList<>());
+        loaded.addBet(new BetNumber(11, "1234", BigDecimal.TEN, BigDecimal.valueOf(9000)));
+        List<BetNumberGroupByType> groups = new ArrayList<>();
+        groups.add(loaded);
+        BetNumberManager manager = new BetNumberManager(groups);
+
+        // 传入的分组之后再改，不影响 manager
+        loaded.addBet(new BetNumber(11, "5678", BigDecimal.ONE, BigDecimal.valueOf(9000)));
+        List<BetNumberGroupByType> snapshot = manager.getAllGroups();
+        assertNotSame(loaded, snapshot.get(0));
+        assertEquals(1, snapshot.get(0).size());
+        assertEquals(FixedPoint.ofInt(10), snapshot.get(0).getTotalBetMoneyFixed());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.get(0).removeBet("1234"));
+    }
+}
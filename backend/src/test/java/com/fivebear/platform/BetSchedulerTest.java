@@ -0,0 +1,110 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 赔率长时间没有推送时，BetScheduler 仍按最后的赔率分配；只有显式设置了最大时效的 domain 才跳过
+ */
+class BetSchedulerTest {
+
+    private PlatformManager platformManager;
+    private OddsManager oddsManager;
+    private MemberSite siteA;
+    private MemberSite siteB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        platformManager = new PlatformManager(Files.createTempDirectory("scheduler"));
+        oddsManager = platformManager.getOddsManager();
+        siteA = site("www.sitea.com");
+        siteB = site("www.siteb.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        platformManager.shutdown();
+    }
+
+    private MemberSite site(String host) {
+        FengHuangMember site = new FengHuangMember("user", "pass", host, LotteryType.values()[0], 0, "u1");
+        MemberSettingInfo setting = new MemberSettingInfo();
+        setting.setDictNoTypeId(11);
+        setting.setMinBet(1);
+        setting.setOneBetLimit(1000);
+        setting.setOneItemLimit(1000);
+        site.getMemberInfo().setMemberSettingInfos(Collections.singletonList(setting));
+        site.getMemberInfo().setCreditBalance(10000);
+        platformManager.getSiteManager().registerSite(site);
+        site.setSiteStatus(SiteStatus.IDLE);
+        return site;
+    }
+
+    // 两个站点最后一次推送在 301 秒前，之后一直没有新赔率
+    private long quietOdds() {
+        long now = System.currentTimeMillis();
+        long pushed = now - 301_000;
+        oddsManager.addOdds("1234", 11, siteA.getDomain(), 9700, pushed);
+        oddsManager.addOdds("1234", 11, siteB.getDomain(), 9800, pushed);
+        oddsManager.expireStale(now);
+        return now;
+    }
+
+    @Test
+    void allocatesAfterQuietOddsByDefault() {
+        quietOdds();
+        BetScheduler scheduler = new BetScheduler(platformManager);
+
+        List<BetScheduler.BetAllocation> allocations =
+                scheduler.allocateBets(Arrays.asList(new BetScheduler.BetTask("1234", 100, false)));
+        assertEquals(1, allocations.size());
+        assertEquals(siteB, allocations.get(0).site);
+        assertEquals(100.0, allocations.get(0).amount);
+
+        Map<Integer, List<Bet>> input = new HashMap<>();
+        input.put(11, Arrays.asList(new Bet("1234", 100, 11)));
+        BetScheduler.AllocationResult result = scheduler.allocateBetsByBestOdds(input);
+        assertTrue(result.unassignedBets.isEmpty());
+        assertEquals(1, result.siteBetsList.size());
+        assertEquals(siteB, result.siteBetsList.get(0).getSite());
+    }
+
+    @Test
+    void siteWithoutOddsRowIsStillAllocated() {
+        // 与改动前一致：没有该号码赔率的站点也参与分配
+        BetScheduler scheduler = new BetScheduler(platformManager);
+        List<BetScheduler.BetAllocation> allocations =
+                scheduler.allocateBets(Arrays.asList(new BetScheduler.BetTask("5678", 100, false)));
+        assertEquals(1, allocations.size());
+        assertEquals(100.0, allocations.get(0).amount);
+    }
+
+    @Test
+    void explicitMaxAgeSkipsStaleDomain() {
+        oddsManager.setMaxOddsAge(siteB.getDomain(), 300_000);
+        quietOdds();
+        BetScheduler scheduler = new BetScheduler(platformManager);
+
+        List<BetScheduler.BetAllocation> allocations =
+                scheduler.allocateBets(Arrays.asList(new BetScheduler.BetTask("1234", 100, false)));
+        assertEquals(1, allocations.size());
+        assertEquals(siteA, allocations.get(0).site);
+
+        Map<Integer, List<Bet>> input = new HashMap<>();
+        input.put(11, Arrays.asList(new Bet("1234", 100, 11)));
+        BetScheduler.AllocationResult result = scheduler.allocateBetsByBestOdds(input);
+        assertEquals(1, result.siteBetsList.size());
+        assertEquals(siteA, result.siteBetsList.get(0).getSite());
+    }
+}
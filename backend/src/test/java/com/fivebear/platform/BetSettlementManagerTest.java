@@ -0,0 +1,108 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * BetSettlementManager 的增量汇总、负值排序和 analyzeNegative 逐笔回写
+ */
+class BetSettlementManagerTest {
+
+    private static Bet bet(String number, double money, double odds, String domain) {
+        Bet bet = new Bet(number, money);
+        bet.setOdds(odds);
+        bet.setDomain(domain);
+        return bet;
+    }
+
+    private static BetSettlementManager sample() {
+        BetSettlementManager manager = new BetSettlementManager();
+        manager.addInBets(Arrays.asList(
+                bet("1234", 10, 9000, "a"),
+                bet("1234", 5, 9800, "b"),
+                bet("5678", 20, 9500, "a"),
+                bet("12XX", 30, 97, "b"),
+                bet("0000", 1, 9000, null)));
+        manager.addOutBet(bet("1234", 3, 9900, "x"));
+        manager.addOutBet(bet("5678", 2, 9900, "y"));
+        return manager;
+    }
+
+    @Test
+    void totalsByTypeAndDomain() {
+        BetSettlementManager manager = sample();
+        assertEquals(66, manager.getTotalInAmount());
+        assertEquals(5, manager.getTotalOutAmount());
+        assertEquals(61, manager.getProfit());
+        assertEquals(36, manager.getTotalInAmountByTypeId(11));
+        assertEquals(30, manager.getTotalInAmountByTypeId(1));
+        assertEquals(5, manager.getTotalOutAmountByTypeId(11));
+        assertEquals(31, manager.getProfitByTypeId(11));
+        assertEquals(30, manager.getTotalInAmountByDomain("a"));
+        assertEquals(35, manager.getTotalInAmountByDomain("b"));
+        assertEquals(1, manager.getTotalInAmountByDomain(null));
+        assertEquals(-3, manager.getProfitByDomain("x"));
+        assertEquals(12, manager.getProfitByNumberAndTypeId("1234", 11));
+        assertEquals(12, manager.getProfitByNumberAndTypeId().get("1234#11").doubleValue());
+        assertEquals(2, manager.getInBetsByNumber("1234").size());
+        assertEquals(1, manager.getOutBetsByNumber("5678").size());
+        assertTrue(manager.getInBetsByNumber("9999").isEmpty());
+    }
+
+    @Test
+    void negativesAreOrderedFromWorst() {
+        BetSettlementManager manager = sample();
+        // 1234 入货奖金 10×9000 + 5×9800 = 139000，5678 为 190000，12XX 为 2910，0000 为 9000
+        assertEquals(66 - 139_000, manager.getNegativeByNumberAndTypeId("1234", 11));
+        assertEquals(66, manager.getNegativeByNumberAndTypeId("9999", 11));
+
+        Map<String, Double> most = manager.getMostNegative(3);
+        assertEquals(Arrays.asList("5678#11", "1234#11", "0000#11"), new ArrayList<>(most.keySet()));
+        assertEquals(66 - 190_000, most.get("5678#11").doubleValue());
+
+        Map<String, Double> negative = manager.getNegativeNumbers();
+        assertEquals(Arrays.asList("5678#11", "1234#11", "0000#11", "12XX#1"), new ArrayList<>(negative.keySet()));
+
+        // 再加入一笔，顺序随之调整
+        manager.addInBet(bet("0000", 30, 9000, "a"));
+        assertEquals("0000#11", manager.getMostNegative(1).keySet().iterator().next());
+    }
+
+    @Test
+    void analyzeNegativeWritesPerBetValues() {
+        BetSettlementManager manager = sample();
+        manager.addOutBet(bet("1234", 1, 9700, "y"));
+        manager.analyzeNegative();
+        // 入货：总入货 66 - 该注单奖金，同一号码的两笔各不相同
+        List<Bet> in = manager.getInBetsByNumber("1234");
+        assertEquals(66 - 90_000, in.get(0).getNegative());
+        assertEquals(66 - 49_000, in.get(1).getNegative());
+        assertEquals(66 - 2910, manager.getInBetsByNumber("12XX").get(0).getNegative());
+        // 出货：该注单奖金 - 总出货 6
+        List<Bet> out = manager.getOutBetsByNumber("1234");
+        assertEquals(3 * 9900 - 6, out.get(0).getNegative());
+        assertEquals(9700 - 6, out.get(1).getNegative());
+        for (Bet bet : manager.getInBets()) {
+            assertEquals(manager.getTotalInAmount() - bet.getWinMoney(), bet.getNegative(), 1e-6);
+        }
+        // 按号码合计的负值不受影响
+        assertEquals(66 - 139_000, manager.getNegativeByNumberAndTypeId("1234", 11));
+    }
+
+    @Test
+    void liabilityFollowsInAndOutBets() {
+        BetSettlementManager manager = sample();
+        DrawLiability liability = manager.getLiability();
+        // 开 5678：入货 66 - 奖金 190000，出货 -5 + 2×9900
+        assertEquals(FixedPoint.of(66 - 190_000 - 5 + 19_800.0), liability.getNetFixed(5678));
+        // 开 1200：只有 12XX 中奖
+        assertEquals(FixedPoint.of(66 - 2910 - 5.0), liability.getNetFixed(1200));
+    }
+}
@@ -0,0 +1,128 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * DrawLiability 与逐个开奖结果暴力匹配号码的结果一致，增量更新与全量重建一致
+ */
+class DrawLiabilityTest {
+
+    // 号码是否命中开奖结果：X 位置任意，其余位置相同
+    private static boolean hits(String number, String draw) {
+        for (int i = 0; i < 4; i++) {
+            if (number.charAt(i) != 'X' && number.charAt(i) != draw.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    void incrementalMatchesBruteForceAndRebuild() {
+        Random random = new Random(17);
+        int n = 3000;
+        String[] numbers = new String[n];
+        long[] money = new long[n];
+        long[] bonus = new long[n];
+        boolean[] out = new boolean[n];
+        DrawLiability incremental = new DrawLiability();
+        BetNumberManager manager = new BetNumberManager();
+        long totalIn = 0;
+        for (int i = 0; i < n; i++) {
+            int slot = random.nextInt(NumberIndex.SLOT_COUNT);
+            numbers[i] = NumberIndex.numberAt(slot);
+            int type = NumberIndex.dictNoTypeIdAt(slot);
+            long odds = FixedPoint.ofInt(type <= 6 ? 97 : type <= 10 ? 970 : 9700);
+            money[i] = FixedPoint.ofInt(1 + random.nextInt(30));
+            bonus[i] = FixedPoint.mul(money[i], odds);
+            out[i] = i % 10 == 9;
+            if (out[i]) {
+                assertTrue(incremental.addOutBet(numbers[i], money[i], bonus[i]));
+            } else {
+                assertTrue(incremental.addInBet(numbers[i], money[i], bonus[i]));
+                manager.addBet(new BetNumber(type, numbers[i], money[i], odds));
+                totalIn += money[i];
+            }
+        }
+
+        long[] expected = new long[DrawLiability.DRAW_COUNT];
+        int worst = 0;
+        int losing = 0;
+        for (int draw = 0; draw < DrawLiability.DRAW_COUNT; draw++) {
+            String drawNumber = String.format("%04d", draw);
+            long net = 0;
+            for (int i = 0; i < n; i++) {
+                long sign = out[i] ? -1 : 1;
+                net += sign * money[i];
+                if (hits(numbers[i], drawNumber)) {
+                    net -= sign * bonus[i];
+                }
+            }
+            expected[draw] = net;
+            if (net < expected[worst]) {
+                worst = draw;
+            }
+            if (net < 0) {
+                losing++;
+            }
+        }
+        assertArrayEquals(expected, incremental.getDistributionFixed());
+        assertEquals(expected[worst], incremental.getWorstNetFixed());
+        assertEquals(expected[worst], incremental.getNetFixed(DrawLiability.drawIndex(incremental.getWorstDraw())));
+        assertEquals(losing, incremental.getLosingDrawCount());
+        assertEquals(FixedPoint.toBigDecimal(totalIn), incremental.getTotalBetMoney());
+
+        List<String> top = incremental.topDangerousDraws(20);
+        assertEquals(20, top.size());
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(incremental.getNet(top.get(i - 1)).compareTo(incremental.getNet(top.get(i))) <= 0);
+        }
+        assertEquals(0, FixedPoint.toBigDecimal(expected[worst]).compareTo(incremental.getNet(top.get(0))));
+
+        // 全量重建只含入货，再补上出货后与增量结果一致
+        DrawLiability rebuilt = new DrawLiability();
+        rebuilt.rebuild(manager);
+        for (int i = 0; i < n; i++) {
+            if (out[i]) {
+                rebuilt.addOutBet(numbers[i], money[i], bonus[i]);
+            }
+        }
+        assertArrayEquals(expected, rebuilt.getDistributionFixed());
+        assertEquals(incremental.getWorstNetFixed(), rebuilt.getWorstNetFixed());
+    }
+
+    @Test
+    void twoDigitBetHitsHundredDraws() {
+        DrawLiability liability = new DrawLiability();
+        Bet bet = new Bet("1X3X", 10, 2);
+        bet.setOdds(97);
+        liability.addInBet(bet);
+        assertEquals(100, liability.getLosingDrawCount());
+        assertEquals(0, new BigDecimal("-960").compareTo(liability.getNet("1234")));
+        assertEquals(0, new BigDecimal("10").compareTo(liability.getNet("1244")));
+        assertEquals("1030", liability.getWorstDraw());
+    }
+
+    @Test
+    void invalidInputIsRejected() {
+        DrawLiability liability = new DrawLiability();
+        assertFalse(liability.addInBet("12X", 1, 1));
+        assertFalse(liability.addOutBet("XXXX", 1, 1));
+        assertEquals(-1, DrawLiability.drawIndex("12XX"));
+        assertThrows(IllegalArgumentException.class, () -> liability.getNet("12XX"));
+        liability.addInBet("1234", 5, 10);
+        liability.clear();
+        assertEquals(0, liability.getWorstNetFixed());
+        assertEquals(0, liability.getLosingDrawCount());
+    }
+}
@@ -0,0 +1,89 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FixedPoint 的乘除、舍入和溢出，以 BigDecimal 的 8 位小数 HALF_UP 结果为准
+ */
+class FixedPointTest {
+
+    @Test
+    void mulMatchesBigDecimalHalfUp() {
+        Random random = new Random(12);
+        for (int i = 0; i < 100_000; i++) {
+            long a = randomValue(random);
+            long b = randomValue(random);
+            BigDecimal expected = FixedPoint.toBigDecimal(a).multiply(FixedPoint.toBigDecimal(b))
+                    .setScale(FixedPoint.DECIMALS, RoundingMode.HALF_UP);
+            if (expected.abs().compareTo(FixedPoint.toBigDecimal(Long.MAX_VALUE)) > 0) {
+                continue;
+            }
+            assertEquals(expected, FixedPoint.toBigDecimal(FixedPoint.mul(a, b)), a + " × " + b);
+        }
+    }
+
+    @Test
+    void divMatchesBigDecimalHalfUp() {
+        Random random = new Random(34);
+        for (int i = 0; i < 100_000; i++) {
+            long a = randomValue(random);
+            long b = randomValue(random);
+            if (b == 0) {
+                continue;
+            }
+            BigDecimal expected = FixedPoint.toBigDecimal(a).divide(FixedPoint.toBigDecimal(b),
+                    FixedPoint.DECIMALS, RoundingMode.HALF_UP);
+            if (expected.abs().compareTo(FixedPoint.toBigDecimal(Long.MAX_VALUE)) > 0) {
+                continue;
+            }
+            assertEquals(expected, FixedPoint.toBigDecimal(FixedPoint.div(a, b)), a + " ÷ " + b);
+        }
+    }
+
+    @Test
+    void halfUpRoundsTiesAwayFromZero() {
+        // 0.00000001 × 0.5 = 0.000000005，舍入到 0.00000001
+        long half = FixedPoint.ONE / 2;
+        assertEquals(1, FixedPoint.mul(1, half));
+        assertEquals(-1, FixedPoint.mul(-1, half));
+        // 0.00000001 ÷ 2 同理
+        assertEquals(1, FixedPoint.div(1, FixedPoint.ofInt(2)));
+        assertEquals(-1, FixedPoint.div(-1, FixedPoint.ofInt(2)));
+        // 1 ÷ 3 = 0.33333333
+        assertEquals(33_333_333, FixedPoint.div(FixedPoint.ONE, FixedPoint.ofInt(3)));
+    }
+
+    @Test
+    void ofDoubleMatchesBigDecimalValueOf() {
+        double[] values = { 0.1, 0.7, 9876.54, 9999.99, -0.015, 1e-9, 123456789.123456789, 9876543210.5 };
+        for (double value : values) {
+            assertEquals(FixedPoint.of(BigDecimal.valueOf(value)), FixedPoint.of(value), String.valueOf(value));
+        }
+        assertEquals(FixedPoint.ONE / 10, FixedPoint.of(0.1));
+        assertEquals(0.1, FixedPoint.toDouble(FixedPoint.of(0.1)));
+    }
+
+    @Test
+    void overflowAndDivisionByZeroThrow() {
+        long big = FixedPoint.ofInt(10_000_000_000L);
+        assertThrows(ArithmeticException.class, () -> FixedPoint.mul(big, big));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.div(big, 1));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.div(FixedPoint.ONE, 0));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.ofInt(Long.MAX_VALUE / 10));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.of(new BigDecimal("1e12")));
+    }
+
+    // 覆盖金额、赔率到接近上限的各个数量级，正负都有
+    private static long randomValue(Random random) {
+        long magnitude = (long) Math.pow(10, random.nextInt(19));
+        long value = Math.floorMod(random.nextLong(), magnitude);
+        return random.nextBoolean() ? value : -value;
+    }
+}
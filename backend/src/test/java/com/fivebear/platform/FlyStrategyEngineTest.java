@@ -0,0 +1,118 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FlyStrategyEngine 的最差、平均盈亏按开奖结果计算，合计行不是各玩法相加；整期对比在 50 ms 内完成
+ */
+class FlyStrategyEngineTest {
+
+    private static BetNumberManager fullPeriod(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BetNumberManager manager = new BetNumberManager();
+        for (int slot = 0; slot < NumberIndex.SLOT_COUNT; slot++) {
+            int type = NumberIndex.dictNoTypeIdAt(slot);
+            String number = NumberIndex.numberAt(slot);
+            int odds = type <= 6 ? 90 : type <= 10 ? 900 : 9000;
+            manager.addBet(new BetNumber(type, number, BigDecimal.valueOf(1 + random.nextInt(50)),
+                    BigDecimal.valueOf(odds)));
+        }
+        return manager;
+    }
+
+    @Test
+    void singleBetUsesAllDraws() {
+        BetNumberManager manager = new BetNumberManager();
+        manager.addBet(new BetNumber(11, "1234", BigDecimal.TEN, BigDecimal.valueOf(9000)));
+        FlyStrategyEngine.Comparison comparison = new FlyStrategyEngine().compare(manager, 5, null);
+        FlyStrategyEngine.Summary summary = comparison.getSummary(11, FlyStrategyEngine.Strategy.RISK_CONTROL);
+        BetNumberResults r = summary.getDetail().getResultsList().get(0);
+        long fly = r.getFlyMoneyFixed();
+        assertTrue(fly > 0);
+        // 没开 1234：收 10、飞出 fly；开 1234：再赔 90000、收回出货奖金
+        long miss = FixedPoint.ofInt(10) - fly;
+        long hit = miss - FixedPoint.ofInt(90_000) + r.getSellBonusFixed();
+        long mean = miss + (hit - miss) / DrawLiability.DRAW_COUNT;
+        assertEquals(Math.min(hit, miss), summary.getWorstWinFixed());
+        assertEquals(mean, summary.getExpectedWinFixed());
+        // 只对投注号码取平均时得到的是开 1234 的盈亏
+        assertTrue(summary.getExpectedWinFixed() != r.getWinFixed());
+        FlyStrategyEngine.Summary total = comparison.getTotal(FlyStrategyEngine.Strategy.RISK_CONTROL);
+        assertEquals(Math.min(hit, miss), total.getWorstWinFixed());
+        assertEquals(mean, total.getExpectedWinFixed());
+    }
+
+    @Test
+    void totalWorstIsTheWorstCombinedDraw() {
+        BetNumberManager manager = new BetNumberManager();
+        // 两个玩法最差的开奖结果不相交：1234 和 567X 不可能同时开出
+        manager.addBet(new BetNumber(11, "1234", BigDecimal.TEN, BigDecimal.valueOf(9000)));
+        manager.addBet(new BetNumber(7, "567X", BigDecimal.TEN, BigDecimal.valueOf(900)));
+        FlyStrategyEngine.Comparison comparison = new FlyStrategyEngine().compare(manager, 5, null);
+        for (FlyStrategyEngine.Strategy strategy : FlyStrategyEngine.Strategy.values()) {
+            FlyStrategyEngine.Summary four = comparison.getSummary(11, strategy);
+            FlyStrategyEngine.Summary three = comparison.getSummary(7, strategy);
+            FlyStrategyEngine.Summary total = comparison.getTotal(strategy);
+            DrawLiability expected = PnlSimulator.exposure(manager, Arrays.asList(
+                    four.getDetail(), three.getDetail()));
+            assertEquals(expected.getWorstNetFixed(), total.getWorstWinFixed(), strategy.getLabel());
+            assertEquals(expected.getMeanNetFixed(), total.getExpectedWinFixed(), strategy.getLabel());
+            // 平均值可以逐玩法相加（各自截断，最多差 1 个最小单位），最差值不能
+            assertEquals(four.getExpectedWinFixed() + three.getExpectedWinFixed(), total.getExpectedWinFixed(), 1,
+                    strategy.getLabel());
+            if (strategy == FlyStrategyEngine.Strategy.RISK_CONTROL) {
+                assertTrue(total.getWorstWinFixed() > four.getWorstWinFixed() + three.getWorstWinFixed());
+            }
+        }
+    }
+
+    @Test
+    void summariesMatchIncrementalExposure() {
+        BetNumberManager manager = fullPeriod(3);
+        FlyStrategyEngine.Comparison comparison = new FlyStrategyEngine().compare(manager, 5, null);
+        for (FlyStrategyEngine.Strategy strategy : FlyStrategyEngine.Strategy.values()) {
+            DrawLiability expected = new DrawLiability();
+            for (BetNumberGroupByType group : manager.getAllGroups()) {
+                for (BetNumber bet : group.getBetNumbers()) {
+                    expected.addInBet(bet.getBetNo(), bet.getBetMoneyFixed(), bet.getBonusFixed());
+                }
+            }
+            for (FlyStrategyEngine.Summary[] summaries : comparison.getByType()) {
+                for (BetNumberResults r : summaries[strategy.ordinal()].getDetail().getResultsList()) {
+                    if (r.getFlyMoneyFixed() != 0) {
+                        expected.addOutBet(r.getBetNo(), r.getFlyMoneyFixed(), r.getSellBonusFixed());
+                    }
+                }
+            }
+            FlyStrategyEngine.Summary total = comparison.getTotal(strategy);
+            assertEquals(expected.getWorstNetFixed(), total.getWorstWinFixed(), strategy.getLabel());
+            long sum = 0;
+            for (long net : expected.getDistributionFixed()) {
+                sum += net;
+            }
+            assertEquals(sum / DrawLiability.DRAW_COUNT, total.getExpectedWinFixed(), 1, strategy.getLabel());
+        }
+    }
+
+    @Test
+    void fullPeriodComparesWithinFiftyMillis() {
+        BetNumberManager manager = fullPeriod(11);
+        FlyStrategyEngine engine = new FlyStrategyEngine();
+        // 预热 JIT 后取多次中的最好成绩
+        for (int i = 0; i < 20; i++) {
+            engine.compare(manager, 5, null);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            best = Math.min(best, engine.compare(manager, 5, null).getElapsedNanos());
+        }
+        assertTrue(best < 50_000_000L, "整期策略对比耗时 " + best / 1e6 + " ms");
+    }
+}
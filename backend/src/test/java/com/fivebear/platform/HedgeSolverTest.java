@@ -0,0 +1,185 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * HedgeSolver 的方案满足亏损上限和各站点限额；方案按下单明细重放到 DrawLiability 上核对
+ */
+class HedgeSolverTest {
+
+    private static OddsSnapshot odds(String... domains) {
+        OddsManager oddsManager = new OddsManager();
+        for (int d = 0; d < domains.length; d++) {
+            OddsManager.OddsBatch batch = new OddsManager.OddsBatch(NumberIndex.SLOT_COUNT);
+            for (int slot = 0; slot < NumberIndex.SLOT_COUNT; slot++) {
+                int type = NumberIndex.dictNoTypeIdAt(slot);
+                double base = type <= 6 ? 97 : type <= 10 ? 970 : 9700;
+                // 两个站点的赔率交错高低
+                batch.add(NumberIndex.numberAt(slot), type, base + ((slot + d) % 2) * base / 100);
+            }
+            oddsManager.addOddsBatch(domains[d], batch, 0, System.currentTimeMillis());
+        }
+        return oddsManager.snapshot();
+    }
+
+    private static HedgeSolver.SiteLimit site(String domain, double credit, double oneItemLimit, double oneBetLimit) {
+        MemberSettingInfo setting = new MemberSettingInfo();
+        setting.setDictNoTypeId(11);
+        setting.setMinBet(1);
+        setting.setOneItemLimit(oneItemLimit);
+        setting.setOneBetLimit(oneBetLimit);
+        return new HedgeSolver.SiteLimit(domain, credit, Arrays.asList(setting));
+    }
+
+    // 集中在少数号码上的入货，最差开奖结果亏损较大
+    private static DrawLiability exposure() {
+        DrawLiability liability = new DrawLiability();
+        Random random = new Random(21);
+        for (int i = 0; i < 3000; i++) {
+            String number = String.format("%04d", random.nextInt(200) * 37);
+            liability.addInBet(number, FixedPoint.ofInt(10 + random.nextInt(20)), FixedPoint.ofInt(200_000));
+        }
+        for (int i = 0; i < 300; i++) {
+            String number = String.format("%02dXX", random.nextInt(10));
+            liability.addInBet(number, FixedPoint.ofInt(50), FixedPoint.ofInt(4_900));
+        }
+        return liability;
+    }
+
+    @Test
+    void planMeetsLossCapAndLimits() {
+        DrawLiability liability = exposure();
+        double initialWorst = FixedPoint.toDouble(liability.getWorstNetFixed());
+        double maxLoss = 50_000;
+        assertTrue(initialWorst < -maxLoss);
+
+        List<HedgeSolver.SiteLimit> sites = Arrays.asList(site("a", 1_000_000, 500, 100), site("b", 1_000_000, 300, 50));
+        HedgeSolver.Plan plan = new HedgeSolver().solve(liability, odds("a", "b"), sites, maxLoss,
+                HedgeSolver.Objective.MIN_COST, 10_000);
+
+        assertTrue(plan.isFeasible(), plan::toString);
+        assertFalse(plan.isTimedOut());
+        assertFalse(plan.getOrders().isEmpty());
+        assertTrue(plan.getWorstNet() >= -maxLoss, plan::toString);
+
+        Map<String, Double> perItem = new HashMap<>();
+        double cost = 0;
+        for (HedgeSolver.Order order : plan.getOrders()) {
+            double oneBetLimit = order.getDomain().equals("a") ? 100 : 50;
+            assertTrue(order.getAmount() <= oneBetLimit + 1e-9, order::toString);
+            perItem.merge(order.getNumber() + "@" + order.getDomain(), order.getAmount(), Double::sum);
+            cost += order.getAmount();
+            liability.addOutBet(order.getNumber(), FixedPoint.of(order.getAmount()),
+                    FixedPoint.of(order.getAmount() * order.getOdds()));
+        }
+        for (Map.Entry<String, Double> entry : perItem.entrySet()) {
+            double oneItemLimit = entry.getKey().endsWith("@a") ? 500 : 300;
+            assertTrue(entry.getValue() <= oneItemLimit + 1e-9, entry::toString);
+        }
+        assertEquals(plan.getTotalCost(), cost, 1e-6);
+        // 重放后的最差开奖结果与方案一致，且不低于上限（double 与定点数之间的舍入误差）
+        double replayedWorst = FixedPoint.toDouble(liability.getWorstNetFixed());
+        assertEquals(plan.getWorstNet(), replayedWorst, 0.01);
+        assertTrue(replayedWorst >= -maxLoss - 0.01);
+    }
+
+    @Test
+    void tightLimitsReturnBestInfeasiblePlan() {
+        DrawLiability liability = exposure();
+        double initialWorst = FixedPoint.toDouble(liability.getWorstNetFixed());
+        List<HedgeSolver.SiteLimit> sites = Arrays.asList(site("a", 200, 20, 10));
+        HedgeSolver.Plan plan = new HedgeSolver().solve(liability, odds("a"), sites, 1_000,
+                HedgeSolver.Objective.MIN_COST, 10_000);
+
+        assertFalse(plan.isFeasible());
+        assertTrue(plan.getTotalCost() <= 200 + 1e-9, plan::toString);
+        assertTrue(plan.getWorstNet() >= initialWorst, plan::toString);
+    }
+
+    @Test
+    void noOrdersWhenAlreadyWithinCap() {
+        DrawLiability liability = exposure();
+        double maxLoss = -FixedPoint.toDouble(liability.getWorstNetFixed());
+        HedgeSolver.Plan plan = new HedgeSolver().solve(liability, odds("a"),
+                Arrays.asList(site("a", 1_000_000, 500, 100)), maxLoss, HedgeSolver.Objective.MAX_EXPECTED_PROFIT, 1_000);
+        assertTrue(plan.isFeasible());
+        assertTrue(plan.getOrders().isEmpty());
+        assertEquals(0, plan.getIterations());
+    }
+
+    // 只有 1234（四定）和 12XX（二定）有出货赔率，twoOdds 为 NaN 时只有 1234
+    private static OddsSnapshot twoNumberOdds(double fourOdds, double twoOdds) {
+        OddsManager oddsManager = new OddsManager();
+        OddsManager.OddsBatch batch = new OddsManager.OddsBatch(2);
+        batch.add("1234", 11, fourOdds);
+        if (!Double.isNaN(twoOdds)) {
+            batch.add("12XX", NumberIndex.dictNoTypeIdAt(NumberIndex.slotOf("12XX")), twoOdds);
+        }
+        oddsManager.addOddsBatch("a", batch, 0, System.currentTimeMillis());
+        return oddsManager.snapshot();
+    }
+
+    private static DrawLiability singleNumber() {
+        DrawLiability liability = new DrawLiability();
+        liability.addInBet("1234", FixedPoint.ofInt(10), FixedPoint.ofInt(100_000));
+        return liability;
+    }
+
+    private static double amountOn(HedgeSolver.Plan plan, String number) {
+        double amount = 0;
+        for (HedgeSolver.Order order : plan.getOrders()) {
+            if (order.getNumber().equals(number)) {
+                amount += order.getAmount();
+            }
+        }
+        return amount;
+    }
+
+    @Test
+    void expectedProfitPrefersLowerExpectedLoss() {
+        // 1234 赔率 5000：每元补 4999，期望损耗率 1 - 5000/10000 = 0.5
+        // 12XX 赔率 99.5：每元补 98.5，期望损耗率 1 - 99.5 × 100/10000 = 0.005
+        OddsSnapshot snapshot = twoNumberOdds(5000, 99.5);
+        // 单项、单注限额为 0 表示不限
+        List<HedgeSolver.SiteLimit> sites = Arrays.asList(site("a", 1_000_000, 0, 0));
+
+        HedgeSolver.Plan cheapest = new HedgeSolver().solve(singleNumber(), snapshot, sites, 1_000,
+                HedgeSolver.Objective.MIN_COST, 10_000);
+        HedgeSolver.Plan profitable = new HedgeSolver().solve(singleNumber(), snapshot, sites, 1_000,
+                HedgeSolver.Objective.MAX_EXPECTED_PROFIT, 10_000);
+
+        assertTrue(cheapest.isFeasible(), cheapest::toString);
+        assertTrue(profitable.isFeasible(), profitable::toString);
+        assertTrue(amountOn(cheapest, "1234") > 0 && amountOn(cheapest, "12XX") == 0, cheapest::toString);
+        assertTrue(amountOn(profitable, "12XX") > 0 && amountOn(profitable, "1234") == 0, profitable::toString);
+        assertTrue(cheapest.getTotalCost() < profitable.getTotalCost());
+        assertTrue(profitable.getExpectedNet() > cheapest.getExpectedNet());
+        // 单注不限时每个 (号码, 站点) 只下一笔
+        assertEquals(1, profitable.getOrders().size());
+    }
+
+    @Test
+    void placedFlyOutsUseUpItemLimit() {
+        OddsSnapshot snapshot = twoNumberOdds(5000, Double.NaN);
+        HedgeSolver.SiteLimit limit = site("a", 1_000_000, 500, 0).addPlaced("1234", 490);
+        HedgeSolver.Plan plan = new HedgeSolver().solve(singleNumber(), snapshot, Arrays.asList(limit), 1_000,
+                HedgeSolver.Objective.MIN_COST, 10_000);
+        assertFalse(plan.isFeasible());
+        assertEquals(10, amountOn(plan, "1234"), 1e-9);
+
+        HedgeSolver.Plan fresh = new HedgeSolver().solve(singleNumber(), snapshot,
+                Arrays.asList(site("a", 1_000_000, 500, 0)), 1_000, HedgeSolver.Objective.MIN_COST, 10_000);
+        assertTrue(fresh.isFeasible(), fresh::toString);
+        assertTrue(amountOn(fresh, "1234") > 10, fresh::toString);
+    }
+}
@@ -0,0 +1,63 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * NumberIndex 与 NumberTemplateGenerator 的号码顺序一致，换算可逆
+ */
+class NumberIndexTest {
+
+    @Test
+    void slotsFollowTemplateOrder() {
+        assertEquals(6 * 100 + 4 * 1000 + 10000, NumberIndex.SLOT_COUNT);
+        int expectedFirst = 0;
+        for (int type = 1; type <= NumberIndex.TYPE_COUNT; type++) {
+            List<String> numbers = NumberTemplateGenerator.getNumbersByDictNoTypeId(type);
+            assertEquals(expectedFirst, NumberIndex.firstSlot(type), "玩法" + type);
+            assertEquals(numbers.size(), NumberIndex.slotCount(type), "玩法" + type);
+            for (int i = 0; i < numbers.size(); i++) {
+                int slot = expectedFirst + i;
+                assertEquals(slot, NumberIndex.slotOf(numbers.get(i)));
+                assertEquals(slot, NumberIndex.slotOf(numbers.get(i), type));
+                assertEquals(numbers.get(i), NumberIndex.numberAt(slot));
+                assertEquals(type, NumberIndex.dictNoTypeIdAt(slot));
+            }
+            expectedFirst += numbers.size();
+        }
+    }
+
+    @Test
+    void invalidNumbersMapToMinusOne() {
+        assertEquals(-1, NumberIndex.slotOf(null));
+        assertEquals(-1, NumberIndex.slotOf(""));
+        assertEquals(-1, NumberIndex.slotOf("123"));
+        assertEquals(-1, NumberIndex.slotOf("12345"));
+        assertEquals(-1, NumberIndex.slotOf("12A4"));
+        assertEquals(-1, NumberIndex.slotOf("12x4"));
+        // 三个或四个 X 不属于任何玩法
+        assertEquals(-1, NumberIndex.slotOf("1XXX"));
+        assertEquals(-1, NumberIndex.slotOf("XXXX"));
+        // 号码与玩法不匹配
+        assertEquals(-1, NumberIndex.slotOf("12XX", 2));
+        assertEquals(-1, NumberIndex.slotOf("1234", 1));
+    }
+
+    @Test
+    void subSequenceLookupMatchesStringLookup() {
+        String line = "11,1234,5.0;1,12XX,3.0";
+        assertEquals(NumberIndex.slotOf("1234"), NumberIndex.slotOf(line, 3, 7));
+        assertEquals(NumberIndex.slotOf("12XX"), NumberIndex.slotOf(line, 14, 18));
+        assertEquals(-1, NumberIndex.slotOf(line, 3, 8));
+    }
+
+    @Test
+    void typeOutOfRangeThrows() {
+        assertThrows(IllegalArgumentException.class, () -> NumberIndex.firstSlot(0));
+        assertThrows(IllegalArgumentException.class, () -> NumberIndex.slotCount(NumberIndex.TYPE_COUNT + 1));
+    }
+}
@@ -0,0 +1,77 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * OddsCheckpoint 恢复的赔率保留原来的更新时间，过期仍由最大时效判断；检查点可以反复覆盖写入
+ */
+class OddsCheckpointTest {
+
+    private static OddsManager.OddsBatch batch(String number, int dictNoTypeId, double odds) {
+        OddsManager.OddsBatch batch = new OddsManager.OddsBatch(1);
+        batch.add(number, dictNoTypeId, odds);
+        return batch;
+    }
+
+    @Test
+    void restoreKeepsUpdateMillisFromCheckpointAndJournal() throws Exception {
+        Path dir = Files.createTempDirectory("checkpoint");
+        long now = System.currentTimeMillis();
+        long checkpointed = now - 200_000;
+        long journaled = now - 10_000;
+
+        OddsManager oddsManager = new OddsManager();
+        PackageInfoManager packageInfoManager = new PackageInfoManager();
+        OddsCheckpoint checkpoint = new OddsCheckpoint(dir);
+        oddsManager.addOddsBatch("a.com", "P1", batch("1234", 11, 9700), 0.01, checkpointed);
+        // 连续写两次，第二次覆盖第一次的文件
+        checkpoint.checkpoint(oddsManager, packageInfoManager);
+        checkpoint.checkpoint(oddsManager, packageInfoManager);
+        OddsManager.OddsBatch later = batch("5678", 11, 9800);
+        oddsManager.addOddsBatch("a.com", "P1", later, 0.01, journaled);
+        checkpoint.journalOdds("a.com", "P1", later, 0.01, journaled);
+        checkpoint.close();
+
+        OddsCheckpoint reloaded = new OddsCheckpoint(dir);
+        reloaded.load();
+        OddsManager restored = new OddsManager();
+        assertTrue(reloaded.restoreIfCurrent("P1", restored, new PackageInfoManager()));
+        reloaded.close();
+
+        OddsSnapshot snapshot = restored.snapshot();
+        int domainId = snapshot.getDomainId("a.com");
+        assertEquals(9700.0, snapshot.rawOdds(domainId, NumberIndex.slotOf("1234")));
+        assertEquals(checkpointed, snapshot.updateMillis(domainId, NumberIndex.slotOf("1234")));
+        assertEquals(9800.0, snapshot.rawOdds(domainId, NumberIndex.slotOf("5678")));
+        assertEquals(journaled, snapshot.updateMillis(domainId, NumberIndex.slotOf("5678")));
+    }
+
+    @Test
+    void rowsStaleBeforeRestartExpireAfterRestore() throws Exception {
+        Path dir = Files.createTempDirectory("checkpoint");
+        long now = System.currentTimeMillis();
+        OddsManager oddsManager = new OddsManager();
+        oddsManager.addOddsBatch("a.com", "P1", batch("1234", 11, 9700), 0, now - 400_000);
+        oddsManager.addOddsBatch("a.com", "P1", batch("5678", 11, 9800), 0, now - 10_000);
+        OddsCheckpoint checkpoint = new OddsCheckpoint(dir);
+        checkpoint.checkpoint(oddsManager, new PackageInfoManager());
+
+        OddsCheckpoint reloaded = new OddsCheckpoint(dir);
+        reloaded.load();
+        OddsManager restored = new OddsManager();
+        restored.setDefaultMaxOddsAge(300_000);
+        assertTrue(reloaded.restoreIfCurrent("P1", restored, new PackageInfoManager()));
+
+        assertTrue(restored.isStale("1234", "a.com", now));
+        // 时间轮以构造时刻起算，推进两个 tick 保证到期项已处理
+        assertEquals(1, restored.expireStale(System.currentTimeMillis() + 2000));
+        assertEquals(0.0, restored.getOdds("1234", "a.com"));
+        assertTrue(restored.isFresh("5678", "a.com", now));
+    }
+}
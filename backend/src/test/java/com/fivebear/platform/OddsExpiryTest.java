@@ -0,0 +1,91 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * OddsExpiry 时间轮：按 tick 到期、多圈到期、惰性重排和停顿后的补处理
+ */
+class OddsExpiryTest {
+    private static final OddsExpiry.Handler EXPIRE = (domain, slot, now) -> -1;
+
+    @Test
+    void itemsExpireAtTheirTickAcrossRounds() {
+        // 100 ms 一个 tick，8 个桶，一圈 800 ms
+        OddsExpiry expiry = new OddsExpiry(100, 8, 0);
+        expiry.schedule("a", 1, 250);
+        expiry.schedule("a", 2, 5_000);
+        expiry.schedule("b", 1, 250);
+        // 同一 (domain, 号码) 只挂一个
+        expiry.schedule("a", 1, 400);
+        assertEquals(3, expiry.size());
+
+        List<String> due = new ArrayList<>();
+        OddsExpiry.Handler record = (domain, slot, now) -> {
+            due.add(domain + slot);
+            return -1;
+        };
+        // 250 向上取整到 tick 3
+        assertEquals(0, expiry.advance(299, record));
+        assertEquals(2, expiry.advance(300, record));
+        assertEquals(List.of("a1", "b1"), due);
+        // 5000 在六圈之后，中途经过同一个桶不处理
+        assertEquals(0, expiry.advance(4_999, record));
+        assertEquals(1, expiry.advance(5_000, record));
+        assertEquals(0, expiry.size());
+        // 时间倒退不处理
+        assertEquals(0, expiry.advance(100, record));
+    }
+
+    @Test
+    void handlerCanRescheduleByLatestUpdate() {
+        OddsExpiry expiry = new OddsExpiry(10, 16, 0);
+        // 赔率在 30 ms 时又更新过一次，到期时按最新更新时间顺延
+        Map<Integer, Long> lastUpdate = new HashMap<>();
+        lastUpdate.put(7, 30L);
+        long ttl = 100;
+        expiry.schedule("a", 7, ttl);
+        OddsExpiry.Handler handler = (domain, slot, now) -> {
+            long deadline = lastUpdate.get(slot) + ttl;
+            return deadline > now ? deadline : -1;
+        };
+        assertEquals(1, expiry.advance(100, handler));
+        assertEquals(1, expiry.size());
+        assertEquals(0, expiry.advance(120, handler));
+        assertEquals(1, expiry.advance(130, handler));
+        assertEquals(0, expiry.size());
+    }
+
+    @Test
+    void longPauseProcessesEachItemOnce() {
+        OddsExpiry expiry = new OddsExpiry(100, 8, 0);
+        for (int slot = 0; slot < 1000; slot++) {
+            expiry.schedule("a", slot, 100 + slot * 10L);
+        }
+        // 停顿远超一圈
+        assertEquals(1000, expiry.advance(1_000_000, EXPIRE));
+        assertEquals(0, expiry.size());
+
+        // 已过期的到期时间挂到下一个 tick
+        expiry.schedule("a", 1, 0);
+        assertEquals(1, expiry.advance(1_000_100, EXPIRE));
+
+        expiry.schedule("a", 1, 2_000_000);
+        expiry.clear();
+        assertEquals(0, expiry.size());
+        assertEquals(0, expiry.advance(3_000_000, EXPIRE));
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new OddsExpiry(0, 8, 0));
+        assertThrows(IllegalArgumentException.class, () -> new OddsExpiry(100, 0, 0));
+    }
+}
@@ -0,0 +1,118 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * OddsHistory 的环形覆盖、有符号时间偏移、越界样本丢弃和 clear 重置时间基准
+ */
+class OddsHistoryTest {
+    private static final long DAY = 24 * 3600_000L;
+    private static final int SLOT = NumberIndex.slotOf("1234");
+
+    @Test
+    void ringKeepsNewestSamplesAfterWrap() {
+        OddsHistory history = new OddsHistory(4);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(history.record(SLOT, "a", 10 + i, now + i * 1000L));
+        }
+        assertEquals(4, history.sampleCount("1234", "a"));
+        // 保留最后 4 个样本 16~19，按时间从旧到新
+        for (int i = 6; i < 10; i++) {
+            assertEquals(10 + i, history.oddsAt("1234", "a", now + i * 1000L));
+            assertEquals(10 + i, history.oddsAt("1234", "a", now + i * 1000L + 999));
+        }
+        assertArrayEquals(new double[] { 16, 19 }, history.minMaxSince("1234", "a", now));
+        assertArrayEquals(new double[] { 18, 19 }, history.minMaxSince("1234", "a", now + 8000));
+        assertEquals(19 - 17, history.deltaSince("1234", "a", now + 7000));
+        // 再写一个，头指针从中间继续绕
+        assertTrue(history.record(SLOT, "a", 30, now + 10_000));
+        assertEquals(4, history.sampleCount("1234", "a"));
+        assertArrayEquals(new double[] { 17, 30 }, history.minMaxSince("1234", "a", now));
+        assertEquals(0, history.sampleCount("1234", "b"));
+        assertEquals(0, history.sampleCount("5678", "a"));
+    }
+
+    @Test
+    void offsetsBeforeAndAfterBaseAreSigned() {
+        OddsHistory history = new OddsHistory(8);
+        long now = System.currentTimeMillis();
+        assertTrue(history.record(SLOT, "a", 9.876, now - 20 * DAY));
+        assertTrue(history.record(SLOT, "a", 9.5, now - 1));
+        assertTrue(history.record(SLOT, "a", 9.7, now + 20 * DAY));
+        assertEquals(9.876, history.oddsAt("1234", "a", now - 20 * DAY));
+        assertEquals(9.876, history.oddsAt("1234", "a", now - 2));
+        assertEquals(9.5, history.oddsAt("1234", "a", now));
+        assertEquals(9.7, history.oddsAt("1234", "a", now + 20 * DAY));
+        assertArrayEquals(new double[] { 9.5, 9.7 }, history.minMaxSince("1234", "a", now - DAY));
+    }
+
+    @Test
+    void outOfRangeSamplesAreRejected() {
+        OddsHistory history = new OddsHistory(8);
+        long now = System.currentTimeMillis();
+        assertFalse(history.record(SLOT, "a", -1, now));
+        assertFalse(history.record(SLOT, "a", Double.NaN, now));
+        assertFalse(history.record(SLOT, "a", 16777.216, now));
+        // int 毫秒偏移约 ±24.8 天
+        assertFalse(history.record(SLOT, "a", 9.8, now + 30 * DAY));
+        assertFalse(history.record(SLOT, "a", 9.8, now - 30 * DAY));
+        assertEquals(5, history.rejectedCount());
+        assertEquals(0, history.sampleCount("1234", "a"));
+
+        assertTrue(history.record(SLOT, "a", 0, now));
+        assertTrue(history.record(SLOT, "a", 16777.215, now + 1));
+        assertEquals(16777.215, history.oddsAt("1234", "a", now + 1));
+        assertEquals(2, history.sampleCount("1234", "a"));
+        assertEquals(5, history.rejectedCount());
+    }
+
+    @Test
+    void queriesBeforeOldestSample() {
+        OddsHistory history = new OddsHistory(2);
+        long now = System.currentTimeMillis();
+        history.record(SLOT, "a", 9.0, now);
+        history.record(SLOT, "a", 9.2, now + 1000);
+        history.record(SLOT, "a", 9.6, now + 2000);
+        // 9.0 已被覆盖，最旧的是 9.2
+        assertTrue(Double.isNaN(history.oddsAt("1234", "a", now + 999)));
+        assertTrue(Double.isNaN(history.oddsAt("1234", "a", now - DAY)));
+        // 早于最旧样本时从最旧样本算起
+        assertEquals(9.6 - 9.2, history.deltaSince("1234", "a", now - DAY), 1e-9);
+        assertEquals(9.6 - 9.2, history.deltaSince("1234", "a", now + 1500), 1e-9);
+        assertEquals(0, history.deltaSince("1234", "a", now + 2000));
+        assertEquals(0, history.deltaSince("5678", "a", now));
+        assertTrue(Double.isNaN(history.oddsAt("1234", "b", now + 2000)));
+        assertNull(history.minMaxSince("1234", "a", now + 2001));
+    }
+
+    @Test
+    void clearResetsSamplesAndBaseMillis() throws InterruptedException {
+        long before = System.currentTimeMillis();
+        OddsHistory history = new OddsHistory(4);
+        long after = System.currentTimeMillis();
+        // 离构造时的基准超过 int 毫秒范围
+        long far = after + Integer.MAX_VALUE + 1L;
+        assertFalse(history.record(SLOT, "a", 9.8, far));
+        assertTrue(history.record(SLOT, "a", 9.8, before));
+        assertEquals(1, history.rejectedCount());
+
+        while (System.currentTimeMillis() <= after + 1) {
+            Thread.sleep(1);
+        }
+        history.clear();
+        assertEquals(0, history.sampleCount("1234", "a"));
+        assertEquals(0, history.rejectedCount());
+        assertTrue(Double.isNaN(history.oddsAt("1234", "a", far)));
+        // 基准移到 clear 的时刻，同一时间点落回范围内，且能按新基准还原
+        assertTrue(history.record(SLOT, "a", 9.9, far));
+        assertEquals(9.9, history.oddsAt("1234", "a", far));
+        assertTrue(Double.isNaN(history.oddsAt("1234", "a", far - 1)));
+    }
+}
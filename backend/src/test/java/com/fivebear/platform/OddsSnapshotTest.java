@@ -0,0 +1,180 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * OddsSnapshot 写时复制：已发布的快照不随之后的写入变化，一个批次对读方整体可见
+ */
+class OddsSnapshotTest {
+
+    @Test
+    void publishedSnapshotNeverChanges() {
+        long now = System.currentTimeMillis();
+        OddsManager oddsManager = new OddsManager();
+        oddsManager.addOdds("1234", 11, "a", 9000, now);
+        oddsManager.addOdds("5678", 11, "a", 9100, now);
+        OddsSnapshot before = oddsManager.snapshot();
+        int a = before.getDomainId("a");
+        int slot = NumberIndex.slotOf("1234");
+        List<NumberOddsGroup.OddsInfo> bestBefore = before.getMaxOddsForDictNoTypeId(11);
+
+        oddsManager.addOdds("1234", 11, "b", 9500, now);
+        oddsManager.addOdds("1234", 11, "a", 9200, now);
+        oddsManager.setRebateRate("a", 0.02);
+        oddsManager.removeDomain("b");
+        OddsSnapshot after = oddsManager.snapshot();
+
+        assertEquals(1, before.getDomainCount());
+        assertEquals(9000, before.odds(a, slot));
+        assertEquals(a, before.maxDomain(slot));
+        assertEquals(-1, before.secondDomain(slot));
+        assertEquals(0, before.rebateRate(a));
+        assertSame(bestBefore, before.getMaxOddsForDictNoTypeId(11));
+        // 缓存视图跨版本共享，元素也是只读的；copy() 得到可修改的副本
+        NumberOddsGroup.OddsInfo shared = bestBefore.get(0);
+        assertThrows(UnsupportedOperationException.class, () -> shared.setOdds(1));
+        assertThrows(UnsupportedOperationException.class, () -> shared.setUpdateMillis(0));
+        assertThrows(UnsupportedOperationException.class, () -> bestBefore.set(0, shared.copy()));
+        assertThrows(UnsupportedOperationException.class,
+                () -> before.getMaxOddsForEachNumber().get(0).setDomain("x"));
+        NumberOddsGroup.OddsInfo copy = shared.copy();
+        copy.setOdds(1);
+        assertEquals(1, copy.getOdds());
+        assertEquals(9000, shared.getOdds());
+        assertEquals(shared.getUpdateDatetime(), shared.copy().getUpdateDatetime());
+        assertEquals(9000, before.getMaxOdds("1234", 11));
+
+        assertTrue(after.getVersion() > before.getVersion());
+        // 删除的 domain 保留 domainId，但不再有赔率
+        assertEquals(0, after.getDomainSize("b"));
+        assertEquals(1, after.domainCountAt(slot));
+        assertEquals(2, before.getDomainSize("a"));
+        assertEquals(9200, after.rawOdds(after.getDomainId("a"), slot));
+        assertTrue(after.odds(after.getDomainId("a"), slot) > 9200);
+        assertEquals(0.02, after.rebateRate(after.getDomainId("a")));
+    }
+
+    @Test
+    void rankingFollowsUpdates() {
+        long now = System.currentTimeMillis();
+        OddsManager oddsManager = new OddsManager();
+        oddsManager.addOdds("12XX", 1, "a", 97, now);
+        oddsManager.addOdds("12XX", 1, "b", 98, now);
+        oddsManager.addOdds("12XX", 1, "c", 96, now);
+        OddsSnapshot snapshot = oddsManager.snapshot();
+        int slot = NumberIndex.slotOf("12XX");
+        assertEquals("b", snapshot.getDomain(snapshot.maxDomain(slot)));
+        assertEquals("a", snapshot.getDomain(snapshot.secondDomain(slot)));
+        assertEquals(3, snapshot.domainCountAt(slot));
+
+        oddsManager.addOdds("12XX", 1, "c", 99, now);
+        snapshot = oddsManager.snapshot();
+        assertEquals("c", snapshot.getDomain(snapshot.maxDomain(slot)));
+        assertEquals("b", snapshot.getDomain(snapshot.secondDomain(slot)));
+        assertEquals(99, oddsManager.getMaxOddsInfo("12XX", 1).getOdds());
+    }
+
+    @Test
+    void batchIsVisibleAsAWhole() throws Exception {
+        OddsManager oddsManager = new OddsManager();
+        int first = NumberIndex.firstSlot(11);
+        int count = NumberIndex.slotCount(11);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int round = 1; round <= 200; round++) {
+                    OddsManager.OddsBatch batch = new OddsManager.OddsBatch(count);
+                    for (int i = 0; i < count; i++) {
+                        batch.add(NumberIndex.numberAt(first + i), 11, 9000 + round);
+                    }
+                    oddsManager.addOddsBatch("a", batch, 0, System.currentTimeMillis());
+                }
+                writing.set(false);
+            });
+            Future<Integer> reader = executor.submit(() -> {
+                int checked = 0;
+                while (writing.get()) {
+                    OddsSnapshot snapshot = oddsManager.snapshot();
+                    int a = snapshot.getDomainId("a");
+                    if (a < 0) {
+                        continue;
+                    }
+                    // 同一快照内整批赔率相同
+                    double expected = snapshot.odds(a, first);
+                    for (int i = 1; i < count; i++) {
+                        assertEquals(expected, snapshot.odds(a, first + i));
+                    }
+                    checked++;
+                }
+                return checked;
+            });
+            writer.get(60, TimeUnit.SECONDS);
+            reader.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        OddsSnapshot last = oddsManager.snapshot();
+        assertEquals(9200, last.odds(last.getDomainId("a"), first + count - 1));
+        assertNotEquals(OddsSnapshot.EMPTY, last);
+    }
+
+    @Test
+    void domainIdsAreRecycledAfterRemoveAndRollover() {
+        long now = System.currentTimeMillis();
+        OddsManager oddsManager = new OddsManager();
+        for (int d = 0; d < OddsSnapshot.MAX_DOMAINS; d++) {
+            oddsManager.addOdds("1234", 11, "site" + d + ".com", 9000 + d, now);
+        }
+        OddsSnapshot full = oddsManager.snapshot();
+        assertEquals(OddsSnapshot.MAX_DOMAINS, full.getDomainCount());
+
+        // 没有可回收的 id：丢弃这一批，不抛异常
+        OddsManager.OddsBatch batch = new OddsManager.OddsBatch(1);
+        batch.add("1234", 11, 9500);
+        assertEquals(0, oddsManager.addOddsBatch("mirror1.com", batch, 0, now));
+        assertEquals(-1, oddsManager.snapshot().getDomainId("mirror1.com"));
+
+        // 删除的 domain 的 id 给新 domain 使用，旧快照不受影响
+        oddsManager.removeDomain("site5.com");
+        assertEquals(1, oddsManager.addOddsBatch("mirror1.com", batch, 0, now));
+        OddsSnapshot recycled = oddsManager.snapshot();
+        int id = recycled.getDomainId("mirror1.com");
+        assertEquals(OddsSnapshot.MAX_DOMAINS, recycled.getDomainCount());
+        assertEquals(-1, recycled.getDomainId("site5.com"));
+        assertEquals(0.0, recycled.rebateRate(id));
+        assertEquals(9500.0, recycled.odds(id, NumberIndex.slotOf("1234")));
+        assertEquals("site5.com", full.getDomain(id));
+        assertEquals(9005.0, full.odds(id, NumberIndex.slotOf("1234")));
+
+        // 换期后，上一期整期没有赔率的 domain 可回收；有赔率的保留
+        oddsManager.rollover("101");
+        for (int d = 0; d < OddsSnapshot.MAX_DOMAINS; d++) {
+            String domain = d == 5 ? "mirror1.com" : "site" + d + ".com";
+            if (d != 7) {
+                oddsManager.addOdds("1234", 11, domain, 9000 + d, now);
+            }
+        }
+        assertEquals(0, oddsManager.addOddsBatch("mirror2.com", batch, 0, now));
+        oddsManager.rollover("102");
+        assertEquals(1, oddsManager.addOddsBatch("mirror2.com", batch, 0, now));
+        OddsSnapshot next = oddsManager.snapshot();
+        assertEquals(full.getDomainId("site7.com"), next.getDomainId("mirror2.com"));
+        assertEquals(-1, next.getDomainId("site7.com"));
+        assertFalse(next.getDomainId("site8.com") < 0);
+    }
+}
@@ -0,0 +1,199 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * PackageInfoManager 增量维护的最高赔率与按全部包牌重新计算的结果一致；
+ * 查询返回只读的缓存，当前期只由 rollover 确定
+ */
+class PackageInfoManagerTest {
+
+    private static final String[] DOMAINS = { "a.com", "b.com", "c.com", "d.com" };
+    private static final String[] NAMES = { "200", "300", "500" };
+    private static final int[] COUNTS = { 10, 20, 50 };
+
+    private static PackageInfo pkg(String domain, int dictTypeId, String name, int count, double odds, String periodNo) {
+        PackageInfo pkg = new PackageInfo();
+        pkg.setDomain(domain);
+        pkg.setDictTypeId(dictTypeId);
+        pkg.setDictNoTypeId(11);
+        pkg.setPackageName(name);
+        pkg.setPackageCount(count);
+        // 同一 domain 内每个 (玩法, 名称, 包牌数) 一个包牌ID
+        pkg.setPackageId(dictTypeId * 10000L + name.hashCode() % 100 * 100 + count);
+        pkg.setOddsMemberFinal(odds);
+        pkg.setPeriodNo(periodNo);
+        return pkg;
+    }
+
+    @Test
+    void incrementalBestMatchesFullRecompute() {
+        Random random = new Random(9);
+        PackageInfoManager manager = new PackageInfoManager();
+        // 参照：domain -> 包牌ID -> 包牌，domain -> 返点率
+        Map<String, Map<Long, PackageInfo>> packages = new HashMap<>();
+        Map<String, Double> rates = new HashMap<>();
+        for (int step = 0; step < 3000; step++) {
+            int action = random.nextInt(20);
+            String domain = DOMAINS[random.nextInt(DOMAINS.length)];
+            if (action == 0) {
+                manager.removeDomain(domain);
+                packages.remove(domain);
+            } else if (action <= 2) {
+                double rate = random.nextInt(10) / 1000.0;
+                manager.setRebateRate(domain, rate);
+                rates.put(domain, rate);
+            } else {
+                PackageInfo pkg = pkg(domain, 1 + random.nextInt(2), NAMES[random.nextInt(NAMES.length)],
+                        COUNTS[random.nextInt(COUNTS.length)], 9000 + random.nextInt(900), null);
+                manager.addPackage(pkg);
+                packages.computeIfAbsent(domain, k -> new HashMap<>()).put(pkg.getPackageId(), pkg);
+            }
+            if (step % 7 == 0) {
+                assertMatches(manager, packages, rates);
+            }
+        }
+        assertMatches(manager, packages, rates);
+    }
+
+    private static double finalOdds(PackageInfo pkg, Map<String, Double> rates) {
+        return pkg.getOddsMemberFinal() + rates.getOrDefault(pkg.getDomain(), 0.0) * 10000;
+    }
+
+    private static void assertMatches(PackageInfoManager manager, Map<String, Map<Long, PackageInfo>> packages,
+            Map<String, Double> rates) {
+        // 每个 (玩法, 名称, 包牌数) 的最高最终赔率
+        Map<String, Double> bestByKey = new HashMap<>();
+        Set<String> names = new HashSet<>();
+        for (Map<Long, PackageInfo> byId : packages.values()) {
+            for (PackageInfo pkg : byId.values()) {
+                bestByKey.merge(pkg.getDictTypeId() + "|" + pkg.getPackageName() + "|" + pkg.getPackageCount(),
+                        finalOdds(pkg, rates), Math::max);
+                names.add(pkg.getPackageName());
+            }
+        }
+        assertEquals(names, manager.getAllPackageNames());
+        List<PackageInfo> all = manager.getSortedMaxOddsPackageDomains();
+        assertEquals(bestByKey.size(), all.size());
+        for (PackageInfo pkg : all) {
+            String key = pkg.getDictTypeId() + "|" + pkg.getPackageName() + "|" + pkg.getPackageCount();
+            assertEquals(bestByKey.get(key), pkg.getOddsMemberFinal(), 1e-9, key);
+        }
+        for (int type = 1; type <= 2; type++) {
+            double typeBest = Double.NaN;
+            List<PackageInfo> levels = manager.getPackageLevels(type);
+            int levelCount = 0;
+            for (String name : NAMES) {
+                double nameBest = Double.NaN;
+                for (int count : COUNTS) {
+                    Double odds = bestByKey.get(type + "|" + name + "|" + count);
+                    if (odds != null) {
+                        nameBest = Double.isNaN(nameBest) ? odds : Math.max(nameBest, odds);
+                        levelCount++;
+                    }
+                }
+                PackageInfo best = manager.getMaxOddsPackageByDictNoTypeIdAndName(type, name);
+                if (Double.isNaN(nameBest)) {
+                    assertNull(best);
+                } else {
+                    assertEquals(nameBest, best.getOddsMemberFinal(), 1e-9);
+                    typeBest = Double.isNaN(typeBest) ? nameBest : Math.max(typeBest, nameBest);
+                }
+            }
+            assertEquals(levelCount, levels.size());
+            for (int i = 1; i < levels.size(); i++) {
+                assertTrue(levels.get(i - 1).getPackageCount() >= levels.get(i).getPackageCount());
+            }
+            PackageInfo best = manager.getMaxOddsPackageByDictNoTypeId(type);
+            if (Double.isNaN(typeBest)) {
+                assertNull(best);
+            } else {
+                assertEquals(typeBest, best.getOddsMemberFinal(), 1e-9);
+            }
+        }
+        for (String name : NAMES) {
+            double nameBest = Double.NaN;
+            for (Map.Entry<String, Double> entry : bestByKey.entrySet()) {
+                if (entry.getKey().split("\\|")[1].equals(name)) {
+                    nameBest = Double.isNaN(nameBest) ? entry.getValue() : Math.max(nameBest, entry.getValue());
+                }
+            }
+            PackageInfo best = manager.getMaxOddsPackageByName(name);
+            if (Double.isNaN(nameBest)) {
+                assertNull(best);
+            } else {
+                assertEquals(nameBest, best.getOddsMemberFinal(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void readsReturnCachedReadOnlyPackages() {
+        PackageInfoManager manager = new PackageInfoManager();
+        manager.addPackage(pkg("a.com", 1, "200", 10, 9000, null));
+        manager.addPackage(pkg("b.com", 1, "200", 20, 9100, null));
+        manager.setRebateRate("a.com", 0.01);
+
+        List<PackageInfo> levels = manager.getPackageLevels(1);
+        assertSame(levels, manager.getPackageLevels(1));
+        assertSame(manager.getSortedMaxOddsPackageDomains(), manager.getSortedMaxOddsPackageDomains());
+        assertSame(manager.getMaxOddsPackagesByDictNoTypeId(1), manager.getMaxOddsPackagesByDictNoTypeId(1));
+        assertThrows(UnsupportedOperationException.class, () -> levels.add(levels.get(0)));
+        PackageInfo best = manager.getMaxOddsPackageByName("200");
+        assertEquals(9100.0, best.getOddsMemberFinal());
+        assertThrows(UnsupportedOperationException.class, () -> best.setOddsMemberFinal(1));
+        PackageInfo copy = best.copy();
+        copy.setOddsMemberFinal(1);
+        assertEquals(9100.0, manager.getMaxOddsPackageByName("200").getOddsMemberFinal());
+
+        // 另一个玩法的变化不影响这个玩法已生成的档位
+        manager.addPackage(pkg("a.com", 2, "300", 10, 9000, null));
+        assertSame(levels, manager.getPackageLevels(1));
+        // 返点提高后 a.com 成为最高者
+        manager.setRebateRate("a.com", 0.02);
+        assertEquals(9200.0, manager.getMaxOddsPackageByName("200").getOddsMemberFinal());
+        assertEquals("a.com", manager.getMaxOddsPackageByName("200").getDomain());
+    }
+
+    @Test
+    void onlyRolloverSetsLivePeriodAndStagingIsBounded() {
+        PackageInfoManager manager = new PackageInfoManager();
+        // 期号确定前：不带期号的包牌进当前分区，带期号的提前写入
+        manager.addPackage(pkg("a.com", 1, "200", 10, 9000, null));
+        manager.addPackage(pkg("b.com", 1, "300", 10, 9000, "101"));
+        assertNull(manager.getLivePeriodNo());
+        assertNull(manager.getMaxOddsPackageByName("300"));
+
+        assertTrue(manager.rollover("101"));
+        assertEquals("101", manager.getLivePeriodNo());
+        assertEquals(9000.0, manager.getMaxOddsPackageByName("200").getOddsMemberFinal());
+        assertEquals(9000.0, manager.getMaxOddsPackageByName("300").getOddsMemberFinal());
+
+        // 早于当前期丢弃
+        manager.addPackage(pkg("c.com", 1, "500", 10, 9000, "100"));
+        assertNull(manager.getMaxOddsPackageByName("500"));
+        // 只提前写入最近的一期：103 先到，102 到达后 103 被丢弃，之后更晚的 104 拒绝
+        manager.addPackage(pkg("a.com", 1, "500", 10, 9300, "103"));
+        manager.addPackage(pkg("a.com", 1, "500", 20, 9200, "102"));
+        manager.addPackage(pkg("a.com", 1, "500", 50, 9400, "104"));
+        assertTrue(manager.rollover("102"));
+        assertEquals(9200.0, manager.getMaxOddsPackageByName("500").getOddsMemberFinal());
+        assertTrue(manager.rollover("103"));
+        assertNull(manager.getMaxOddsPackageByName("500"));
+        assertEquals(new ArrayList<>(), manager.getSortedMaxOddsPackageDomains());
+    }
+}
@@ -0,0 +1,81 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * PnlSimulator 的抽样可复现性和分布统计量
+ */
+class PnlSimulatorTest {
+    // 1234 入货 10 元、奖金 90000：开 1234 亏 89990，其余赚 10
+    private static DrawLiability singleBet() {
+        DrawLiability liability = new DrawLiability();
+        liability.addInBet("1234", FixedPoint.ofInt(10), FixedPoint.ofInt(90_000));
+        return liability;
+    }
+
+    @Test
+    void sameSeedGivesSameResultOnAnyPool() {
+        DrawLiability liability = singleBet();
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            PnlSimulator.Result a = new PnlSimulator(single).simulate(liability, null, 1_000_000, 20);
+            PnlSimulator.Result b = new PnlSimulator(parallel).simulate(liability, null, 1_000_000, 20);
+            assertEquals(a.getMean(), b.getMean());
+            assertEquals(a.getStdDev(), b.getStdDev());
+            assertEquals(a.getProbabilityOfLoss(), b.getProbabilityOfLoss());
+            assertEquals(a.getConditionalValueAtRisk(0.9999), b.getConditionalValueAtRisk(0.9999));
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void uniformSamplingMatchesExpectedLossProbability() {
+        PnlSimulator.Result result = new PnlSimulator().simulate(singleBet(), null, 4_000_000, 7);
+        assertEquals(4_000_000, result.getSamples());
+        // 期望亏损概率 1/10000，400 万次抽样的标准差约 0.5e-5
+        assertEquals(1e-4, result.getProbabilityOfLoss(), 3e-5);
+        assertEquals(-89_990, result.getWorst());
+        assertEquals(10, result.getBest());
+        // 期望均值 10 - 90000/10000 = 1
+        assertEquals(1, result.getMean(), 1);
+        assertEquals(-10, result.getValueAtRisk(0.95));
+    }
+
+    @Test
+    void weightsConcentrateSamples() {
+        double[] weights = new double[DrawLiability.DRAW_COUNT];
+        weights[1234] = 1;
+        PnlSimulator.Result result = new PnlSimulator().simulate(singleBet(), weights, 10_000, 1);
+        assertEquals(1.0, result.getProbabilityOfLoss());
+        assertEquals(-89_990, result.getMean());
+        assertEquals(0, result.getStdDev());
+        assertEquals(89_990, result.getValueAtRisk(0.99));
+        assertEquals(89_990, result.getConditionalValueAtRisk(0.99));
+
+        weights[1234] = 1;
+        weights[0] = 3;
+        result = new PnlSimulator().simulate(singleBet(), weights, 1_000_000, 2);
+        assertEquals(0.25, result.getProbabilityOfLoss(), 0.005);
+        assertTrue(result.getWorst() < 0 && result.getBest() == 10);
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        PnlSimulator simulator = new PnlSimulator();
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulate(singleBet(), null, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulate(singleBet(), new double[10], 10, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> simulator.simulate(singleBet(), new double[DrawLiability.DRAW_COUNT], 10, 1));
+        PnlSimulator.Result result = simulator.simulate(singleBet(), null, 10, 1);
+        assertThrows(IllegalArgumentException.class, () -> result.getValueAtRisk(1));
+    }
+}
@@ -0,0 +1,98 @@
+package com.fivebear.platform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * RiskControlCurve 在各成数下与逐行定点数计算的 riskControlAnalysis / riskControlFlyTotal 一致
+ */
+class RiskControlCurveTest {
+
+    private static BetNumberGroupByType group(Random random) {
+        BetNumberGroupByType group = new BetNumberGroupByType(11, new ArrayList<>());
+        for (int i = 0; i < 5000; i++) {
+            group.addBet(String.format("%04d", random.nextInt(10000)), FixedPoint.ofInt(1 + random.nextInt(50)),
+                    FixedPoint.of(9000 + random.nextInt(1000) / 10.0));
+        }
+        return group;
+    }
+
+    private static OddsManager oddsManager(Random random) {
+        OddsManager.OddsBatch batch = new OddsManager.OddsBatch(4096);
+        for (int i = 0; i < 4000; i++) {
+            batch.add(String.format("%04d", random.nextInt(10000)), 11, 9500 + random.nextInt(500));
+        }
+        OddsManager oddsManager = new OddsManager();
+        oddsManager.addOddsBatch("site-a", batch, 0, System.currentTimeMillis());
+        return oddsManager;
+    }
+
+    @Test
+    void curveMatchesFixedPointSweepAtEveryMultiple() {
+        Random random = new Random(22);
+        BetNumberGroupByType group = group(random);
+        OddsManager oddsManager = oddsManager(random);
+        RiskControlCurve curve = group.riskControlCurve(oddsManager);
+        assertEquals(group.size(), curve.size());
+
+        for (int multiple = 0; multiple <= 10; multiple++) {
+            List<BetNumberResults> results = group.riskControlAnalysis(multiple, oddsManager).getResultsList();
+            int flying = 0;
+            for (int row = 0; row < results.size(); row++) {
+                double fly = results.get(row).getFlyMoney().doubleValue();
+                if (fly > 0) {
+                    flying++;
+                }
+                assertEquals(fly, curve.flyAt(row, multiple), 1e-6, "成数" + multiple + " 行" + row);
+            }
+            assertEquals(flying, curve.flyCount(multiple), "成数" + multiple);
+            double expected = FixedPoint.toDouble(group.riskControlFlyTotal(multiple, oddsManager));
+            assertEquals(expected, curve.flyTotal(multiple), 1e-8 * group.size() + 1e-9 * expected, "成数" + multiple);
+        }
+    }
+
+    @Test
+    void flyTotalIsMonotoneAndRanksAreSorted() {
+        Random random = new Random(23);
+        BetNumberGroupByType group = group(random);
+        RiskControlCurve curve = group.riskControlCurve((OddsManager) null);
+        double previous = Double.POSITIVE_INFINITY;
+        for (double multiple = 0; multiple <= 10; multiple += 0.25) {
+            double total = curve.flyTotal(multiple);
+            assertTrue(total <= previous + 1e-9, "成数" + multiple);
+            previous = total;
+            int count = curve.flyCount(multiple);
+            // 前 count 行的飞货为正，之后为 0
+            for (int rank = 0; rank < curve.size(); rank++) {
+                double fly = curve.flyAt(curve.rowAt(rank), multiple);
+                assertEquals(rank < count, fly > 0, "成数" + multiple + " 名次" + rank);
+            }
+        }
+        assertEquals(Math.min(FixedPoint.toDouble(group.getMaxBonusFixed()), curve.keepLimit(3)),
+                curve.maxKeptBonus(3));
+    }
+
+    @Test
+    void curveIsCachedUntilBetsOrOddsChange() {
+        Random random = new Random(24);
+        BetNumberGroupByType group = group(random);
+        OddsManager oddsManager = oddsManager(random);
+        RiskControlCurve curve = group.riskControlCurve(oddsManager);
+        assertSame(curve, group.riskControlCurve(oddsManager));
+
+        group.addBet("0001", FixedPoint.ofInt(1), FixedPoint.ofInt(9000));
+        RiskControlCurve afterBet = group.riskControlCurve(oddsManager);
+        assertNotSame(curve, afterBet);
+
+        oddsManager.addOdds("0001", 11, "site-a", 9999, System.currentTimeMillis());
+        assertNotSame(afterBet, group.riskControlCurve(oddsManager));
+    }
+}